@@ -1,16 +1,24 @@
 package org.eurekaka.bricks.api;
 
+import org.eurekaka.bricks.common.archive.ColumnarReader;
+import org.eurekaka.bricks.common.archive.MarketArchive;
 import org.eurekaka.bricks.common.exception.ExApiException;
+import org.eurekaka.bricks.common.exception.ExApiNotImplementedException;
 import org.eurekaka.bricks.common.exception.ExchangeException;
 import org.eurekaka.bricks.common.model.*;
 import org.eurekaka.bricks.common.util.HttpUtils;
+import org.eurekaka.bricks.common.util.LatencyRecorder;
 import org.eurekaka.bricks.common.util.MonitorReporter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
 import java.net.http.HttpClient;
 import java.net.http.WebSocket;
 import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.*;
 import java.util.concurrent.*;
 
@@ -56,15 +64,41 @@ public class AbstractExchange<A extends AccountStatus, B extends ExApi> implemen
 
     protected boolean enableKlineSub;
 
+    // k 线档案目录，配置后停止时保存 k 线，添加交易对时先从档案读取，只从 rest 查询缺少的部分
+    protected String klineArchiveDir;
+
     protected int orderBookLimit;
 
+    // 上次检查时 ingest 队列的丢弃数量
+    private long lastIngestDrops;
+    private long lastIngestPrivateDrops;
+    // 上次检查时流式解析回退的消息数量
+    private long lastStreamingFallbacks;
+
+    // 客户端限频，未配置 rate_limit_weight 时为 null
+    private final RateLimiter rateLimiter;
+    // 上次检查时限频拒绝的请求数量
+    private long lastRateLimitRejected;
+
+    // rest 连接预热与保活，未配置 http_warm_connections 时只统计握手次数
+    private final HttpConnectionKeeper connectionKeeper;
+
+    // 没有异步接口的 action 在该线程池中执行，不阻塞调用线程与 http client 的线程池
+    private final ThreadPoolExecutor actionExecutor;
+
     public AbstractExchange(AccountConfig accountConfig, A accountStatus) {
         this.accountConfig = accountConfig;
         this.accountStatus = accountStatus;
 
         this.httpClient = HttpUtils.initializeHttpClient(accountConfig.getProperties());
+        this.rateLimiter = Long.parseLong(accountConfig.getProperty("rate_limit_weight", "0")) > 0 ?
+                new RateLimiter(accountConfig) : null;
+        if (rateLimiter != null) {
+            this.httpClient = new RateLimitedHttpClient(httpClient, rateLimiter);
+        }
         // 初始化action
         this.api = ClzUtils.createExApi(accountConfig.getApiClz(), accountConfig, httpClient);
+        this.connectionKeeper = new HttpConnectionKeeper(accountConfig, httpClient, api);
 
         // listener 从 class reflection 获取，
         // 可以保证，所有的对象都在此处能够初始化，避免非初始化对象在 super class内
@@ -87,12 +121,27 @@ public class AbstractExchange<A extends AccountStatus, B extends ExApi> implemen
                 "enable_kline", "false"));
         this.klineInterval = KLineInterval.getKLineInterval(accountConfig
                 .getProperty("kline_interval", "1m"));
+        this.klineArchiveDir = accountConfig.getProperty("kline_archive_dir");
 
         this.orderBookLimit = Integer.parseInt(accountConfig.getProperty("order_book_limit", "0"));
+
+        // 队列满时拒绝执行，返回 ERROR 消息，避免交易所响应变慢时请求无限堆积
+        int actionThreads = Integer.parseInt(accountConfig.getProperty("action_threads", "4"));
+        int actionQueueSize = Integer.parseInt(accountConfig.getProperty("action_queue_size", "1000"));
+        this.actionExecutor = new ThreadPoolExecutor(actionThreads, actionThreads,
+                60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(actionQueueSize), r -> {
+            Thread thread = new Thread(r, "action-" + accountConfig.getName());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.actionExecutor.allowCoreThreadTimeOut(true);
     }
 
     @Override
     public void start() throws ExchangeException {
+        // 启动与重连时预热 rest 连接，与 websocket 连接同时进行
+        connectionKeeper.start();
+
         if (accountConfig.getWebsocket() != null) {
             // 创建websocket连接
             this.webSocket = HttpUtils.createWebSocket(accountConfig, httpClient, listener);
@@ -142,7 +191,14 @@ public class AbstractExchange<A extends AccountStatus, B extends ExApi> implemen
                 logger.warn("close websocket abnormally", e);
             }
             webSocket.abort();
+            if (listener instanceof WebSocketListener) {
+                ((WebSocketListener<?, ?>) listener).close();
+            }
         }
+        archiveKLineValues();
+        connectionKeeper.close();
+        actionExecutor.shutdown();
+        api.close();
         HttpUtils.shutdownHttpClient(httpClient);
         logger.info("stopped exchange: {}", getName());
     }
@@ -156,6 +212,87 @@ public class AbstractExchange<A extends AccountStatus, B extends ExApi> implemen
                 System.currentTimeMillis() - accountStatus.getLastPongTime() < httpLostTimeout;
     }
 
+    /**
+     * @return websocket 接收队列统计，未开启 ingest_pipeline 时返回 null
+     */
+    public IngestMetrics getIngestMetrics() {
+        if (listener instanceof WebSocketListener) {
+            return ((WebSocketListener<?, ?>) listener).getIngestMetrics();
+        }
+        return null;
+    }
+
+    /**
+     * @return 流式解析回退到整条消息解析的数量
+     */
+    public long getStreamingFallbacks() {
+        if (listener instanceof WebSocketListener) {
+            return ((WebSocketListener<?, ?>) listener).getStreamingFallbacks();
+        }
+        return 0;
+    }
+
+    /**
+     * @return 客户端限频统计，未配置 rate_limit_weight 时返回 null
+     */
+    public RateLimitMetrics getRateLimitMetrics() {
+        return rateLimiter == null ? null : rateLimiter.getMetrics();
+    }
+
+    public HttpConnectionMetrics getHttpConnectionMetrics() {
+        return connectionKeeper.getMetrics();
+    }
+
+    /**
+     * 请求在限频额度紧张时的优先级，撤单最高，其次为对冲成交的订单，然后是挂单与查询
+     */
+    protected RequestPriority getRequestPriority(ExAction<?> action) {
+        switch (action.getType()) {
+            case CANCEL_ORDER:
+            case CANCEL_ORDER_V2:
+            case CANCEL_ORDERS:
+                return RequestPriority.CANCEL;
+            case MAKE_ORDER:
+            case MAKE_ORDER_V2:
+                return getOrderPriority((Order) action.getData());
+            case REPLACE_ORDER:
+                return getOrderPriority(((ReplaceOrderPair) action.getData()).order);
+            case MAKE_ORDERS:
+                // 批量订单中包含对冲单时按对冲单处理
+                RequestPriority priority = RequestPriority.QUOTE;
+                for (Order order : ((MakeOrdersPair) action.getData()).orders) {
+                    if (getOrderPriority(order) == RequestPriority.HEDGE) {
+                        priority = RequestPriority.HEDGE;
+                    }
+                }
+                return priority;
+            default:
+                return RequestPriority.QUERY;
+        }
+    }
+
+    // 设置当前线程的请求优先级，批量下单按订单数量占用下单额度
+    private RequestPriority enterRateLimit(ExAction<?> action) {
+        if (action.getType() == ExAction.ActionType.MAKE_ORDERS) {
+            RateLimiter.enterBatch(((MakeOrdersPair) action.getData()).orders.size());
+        }
+        return RateLimiter.enter(getRequestPriority(action));
+    }
+
+    private void exitRateLimit(RequestPriority previous) {
+        RateLimiter.exitBatch();
+        RateLimiter.exit(previous);
+    }
+
+    private static RequestPriority getOrderPriority(Order order) {
+        OrderType orderType = order.getOrderType();
+        if (orderType == OrderType.MARKET || orderType == OrderType.LIMIT_IOC ||
+                orderType == OrderType.LIMIT_FOK) {
+            return RequestPriority.HEDGE;
+        }
+        return RequestPriority.QUOTE;
+    }
+
     @Override
     public int getPriority() {
         return this.accountConfig.getPriority();
@@ -178,6 +315,7 @@ public class AbstractExchange<A extends AccountStatus, B extends ExApi> implemen
 
     @Override
     public ExMessage<?> process(ExAction<?> action) {
+        RequestPriority previous = rateLimiter == null ? null : enterRateLimit(action);
         try {
             switch (action.getType()) {
                 // websocket
@@ -212,6 +350,13 @@ public class AbstractExchange<A extends AccountStatus, B extends ExApi> implemen
                 case CANCEL_ORDER_V2:
                     return cancelOrderV2((ActionPair) action.getData());
 
+                case MAKE_ORDERS:
+                    return makeOrders(((MakeOrdersPair) action.getData()).orders);
+                case CANCEL_ORDERS:
+                    return cancelOrders(((CancelOrdersPair) action.getData()).pairs);
+                case REPLACE_ORDER:
+                    return replaceOrder((ReplaceOrderPair) action.getData());
+
                 case GET_CURRENT_ORDER:
                     return getCurrentOrders((CurrentOrderPair) action.getData());
                 case GET_ORDER_V2:
@@ -227,6 +372,14 @@ public class AbstractExchange<A extends AccountStatus, B extends ExApi> implemen
                     return getBidTopPrice((ActionPair) action.getData());
                 case GET_ASK_TOP_PRICE:
                     return getAskTopPrice((ActionPair) action.getData());
+                case GET_BID_ORDER_BOOK:
+                    return getBidOrderBook((OrderBookPair) action.getData());
+                case GET_ASK_ORDER_BOOK:
+                    return getAskOrderBook((OrderBookPair) action.getData());
+                case GET_BID_DEPTH_LADDER:
+                    return getBidDepthLadder((DepthLadderPair) action.getData());
+                case GET_ASK_DEPTH_LADDER:
+                    return getAskDepthLadder((DepthLadderPair) action.getData());
 
                 case GET_MARK_USDT:
                     return new ExMessage<>(ExMessage.ExMsgType.RIGHT, accountStatus.getMarkUsdt());
@@ -240,13 +393,114 @@ public class AbstractExchange<A extends AccountStatus, B extends ExApi> implemen
                 case GET_ASSET_RECORDS:
                     return getAssetRecords((AssetTransferHistory) action.getData());
 
+                case GET_RATE_LIMIT:
+                    return new ExMessage<>(ExMessage.ExMsgType.RIGHT, getRateLimitMetrics());
+                case GET_HTTP_CONNECTION:
+                    return new ExMessage<>(ExMessage.ExMsgType.RIGHT, getHttpConnectionMetrics());
+
                 default: return new ExMessage<>(ExMessage.ExMsgType.UNKNOWN);
             }
         } catch (Exception e) {
             return new ExMessage<>(ExMessage.ExMsgType.ERROR, e);
+        } finally {
+            if (rateLimiter != null) {
+                exitRateLimit(previous);
+            }
+        }
+    }
+
+    @Override
+    public CompletableFuture<ExMessage<?>> processAsync(ExAction<?> action) {
+        RequestPriority previous = rateLimiter == null ? null : enterRateLimit(action);
+        try {
+            CompletableFuture<?> future = asyncProcess(action);
+            if (future != null) {
+                return toMessage(future);
+            }
+        } catch (ExApiNotImplementedException e) {
+            // 交易所未实现异步接口时，使用同步接口，其余异常不重试，避免重复下单
+            logger.debug("{} process {} with blocking api: {}", getName(), action.getType(), e.getMessage());
+        } catch (Exception e) {
+            return CompletableFuture.completedFuture(new ExMessage<>(ExMessage.ExMsgType.ERROR, e));
+        } finally {
+            if (rateLimiter != null) {
+                exitRateLimit(previous);
+            }
+        }
+
+        if (!isBlockingAction(action)) {
+            return flatten(process(action));
+        }
+        try {
+            return CompletableFuture.supplyAsync(() -> process(action), actionExecutor)
+                    .thenCompose(AbstractExchange::flatten);
+        } catch (RejectedExecutionException e) {
+            String reason = actionExecutor.isShutdown() ? "exchange is stopped: " : "too many pending actions: ";
+            return CompletableFuture.completedFuture(new ExMessage<>(ExMessage.ExMsgType.ERROR,
+                    new ExApiException(reason + getName(), e)));
         }
     }
 
+    /**
+     * action 对应的异步接口，返回结果即为 ExMessage 的数据
+     * @param action 执行的action
+     * @return 没有对应的异步接口时返回 null
+     * @throws ExApiNotImplementedException 交易所未实现异步接口，使用同步接口执行
+     * @throws ExApiException 执行失败
+     */
+    protected CompletableFuture<?> asyncProcess(ExAction<?> action) throws ExApiException {
+        switch (action.getType()) {
+            case GET_BALANCES:
+                return asyncGetBalances();
+            case GET_CURRENT_ORDER:
+                return asyncGetCurrentOrders((CurrentOrderPair) action.getData());
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * 需要调用同步 rest 接口的 action，processAsync 时在 action 线程池中执行
+     * 其余 action 只读取本地状态或本身返回 CompletableFuture，直接在调用线程执行
+     */
+    protected boolean isBlockingAction(ExAction<?> action) {
+        switch (action.getType()) {
+            case ADD_SYMBOL:
+            case REMOVE_SYMBOL:
+            case GET_SYMBOLS:
+            case GET_KLINE:
+            case GET_BALANCES:
+            case MAKE_ORDER:
+            case CANCEL_ORDER:
+            case GET_CURRENT_ORDER:
+            case TRANSFER_ASSET:
+            case WITHDRAW_ASSET:
+            case GET_ASSET_RECORDS:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    // 数据为 CompletableFuture 的消息，等待其完成后返回结果
+    private static CompletableFuture<ExMessage<?>> flatten(ExMessage<?> msg) {
+        if (msg.getType() == ExMessage.ExMsgType.RIGHT && msg.getData() instanceof CompletableFuture) {
+            return toMessage((CompletableFuture<?>) msg.getData());
+        }
+        return CompletableFuture.completedFuture(msg);
+    }
+
+    private static CompletableFuture<ExMessage<?>> toMessage(CompletableFuture<?> future) {
+        return future.handle((data, t) -> {
+            if (t == null) {
+                return new ExMessage<>(ExMessage.ExMsgType.RIGHT, data);
+            }
+            Throwable cause = t instanceof CompletionException && t.getCause() != null ? t.getCause() : t;
+            return new ExMessage<>(ExMessage.ExMsgType.ERROR, cause instanceof Exception ?
+                    cause : new ExApiException("failed to process action", cause));
+        });
+    }
+
     /**
      * 可以由exchange自定义ping buffer
      * 若发送的不是ping，而是普通text，可override该方法即可
@@ -258,22 +512,10 @@ public class AbstractExchange<A extends AccountStatus, B extends ExApi> implemen
     private ExMessage<Void> addSymbol(SymbolPair symbolPair) throws ExApiException {
         accountStatus.getSymbols().put(symbolPair.symbol, symbolPair.name);
         try {
-            if (!accountStatus.getAskOrderBooks().containsKey(symbolPair.symbol)) {
-                accountStatus.getAskOrderBooks().put(symbolPair.symbol, new TreeMap<>(Comparator.naturalOrder()));
-            }
-            if (!accountStatus.getBidOrderBooks().containsKey(symbolPair.symbol)) {
-                accountStatus.getBidOrderBooks().put(symbolPair.symbol,
-                        new TreeMap<>(Comparator.reverseOrder()));
-            }
+            accountStatus.addOrderBooks(symbolPair.symbol, symbolPair.pricePrecision);
             if (!accountStatus.getKlineValues().containsKey(symbolPair.symbol) && enableKlineSub) {
                 // initial kline data
-                int limit = Integer.parseInt(accountConfig.getProperty("kline_limit", "99"));
-                long stopTime = System.currentTimeMillis();
-                long startTime = stopTime - klineInterval.interval * 1000L * limit;
-                KLineValuePair pair = new KLineValuePair(symbolPair.name, symbolPair.symbol,
-                        startTime, stopTime, klineInterval, limit);
-                List<KLineValue> kLineValues = api.getKLineValues(pair);
-                accountStatus.getKlineValues().put(symbolPair.symbol, kLineValues);
+                accountStatus.getKlineValues().put(symbolPair.symbol, loadKLineValues(symbolPair));
             }
             if (!accountStatus.getOrderBookValues().containsKey(symbolPair.symbol)) {
                 accountStatus.getOrderBookValues().put(symbolPair.symbol, new LinkedList<>());
@@ -289,6 +531,80 @@ public class AbstractExchange<A extends AccountStatus, B extends ExApi> implemen
         }
     }
 
+    private List<KLineValue> loadKLineValues(SymbolPair symbolPair) throws ExApiException {
+        int limit = Integer.parseInt(accountConfig.getProperty("kline_limit", "99"));
+        long interval = klineInterval.interval * 1000L;
+        long stopTime = System.currentTimeMillis();
+        long startTime = stopTime - interval * limit;
+
+        List<KLineValue> values = readKLineArchive(symbolPair, startTime, stopTime);
+        int restLimit = limit;
+        if (!values.isEmpty()) {
+            // 档案内最后一根 k 线可能未完成，从最后一根开始查询
+            startTime = values.remove(values.size() - 1).time;
+            restLimit = (int) Math.min(limit, (stopTime - startTime) / interval + 1);
+        }
+        KLineValuePair pair = new KLineValuePair(symbolPair.name, symbolPair.symbol,
+                startTime, stopTime, klineInterval, restLimit);
+        for (KLineValue value : api.getKLineValues(pair)) {
+            if (values.isEmpty() || value.time > values.get(values.size() - 1).time) {
+                values.add(value);
+            }
+        }
+        if (values.size() > limit) {
+            values = new ArrayList<>(values.subList(values.size() - limit, values.size()));
+        }
+        return values;
+    }
+
+    private List<KLineValue> readKLineArchive(SymbolPair symbolPair, long startTime, long stopTime) {
+        List<KLineValue> values = new ArrayList<>();
+        if (klineArchiveDir == null) {
+            return values;
+        }
+        Path path = klineArchivePath(symbolPair.symbol);
+        if (!Files.exists(path)) {
+            return values;
+        }
+        try (ColumnarReader reader = new ColumnarReader(path)) {
+            if (reader.overlaps(startTime, stopTime)) {
+                for (KLineValue value : MarketArchive.readKLines(reader, startTime, stopTime)) {
+                    // 统一名称可能已经修改
+                    values.add(new KLineValue(value.time, symbolPair.name, value.symbol, value.open,
+                            value.close, value.highest, value.lowest, value.volume));
+                }
+            }
+            logger.info("loaded {} klines of {} from archive", values.size(), symbolPair.symbol);
+        } catch (IOException | RuntimeException e) {
+            logger.warn("failed to read kline archive: {}", path, e);
+            values.clear();
+        }
+        return values;
+    }
+
+    /**
+     * 保存所有交易对的 k 线，下次启动时预热使用
+     */
+    protected void archiveKLineValues() {
+        if (klineArchiveDir == null) {
+            return;
+        }
+        for (Map.Entry<String, List<KLineValue>> entry : accountStatus.getKlineValues().entrySet()) {
+            Path path = klineArchivePath(entry.getKey());
+            try {
+                Files.createDirectories(path.getParent());
+                MarketArchive.writeKLines(path, new ArrayList<>(entry.getValue()));
+            } catch (IOException | RuntimeException e) {
+                logger.warn("failed to write kline archive: {}", path, e);
+            }
+        }
+    }
+
+    private Path klineArchivePath(String symbol) {
+        return Paths.get(klineArchiveDir, accountConfig.getName() + "-" + symbol +
+                "-" + klineInterval.value + ".kline");
+    }
+
     protected void sendSub(String symbol) throws ExApiException {
 //        this.webSocket.sendText("", true);
     }
@@ -404,6 +720,10 @@ public class AbstractExchange<A extends AccountStatus, B extends ExApi> implemen
         return new ExMessage<>(ExMessage.ExMsgType.RIGHT, api.getAccountValue());
     }
 
+    protected CompletableFuture<List<AccountValue>> asyncGetBalances() throws ExApiException {
+        return api.asyncGetAccountValues();
+    }
+
     protected ExMessage<AccountValue> getBalance(String asset) throws ExApiException {
         AccountValue value = accountStatus.getBalances().get(asset);
         if (value != null) {
@@ -428,18 +748,54 @@ public class AbstractExchange<A extends AccountStatus, B extends ExApi> implemen
         }
 
         if (fakeOrder) {
-            CurrentOrder currentOrder = new CurrentOrder(order.getOrderId(), order.getName(), order.getSymbol(),
-                    order.getSide(), order.getOrderType(), order.getSize(), order.getPrice(), 0);
-            return new ExMessage<>(ExMessage.ExMsgType.RIGHT, CompletableFuture.completedFuture(currentOrder));
+            return new ExMessage<>(ExMessage.ExMsgType.RIGHT, CompletableFuture.completedFuture(fakeOrder(order)));
         }
 
+        long sendTime = System.nanoTime();
         return new ExMessage<>(ExMessage.ExMsgType.RIGHT,
-                api.asyncMakeOrder(order).thenApply(currentOrder -> {
-                    if (currentOrder != null) {
-                        order.setOrderId(currentOrder.getId());
-                    }
-                    return currentOrder;
-                }));
+                onOrderMade(order, api.asyncMakeOrder(order), sendTime));
+    }
+
+    /**
+     * 批量下单，结果与 orders 一一对应
+     */
+    protected ExMessage<List<CompletableFuture<CurrentOrder>>> makeOrders(List<Order> orders) throws ExApiException {
+        for (Order order : orders) {
+            if (order.getClientOrderId() == null) {
+                order.setClientOrderId(order.getName() + "_" + System.nanoTime());
+            }
+        }
+
+        List<CompletableFuture<CurrentOrder>> results = new ArrayList<>(orders.size());
+        if (fakeOrder) {
+            for (Order order : orders) {
+                results.add(CompletableFuture.completedFuture(fakeOrder(order)));
+            }
+            return new ExMessage<>(ExMessage.ExMsgType.RIGHT, results);
+        }
+
+        long sendTime = System.nanoTime();
+        List<CompletableFuture<CurrentOrder>> futures = api.asyncMakeOrders(orders);
+        for (int i = 0; i < orders.size(); i++) {
+            results.add(onOrderMade(orders.get(i), futures.get(i), sendTime));
+        }
+        return new ExMessage<>(ExMessage.ExMsgType.RIGHT, results);
+    }
+
+    private CurrentOrder fakeOrder(Order order) {
+        return new CurrentOrder(order.getOrderId(), order.getName(), order.getSymbol(),
+                order.getSide(), order.getOrderType(), order.getSize(), order.getPrice(), 0);
+    }
+
+    private CompletableFuture<CurrentOrder> onOrderMade(Order order, CompletableFuture<CurrentOrder> future,
+                                                        long sendTime) {
+        return future.thenApply(currentOrder -> {
+            LatencyRecorder.recordSince(LatencyStage.ORDER_ACK, sendTime);
+            if (currentOrder != null) {
+                order.setOrderId(currentOrder.getId());
+            }
+            return currentOrder;
+        });
     }
 
     /**
@@ -476,6 +832,88 @@ public class AbstractExchange<A extends AccountStatus, B extends ExApi> implemen
                 api.asyncCancelOrder(pair.symbol, pair.getOrderId()));
     }
 
+    /**
+     * 批量撤单，按交易对分组调用批量接口，结果与 pairs 一一对应
+     */
+    protected ExMessage<List<CompletableFuture<Boolean>>> cancelOrders(List<ActionPair> pairs) throws ExApiException {
+        List<CompletableFuture<Boolean>> results = new ArrayList<>(pairs.size());
+        if (fakeOrder) {
+            for (int i = 0; i < pairs.size(); i++) {
+                results.add(CompletableFuture.completedFuture(null));
+            }
+            return new ExMessage<>(ExMessage.ExMsgType.RIGHT, results);
+        }
+
+        // symbol -> 在 pairs 中的位置
+        Map<String, List<Integer>> groups = new LinkedHashMap<>();
+        for (int i = 0; i < pairs.size(); i++) {
+            groups.computeIfAbsent(pairs.get(i).symbol, k -> new ArrayList<>()).add(i);
+            results.add(null);
+        }
+        for (Map.Entry<String, List<Integer>> entry : groups.entrySet()) {
+            List<String> clientOrderIds = new ArrayList<>(entry.getValue().size());
+            for (int index : entry.getValue()) {
+                clientOrderIds.add(pairs.get(index).getOrderId());
+            }
+            List<CompletableFuture<Boolean>> futures = api.asyncCancelOrders(entry.getKey(), clientOrderIds);
+            for (int i = 0; i < futures.size(); i++) {
+                results.set(entry.getValue().get(i), futures.get(i));
+            }
+        }
+        return new ExMessage<>(ExMessage.ExMsgType.RIGHT, results);
+    }
+
+
+    /**
+     * 改单，交易所支持时使用原生改单接口，否则同时发送撤单与下单请求，不等待撤单完成
+     */
+    protected ExMessage<CompletableFuture<ReplaceOrderResult>> replaceOrder(ReplaceOrderPair pair) throws ExApiException {
+        Order origin = pair.origin;
+        Order order = pair.order;
+        if (fakeOrder) {
+            order.setClientOrderId(origin.getClientOrderId());
+            return new ExMessage<>(ExMessage.ExMsgType.RIGHT,
+                    CompletableFuture.completedFuture(new ReplaceOrderResult(true, true, fakeOrder(order))));
+        }
+
+        long sendTime = System.nanoTime();
+        if (origin.getSide().equals(order.getSide()) && origin.getOrderType().equals(order.getOrderType()) &&
+                origin.getSymbol().equals(order.getSymbol()) && api.supportAmendOrder(order)) {
+            order.setClientOrderId(origin.getClientOrderId());
+            return new ExMessage<>(ExMessage.ExMsgType.RIGHT,
+                    onOrderMade(order, api.asyncAmendOrder(origin.getClientOrderId(), order), sendTime)
+                            .thenApply(currentOrder -> new ReplaceOrderResult(
+                                    true, currentOrder != null, currentOrder)));
+        }
+
+        if (order.getClientOrderId() == null) {
+            order.setClientOrderId(order.getName() + "_" + System.nanoTime());
+        }
+        CompletableFuture<Boolean> cancelled = cancelReplacedOrder(origin)
+                .exceptionally(t -> {
+                    logger.error("failed to cancel replaced order: {}", origin, t);
+                    return false;
+                });
+        CompletableFuture<CurrentOrder> made = onOrderMade(order, api.asyncMakeOrder(order), sendTime)
+                .exceptionally(t -> {
+                    logger.error("failed to make replacing order: {}", order, t);
+                    return null;
+                });
+        return new ExMessage<>(ExMessage.ExMsgType.RIGHT, cancelled.thenCombine(made,
+                (c, currentOrder) -> new ReplaceOrderResult(false, Boolean.TRUE.equals(c), currentOrder)));
+    }
+
+    // 改单的撤单部分按撤单优先级申请额度，不计入下单数量
+    private CompletableFuture<Boolean> cancelReplacedOrder(Order origin) throws ExApiException {
+        RequestPriority previous = rateLimiter == null ? null : RateLimiter.enter(RequestPriority.CANCEL);
+        try {
+            return api.asyncCancelOrder(origin.getSymbol(), origin.getClientOrderId());
+        } finally {
+            if (rateLimiter != null) {
+                RateLimiter.exit(previous);
+            }
+        }
+    }
 
     protected ExMessage<List<CurrentOrder>> getCurrentOrders(CurrentOrderPair currentOrderPair) throws ExApiException {
         if (fakeOrder) {
@@ -489,6 +927,27 @@ public class AbstractExchange<A extends AccountStatus, B extends ExApi> implemen
         return new ExMessage<>(ExMessage.ExMsgType.RIGHT, currentOrders);
     }
 
+    protected CompletableFuture<List<CurrentOrder>> asyncGetCurrentOrders(CurrentOrderPair currentOrderPair)
+            throws ExApiException {
+        if (fakeOrder) {
+            return CompletableFuture.completedFuture(Collections.emptyList());
+        }
+
+        // 异步接口返回所有方向的订单，按 type 过滤
+        OrderSide side = currentOrderPair.type == 1 ? OrderSide.BUY :
+                currentOrderPair.type == 2 ? OrderSide.SELL : null;
+        return api.asyncGetCurrentOrders(currentOrderPair.symbol).thenApply(currentOrders -> {
+            List<CurrentOrder> results = new ArrayList<>();
+            for (CurrentOrder currentOrder : currentOrders) {
+                if (side == null || side.equals(currentOrder.getSide())) {
+                    currentOrder.setName(currentOrderPair.name);
+                    results.add(currentOrder);
+                }
+            }
+            return results;
+        });
+    }
+
     protected ExMessage<CompletableFuture<List<CurrentOrder>>> getCurrentOrdersV2(ActionPair pair)
             throws ExApiException {
         if (fakeOrder) {
@@ -522,54 +981,66 @@ public class AbstractExchange<A extends AccountStatus, B extends ExApi> implemen
 
 
     protected ExMessage<DepthPrice> getBidDepthPrice(DepthPricePair depthPricePair) throws ExApiException {
-        if (accountStatus.getBidOrderBooks().containsKey(depthPricePair.symbol)) {
-            TreeMap<Double, Double> depths = accountStatus.getBidOrderBooks().get(depthPricePair.symbol);
-            int sum1 = 0;
-            double sum2 = 0;
+        OrderBook depths = accountStatus.getBidOrderBooks().get(depthPricePair.symbol);
+        if (depths != null) {
             double topPrice = accountStatus.getTopBids().getOrDefault(depthPricePair.symbol, 0D);
-            for (Map.Entry<Double, Double> entry : depths.entrySet()) {
-                double price = entry.getKey();
-                if (topPrice > 0 && price > topPrice) {
-//                    logger.info("bid top price: {}, price: {}", topPrice, price);
-                    continue;
-                }
-                int quantity = (int) Math.floor(price * entry.getValue());
-                sum1 += quantity;
-                sum2 += entry.getValue();
-                if (sum1 >= depthPricePair.depthQty) {
-                    return new ExMessage<>(ExMessage.ExMsgType.RIGHT,
-                            new DepthPrice(depthPricePair.name, depthPricePair.symbol, price, sum1, sum2));
-                }
+            DepthPrice depthPrice = depths.getDepthPrice(depthPricePair.name,
+                    depthPricePair.symbol, depthPricePair.depthQty, topPrice);
+            if (depthPrice != null) {
+                return new ExMessage<>(ExMessage.ExMsgType.RIGHT, depthPrice);
             }
         }
-        logger.warn("{} bid no enough depth: {}", depthPricePair.symbol,
-                accountStatus.getBidOrderBooks().get(depthPricePair.symbol));
+        logger.warn("{} bid no enough depth: {}", depthPricePair.symbol, depths);
         return new ExMessage<>(ExMessage.ExMsgType.ERROR);
     }
 
     protected ExMessage<DepthPrice> getAskDepthPrice(DepthPricePair depthPricePair) {
-        if (accountStatus.getAskOrderBooks().containsKey(depthPricePair.symbol)) {
-            TreeMap<Double, Double> depths = accountStatus.getAskOrderBooks().get(depthPricePair.symbol);
-            int sum1 = 0;
-            double sum2 = 0;
+        OrderBook depths = accountStatus.getAskOrderBooks().get(depthPricePair.symbol);
+        if (depths != null) {
             double topPrice = accountStatus.getTopAsks().getOrDefault(depthPricePair.symbol, 0D);
-            for (Map.Entry<Double, Double> entry : depths.entrySet()) {
-                double price = entry.getKey();
-                if (topPrice > 0 && price < topPrice) {
-//                    logger.info("ask top price: {}, price: {}", topPrice, price);
-                    continue;
-                }
-                int quantity = (int) Math.floor(price * entry.getValue());
-                sum1 += quantity;
-                sum2 += entry.getValue();
-                if (sum1 >= depthPricePair.depthQty) {
-                    return new ExMessage<>(ExMessage.ExMsgType.RIGHT,
-                            new DepthPrice(depthPricePair.name, depthPricePair.symbol, price, sum1, sum2));
-                }
+            DepthPrice depthPrice = depths.getDepthPrice(depthPricePair.name,
+                    depthPricePair.symbol, depthPricePair.depthQty, topPrice);
+            if (depthPrice != null) {
+                return new ExMessage<>(ExMessage.ExMsgType.RIGHT, depthPrice);
             }
         }
-        logger.warn("{} ask no enough depth: {}", depthPricePair.symbol,
-                accountStatus.getAskOrderBooks().get(depthPricePair.symbol));
+        logger.warn("{} ask no enough depth: {}", depthPricePair.symbol, depths);
+        return new ExMessage<>(ExMessage.ExMsgType.ERROR);
+    }
+
+    protected ExMessage<List<DepthPrice>> getBidDepthLadder(DepthLadderPair pair) {
+        OrderBook depths = accountStatus.getBidOrderBooks().get(pair.symbol);
+        if (depths != null) {
+            double topPrice = accountStatus.getTopBids().getOrDefault(pair.symbol, 0D);
+            return new ExMessage<>(ExMessage.ExMsgType.RIGHT, Arrays.asList(
+                    depths.getDepthLadder(pair.name, pair.symbol, pair.depthQtys, topPrice)));
+        }
+        return new ExMessage<>(ExMessage.ExMsgType.ERROR);
+    }
+
+    protected ExMessage<List<DepthPrice>> getAskDepthLadder(DepthLadderPair pair) {
+        OrderBook depths = accountStatus.getAskOrderBooks().get(pair.symbol);
+        if (depths != null) {
+            double topPrice = accountStatus.getTopAsks().getOrDefault(pair.symbol, 0D);
+            return new ExMessage<>(ExMessage.ExMsgType.RIGHT, Arrays.asList(
+                    depths.getDepthLadder(pair.name, pair.symbol, pair.depthQtys, topPrice)));
+        }
+        return new ExMessage<>(ExMessage.ExMsgType.ERROR);
+    }
+
+    protected ExMessage<OrderBookSnapshot> getBidOrderBook(OrderBookPair pair) {
+        OrderBook orderBook = accountStatus.getBidOrderBooks().get(pair.symbol);
+        if (orderBook != null) {
+            return new ExMessage<>(ExMessage.ExMsgType.RIGHT, orderBook.snapshot(pair.limit));
+        }
+        return new ExMessage<>(ExMessage.ExMsgType.ERROR);
+    }
+
+    protected ExMessage<OrderBookSnapshot> getAskOrderBook(OrderBookPair pair) {
+        OrderBook orderBook = accountStatus.getAskOrderBooks().get(pair.symbol);
+        if (orderBook != null) {
+            return new ExMessage<>(ExMessage.ExMsgType.RIGHT, orderBook.snapshot(pair.limit));
+        }
         return new ExMessage<>(ExMessage.ExMsgType.ERROR);
     }
 
@@ -634,6 +1105,29 @@ public class AbstractExchange<A extends AccountStatus, B extends ExApi> implemen
                         }
                     }
                 }
+                IngestMetrics metrics = getIngestMetrics();
+                if (metrics != null && metrics.getTotalDrops() > lastIngestDrops) {
+                    logger.warn("{} ingest buffer dropped messages: {}", getName(), metrics);
+                    lastIngestDrops = metrics.getTotalDrops();
+                }
+                if (metrics != null && metrics.getPrivateDrops() > lastIngestPrivateDrops) {
+                    lastIngestPrivateDrops = metrics.getPrivateDrops();
+                    MonitorReporter.report(HEDGING_AGENT_FAILED.name(),
+                            new ReportEvent(HEDGING_AGENT_FAILED, ReportEvent.EventLevel.SERIOUS,
+                                    "ingest buffer dropped private messages: " + getName()));
+                }
+                long streamingFallbacks = getStreamingFallbacks();
+                if (streamingFallbacks > lastStreamingFallbacks) {
+                    logger.warn("{} streaming decode fell back {} times since last check",
+                            getName(), streamingFallbacks - lastStreamingFallbacks);
+                }
+                // listener 只在构造时创建，重连后继续使用，计数不会重置
+                lastStreamingFallbacks = streamingFallbacks;
+                RateLimitMetrics rateLimitMetrics = getRateLimitMetrics();
+                if (rateLimitMetrics != null && rateLimitMetrics.getTotalRejected() > lastRateLimitRejected) {
+                    logger.warn("{} rate limiter rejected requests: {}", getName(), rateLimitMetrics);
+                    lastRateLimitRejected = rateLimitMetrics.getTotalRejected();
+                }
                 if (!isAlive()) {
                     logger.error("failed to restart exchange account: {}", getName());
                     MonitorReporter.report(HEDGING_AGENT_FAILED.name(),
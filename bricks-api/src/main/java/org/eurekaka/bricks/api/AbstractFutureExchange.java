@@ -4,8 +4,11 @@ import org.eurekaka.bricks.common.exception.ExApiException;
 import org.eurekaka.bricks.common.model.*;
 
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 public class AbstractFutureExchange extends AbstractExchange<FutureAccountStatus, FutureExApi> {
 
@@ -43,6 +46,33 @@ public class AbstractFutureExchange extends AbstractExchange<FutureAccountStatus
         }
     }
 
+    @Override
+    protected CompletableFuture<?> asyncProcess(ExAction<?> action) throws ExApiException {
+        switch (action.getType()) {
+            case GET_RISK_LIMIT:
+                return api.asyncGetRiskLimitValue().thenApply(this::filterRiskLimit);
+            case GET_FUNDING_FEES:
+                return asyncGetFundingFees((Long) action.getData());
+            default:
+                return super.asyncProcess(action);
+        }
+    }
+
+    /**
+     * 仓位默认从本地状态读取，通过 rest 接口查询仓位的交易所需要重载
+     */
+    @Override
+    protected boolean isBlockingAction(ExAction<?> action) {
+        switch (action.getType()) {
+            case GET_RISK_LIMIT:
+            case UPDATE_RISK_LIMIT:
+            case GET_FUNDING_FEES:
+                return true;
+            default:
+                return super.isBlockingAction(action);
+        }
+    }
+
     /**
      * 可能可以从accountStatus.positionValues 状态获取，也可能从api直接调用获取
      * @return 所有的position value，必须按照当前有效的symbols过滤
@@ -83,7 +113,13 @@ public class AbstractFutureExchange extends AbstractExchange<FutureAccountStatus
     }
 
     protected ExMessage<RiskLimitValue> getRiskLimit() throws ExApiException {
-        RiskLimitValue riskLimitValue = api.getRiskLimitValue();
+        return new ExMessage<>(ExMessage.ExMsgType.RIGHT, filterRiskLimit(api.getRiskLimitValue()));
+    }
+
+    /**
+     * 同步与异步查询共用，按当前有效的symbols过滤
+     */
+    protected RiskLimitValue filterRiskLimit(RiskLimitValue riskLimitValue) {
         List<PositionRiskLimitValue> availablePositions = new ArrayList<>();
         for (PositionRiskLimitValue value : riskLimitValue.positionRiskLimitValues) {
             if (accountStatus.getSymbols().containsKey(value.symbol)) {
@@ -91,8 +127,8 @@ public class AbstractFutureExchange extends AbstractExchange<FutureAccountStatus
                 availablePositions.add(value);
             }
         }
-        return new ExMessage<>(ExMessage.ExMsgType.RIGHT, new RiskLimitValue(
-                riskLimitValue.totalBalance, riskLimitValue.availableBalance, availablePositions));
+        return new RiskLimitValue(riskLimitValue.totalBalance,
+                riskLimitValue.availableBalance, availablePositions);
     }
 
     protected ExMessage<Double> getFundingRate(SymbolPair symbolPair) throws ExApiException {
@@ -109,14 +145,49 @@ public class AbstractFutureExchange extends AbstractExchange<FutureAccountStatus
         // 返回全部的 funding value
         List<FundingValue> values = new ArrayList<>();
         for (Map.Entry<String, String> entry : accountStatus.getSymbols().entrySet()) {
-            for (FundingValue v : this.api.getFundingValue(entry.getKey(), lastTime)) {
-                if (v.getSymbol().equals(entry.getKey())) {
-                    v.setName(entry.getValue());
-                    values.add(v);
+            addFundingValues(values, entry, this.api.getFundingValue(entry.getKey(), lastTime));
+        }
+        return new ExMessage<>(ExMessage.ExMsgType.RIGHT, values);
+    }
+
+    /**
+     * 与 getFundingFees 相同，逐个交易对依次查询，避免同时发出大量请求
+     * 第一个请求在调用线程发出，交易所未实现异步接口时直接抛出异常
+     */
+    protected CompletableFuture<List<FundingValue>> asyncGetFundingFees(long lastTime) throws ExApiException {
+        long endTime = System.currentTimeMillis();
+        List<FundingValue> values = new ArrayList<>();
+        Iterator<Map.Entry<String, String>> iterator =
+                new ArrayList<>(accountStatus.getSymbols().entrySet()).iterator();
+        if (!iterator.hasNext()) {
+            return CompletableFuture.completedFuture(values);
+        }
+        Map.Entry<String, String> first = iterator.next();
+        CompletableFuture<Void> future = api.asyncGetFundingValue(first.getKey(), lastTime, endTime)
+                .thenAccept(result -> addFundingValues(values, first, result));
+        while (iterator.hasNext()) {
+            Map.Entry<String, String> entry = iterator.next();
+            future = future.thenCompose(v -> {
+                try {
+                    return api.asyncGetFundingValue(entry.getKey(), lastTime, endTime)
+                            .thenAccept(result -> addFundingValues(values, entry, result));
+                } catch (ExApiException e) {
+                    throw new CompletionException(e);
                 }
+            });
+        }
+        return future.thenApply(v -> values);
+    }
+
+    // 部分交易所返回全部交易对的资金费用，只保留当前交易对
+    private static void addFundingValues(List<FundingValue> values,
+                                         Map.Entry<String, String> entry, List<FundingValue> result) {
+        for (FundingValue v : result) {
+            if (v.getSymbol().equals(entry.getKey())) {
+                v.setName(entry.getValue());
+                values.add(v);
             }
         }
-        return new ExMessage<>(ExMessage.ExMsgType.RIGHT, values);
     }
 
 }
@@ -5,9 +5,9 @@ import org.eurekaka.bricks.common.model.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.Collections;
-import java.util.List;
+import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 
 import static org.eurekaka.bricks.common.util.Utils.PRECISION;
 
@@ -41,7 +41,7 @@ public class AccountActor {
      * query price
      */
     public DepthPrice getBidDepthPrice(Info0 info) throws StrategyException {
-        return getBidDepthPrice(info, info.getInt("depth_qty", 79));
+        return getBidDepthPrice(info, info.getInt(Info0.DEPTH_QTY));
     }
 
     public DepthPrice getBidDepthPrice(Info0 info, int depthQty) throws StrategyException {
@@ -71,7 +71,7 @@ public class AccountActor {
     }
 
     public DepthPrice getAskDepthPrice(Info0 info) throws StrategyException {
-        return getAskDepthPrice(info, info.getInt("depth_qty", 79));
+        return getAskDepthPrice(info, info.getInt(Info0.DEPTH_QTY));
     }
 
     public DepthPrice getAskDepthPrice(Info0 info, int depthQty) throws StrategyException {
@@ -100,6 +100,61 @@ public class AccountActor {
         throw new StrategyException("failed to get ask top price", (Exception) msg.getData());
     }
 
+    /**
+     * 一次查询多个深度对应的买盘价格，所有结果来自同一版本的订单簿
+     * @param info 交易对信息
+     * @param depthQtys 最小深度列表
+     * @return 与 depthQtys 一一对应，深度不足的位置为 null
+     */
+    public List<DepthPrice> getBidDepthLadder(Info0 info, int... depthQtys) throws StrategyException {
+        return getDepthLadder(info, ExAction.ActionType.GET_BID_DEPTH_LADDER, depthQtys);
+    }
+
+    public List<DepthPrice> getAskDepthLadder(Info0 info, int... depthQtys) throws StrategyException {
+        return getDepthLadder(info, ExAction.ActionType.GET_ASK_DEPTH_LADDER, depthQtys);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<DepthPrice> getDepthLadder(Info0 info, ExAction.ActionType type,
+                                            int[] depthQtys) throws StrategyException {
+        Exchange ex = accountManager.getAccount(info.getAccount());
+        if (ex != null) {
+            ExMessage<?> msg = ex.process(new ExAction<>(type,
+                    new DepthLadderPair(info.getName(), info.getSymbol(), depthQtys)));
+            if (msg.getType().equals(ExMessage.ExMsgType.ERROR)) {
+                throw new StrategyException("failed to get depth ladder: " + type, (Exception) msg.getData());
+            }
+            return (List<DepthPrice>) msg.getData();
+        }
+        return Collections.emptyList();
+    }
+
+    /**
+     * 获取买盘快照，可通过 OrderBookSnapshot.isCurrent 判断是否过期
+     * @param info 交易对信息
+     * @param limit 最多档位数量
+     */
+    public OrderBookSnapshot getBidOrderBook(Info0 info, int limit) throws StrategyException {
+        return getOrderBook(info, ExAction.ActionType.GET_BID_ORDER_BOOK, limit);
+    }
+
+    public OrderBookSnapshot getAskOrderBook(Info0 info, int limit) throws StrategyException {
+        return getOrderBook(info, ExAction.ActionType.GET_ASK_ORDER_BOOK, limit);
+    }
+
+    private OrderBookSnapshot getOrderBook(Info0 info, ExAction.ActionType type, int limit) throws StrategyException {
+        Exchange ex = accountManager.getAccount(info.getAccount());
+        if (ex != null) {
+            ExMessage<?> msg = ex.process(new ExAction<>(type,
+                    new OrderBookPair(info.getName(), info.getSymbol(), limit)));
+            if (msg.getType().equals(ExMessage.ExMsgType.ERROR)) {
+                throw new StrategyException("failed to get order book: " + type, (Exception) msg.getData());
+            }
+            return (OrderBookSnapshot) msg.getData();
+        }
+        return null;
+    }
+
     public NetValue getNetValue(Info0 info) throws StrategyException {
         Exchange ex = accountManager.getAccount(info.getAccount());
         if (ex != null) {
@@ -125,7 +180,7 @@ public class AccountActor {
         Exchange ex = accountManager.getAccount(info.getAccount());
         if (ex != null) {
             ExMessage<?> msg = ex.process(new ExAction<>(ExAction.ActionType.GET_KLINE,
-                    new KLineValuePair(info.getName(), info.getSymbol(), info.getInt("kline_size", 61))));
+                    new KLineValuePair(info.getName(), info.getSymbol(), info.getInt(Info0.KLINE_SIZE))));
             if (msg.getType().equals(ExMessage.ExMsgType.ERROR)) {
                 throw new StrategyException("failed to get net value", (Exception) msg.getData());
             }
@@ -167,9 +222,42 @@ public class AccountActor {
         return null;
     }
 
+    /**
+     * 当前订单都有 client order id 时批量撤单，否则逐个撤单
+     */
     public void cancelAllOrders(Info0 info) throws StrategyException {
-        for (CurrentOrder currentOrder : getCurrentOrders(info)) {
-            cancelOrder(info, currentOrder.getId());
+        List<CurrentOrder> currentOrders = getCurrentOrders(info);
+        boolean batch = currentOrders.size() > 1;
+        for (CurrentOrder currentOrder : currentOrders) {
+            if (currentOrder.getClientOrderId() == null) {
+                batch = false;
+                break;
+            }
+        }
+        if (!batch) {
+            for (CurrentOrder currentOrder : currentOrders) {
+                cancelOrder(info, currentOrder.getId());
+            }
+            return;
+        }
+
+        List<ActionPair> pairs = new ArrayList<>(currentOrders.size());
+        for (CurrentOrder currentOrder : currentOrders) {
+            pairs.add(new ActionPair(info.getName(), info.getSymbol(), currentOrder.getClientOrderId()));
+        }
+        List<CompletableFuture<Boolean>> futures = asyncCancelOrders(info.getAccount(), pairs);
+        for (int i = 0; i < futures.size(); i++) {
+            boolean cancelled;
+            try {
+                cancelled = Boolean.TRUE.equals(futures.get(i).get());
+            } catch (InterruptedException | ExecutionException e) {
+                throw new StrategyException("failed to cancel order name: " + info.getName() +
+                        ", client order id: " + pairs.get(i).getOrderId(), e);
+            }
+            if (!cancelled) {
+                throw new StrategyException("failed to cancel order name: " + info.getName() +
+                        ", client order id: " + pairs.get(i).getOrderId());
+            }
         }
     }
 
@@ -210,6 +298,84 @@ public class AccountActor {
         return (CompletableFuture<Boolean>) msg.getData();
     }
 
+    /**
+     * 以 order 替换 origin，交易所支持时使用原生改单接口，此时 order 的 client order id 与 origin 相同
+     * 调用方可以在结果返回前，将 origin 视为撤销中，order 视为提交中
+     */
+    public CompletableFuture<ReplaceOrderResult> asyncReplaceOrder(Order origin, Order order) throws StrategyException {
+        ExMessage<?> msg = accountManager.getAccount(origin.getAccount())
+                .process(new ExAction<>(ExAction.ActionType.REPLACE_ORDER, new ReplaceOrderPair(origin, order)));
+        if (msg.getType().equals(ExMessage.ExMsgType.ERROR)) {
+            throw new StrategyException("failed to async replace order: " + origin +
+                    ", new order: " + order, (Exception) msg.getData());
+        }
+        return (CompletableFuture<ReplaceOrderResult>) msg.getData();
+    }
+
+    /**
+     * 批量下单，按账户分组，每个账户一次请求
+     * @return 与 orders 一一对应的下单结果
+     */
+    public List<CompletableFuture<CurrentOrder>> asyncMakeOrders(List<? extends Order> orders) throws StrategyException {
+        List<CompletableFuture<CurrentOrder>> results = new ArrayList<>(Collections.nCopies(orders.size(), null));
+        for (Map.Entry<String, List<Integer>> entry : groupByAccount(orders).entrySet()) {
+            List<Order> accountOrders = new ArrayList<>(entry.getValue().size());
+            for (int index : entry.getValue()) {
+                accountOrders.add(orders.get(index));
+            }
+            ExMessage<?> msg = accountManager.getAccount(entry.getKey())
+                    .process(new ExAction<>(ExAction.ActionType.MAKE_ORDERS, new MakeOrdersPair(accountOrders)));
+            if (msg.getType().equals(ExMessage.ExMsgType.ERROR)) {
+                throw new StrategyException("failed to async make orders: " + accountOrders, (Exception) msg.getData());
+            }
+            List<CompletableFuture<CurrentOrder>> futures = (List<CompletableFuture<CurrentOrder>>) msg.getData();
+            for (int i = 0; i < futures.size(); i++) {
+                results.set(entry.getValue().get(i), futures.get(i));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * 批量撤单，按账户分组，每个账户按交易对合并请求
+     * @return 与 orders 一一对应的撤单结果
+     */
+    public List<CompletableFuture<Boolean>> asyncCancelOrders(List<? extends Order> orders) throws StrategyException {
+        List<CompletableFuture<Boolean>> results = new ArrayList<>(Collections.nCopies(orders.size(), null));
+        for (Map.Entry<String, List<Integer>> entry : groupByAccount(orders).entrySet()) {
+            List<ActionPair> pairs = new ArrayList<>(entry.getValue().size());
+            for (int index : entry.getValue()) {
+                Order order = orders.get(index);
+                pairs.add(new ActionPair(order.getName(), order.getSymbol(), order.getClientOrderId()));
+            }
+            List<CompletableFuture<Boolean>> futures = asyncCancelOrders(entry.getKey(), pairs);
+            for (int i = 0; i < futures.size(); i++) {
+                results.set(entry.getValue().get(i), futures.get(i));
+            }
+        }
+        return results;
+    }
+
+    public List<CompletableFuture<Boolean>> asyncCancelOrders(String account,
+                                                              List<ActionPair> pairs) throws StrategyException {
+        ExMessage<?> msg = accountManager.getAccount(account)
+                .process(new ExAction<>(ExAction.ActionType.CANCEL_ORDERS, new CancelOrdersPair(pairs)));
+        if (msg.getType().equals(ExMessage.ExMsgType.ERROR)) {
+            throw new StrategyException("failed to async cancel orders, account " + account +
+                    ", orders: " + pairs, (Exception) msg.getData());
+        }
+        return (List<CompletableFuture<Boolean>>) msg.getData();
+    }
+
+    // account -> 订单在列表中的位置
+    private static Map<String, List<Integer>> groupByAccount(List<? extends Order> orders) {
+        Map<String, List<Integer>> groups = new LinkedHashMap<>();
+        for (int i = 0; i < orders.size(); i++) {
+            groups.computeIfAbsent(orders.get(i).getAccount(), k -> new ArrayList<>()).add(i);
+        }
+        return groups;
+    }
+
     public CompletableFuture<CurrentOrder> asyncGetOrder(Info0 info, String clientOrderId) throws StrategyException {
         return asyncGetOrder(info.getAccount(), info.getName(), info.getSymbol(), clientOrderId);
     }
@@ -1,8 +1,11 @@
 package org.eurekaka.bricks.api;
 
 import org.eurekaka.bricks.common.exception.ExApiException;
+import org.eurekaka.bricks.common.exception.ExApiNotImplementedException;
 import org.eurekaka.bricks.common.model.*;
 
+import java.net.http.HttpRequest;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -22,6 +25,15 @@ public interface ExApi {
      */
     String getAuthMessage() throws ExApiException;
 
+    /**
+     * rest 连接保活使用的心跳请求，应当为权重最低的请求，每次调用重新生成以更新签名时间
+     * @return 返回 null 时使用 http_heartbeat_path 配置的 GET 请求
+     * @throws ExApiException 执行失败
+     */
+    default HttpRequest getHeartbeatRequest() throws ExApiException {
+        return null;
+    }
+
     /**
      * 获取交易所的交易对信息
      * @return 返回该交易所所有交易对信息
@@ -90,7 +102,7 @@ public interface ExApi {
     // 异步接口集合
 
     default CompletableFuture<OrderBookValue> asyncGetOrderBook(String symbol, int depth) throws ExApiException {
-        throw new ExApiException("not implemented");
+        throw new ExApiNotImplementedException("not implemented");
     }
 
     /**
@@ -99,7 +111,7 @@ public interface ExApi {
      * @throws ExApiException 执行失败
      */
     default CompletableFuture<List<ExSymbol>> asyncGetSymbolInfos() throws ExApiException {
-        throw new ExApiException("not implemented");
+        throw new ExApiNotImplementedException("not implemented");
     }
 
     /**
@@ -108,15 +120,15 @@ public interface ExApi {
      * @throws ExApiException 执行失败
      */
     default CompletableFuture<List<AccountValue>> asyncGetAccountValues() throws ExApiException {
-        throw new ExApiException("not implemented");
+        throw new ExApiNotImplementedException("not implemented");
     }
 
     default CompletableFuture<CurrentOrder> asyncMakeOrder(Order order) throws ExApiException {
-        throw new ExApiException("not implemented");
+        throw new ExApiNotImplementedException("not implemented");
     }
 
     default CompletableFuture<CurrentOrder> asyncGetOrder(String symbol, String clientOrderId) throws ExApiException {
-        throw new ExApiException("not implemented");
+        throw new ExApiNotImplementedException("not implemented");
     }
 
     /**
@@ -130,11 +142,71 @@ public interface ExApi {
      * @throws ExApiException 执行失败
      */
     default CompletableFuture<Boolean> asyncCancelOrder(String symbol, String clientOrderId) throws ExApiException {
-        throw new ExApiException("not implemented");
+        throw new ExApiNotImplementedException("not implemented");
+    }
+
+    /**
+     * 交易所原生改单接口是否支持该订单，通常只支持限价挂单
+     * @param order 修改后的订单
+     * @return 不支持时通过撤单与下单替换订单
+     */
+    default boolean supportAmendOrder(Order order) {
+        return false;
+    }
+
+    /**
+     * 原生改单，修改订单的价格与数量，订单方向与类型不变
+     * 修改后的数量包括已成交部分
+     * @param clientOrderId 被修改订单的 client order id
+     * @param order 修改后的订单
+     * @return 修改后的订单，改单失败时为 null，此时原订单不变
+     * @throws ExApiException 执行失败
+     */
+    default CompletableFuture<CurrentOrder> asyncAmendOrder(String clientOrderId, Order order) throws ExApiException {
+        throw new ExApiNotImplementedException("not implemented");
+    }
+
+    /**
+     * 批量下单，交易所支持批量接口时合并为一次请求，否则并行逐个下单
+     * 单个订单参数错误只影响该订单的结果
+     * @param orders 待下单列表
+     * @return 与 orders 一一对应的下单结果，结果含义与 asyncMakeOrder 一致
+     * @throws ExApiException 执行失败
+     */
+    default List<CompletableFuture<CurrentOrder>> asyncMakeOrders(List<Order> orders) throws ExApiException {
+        List<CompletableFuture<CurrentOrder>> futures = new ArrayList<>(orders.size());
+        for (Order order : orders) {
+            try {
+                futures.add(asyncMakeOrder(order));
+            } catch (ExApiException e) {
+                futures.add(CompletableFuture.failedFuture(e));
+            }
+        }
+        return futures;
+    }
+
+    /**
+     * 批量取消同一交易对的订单，交易所不支持批量接口时并行逐个取消
+     * @param symbol 订单交易对
+     * @param clientOrderIds 用户自定义id列表
+     * @return 与 clientOrderIds 一一对应的取消结果，结果含义与 asyncCancelOrder 一致
+     * @throws ExApiException 执行失败
+     */
+    default List<CompletableFuture<Boolean>> asyncCancelOrders(String symbol,
+                                                               List<String> clientOrderIds) throws ExApiException {
+        List<CompletableFuture<Boolean>> futures = new ArrayList<>(clientOrderIds.size());
+        for (String clientOrderId : clientOrderIds) {
+            try {
+                futures.add(asyncCancelOrder(symbol, clientOrderId));
+            } catch (ExApiException e) {
+                futures.add(CompletableFuture.failedFuture(e));
+            }
+        }
+        return futures;
     }
 
     default CompletableFuture<List<CurrentOrder>> asyncGetCurrentOrders(String symbol) throws ExApiException {
-        throw new ExApiException("not implemented");
+        throw new ExApiNotImplementedException("not implemented");
     }
 
     /**
@@ -145,7 +217,7 @@ public interface ExApi {
      */
     default CompletableFuture<List<KLineValue>> asyncGetKLineValues(KLineValuePair kLineValuePair)
             throws ExApiException {
-        throw new ExApiException("not implemented");
+        throw new ExApiNotImplementedException("not implemented");
     }
 
     /**
@@ -154,7 +226,7 @@ public interface ExApi {
      * @throws ExApiException 操作失败
      */
     default CompletableFuture<Void> asyncTransferAsset(AssetTransfer transfer) throws ExApiException {
-        throw new ExApiException("not implemented");
+        throw new ExApiNotImplementedException("not implemented");
     }
 
     /**
@@ -163,7 +235,7 @@ public interface ExApi {
      * @throws ExApiException 操作失败
      */
     default CompletableFuture<Void> asyncWithdrawAsset(AssetTransfer transfer) throws ExApiException {
-        throw new ExApiException("not implemented");
+        throw new ExApiNotImplementedException("not implemented");
     }
 
     /**
@@ -174,6 +246,11 @@ public interface ExApi {
      */
     default CompletableFuture<List<AccountAssetRecord>> asyncGetAssetRecords(AssetTransferHistory transferHistory)
             throws ExApiException {
-        throw new ExApiException("not implemented");
+        throw new ExApiNotImplementedException("not implemented");
     }
+
+    /**
+     * 释放 api 自己持有的连接与线程，比如下单 websocket，exchange 停止时调用
+     */
+    default void close() {}
 }
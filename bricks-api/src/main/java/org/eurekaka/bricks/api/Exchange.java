@@ -4,6 +4,8 @@ import org.eurekaka.bricks.common.exception.ExchangeException;
 import org.eurekaka.bricks.common.model.ExAction;
 import org.eurekaka.bricks.common.model.ExMessage;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * exchange指交易所，根据账户配置启动交易服务
  */
@@ -57,4 +59,14 @@ public interface Exchange {
     double getMakerRate();
 
     ExMessage<?> process(ExAction<?> action);
+
+    /**
+     * 异步执行action，不阻塞调用线程，多账户查询时可以并发执行
+     * 结果为 CompletableFuture 的 action，返回的消息中直接包含其结果
+     * @param action 执行的action
+     * @return 执行结果，失败时为 ERROR 消息，不会异常完成
+     */
+    default CompletableFuture<ExMessage<?>> processAsync(ExAction<?> action) {
+        return CompletableFuture.completedFuture(process(action));
+    }
 }
@@ -1,6 +1,7 @@
 package org.eurekaka.bricks.api;
 
 import org.eurekaka.bricks.common.exception.ExApiException;
+import org.eurekaka.bricks.common.exception.ExApiNotImplementedException;
 import org.eurekaka.bricks.common.model.*;
 
 import java.util.List;
@@ -63,29 +64,29 @@ public interface FutureExApi extends ExApi {
 
     // 异步获取合约持仓信息接口
     default CompletableFuture<List<PositionValue>> asyncGetPositionValues() throws ExApiException {
-        throw new ExApiException("not implemented");
+        throw new ExApiNotImplementedException("not implemented");
     }
 
     // 永续合约账户风险信息接口
     default CompletableFuture<RiskLimitValue> asyncGetRiskLimitValue() throws ExApiException {
-        throw new ExApiException("not implemented");
+        throw new ExApiNotImplementedException("not implemented");
     }
 
     default CompletableFuture<Void> asyncUpdateLeverage(String symbol, int leverage) throws ExApiException {
-        throw new ExApiException("not implemented");
+        throw new ExApiNotImplementedException("not implemented");
     }
 
     default CompletableFuture<Void> asyncUpdateLimitValue(String symbol, int limit) throws ExApiException {
-        throw new ExApiException("not implemented");
+        throw new ExApiNotImplementedException("not implemented");
     }
 
     // 永续合约资金费率和资金费接口
     default CompletableFuture<Double> asyncGetFundingRate(String symbol) throws ExApiException {
-        throw new ExApiException("not implemented");
+        throw new ExApiNotImplementedException("not implemented");
     }
 
     default CompletableFuture<List<FundingValue>> asyncGetFundingValue(String symbol, long lastTime, long endTime)
             throws ExApiException {
-        throw new ExApiException("not implemented");
+        throw new ExApiNotImplementedException("not implemented");
     }
 }
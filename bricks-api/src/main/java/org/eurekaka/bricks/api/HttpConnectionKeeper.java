@@ -0,0 +1,162 @@
+package org.eurekaka.bricks.api;
+
+import org.eurekaka.bricks.common.model.AccountConfig;
+import org.eurekaka.bricks.common.model.HttpConnectionMetrics;
+import org.eurekaka.bricks.common.util.CountingSSLContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 账户 rest 连接预热与保活，启动及重连后并发发送心跳请求建立连接，之后定时发送心跳避免连接空闲超时
+ * HttpClient 对同一 host 的 http/2 请求复用同一连接，此时只保持一个连接，
+ * http/1.1 时保持 http_warm_connections 个连接，连接池的空闲超时由 jdk.httpclient.keepalive.timeout 控制
+ *
+ * 心跳请求由 ExApi.getHeartbeatRequest 提供，未实现时使用 http_heartbeat_path 的 GET 请求
+ */
+class HttpConnectionKeeper {
+    private static final Logger logger = LoggerFactory.getLogger(HttpConnectionKeeper.class);
+
+    // 连续失败达到该次数时认为连接不健康
+    private static final int MAX_FAILURES = 3;
+
+    private final String account;
+    private final HttpClient httpClient;
+    private final ExApi api;
+    private final URI heartbeatUri;
+    private final Duration timeout;
+    private final int warmConnections;
+    private final long heartbeatInterval;
+
+    private ScheduledExecutorService scheduler;
+
+    private volatile HttpClient.Version version;
+    private long heartbeats;
+    private long heartbeatFailures;
+    private int consecutiveFailures;
+    private long lastHeartbeatLatency;
+    private long lastHeartbeatTime;
+    private int lastStatus;
+
+    HttpConnectionKeeper(AccountConfig accountConfig, HttpClient httpClient, ExApi api) {
+        this.account = accountConfig.getName();
+        this.httpClient = httpClient;
+        this.api = api;
+        String path = accountConfig.getProperty("http_heartbeat_path", null);
+        this.heartbeatUri = path == null ? null : URI.create(accountConfig.getUrl() + path);
+        this.timeout = Duration.ofSeconds(Integer.parseInt(
+                accountConfig.getProperty("http_connect_timeout", "10")));
+        this.warmConnections = Integer.parseInt(accountConfig.getProperty("http_warm_connections", "0"));
+        this.heartbeatInterval = Long.parseLong(accountConfig.getProperty("http_heartbeat_interval", "30000"));
+    }
+
+    boolean isEnabled() {
+        return warmConnections > 0;
+    }
+
+    /**
+     * 预热连接并开始定时心跳，重复调用时只重新预热
+     */
+    synchronized CompletableFuture<Void> start() {
+        if (!isEnabled()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        if (scheduler == null && heartbeatInterval > 0) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "http-keeper-" + account);
+                thread.setDaemon(true);
+                return thread;
+            });
+            scheduler.scheduleWithFixedDelay(this::warmUp, heartbeatInterval, heartbeatInterval, TimeUnit.MILLISECONDS);
+        }
+        return warmUp();
+    }
+
+    synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    /**
+     * 并发发送心跳，http/1.1 下每个并发请求占用一个连接
+     */
+    CompletableFuture<Void> warmUp() {
+        int connections = getConnections();
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[connections];
+        for (int i = 0; i < connections; i++) {
+            futures[i] = heartbeat();
+        }
+        return CompletableFuture.allOf(futures);
+    }
+
+    private int getConnections() {
+        // 未收到响应前按客户端配置的版本判断，服务端可能协商为 http/1.1
+        HttpClient.Version current = version == null ? httpClient.version() : version;
+        return current == HttpClient.Version.HTTP_2 ? 1 : warmConnections;
+    }
+
+    private CompletableFuture<Void> heartbeat() {
+        HttpRequest request;
+        try {
+            request = api.getHeartbeatRequest();
+            if (request == null && heartbeatUri != null) {
+                request = HttpRequest.newBuilder(heartbeatUri).GET().timeout(timeout).build();
+            }
+        } catch (Exception e) {
+            logger.error("{} failed to create heartbeat request", account, e);
+            onFailure();
+            return CompletableFuture.completedFuture(null);
+        }
+        if (request == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        long start = System.nanoTime();
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                .handle((response, t) -> {
+                    if (t != null) {
+                        logger.warn("{} http heartbeat failed: {}", account, t.getMessage());
+                        onFailure();
+                    } else {
+                        // 收到响应说明连接可用，状态码只做记录
+                        onSuccess(response, (System.nanoTime() - start) / 1000);
+                    }
+                    return null;
+                });
+    }
+
+    private synchronized void onSuccess(HttpResponse<?> response, long latency) {
+        version = response.version();
+        heartbeats++;
+        consecutiveFailures = 0;
+        lastHeartbeatLatency = latency;
+        lastHeartbeatTime = System.currentTimeMillis();
+        lastStatus = response.statusCode();
+    }
+
+    private synchronized void onFailure() {
+        heartbeatFailures++;
+        consecutiveFailures++;
+        lastStatus = -1;
+    }
+
+    synchronized HttpConnectionMetrics getMetrics() {
+        long handshakes = httpClient.sslContext() instanceof CountingSSLContext ?
+                ((CountingSSLContext) httpClient.sslContext()).getHandshakes() : -1;
+        boolean healthy = !isEnabled() || consecutiveFailures < MAX_FAILURES && (heartbeatInterval <= 0 ||
+                System.currentTimeMillis() - lastHeartbeatTime < heartbeatInterval * 2);
+        return new HttpConnectionMetrics(account, version == null ? null : version.name(),
+                isEnabled() ? getConnections() : 0, handshakes, heartbeats, heartbeatFailures,
+                consecutiveFailures, lastHeartbeatLatency, lastHeartbeatTime, lastStatus, healthy);
+    }
+}
@@ -0,0 +1,282 @@
+package org.eurekaka.bricks.api;
+
+import org.eurekaka.bricks.common.model.IngestMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.http.WebSocket;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 单生产者单消费者的有界环形队列
+ * 生产者为 HttpClient 回调线程，只负责复制消息内容，消费者为每个账户独立的解析线程
+ * 所有槽位及其缓冲在创建时分配并重复使用
+ *
+ * 队列已满时只丢弃可合并的行情消息，订单、成交等其他消息复制后进入溢出队列，不丢失也不乱序：
+ * 溢出队列不为空时新消息都进入溢出队列，消费者处理完环形队列后再处理溢出队列
+ * 溢出队列也达到上限时才丢弃，按 listener 识别的 channel 或事件类型计数
+ */
+class IngestPipeline {
+    private static final Logger logger = LoggerFactory.getLogger(IngestPipeline.class);
+
+    // listener 无法识别类型的文本消息，以及解压前无法判断类型的二进制消息
+    static final String UNKNOWN = "unknown";
+    static final String BINARY = "binary";
+
+    // 消费者进入休眠前自旋次数
+    private static final int SPIN_TRIES = 1000;
+
+    private final String account;
+    private final Slot[] slots;
+    private final int mask;
+    private final Handler handler;
+
+    // 环形队列已满时不能丢弃的消息，按到达顺序处理
+    private final Queue<Slot> overflow = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger overflowSize = new AtomicInteger();
+    private final int overflowCapacity;
+
+    // 下一个写入位置，只由生产者修改
+    private final AtomicLong tail = new AtomicLong();
+    // 下一个读取位置，只由消费者修改
+    private final AtomicLong head = new AtomicLong();
+
+    private final Thread consumer;
+    private volatile boolean running;
+    private volatile boolean waiting;
+
+    // 消息类型 -> 丢弃数量，只由生产者线程写入
+    private final Map<String, LongAdder> drops = new ConcurrentHashMap<>();
+    // 溢出队列已满时丢弃的非行情消息
+    private final LongAdder privateDrops = new LongAdder();
+    private volatile long overflowed;
+
+    // 以下统计只由消费者线程写入
+    private volatile long processed;
+    private volatile long failed;
+    private volatile long totalQueueNanos;
+    private volatile long maxQueueNanos;
+    private volatile long totalDecodeNanos;
+    private volatile long maxDecodeNanos;
+
+    IngestPipeline(String account, int capacity, Handler handler) {
+        this(account, capacity, capacity * 64, handler);
+    }
+
+    IngestPipeline(String account, int capacity, int overflowCapacity, Handler handler) {
+        this.account = account;
+        this.overflowCapacity = overflowCapacity;
+        int size = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+        this.slots = new Slot[size];
+        for (int i = 0; i < size; i++) {
+            slots[i] = new Slot();
+        }
+        this.mask = size - 1;
+        this.handler = handler;
+
+        this.running = true;
+        this.consumer = new Thread(this::consume, "ingest-" + account);
+        this.consumer.setDaemon(true);
+        this.consumer.start();
+    }
+
+    /**
+     * 申请下一个可写槽位，队列已满或者溢出队列不为空时返回 null
+     * 只能由生产者线程调用，调用 publish 之前不能再次申请
+     */
+    Slot claim() {
+        long sequence = tail.get();
+        if (sequence - head.get() >= slots.length || overflowSize.get() > 0) {
+            return null;
+        }
+        return slots[(int) (sequence & mask)];
+    }
+
+    /**
+     * 发布已写入的槽位，唤醒消费者
+     */
+    void publish(Slot slot, WebSocket webSocket) {
+        slot.webSocket = webSocket;
+        slot.enqueueTime = System.nanoTime();
+        tail.lazySet(tail.get() + 1);
+        if (waiting) {
+            LockSupport.unpark(consumer);
+        }
+    }
+
+    /**
+     * 丢弃可合并的行情消息
+     * @param type 消息的 channel 或事件类型
+     */
+    void drop(String type) {
+        countDrop(type);
+    }
+
+    /**
+     * 复制消息内容到溢出队列，只能由生产者线程调用
+     * @param type 消息的 channel 或事件类型，溢出队列已满时按该类型计数
+     * @return 溢出队列已满时丢弃并返回 false
+     */
+    boolean offerOverflow(WebSocket webSocket, String type, boolean binary, char[] chars, byte[] bytes, int length) {
+        if (overflowSize.get() >= overflowCapacity) {
+            countDrop(type);
+            privateDrops.increment();
+            return false;
+        }
+        Slot slot = binary ? new Slot(null, Arrays.copyOf(bytes, length)) :
+                new Slot(Arrays.copyOf(chars, length), null);
+        slot.binary = binary;
+        slot.length = length;
+        slot.webSocket = webSocket;
+        slot.enqueueTime = System.nanoTime();
+        overflowSize.incrementAndGet();
+        overflow.add(slot);
+        overflowed++;
+        if (waiting) {
+            LockSupport.unpark(consumer);
+        }
+        return true;
+    }
+
+    private void countDrop(String type) {
+        String key = type == null ? UNKNOWN : type;
+        LongAdder counter = drops.get(key);
+        if (counter == null) {
+            counter = drops.computeIfAbsent(key, k -> new LongAdder());
+        }
+        counter.increment();
+    }
+
+    void close() {
+        running = false;
+        LockSupport.unpark(consumer);
+        try {
+            consumer.join(200);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    IngestMetrics getMetrics() {
+        long count = processed;
+        Map<String, Long> dropCounts = new HashMap<>();
+        for (Map.Entry<String, LongAdder> entry : drops.entrySet()) {
+            dropCounts.put(entry.getKey(), entry.getValue().sum());
+        }
+        return new IngestMetrics(account, slots.length, tail.get() - head.get() + overflowSize.get(),
+                tail.get() + overflowed, count, failed, dropCounts, privateDrops.sum(), overflowed,
+                count == 0 ? 0 : totalQueueNanos / count / 1000, maxQueueNanos / 1000,
+                count == 0 ? 0 : totalDecodeNanos / count / 1000, maxDecodeNanos / 1000);
+    }
+
+    private void consume() {
+        int tries = 0;
+        while (running) {
+            long sequence = head.get();
+            if (sequence >= tail.get()) {
+                // 溢出队列中的消息都晚于环形队列中的消息
+                Slot slot = overflow.poll();
+                if (slot != null) {
+                    tries = 0;
+                    // 取出后即可让生产者写回环形队列，之后的消息依然晚于当前消息处理
+                    overflowSize.decrementAndGet();
+                    handle(slot);
+                    continue;
+                }
+                if (++tries < SPIN_TRIES) {
+                    Thread.onSpinWait();
+                } else {
+                    waiting = true;
+                    // 设置等待标记后再次检查，避免错过生产者的唤醒
+                    if (sequence >= tail.get() && overflowSize.get() == 0 && running) {
+                        LockSupport.parkNanos(1_000_000);
+                    }
+                    waiting = false;
+                }
+                continue;
+            }
+            tries = 0;
+
+            Slot slot = slots[(int) (sequence & mask)];
+            handle(slot);
+            slot.webSocket = null;
+            head.lazySet(sequence + 1);
+        }
+    }
+
+    private void handle(Slot slot) {
+        long startTime = System.nanoTime();
+        try {
+            handler.handle(slot);
+        } catch (Throwable t) {
+            failed++;
+            logger.error("failed to process message: {}", slot, t);
+        }
+        long endTime = System.nanoTime();
+
+        long queueNanos = startTime - slot.enqueueTime;
+        long decodeNanos = endTime - startTime;
+        processed++;
+        totalQueueNanos += queueNanos;
+        totalDecodeNanos += decodeNanos;
+        if (queueNanos > maxQueueNanos) {
+            maxQueueNanos = queueNanos;
+        }
+        if (decodeNanos > maxDecodeNanos) {
+            maxDecodeNanos = decodeNanos;
+        }
+    }
+
+    static class Slot {
+        boolean binary;
+        char[] chars;
+        byte[] bytes;
+        int length;
+
+        WebSocket webSocket;
+        long enqueueTime;
+
+        Slot() {
+            this(new char[4096], new byte[0]);
+        }
+
+        // 溢出队列的消息按实际长度复制
+        Slot(char[] chars, byte[] bytes) {
+            this.chars = chars;
+            this.bytes = bytes;
+        }
+
+        char[] ensureChars(int capacity) {
+            if (chars.length < capacity) {
+                chars = Arrays.copyOf(chars, Math.max(capacity, chars.length << 1));
+            }
+            return chars;
+        }
+
+        byte[] ensureBytes(int capacity) {
+            if (bytes.length < capacity) {
+                bytes = Arrays.copyOf(bytes, Math.max(capacity, bytes.length << 1));
+            }
+            return bytes;
+        }
+
+        @Override
+        public String toString() {
+            return binary ? "binary(" + length + ")" : new String(chars, 0, length);
+        }
+    }
+
+    @FunctionalInterface
+    interface Handler {
+        void handle(Slot slot) throws Exception;
+    }
+}
@@ -0,0 +1,130 @@
+package org.eurekaka.bricks.api;
+
+import org.eurekaka.bricks.common.exception.RateLimitException;
+import org.eurekaka.bricks.common.model.RequestPriority;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLParameters;
+import java.io.IOException;
+import java.net.Authenticator;
+import java.net.CookieHandler;
+import java.net.ProxySelector;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.WebSocket;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * 在 HttpClient 层对所有 ExApi 请求限频，各交易所 api 不需要修改
+ * 发送前按当前线程的优先级申请额度，收到响应后用响应头校正额度
+ */
+class RateLimitedHttpClient extends HttpClient {
+    private final HttpClient delegate;
+    private final RateLimiter rateLimiter;
+
+    RateLimitedHttpClient(HttpClient delegate, RateLimiter rateLimiter) {
+        this.delegate = delegate;
+        this.rateLimiter = rateLimiter;
+    }
+
+    @Override
+    public <T> HttpResponse<T> send(HttpRequest request, HttpResponse.BodyHandler<T> handler)
+            throws IOException, InterruptedException {
+        acquire(request);
+        HttpResponse<T> response = delegate.send(request, handler);
+        rateLimiter.onResponse(response.statusCode(), response.headers());
+        return response;
+    }
+
+    @Override
+    public <T> CompletableFuture<HttpResponse<T>> sendAsync(HttpRequest request,
+                                                            HttpResponse.BodyHandler<T> handler) {
+        return sendAsync(request, handler, null);
+    }
+
+    @Override
+    public <T> CompletableFuture<HttpResponse<T>> sendAsync(HttpRequest request,
+                                                            HttpResponse.BodyHandler<T> handler,
+                                                            HttpResponse.PushPromiseHandler<T> pushHandler) {
+        try {
+            acquire(request);
+        } catch (RateLimitException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return delegate.sendAsync(request, handler, pushHandler).whenComplete((response, t) -> {
+            if (response != null) {
+                rateLimiter.onResponse(response.statusCode(), response.headers());
+            }
+        });
+    }
+
+    private void acquire(HttpRequest request) throws RateLimitException {
+        RequestPriority priority = RateLimiter.currentPriority();
+        // 下单类优先级的写请求计入下单数量
+        boolean order = (priority == RequestPriority.HEDGE || priority == RequestPriority.QUOTE) &&
+                !"GET".equals(request.method());
+        int orders = order ? RateLimiter.pendingOrders() : 0;
+        int weight = rateLimiter.getWeight(request.uri().getPath());
+        if (!rateLimiter.tryAcquire(priority, weight, orders)) {
+            throw new RateLimitException("rate limited " + priority + " request: " +
+                    request.method() + " " + request.uri().getPath());
+        }
+        if (order) {
+            RateLimiter.ordersAcquired();
+        }
+    }
+
+    @Override
+    public WebSocket.Builder newWebSocketBuilder() {
+        return delegate.newWebSocketBuilder();
+    }
+
+    @Override
+    public Optional<CookieHandler> cookieHandler() {
+        return delegate.cookieHandler();
+    }
+
+    @Override
+    public Optional<Duration> connectTimeout() {
+        return delegate.connectTimeout();
+    }
+
+    @Override
+    public Redirect followRedirects() {
+        return delegate.followRedirects();
+    }
+
+    @Override
+    public Optional<ProxySelector> proxy() {
+        return delegate.proxy();
+    }
+
+    @Override
+    public SSLContext sslContext() {
+        return delegate.sslContext();
+    }
+
+    @Override
+    public SSLParameters sslParameters() {
+        return delegate.sslParameters();
+    }
+
+    @Override
+    public Optional<Authenticator> authenticator() {
+        return delegate.authenticator();
+    }
+
+    @Override
+    public Version version() {
+        return delegate.version();
+    }
+
+    @Override
+    public Optional<Executor> executor() {
+        return delegate.executor();
+    }
+}
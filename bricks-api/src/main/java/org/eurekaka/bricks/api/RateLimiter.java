@@ -0,0 +1,254 @@
+package org.eurekaka.bricks.api;
+
+import org.eurekaka.bricks.common.model.AccountConfig;
+import org.eurekaka.bricks.common.model.RateLimitMetrics;
+import org.eurekaka.bricks.common.model.RequestPriority;
+
+import java.net.http.HttpHeaders;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * 账户级别的客户端限频，请求权重与下单数量各使用一个令牌桶
+ * 每个优先级保留一部分额度，剩余额度不足时低优先级请求在本地直接拒绝，
+ * 交易所响应头中的已用权重用于校正本地额度，429 之后只允许撤单，418 之后拒绝所有请求
+ *
+ * 请求优先级通过 enter, exit 绑定在当前线程，由 AbstractExchange.process 按 action 设置，
+ * 未设置时按查询处理
+ */
+class RateLimiter {
+    private static final ThreadLocal<RequestPriority> PRIORITY = new ThreadLocal<>();
+    // 批量下单中还未占用额度的订单数量
+    private static final ThreadLocal<int[]> BATCH_ORDERS = new ThreadLocal<>();
+
+    private static final int TOO_MANY_REQUESTS = 429;
+    private static final int IP_BANNED = 418;
+
+    private final String account;
+
+    private final long weightLimit;
+    private final long weightInterval;
+    private final long orderLimit;
+    private final long orderInterval;
+    // 未返回 Retry-After 时的退避时间
+    private final long banTime;
+    // 请求路径 -> 权重，默认为 1
+    private final Map<String, Integer> weights;
+
+    // 响应头名称，均为小写
+    private final String usedWeightHeader;
+    private final String remainingWeightHeader;
+    private final String orderCountHeader;
+
+    private double weightTokens;
+    private double orderTokens;
+    private long lastRefillTime;
+    private long serverUsedWeight = -1;
+    private long bannedUntil;
+    private int lastBanStatus;
+    private long acquired;
+    private final Map<RequestPriority, Long> rejected = new EnumMap<>(RequestPriority.class);
+
+    RateLimiter(AccountConfig accountConfig) {
+        this.account = accountConfig.getName();
+        this.weightLimit = Long.parseLong(accountConfig.getProperty("rate_limit_weight", "0"));
+        this.weightInterval = Long.parseLong(accountConfig.getProperty("rate_limit_interval", "60000"));
+        this.orderLimit = Long.parseLong(accountConfig.getProperty("rate_limit_orders", "0"));
+        this.orderInterval = Long.parseLong(accountConfig.getProperty("rate_limit_order_interval", "10000"));
+        this.banTime = Long.parseLong(accountConfig.getProperty("rate_limit_ban_time", "60000"));
+        this.weights = parseWeights(accountConfig.getProperty("rate_limit_weights", ""));
+
+        this.usedWeightHeader = headerName(accountConfig.getProperty(
+                "rate_limit_used_header", "x-mbx-used-weight-1m"));
+        this.remainingWeightHeader = headerName(accountConfig.getProperty(
+                "rate_limit_remaining_header", ""));
+        this.orderCountHeader = headerName(accountConfig.getProperty(
+                "rate_limit_order_header", "x-mbx-order-count-10s"));
+
+        this.weightTokens = weightLimit;
+        this.orderTokens = orderLimit;
+        this.lastRefillTime = System.currentTimeMillis();
+        for (RequestPriority priority : RequestPriority.values()) {
+            rejected.put(priority, 0L);
+        }
+    }
+
+    /**
+     * 设置当前线程的请求优先级
+     * @return 之前的优先级，需要在 exit 中恢复
+     */
+    static RequestPriority enter(RequestPriority priority) {
+        RequestPriority previous = PRIORITY.get();
+        PRIORITY.set(priority);
+        return previous;
+    }
+
+    static void exit(RequestPriority previous) {
+        if (previous == null) {
+            PRIORITY.remove();
+        } else {
+            PRIORITY.set(previous);
+        }
+    }
+
+    /**
+     * 批量下单按订单数量占用下单额度，由第一个下单请求一次占用，
+     * 交易所 api 拆分出的之后的请求只占用权重
+     */
+    static void enterBatch(int orders) {
+        BATCH_ORDERS.set(new int[] {orders});
+    }
+
+    static void exitBatch() {
+        BATCH_ORDERS.remove();
+    }
+
+    /**
+     * @return 当前下单请求需要占用的下单数量，不在批量下单中时为 1
+     */
+    static int pendingOrders() {
+        int[] batch = BATCH_ORDERS.get();
+        return batch == null ? 1 : batch[0];
+    }
+
+    static void ordersAcquired() {
+        int[] batch = BATCH_ORDERS.get();
+        if (batch != null) {
+            batch[0] = 0;
+        }
+    }
+
+    static RequestPriority currentPriority() {
+        RequestPriority priority = PRIORITY.get();
+        return priority == null ? RequestPriority.QUERY : priority;
+    }
+
+    int getWeight(String path) {
+        Integer weight = weights.get(path);
+        return weight == null ? 1 : weight;
+    }
+
+    /**
+     * @param order 是否为新订单，同时占用下单数量额度
+     * @return 额度不足或处于退避期间时返回 false
+     */
+    boolean tryAcquire(RequestPriority priority, int weight, boolean order) {
+        return tryAcquire(priority, weight, order ? 1 : 0);
+    }
+
+    /**
+     * @param orders 占用的下单数量
+     * @return 额度不足或处于退避期间时返回 false
+     */
+    synchronized boolean tryAcquire(RequestPriority priority, int weight, int orders) {
+        long now = System.currentTimeMillis();
+        refill(now);
+        if (now < bannedUntil && (lastBanStatus == IP_BANNED || priority != RequestPriority.CANCEL)) {
+            return reject(priority);
+        }
+        if (weightTokens - weight < weightLimit * priority.reserve) {
+            return reject(priority);
+        }
+        if (orders > 0 && orderLimit > 0 && orderTokens - orders < orderLimit * priority.reserve) {
+            return reject(priority);
+        }
+        weightTokens -= weight;
+        if (orders > 0 && orderLimit > 0) {
+            orderTokens -= orders;
+        }
+        acquired++;
+        return true;
+    }
+
+    private boolean reject(RequestPriority priority) {
+        rejected.merge(priority, 1L, Long::sum);
+        return false;
+    }
+
+    private void refill(long now) {
+        long elapsed = now - lastRefillTime;
+        if (elapsed <= 0) {
+            return;
+        }
+        weightTokens = Math.min(weightLimit, weightTokens + (double) elapsed * weightLimit / weightInterval);
+        if (orderLimit > 0) {
+            orderTokens = Math.min(orderLimit, orderTokens + (double) elapsed * orderLimit / orderInterval);
+        }
+        lastRefillTime = now;
+    }
+
+    /**
+     * 根据交易所响应校正本地额度，本地额度只会向下修正
+     */
+    synchronized void onResponse(int statusCode, HttpHeaders headers) {
+        long now = System.currentTimeMillis();
+        refill(now);
+        long used = headerValue(headers, usedWeightHeader);
+        if (used >= 0) {
+            serverUsedWeight = used;
+            weightTokens = Math.min(weightTokens, weightLimit - used);
+        }
+        long remaining = headerValue(headers, remainingWeightHeader);
+        if (remaining >= 0) {
+            serverUsedWeight = Math.max(0, weightLimit - remaining);
+            weightTokens = Math.min(weightTokens, remaining);
+        }
+        long orders = headerValue(headers, orderCountHeader);
+        if (orders >= 0 && orderLimit > 0) {
+            orderTokens = Math.min(orderTokens, orderLimit - orders);
+        }
+
+        if (statusCode == TOO_MANY_REQUESTS || statusCode == IP_BANNED) {
+            long retryAfter = headerValue(headers, "retry-after");
+            long until = now + (retryAfter >= 0 ? retryAfter * 1000 : banTime);
+            bannedUntil = Math.max(bannedUntil, until);
+            lastBanStatus = statusCode;
+        }
+    }
+
+    synchronized RateLimitMetrics getMetrics() {
+        refill(System.currentTimeMillis());
+        Map<String, Long> rejectedMap = new HashMap<>();
+        for (Map.Entry<RequestPriority, Long> entry : rejected.entrySet()) {
+            rejectedMap.put(entry.getKey().name(), entry.getValue());
+        }
+        return new RateLimitMetrics(account, weightLimit, (long) weightTokens, serverUsedWeight,
+                orderLimit, (long) orderTokens, bannedUntil, lastBanStatus, acquired, rejectedMap);
+    }
+
+    // 非数字或缺失时返回 -1，Retry-After 为日期格式时按默认退避时间处理
+    private static long headerValue(HttpHeaders headers, String name) {
+        if (name == null) {
+            return -1;
+        }
+        Optional<String> value = headers.firstValue(name);
+        if (value.isPresent()) {
+            try {
+                return Long.parseLong(value.get().trim());
+            } catch (NumberFormatException e) {
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    private static String headerName(String name) {
+        return name == null || name.isBlank() ? null : name.trim().toLowerCase(Locale.ROOT);
+    }
+
+    // 格式: /fapi/v1/depth:20,/fapi/v2/account:5
+    private static Map<String, Integer> parseWeights(String value) {
+        Map<String, Integer> weights = new HashMap<>();
+        for (String item : value.split(",")) {
+            int index = item.lastIndexOf(':');
+            if (index > 0) {
+                weights.put(item.substring(0, index).trim(),
+                        Integer.parseInt(item.substring(index + 1).trim()));
+            }
+        }
+        return weights;
+    }
+}
@@ -1,27 +1,37 @@
 package org.eurekaka.bricks.api;
 
+import com.fasterxml.jackson.core.JsonParser;
 import org.eurekaka.bricks.common.model.AccountConfig;
 import org.eurekaka.bricks.common.model.AccountStatus;
+import org.eurekaka.bricks.common.model.IngestMetrics;
+import org.eurekaka.bricks.common.model.LatencyStage;
+import org.eurekaka.bricks.common.util.GzipInflater;
+import org.eurekaka.bricks.common.util.LatencyRecorder;
+import org.eurekaka.bricks.common.util.Utils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
 import java.net.http.WebSocket;
 import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Supplier;
-import java.util.zip.GZIPInputStream;
+import java.util.zip.DataFormatException;
 
 public abstract class WebSocketListener<A extends AccountStatus, B extends ExApi> implements WebSocket.Listener {
     protected final Logger logger = LoggerFactory.getLogger(getClass().getName());
 
+    // 在回调线程解压的压缩消息的最大长度，ping 等控制消息压缩后远小于该长度
+    private static final int CONTROL_BINARY_SIZE = 256;
+
     private final List<CharSequence> parts = new ArrayList<>();
     private final List<ByteBuffer> binaryParts;
     private CompletableFuture<?> accumulatedMessage = new CompletableFuture<>();
@@ -34,6 +44,28 @@ public abstract class WebSocketListener<A extends AccountStatus, B extends ExApi
 
     protected int orderBookLimit;
 
+    // 当前消息的接收时间与解析完成时间，只由处理消息的线程读写
+    private long receiveNanos;
+    private long decodedNanos;
+
+    // 子类实现 processStreamingText 后开启，对高频消息使用流式解析
+    protected boolean streamingDecode;
+    // 复用的文本缓冲，避免每条消息拼接 String
+    private char[] textBuffer = new char[4096];
+    // 复用的二进制缓冲与解压器，只由处理消息的线程使用
+    private byte[] binaryBuffer = new byte[4096];
+    private final GzipInflater inflater = new GzipInflater();
+    // 子类开启后，开启 ingest_pipeline 时较短的压缩消息先在回调线程解压，交给 processControlBinary
+    protected boolean binaryControl;
+    // 回调线程使用的解压器，只在 binaryControl 开启时创建
+    private GzipInflater controlInflater;
+    // 应由流式解析处理、却回退到 processWholeText 的高频消息数量
+    private final AtomicLong streamingFallbacks = new AtomicLong();
+
+    // 开启 ingest_pipeline 后，消息复制到环形队列，由独立的解析线程处理，
+    // 避免慢处理阻塞 HttpClient 回调线程以及 pong 消息
+    private final IngestPipeline pipeline;
+
     public WebSocketListener(AccountConfig accountConfig, A accountStatus, B api, Executor executor) {
         this.accountConfig = accountConfig;
         this.accountStatus = accountStatus;
@@ -45,6 +77,15 @@ public abstract class WebSocketListener<A extends AccountStatus, B extends ExApi
 
         this.orderBookLimit = Integer.parseInt(accountConfig.getProperty(
                 "order_book_limit", "500"));
+
+        if (Boolean.parseBoolean(accountConfig.getProperty("ingest_pipeline", "false"))) {
+            int capacity = Integer.parseInt(accountConfig.getProperty("ingest_buffer_size", "1024"));
+            this.pipeline = new IngestPipeline(accountConfig.getName(), capacity, Integer.parseInt(
+                    accountConfig.getProperty("ingest_overflow_size", String.valueOf(capacity * 64))),
+                    this::processSlot);
+        } else {
+            this.pipeline = null;
+        }
     }
 
     @Override
@@ -52,26 +93,45 @@ public abstract class WebSocketListener<A extends AccountStatus, B extends ExApi
         webSocket.request(1);
         parts.add(data);
         if (last) {
-            StringBuilder text = new StringBuilder();
+            long receiveTime = System.nanoTime();
+            int length = 0;
             for (CharSequence part : parts) {
-                text.append(part);
+                length += part.length();
             }
-            long startTime = System.currentTimeMillis();
-//            accumulatedMessage.completeAsync(() -> {
-//                return null;
-//            }, executor);
-            String message = text.toString();
-            try {
-                processWholeText(webSocket, message);
-            } catch (Throwable e) {
-                logger.error("failed to process message: {}", text, e);
+            IngestPipeline.Slot slot = pipeline == null ? null : pipeline.claim();
+            char[] chars;
+            if (slot != null) {
+                chars = slot.ensureChars(length);
+            } else {
+                if (textBuffer.length < length) {
+                    textBuffer = Arrays.copyOf(textBuffer, Math.max(length, textBuffer.length << 1));
+                }
+                chars = textBuffer;
             }
-            long timeCost = System.currentTimeMillis() - startTime;
-            if (timeCost > 1) {
-                logger.info("time cost: {}, message: {}", timeCost, message);
+            int offset = 0;
+            for (CharSequence part : parts) {
+                offset = copyChars(part, chars, offset);
             }
-            accumulatedMessage.complete(null);
             parts.clear();
+
+            if (pipeline == null) {
+                processTextInline(webSocket, chars, length, receiveTime);
+            } else if (processControlText(webSocket, chars, length)) {
+                // pong 等控制消息直接在回调线程处理，不进入队列
+            } else if (slot != null) {
+                slot.binary = false;
+                slot.length = length;
+                pipeline.publish(slot, webSocket);
+            } else {
+                String type = textType(chars, length);
+                if (isDroppableType(type)) {
+                    pipeline.drop(type);
+                } else if (!pipeline.offerOverflow(webSocket, type, false, chars, null, length)) {
+                    logger.error("ingest overflow is full, drop text message: {}", new String(chars, 0, length));
+                }
+            }
+
+            accumulatedMessage.complete(null);
             CompletionStage<?> cf = accumulatedMessage;
             accumulatedMessage = new CompletableFuture<>();
             return cf;
@@ -80,31 +140,135 @@ public abstract class WebSocketListener<A extends AccountStatus, B extends ExApi
         return accumulatedMessage;
     }
 
+    private void processTextInline(WebSocket webSocket, char[] chars, int length, long receiveTime) {
+//            accumulatedMessage.completeAsync(() -> {
+//                return null;
+//            }, executor);
+        beginMessage(receiveTime);
+        try {
+            processText(webSocket, chars, length);
+        } catch (Throwable e) {
+            logger.error("failed to process message: {}", new String(chars, 0, length), e);
+        }
+        long timeCost = (endMessage() - receiveTime) / 1_000_000;
+        if (timeCost > 1) {
+            logger.info("time cost: {}, message: {}", timeCost, new String(chars, 0, length));
+        }
+    }
+
+    // 优先使用流式解析，子类未处理的消息再转换为 String 处理
+    private void processText(WebSocket webSocket, char[] chars, int length) throws Exception {
+        if (streamingDecode) {
+            try (JsonParser parser = Utils.mapper.getFactory().createParser(chars, 0, length)) {
+                if (processStreamingText(webSocket, parser)) {
+                    return;
+                }
+            }
+        }
+        processWholeText(webSocket, new String(chars, 0, length));
+    }
+
+    // 解析线程处理队列中的消息
+    private void processSlot(IngestPipeline.Slot slot) throws Exception {
+        beginMessage(slot.enqueueTime);
+        try {
+            if (slot.binary) {
+                processBinary(slot.webSocket, slot.bytes, slot.length);
+            } else {
+                processText(slot.webSocket, slot.chars, slot.length);
+            }
+        } finally {
+            endMessage();
+        }
+    }
+
+    private void beginMessage(long receiveTime) {
+        receiveNanos = receiveTime;
+        decodedNanos = 0;
+    }
+
+    // 记录当前消息各阶段的延迟，返回处理完成时间
+    private long endMessage() {
+        long endTime = System.nanoTime();
+        LatencyRecorder.record(LatencyStage.FRAME, endTime - receiveNanos);
+        if (decodedNanos != 0) {
+            LatencyRecorder.record(LatencyStage.DECODE, decodedNanos - receiveNanos);
+            LatencyRecorder.record(LatencyStage.BOOK_UPDATE, endTime - decodedNanos);
+        }
+        return endTime;
+    }
+
+    /**
+     * 子类在行情消息解析完成、更新订单簿之前调用，区分解析与订单簿更新的延迟
+     */
+    protected void markDecoded() {
+        decodedNanos = System.nanoTime();
+    }
+
+    private static int copyChars(CharSequence part, char[] dest, int offset) {
+        if (part instanceof CharBuffer) {
+            CharBuffer buffer = ((CharBuffer) part).duplicate();
+            int length = buffer.remaining();
+            buffer.get(dest, offset, length);
+            return offset + length;
+        }
+        if (part instanceof String) {
+            String text = (String) part;
+            text.getChars(0, text.length(), dest, offset);
+            return offset + text.length();
+        }
+        for (int i = 0; i < part.length(); i++) {
+            dest[offset++] = part.charAt(i);
+        }
+        return offset;
+    }
+
     @Override
     public CompletionStage<?> onBinary(WebSocket webSocket, ByteBuffer data, boolean last) {
         webSocket.request(1);
         binaryParts.add(data);
         if (last) {
+            long receiveTime = System.nanoTime();
+            // 使用 remaining 计算长度，兼容 direct buffer
             int size = 0;
             for (ByteBuffer binaryPart : binaryParts) {
-                size += binaryPart.array().length;
+                size += binaryPart.remaining();
+            }
+            IngestPipeline.Slot slot = pipeline == null ? null : pipeline.claim();
+            byte[] bytes;
+            if (slot != null) {
+                bytes = slot.ensureBytes(size);
+            } else {
+                if (binaryBuffer.length < size) {
+                    binaryBuffer = Arrays.copyOf(binaryBuffer, Math.max(size, binaryBuffer.length << 1));
+                }
+                bytes = binaryBuffer;
             }
-            var allocate = ByteBuffer.allocate(size);
+            int offset = 0;
             for (ByteBuffer binaryPart : binaryParts) {
-                allocate.put(binaryPart);
+                int length = binaryPart.remaining();
+                binaryPart.get(bytes, offset, length);
+                offset += length;
             }
-            var content = uncompress(allocate.array());
-            if (content != null) {
-                var text = new String(content);
 
+            if (pipeline == null) {
+                beginMessage(receiveTime);
                 try {
-                    logger.trace("received message: {}", text);
-                    processWholeText(webSocket, text);
+                    processBinary(webSocket, bytes, size);
                 } catch (Throwable t) {
-                    logger.error("failed to process message: {}", text, t);
+                    logger.error("failed to process binary message", t);
                 }
-            } else {
-                logger.warn("failed to uncompress data");
+                endMessage();
+            } else if (binaryControl && size <= CONTROL_BINARY_SIZE && tryControlBinary(webSocket, bytes, size)) {
+                // ping 等压缩的控制消息直接在回调线程处理，不进入队列
+            } else if (slot != null) {
+                // 二进制消息需要解压后才能判断类型，整体进入队列，由解析线程解压
+                slot.binary = true;
+                slot.length = size;
+                pipeline.publish(slot, webSocket);
+            } else if (!pipeline.offerOverflow(webSocket, IngestPipeline.BINARY, true, null, bytes, size)) {
+                // 压缩消息解压前无法判断类型，不按行情消息丢弃
+                logger.error("ingest overflow is full, drop binary message, size: {}", size);
             }
 
             binaryParts.clear();
@@ -117,6 +281,164 @@ public abstract class WebSocketListener<A extends AccountStatus, B extends ExApi
         return accumulatedMessage;
     }
 
+    /**
+     * 开启 ingest_pipeline 时在回调线程上处理控制消息，例如应用层的 pong
+     * 只应做简单的字符匹配，不能有耗时操作
+     * @return 已处理的消息不再进入队列
+     */
+    protected boolean processControlText(WebSocket webSocket, char[] chars, int length) {
+        return false;
+    }
+
+    // 在回调线程解压并判断是否为控制消息，解压或处理失败时交给解析线程处理
+    private boolean tryControlBinary(WebSocket webSocket, byte[] data, int length) {
+        try {
+            if (controlInflater == null) {
+                controlInflater = new GzipInflater(CONTROL_BINARY_SIZE);
+            }
+            int size = controlInflater.inflate(data, 0, length);
+            return processControlBinary(webSocket, controlInflater.getBuffer(), size);
+        } catch (Exception e) {
+            logger.warn("failed to process control binary message", e);
+            return false;
+        }
+    }
+
+    /**
+     * 开启 ingest_pipeline 与 binaryControl 时，在回调线程上处理较短的压缩控制消息，例如 huobi 的 ping
+     * 与 processControlText 相同，只应做简单的匹配，不能有耗时操作
+     * @param content 解压后的消息内容
+     * @return 已处理的消息不再进入队列
+     */
+    protected boolean processControlBinary(WebSocket webSocket, byte[] content, int length) throws Exception {
+        return false;
+    }
+
+    /**
+     * 开启 ingest_pipeline 且队列已满时在回调线程上调用，返回消息的 channel 或事件类型，
+     * 用于判断消息是否可以丢弃以及按类型统计丢弃数量，无法识别时返回 null
+     * 与 processControlText 相同，只应做简单的字符匹配，例如使用 asciiStringField
+     */
+    protected String textType(char[] chars, int length) {
+        return null;
+    }
+
+    /**
+     * 判断 textType 返回的消息类型是否可以丢弃
+     * 只有可合并的行情消息可以丢弃，订单、成交、仓位等消息进入溢出队列，默认都不丢弃
+     */
+    protected boolean isDroppableType(String type) {
+        return false;
+    }
+
+    /**
+     * @return 未开启 ingest_pipeline 时返回 null
+     */
+    public IngestMetrics getIngestMetrics() {
+        return pipeline == null ? null : pipeline.getMetrics();
+    }
+
+    /**
+     * @return 回退到 processWholeText 的高频消息数量，正常情况下应为 0
+     */
+    public long getStreamingFallbacks() {
+        return streamingFallbacks.get();
+    }
+
+    /**
+     * 子类在 processWholeText 中收到本应由流式解析处理的消息时调用，
+     * 未开启流式解析时不计数
+     * @param type 消息类型
+     */
+    protected void streamingFallback(String type) {
+        if (streamingDecode && streamingFallbacks.incrementAndGet() % 1000 == 1) {
+            logger.warn("streaming decode fell back to whole text, type: {}, total: {}",
+                    type, streamingFallbacks.get());
+        }
+    }
+
+    /**
+     * 停止解析线程，释放解压器
+     */
+    public void close() {
+        if (pipeline != null) {
+            pipeline.close();
+        }
+        inflater.close();
+        if (controlInflater != null) {
+            controlInflater.close();
+        }
+    }
+
+    /**
+     * 在消息文本中查找 ASCII 关键字，用于控制消息的快速判断
+     */
+    protected static boolean containsAscii(char[] chars, int length, String keyword) {
+        return indexOfAscii(chars, 0, length, keyword) >= 0;
+    }
+
+    /**
+     * 在解压后的消息内容中查找 ASCII 关键字
+     */
+    protected static boolean containsAscii(byte[] bytes, int length, String keyword) {
+        int last = length - keyword.length();
+        outer:
+        for (int i = 0; i <= last; i++) {
+            for (int j = 0; j < keyword.length(); j++) {
+                if (bytes[i + j] != keyword.charAt(j)) {
+                    continue outer;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 读取消息文本中第一个名称为 field 的字符串字段的值，不解析 json，用于快速判断消息类型
+     * @return 字段不存在或者值不是字符串时返回 null
+     */
+    protected static String asciiStringField(char[] chars, int length, String field) {
+        String key = "\"" + field + "\"";
+        int index = 0;
+        while ((index = indexOfAscii(chars, index, length, key)) >= 0) {
+            int i = skipSpaces(chars, index + key.length(), length);
+            if (i < length && chars[i] == ':') {
+                i = skipSpaces(chars, i + 1, length);
+                if (i < length && chars[i] == '"') {
+                    int end = i + 1;
+                    while (end < length && chars[end] != '"') {
+                        end++;
+                    }
+                    return end < length ? new String(chars, i + 1, end - i - 1) : null;
+                }
+            }
+            index += key.length();
+        }
+        return null;
+    }
+
+    private static int indexOfAscii(char[] chars, int from, int length, String keyword) {
+        int last = length - keyword.length();
+        outer:
+        for (int i = from; i <= last; i++) {
+            for (int j = 0; j < keyword.length(); j++) {
+                if (chars[i + j] != keyword.charAt(j)) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    private static int skipSpaces(char[] chars, int from, int length) {
+        while (from < length && chars[from] == ' ') {
+            from++;
+        }
+        return from;
+    }
+
     /**
      *     // spot，也是通常需要的消息处理功能
      *     onOrder();
@@ -131,21 +453,41 @@ public abstract class WebSocketListener<A extends AccountStatus, B extends ExApi
      */
     protected abstract void processWholeText(WebSocket webSocket, String message) throws Exception;
 
-    protected byte[] uncompress(byte[] data) {
-        try (ByteArrayInputStream is = new ByteArrayInputStream(data);
-             ByteArrayOutputStream os = new ByteArrayOutputStream();
-             GZIPInputStream gis = new GZIPInputStream(is)) {
-            int count;
-            byte[] buffer = new byte[1024];
-            while ((count = gis.read(buffer, 0, 1024)) != -1) {
-                os.write(buffer, 0, count);
+    /**
+     * 流式解析入口，parser 尚未读取任何 token
+     * 子类按消息类型选择性处理，返回 false 的消息会再交给 processWholeText 处理，
+     * 因此在确定消息类型之前不要产生任何副作用
+     * @param parser 基于当前消息创建的 json parser
+     * @return 是否已处理该消息
+     */
+    protected boolean processStreamingText(WebSocket webSocket, JsonParser parser) throws Exception {
+        return false;
+    }
+
+    // 解压后直接交给流式解析，子类未处理的消息再转换为 String 处理
+    private void processBinary(WebSocket webSocket, byte[] data, int length) throws Exception {
+        int size;
+        try {
+            size = inflater.inflate(data, 0, length);
+        } catch (DataFormatException e) {
+            logger.warn("failed to uncompress data", e);
+            return;
+        }
+        byte[] content = inflater.getBuffer();
+        if (streamingDecode) {
+            try (JsonParser parser = Utils.mapper.getFactory().createParser(content, 0, size)) {
+                if (processStreamingText(webSocket, parser)) {
+                    return;
+                }
             }
-            os.flush();
-            return os.toByteArray();
-        } catch (IOException e) {
-            logger.error("failed to uncompress data", e);
         }
-        return null;
+        String text = new String(content, 0, size, StandardCharsets.UTF_8);
+        logger.trace("received message: {}", text);
+        try {
+            processWholeText(webSocket, text);
+        } catch (Throwable t) {
+            logger.error("failed to process message: {}", text, t);
+        }
     }
 
     @Override
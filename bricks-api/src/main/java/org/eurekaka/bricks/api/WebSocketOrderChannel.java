@@ -0,0 +1,310 @@
+package org.eurekaka.bricks.api;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.eurekaka.bricks.common.exception.ExApiException;
+import org.eurekaka.bricks.common.util.Utils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.WebSocket;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 通过独立的 websocket 连接下单撤单，请求与响应通过 request id 对应到 CompletableFuture
+ * 消息格式由交易所实现 Codec，ExApi 在 isAvailable 为 false 时应当改用 rest 接口
+ *
+ * 连接断开后未完成的请求全部以异常结束，之后在请求时按 reconnectInterval 在后台重连
+ */
+public class WebSocketOrderChannel implements WebSocket.Listener {
+    private static final Logger logger = LoggerFactory.getLogger(WebSocketOrderChannel.class);
+
+    private final String name;
+    private final URI uri;
+    private final HttpClient httpClient;
+    private final Codec codec;
+    private final long timeout;
+    private final long reconnectInterval;
+
+    // request id -> 等待响应的请求
+    private final Map<String, CompletableFuture<JsonNode>> pending = new ConcurrentHashMap<>();
+    // 同一连接重连后 request id 不重复
+    private final String idPrefix;
+    private final AtomicLong sequence = new AtomicLong();
+
+    private final StringBuilder parts = new StringBuilder();
+    private final AtomicBoolean connecting = new AtomicBoolean();
+    private final ScheduledExecutorService pinger;
+
+    private volatile WebSocket webSocket;
+    private volatile boolean available;
+    private volatile boolean closed;
+    private volatile long lastConnectTime;
+    // WebSocket 同时只能有一个未完成的发送，发送按顺序串联
+    private CompletableFuture<WebSocket> lastSend;
+
+    public interface Codec {
+        /**
+         * @return 连接建立后的登录消息，不需要登录时返回 null
+         */
+        String login(String requestId) throws Exception;
+
+        /**
+         * @return 响应对应的 request id，推送等其他消息返回 null
+         */
+        String requestId(JsonNode message);
+
+        /**
+         * @return 请求失败时返回错误信息，成功返回 null
+         */
+        String error(JsonNode message);
+
+        /**
+         * 交易所可能先返回确认消息，最终结果到达后才完成请求
+         */
+        default boolean isFinal(JsonNode message) {
+            return true;
+        }
+
+        /**
+         * @return 保持连接的应用层 ping 消息，不需要时返回 null
+         */
+        default String ping() {
+            return null;
+        }
+    }
+
+    /**
+     * @param timeout 请求超时时间，毫秒
+     * @param pingInterval 发送 ping 的间隔，毫秒，不大于 0 时不发送
+     */
+    public WebSocketOrderChannel(String name, URI uri, HttpClient httpClient, Codec codec,
+                                 long timeout, long reconnectInterval, long pingInterval) {
+        this.name = name;
+        this.uri = uri;
+        this.httpClient = httpClient;
+        this.codec = codec;
+        this.timeout = timeout;
+        this.reconnectInterval = reconnectInterval;
+        this.idPrefix = Long.toString(System.currentTimeMillis(), 36) + "-";
+
+        if (pingInterval > 0) {
+            this.pinger = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "order-channel-" + name);
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.pinger.scheduleWithFixedDelay(this::ping, pingInterval, pingInterval, TimeUnit.MILLISECONDS);
+        } else {
+            this.pinger = null;
+        }
+    }
+
+    /**
+     * 建立连接并登录，登录成功后 isAvailable 返回 true
+     */
+    public CompletableFuture<Void> connect() {
+        if (closed || !connecting.compareAndSet(false, true)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        lastConnectTime = System.currentTimeMillis();
+        return httpClient.newWebSocketBuilder()
+                .connectTimeout(Duration.ofMillis(timeout))
+                .buildAsync(uri, this)
+                .thenCompose(ws -> {
+                    WebSocket previous;
+                    synchronized (this) {
+                        previous = webSocket;
+                        webSocket = ws;
+                        lastSend = CompletableFuture.completedFuture(ws);
+                    }
+                    // 之前的连接不再使用，之后它的 onClose, onError 被忽略
+                    if (previous != null && previous != ws) {
+                        previous.abort();
+                    }
+                    if (closed) {
+                        ws.abort();
+                        return CompletableFuture.failedFuture(
+                                new IllegalStateException("order channel closed"));
+                    }
+                    return login();
+                }).whenComplete((v, t) -> {
+                    if (t == null) {
+                        available = true;
+                        logger.info("{} order channel connected: {}", name, uri);
+                    } else {
+                        logger.warn("{} failed to connect order channel: {}", name, uri, t);
+                        WebSocket ws = webSocket;
+                        if (ws != null) {
+                            ws.abort();
+                        }
+                    }
+                    connecting.set(false);
+                });
+    }
+
+    private CompletableFuture<Void> login() {
+        try {
+            String requestId = nextRequestId();
+            String message = codec.login(requestId);
+            if (message == null) {
+                return CompletableFuture.completedFuture(null);
+            }
+            return send(requestId, message).thenAccept(response -> {
+                String error = codec.error(response);
+                if (error != null) {
+                    throw new IllegalStateException("order channel login failed: " + error);
+                }
+            });
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * 连接不可用时，按重连间隔在后台重新连接
+     * @return 当前是否可以通过 websocket 发送请求
+     */
+    public boolean isAvailable() {
+        if (!available && !connecting.get() &&
+                System.currentTimeMillis() - lastConnectTime > reconnectInterval) {
+            connect();
+        }
+        return available;
+    }
+
+    public String nextRequestId() {
+        return idPrefix + sequence.incrementAndGet();
+    }
+
+    /**
+     * 发送请求，返回最终的响应消息，响应是否表示失败由调用方通过 Codec.error 判断
+     * @param requestId 通过 nextRequestId 生成，需要包含在 message 中
+     */
+    public CompletableFuture<JsonNode> request(String requestId, String message) {
+        if (!available) {
+            return CompletableFuture.failedFuture(new ExApiException(name + " order channel is not available"));
+        }
+        return send(requestId, message);
+    }
+
+    private CompletableFuture<JsonNode> send(String requestId, String message) {
+        CompletableFuture<JsonNode> future = new CompletableFuture<>();
+        pending.put(requestId, future);
+        synchronized (this) {
+            WebSocket current = webSocket;
+            CompletableFuture<WebSocket> sent = lastSend.thenCompose(ws -> ws.sendText(message, true));
+            sent.whenComplete((ws, t) -> {
+                if (t != null) {
+                    future.completeExceptionally(new ExApiException(name + " failed to send order request", t));
+                }
+            });
+            // 发送失败不影响之后的请求，连接状态由 onError, onClose 处理
+            lastSend = sent.exceptionally(t -> current);
+        }
+        return future.orTimeout(timeout, TimeUnit.MILLISECONDS)
+                .whenComplete((response, t) -> pending.remove(requestId));
+    }
+
+    private void ping() {
+        WebSocket ws = webSocket;
+        if (!available || ws == null) {
+            return;
+        }
+        String message = codec.ping();
+        synchronized (this) {
+            CompletableFuture<WebSocket> sent = message == null ?
+                    lastSend.thenCompose(w -> w.sendPing(ByteBuffer.allocate(0))) :
+                    lastSend.thenCompose(w -> w.sendText(message, true));
+            lastSend = sent.exceptionally(t -> ws);
+        }
+    }
+
+    public void close() {
+        closed = true;
+        available = false;
+        if (pinger != null) {
+            pinger.shutdownNow();
+        }
+        WebSocket ws = webSocket;
+        if (ws != null) {
+            ws.abort();
+        }
+        failPending("order channel closed");
+    }
+
+    private void failPending(String reason) {
+        for (String requestId : pending.keySet()) {
+            CompletableFuture<JsonNode> future = pending.remove(requestId);
+            if (future != null) {
+                future.completeExceptionally(new ExApiException(name + " " + reason));
+            }
+        }
+    }
+
+    @Override
+    public void onOpen(WebSocket webSocket) {
+        webSocket.request(1);
+    }
+
+    @Override
+    public CompletionStage<?> onText(WebSocket webSocket, CharSequence data, boolean last) {
+        parts.append(data);
+        if (last) {
+            String text = parts.toString();
+            parts.setLength(0);
+            try {
+                dispatch(Utils.mapper.readTree(text));
+            } catch (Exception e) {
+                logger.error("{} failed to process order channel message: {}", name, text, e);
+            }
+        }
+        webSocket.request(1);
+        return null;
+    }
+
+    private void dispatch(JsonNode message) {
+        String requestId = codec.requestId(message);
+        if (requestId == null || !codec.isFinal(message)) {
+            return;
+        }
+        CompletableFuture<JsonNode> future = pending.remove(requestId);
+        if (future != null) {
+            future.complete(message);
+        }
+    }
+
+    @Override
+    public CompletionStage<?> onClose(WebSocket webSocket, int statusCode, String reason) {
+        if (webSocket != this.webSocket) {
+            logger.info("{} superseded order channel closed, status: {}", name, statusCode);
+            return null;
+        }
+        logger.warn("{} order channel closed, status: {}, reason: {}", name, statusCode, reason);
+        available = false;
+        failPending("order channel closed: " + statusCode);
+        return null;
+    }
+
+    @Override
+    public void onError(WebSocket webSocket, Throwable error) {
+        if (webSocket != this.webSocket) {
+            logger.info("{} superseded order channel error: {}", name, error.getMessage());
+            return;
+        }
+        logger.error("{} order channel error", name, error);
+        available = false;
+        failPending("order channel error: " + error.getMessage());
+    }
+}
@@ -0,0 +1,74 @@
+package org.eurekaka.bricks.api;
+
+import org.eurekaka.bricks.common.exception.ExApiException;
+import org.eurekaka.bricks.common.model.*;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+public class BatchOrderTest {
+    private AbstractExchange<AccountStatus, StubApi> exchange;
+    private StubApi api;
+
+    // 不支持批量接口的交易所，使用默认的逐个下单撤单实现
+    @Before
+    public void setUp() {
+        exchange = StubApi.createExchange(StubApi.class);
+        api = exchange.api;
+    }
+
+    private static Order order(String symbol, double size, String clientOrderId) {
+        return new Order("test", symbol, symbol, OrderSide.BUY, OrderType.LIMIT_GTX,
+                size, 100, 0, clientOrderId);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testMakeOrders() throws Exception {
+        List<Order> orders = List.of(order("BTC", 1, "o1"), order("BTC", 0, "o2"),
+                order("ETH", 2, null));
+        ExMessage<?> msg = exchange.process(new ExAction<>(ExAction.ActionType.MAKE_ORDERS, new MakeOrdersPair(orders)));
+        Assert.assertEquals(ExMessage.ExMsgType.RIGHT, msg.getType());
+        List<CompletableFuture<CurrentOrder>> futures = (List<CompletableFuture<CurrentOrder>>) msg.getData();
+        Assert.assertEquals(3, futures.size());
+
+        Assert.assertEquals("id-o1", futures.get(0).get(1, TimeUnit.SECONDS).getId());
+        Assert.assertEquals("id-o1", orders.get(0).getOrderId());
+        // 参数错误的订单不影响其他订单
+        try {
+            futures.get(1).get(1, TimeUnit.SECONDS);
+            Assert.fail("order with size 0 should fail");
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof ExApiException);
+        }
+        // 未设置 client order id 时自动生成
+        Assert.assertNotNull(orders.get(2).getClientOrderId());
+        Assert.assertEquals("id-" + orders.get(2).getClientOrderId(),
+                futures.get(2).get(1, TimeUnit.SECONDS).getId());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testCancelOrders() throws Exception {
+        List<ActionPair> pairs = List.of(new ActionPair("BTC", "BTC", "BTC-1"),
+                new ActionPair("ETH", "ETH", "ETH-1"),
+                new ActionPair("BTC", "BTC", "ETH-2"),
+                new ActionPair("ETH", "ETH", "ETH-3"));
+        ExMessage<?> msg = exchange.process(new ExAction<>(ExAction.ActionType.CANCEL_ORDERS, new CancelOrdersPair(pairs)));
+        Assert.assertEquals(ExMessage.ExMsgType.RIGHT, msg.getType());
+        List<CompletableFuture<Boolean>> futures = (List<CompletableFuture<Boolean>>) msg.getData();
+
+        // 按交易对分组，每个交易对调用一次批量接口
+        Assert.assertEquals(List.of("BTC", "ETH"), api.cancelSymbols);
+        // 结果与请求顺序一致
+        Assert.assertTrue(futures.get(0).get());
+        Assert.assertTrue(futures.get(1).get());
+        Assert.assertFalse(futures.get(2).get());
+        Assert.assertTrue(futures.get(3).get());
+    }
+}
@@ -0,0 +1,125 @@
+package org.eurekaka.bricks.api;
+
+import com.sun.net.httpserver.HttpServer;
+import org.eurekaka.bricks.common.model.AccountConfig;
+import org.eurekaka.bricks.common.model.HttpConnectionMetrics;
+import org.eurekaka.bricks.common.util.HttpUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.http.HttpClient;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+public class HttpConnectionKeeperTest {
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    // 心跳请求的客户端端口，每个端口对应一个连接
+    private final Set<Integer> clientPorts = ConcurrentHashMap.newKeySet();
+
+    private HttpClient httpClient;
+    private HttpConnectionKeeper keeper;
+
+    @Before
+    public void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/ping", exchange -> {
+            clientPorts.add(exchange.getRemoteAddress().getPort());
+            try {
+                // 保证预热请求同时进行
+                Thread.sleep(200);
+            } catch (InterruptedException ignored) {
+            }
+            byte[] body = "{}".getBytes();
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        serverExecutor = Executors.newFixedThreadPool(4);
+        server.setExecutor(serverExecutor);
+        server.start();
+    }
+
+    @After
+    public void tearDown() {
+        if (keeper != null) {
+            keeper.close();
+        }
+        if (httpClient != null) {
+            HttpUtils.shutdownHttpClient(httpClient);
+        }
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    private HttpConnectionKeeper createKeeper(int connections) {
+        AccountConfig accountConfig = new AccountConfig(1, "test", 1, null, null, null, null,
+                "http://127.0.0.1:" + server.getAddress().getPort(), null, "key", "secret", true);
+        accountConfig.setProperty("http_version_1", "true");
+        accountConfig.setProperty("http_warm_connections", String.valueOf(connections));
+        accountConfig.setProperty("http_heartbeat_path", "/ping");
+        // 测试中手动发送心跳
+        accountConfig.setProperty("http_heartbeat_interval", "0");
+        accountConfig.setProperty("http_connect_timeout", "2");
+        httpClient = HttpUtils.initializeHttpClient(accountConfig.getProperties());
+        return new HttpConnectionKeeper(accountConfig, httpClient,
+                new StubApi(accountConfig, httpClient));
+    }
+
+    @Test
+    public void testWarmUpAndReuse() throws Exception {
+        keeper = createKeeper(3);
+        keeper.start().get(5, TimeUnit.SECONDS);
+        Assert.assertEquals(3, clientPorts.size());
+
+        HttpConnectionMetrics metrics = keeper.getMetrics();
+        Assert.assertEquals("HTTP_1_1", metrics.getVersion());
+        Assert.assertEquals(3, metrics.getWarmConnections());
+        Assert.assertEquals(3, metrics.getHeartbeats());
+        Assert.assertEquals(200, metrics.getLastStatus());
+        Assert.assertTrue(metrics.getLastHeartbeatLatency() > 0);
+        Assert.assertTrue(metrics.isHealthy());
+        // 非 https 连接没有 tls 握手
+        Assert.assertEquals(0, metrics.getHandshakes());
+
+        // 心跳复用已建立的连接，等待连接归还连接池
+        Thread.sleep(200);
+        keeper.warmUp().get(5, TimeUnit.SECONDS);
+        Assert.assertEquals(3, clientPorts.size());
+        Assert.assertEquals(6, keeper.getMetrics().getHeartbeats());
+    }
+
+    @Test
+    public void testHeartbeatFailed() throws Exception {
+        keeper = createKeeper(1);
+        keeper.start().get(5, TimeUnit.SECONDS);
+        Assert.assertTrue(keeper.getMetrics().isHealthy());
+
+        server.stop(0);
+        for (int i = 0; i < 3; i++) {
+            keeper.warmUp().get(5, TimeUnit.SECONDS);
+        }
+        HttpConnectionMetrics metrics = keeper.getMetrics();
+        Assert.assertEquals(3, metrics.getHeartbeatFailures());
+        Assert.assertEquals(3, metrics.getConsecutiveFailures());
+        Assert.assertEquals(-1, metrics.getLastStatus());
+        Assert.assertFalse(metrics.isHealthy());
+    }
+
+    @Test
+    public void testDisabled() throws Exception {
+        keeper = createKeeper(0);
+        keeper.start().get(1, TimeUnit.SECONDS);
+        Assert.assertTrue(clientPorts.isEmpty());
+        HttpConnectionMetrics metrics = keeper.getMetrics();
+        Assert.assertEquals(0, metrics.getWarmConnections());
+        Assert.assertTrue(metrics.isHealthy());
+    }
+}
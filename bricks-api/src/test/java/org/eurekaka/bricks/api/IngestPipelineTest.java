@@ -0,0 +1,115 @@
+package org.eurekaka.bricks.api;
+
+import org.eurekaka.bricks.common.model.IngestMetrics;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class IngestPipelineTest {
+
+    @Test
+    public void testPipelineOrder() throws Exception {
+        int total = 10000;
+        List<String> messages = new ArrayList<>();
+        CountDownLatch latch = new CountDownLatch(total);
+        IngestPipeline pipeline = new IngestPipeline("test", 16, slot -> {
+            messages.add(new String(slot.chars, 0, slot.length));
+            latch.countDown();
+        });
+
+        int sent = 0;
+        while (sent < total) {
+            IngestPipeline.Slot slot = pipeline.claim();
+            if (slot == null) {
+                Thread.onSpinWait();
+                continue;
+            }
+            char[] text = String.valueOf(sent).toCharArray();
+            System.arraycopy(text, 0, slot.ensureChars(text.length), 0, text.length);
+            slot.length = text.length;
+            pipeline.publish(slot, null);
+            sent++;
+        }
+        Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
+        pipeline.close();
+
+        for (int i = 0; i < total; i++) {
+            Assert.assertEquals(String.valueOf(i), messages.get(i));
+        }
+        IngestMetrics metrics = pipeline.getMetrics();
+        Assert.assertEquals(total, metrics.getProcessed());
+        Assert.assertEquals(0, metrics.getQueueDepth());
+        Assert.assertEquals(0, metrics.getTotalDrops());
+    }
+
+    @Test
+    public void testPipelineFull() throws Exception {
+        CountDownLatch blocker = new CountDownLatch(1);
+        IngestPipeline pipeline = new IngestPipeline("test", 2, slot -> blocker.await());
+
+        int published = 0;
+        IngestPipeline.Slot slot;
+        while ((slot = pipeline.claim()) != null) {
+            slot.length = 0;
+            pipeline.publish(slot, null);
+            published++;
+        }
+        pipeline.drop("depthUpdate");
+        Assert.assertEquals(2, published);
+
+        IngestMetrics metrics = pipeline.getMetrics();
+        Assert.assertEquals(2, metrics.getCapacity());
+        Assert.assertEquals(Map.of("depthUpdate", 1L), metrics.getDrops());
+        Assert.assertEquals(0, metrics.getPrivateDrops());
+        blocker.countDown();
+        pipeline.close();
+    }
+
+    @Test
+    public void testPipelineOverflow() throws Exception {
+        CountDownLatch blocker = new CountDownLatch(1);
+        List<String> messages = new ArrayList<>();
+        CountDownLatch latch = new CountDownLatch(5);
+        IngestPipeline pipeline = new IngestPipeline("test", 2, 3, slot -> {
+            blocker.await();
+            messages.add(new String(slot.chars, 0, slot.length));
+            latch.countDown();
+        });
+
+        int sent = 0;
+        IngestPipeline.Slot slot;
+        while ((slot = pipeline.claim()) != null) {
+            char[] text = String.valueOf(sent++).toCharArray();
+            System.arraycopy(text, 0, slot.ensureChars(text.length), 0, text.length);
+            slot.length = text.length;
+            pipeline.publish(slot, null);
+        }
+        // 队列已满，其余消息进入溢出队列，溢出队列已满时丢弃
+        for (int i = 0; i < 4; i++) {
+            char[] text = String.valueOf(sent).toCharArray();
+            if (pipeline.offerOverflow(null, "orders", false, text, null, text.length)) {
+                sent++;
+            }
+        }
+        Assert.assertEquals(5, sent);
+        // 溢出队列不为空时不能再写入环形队列，保证顺序
+        Assert.assertNull(pipeline.claim());
+
+        blocker.countDown();
+        Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
+        for (int i = 0; i < 5; i++) {
+            Assert.assertEquals(String.valueOf(i), messages.get(i));
+        }
+        IngestMetrics metrics = pipeline.getMetrics();
+        Assert.assertEquals(3, metrics.getOverflowed());
+        Assert.assertEquals(1, metrics.getPrivateDrops());
+        Assert.assertEquals(Map.of("orders", 1L), metrics.getDrops());
+        Assert.assertNotNull(pipeline.claim());
+        pipeline.close();
+    }
+}
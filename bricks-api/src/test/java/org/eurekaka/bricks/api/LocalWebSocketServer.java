@@ -0,0 +1,174 @@
+package org.eurekaka.bricks.api;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+
+/**
+ * 测试使用的最小 websocket 服务端，只支持文本消息，每个连接一个线程
+ * handler 输入客户端消息，返回需要依次回复的消息
+ */
+class LocalWebSocketServer implements Closeable {
+    private static final String GUID = "258EAFA5-E914-47DA-95CA-C5AB0DC85B11";
+
+    private final ServerSocket serverSocket;
+    private final Function<String, List<String>> handler;
+    private final List<Socket> clients = new CopyOnWriteArrayList<>();
+    private final List<String> received = new CopyOnWriteArrayList<>();
+
+    LocalWebSocketServer(Function<String, List<String>> handler) throws IOException {
+        this.serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        this.handler = handler;
+        Thread acceptor = new Thread(this::accept, "local-websocket-server");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    URI getUri() {
+        return URI.create("ws://127.0.0.1:" + serverSocket.getLocalPort() + "/ws");
+    }
+
+    List<String> getReceived() {
+        return received;
+    }
+
+    int getConnections() {
+        return clients.size();
+    }
+
+    /**
+     * 主动断开所有客户端连接，模拟连接中断
+     */
+    void dropClients() throws IOException {
+        for (Socket client : clients) {
+            client.close();
+        }
+    }
+
+    private void accept() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket client = serverSocket.accept();
+                clients.add(client);
+                Thread thread = new Thread(() -> serve(client), "local-websocket-client");
+                thread.setDaemon(true);
+                thread.start();
+            } catch (IOException e) {
+                return;
+            }
+        }
+    }
+
+    private void serve(Socket client) {
+        try (client) {
+            InputStream in = new BufferedInputStream(client.getInputStream());
+            OutputStream out = client.getOutputStream();
+            handshake(in, out);
+            ByteArrayOutputStream message = new ByteArrayOutputStream();
+            while (true) {
+                int b0 = in.read();
+                int b1 = in.read();
+                if (b0 < 0 || b1 < 0) {
+                    return;
+                }
+                int opcode = b0 & 0x0f;
+                long length = b1 & 0x7f;
+                if (length == 126) {
+                    length = (in.read() << 8) | in.read();
+                } else if (length == 127) {
+                    length = new DataInputStream(in).readLong();
+                }
+                byte[] mask = (b1 & 0x80) != 0 ? in.readNBytes(4) : null;
+                byte[] payload = in.readNBytes((int) length);
+                if (mask != null) {
+                    for (int i = 0; i < payload.length; i++) {
+                        payload[i] ^= mask[i % 4];
+                    }
+                }
+                if (opcode == 0x8) {
+                    writeFrame(out, 0x8, payload);
+                    return;
+                } else if (opcode == 0x9) {
+                    writeFrame(out, 0xa, payload);
+                } else if (opcode == 0x1 || opcode == 0x0) {
+                    message.write(payload);
+                    if ((b0 & 0x80) != 0) {
+                        String text = message.toString(StandardCharsets.UTF_8);
+                        message.reset();
+                        received.add(text);
+                        for (String reply : handler.apply(text)) {
+                            writeFrame(out, 0x1, reply.getBytes(StandardCharsets.UTF_8));
+                        }
+                    }
+                }
+            }
+        } catch (Exception e) {
+            // 连接被关闭
+        } finally {
+            clients.remove(client);
+        }
+    }
+
+    private static void handshake(InputStream in, OutputStream out) throws Exception {
+        String key = null;
+        String line;
+        while (!(line = readLine(in)).isEmpty()) {
+            int index = line.indexOf(':');
+            if (index > 0 && line.substring(0, index).trim().equalsIgnoreCase("Sec-WebSocket-Key")) {
+                key = line.substring(index + 1).trim();
+            }
+        }
+        byte[] digest = MessageDigest.getInstance("SHA-1")
+                .digest((key + GUID).getBytes(StandardCharsets.US_ASCII));
+        String response = "HTTP/1.1 101 Switching Protocols\r\n" +
+                "Upgrade: websocket\r\n" +
+                "Connection: Upgrade\r\n" +
+                "Sec-WebSocket-Accept: " + Base64.getEncoder().encodeToString(digest) + "\r\n\r\n";
+        out.write(response.getBytes(StandardCharsets.US_ASCII));
+        out.flush();
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        int c;
+        while ((c = in.read()) >= 0) {
+            if (c == '\n') {
+                break;
+            }
+            if (c != '\r') {
+                sb.append((char) c);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static synchronized void writeFrame(OutputStream out, int opcode, byte[] payload) throws IOException {
+        out.write(0x80 | opcode);
+        if (payload.length < 126) {
+            out.write(payload.length);
+        } else if (payload.length < 65536) {
+            out.write(126);
+            out.write(payload.length >>> 8);
+            out.write(payload.length & 0xff);
+        } else {
+            out.write(127);
+            new DataOutputStream(out).writeLong(payload.length);
+        }
+        out.write(payload);
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        dropClients();
+    }
+}
@@ -0,0 +1,233 @@
+package org.eurekaka.bricks.api;
+
+import org.eurekaka.bricks.common.exception.ExApiException;
+import org.eurekaka.bricks.common.model.*;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.net.http.HttpClient;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ProcessAsyncTest {
+
+    // 同步接口返回执行线程的名称作为账户名称
+    public static class BlockingApi extends StubApi {
+        public BlockingApi(AccountConfig accountConfig, HttpClient httpClient) {
+            super(accountConfig, httpClient);
+        }
+
+        @Override
+        public List<AccountValue> getAccountValue() {
+            return List.of(new AccountValue("USDT", Thread.currentThread().getName(), 1, 1));
+        }
+    }
+
+    // 实现异步查询接口的交易所
+    public static class AsyncApi extends BlockingApi {
+        public AsyncApi(AccountConfig accountConfig, HttpClient httpClient) {
+            super(accountConfig, httpClient);
+        }
+
+        @Override
+        public CompletableFuture<List<AccountValue>> asyncGetAccountValues() {
+            return CompletableFuture.completedFuture(List.of(new AccountValue("USDT", "async", 2, 2)));
+        }
+
+        @Override
+        public CompletableFuture<List<CurrentOrder>> asyncGetCurrentOrders(String symbol) throws ExApiException {
+            if (symbol.isEmpty()) {
+                return CompletableFuture.failedFuture(new ExApiException("empty symbol"));
+            }
+            return CompletableFuture.completedFuture(List.of(
+                    new CurrentOrder("1", null, symbol, OrderSide.BUY, OrderType.LIMIT_GTC, 1, 100, 0),
+                    new CurrentOrder("2", null, symbol, OrderSide.SELL, OrderType.LIMIT_GTC, 1, 101, 0)));
+        }
+    }
+
+    // 异步接口请求失败，记录同步接口的调用次数
+    public static class FailedApi extends BlockingApi {
+        final AtomicInteger blockingCalls = new AtomicInteger();
+
+        public FailedApi(AccountConfig accountConfig, HttpClient httpClient) {
+            super(accountConfig, httpClient);
+        }
+
+        @Override
+        public CompletableFuture<List<AccountValue>> asyncGetAccountValues() throws ExApiException {
+            throw new ExApiException("failed to get account value");
+        }
+
+        @Override
+        public List<AccountValue> getAccountValue() {
+            blockingCalls.incrementAndGet();
+            return super.getAccountValue();
+        }
+    }
+
+    // 同步接口阻塞直到 release 计数归零
+    public static class SlowApi extends BlockingApi {
+        static volatile CountDownLatch entered;
+        static volatile CountDownLatch release;
+
+        public SlowApi(AccountConfig accountConfig, HttpClient httpClient) {
+            super(accountConfig, httpClient);
+        }
+
+        @Override
+        public List<AccountValue> getAccountValue() {
+            entered.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return super.getAccountValue();
+        }
+    }
+
+    // 合约交易所，资金费用接口同时返回其它交易对的记录
+    public static class FundingApi extends StubApi implements FutureExApi {
+        public FundingApi(AccountConfig accountConfig, HttpClient httpClient) {
+            super(accountConfig, httpClient);
+        }
+
+        @Override
+        public RiskLimitValue getRiskLimitValue() {
+            return null;
+        }
+
+        @Override
+        public void updateRiskLimit(String symbol, int leverage) {
+        }
+
+        @Override
+        public List<FundingValue> getFundingValue(String symbol, long lastTime) throws ExApiException {
+            throw new ExApiException("blocking api called");
+        }
+
+        @Override
+        public CompletableFuture<List<FundingValue>> asyncGetFundingValue(String symbol,
+                                                                          long lastTime, long endTime) {
+            return CompletableFuture.supplyAsync(() -> List.of(
+                    new FundingValue(symbol, "test", 1, 0.0001, lastTime),
+                    new FundingValue("OTHER", "test", 2, 0.0002, lastTime)));
+        }
+    }
+
+    private static ExMessage<?> processAsync(Exchange exchange, ExAction<?> action) throws Exception {
+        return exchange.processAsync(action).get(1, TimeUnit.SECONDS);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testAsyncApi() throws Exception {
+        AbstractExchange<?, ?> exchange = StubApi.createExchange(AsyncApi.class);
+        ExMessage<?> msg = processAsync(exchange, new ExAction<>(ExAction.ActionType.GET_BALANCES));
+        Assert.assertEquals(ExMessage.ExMsgType.RIGHT, msg.getType());
+        Assert.assertEquals("async", ((List<AccountValue>) msg.getData()).get(0).account);
+
+        // 按方向过滤订单，并设置名称
+        msg = processAsync(exchange, new ExAction<>(ExAction.ActionType.GET_CURRENT_ORDER,
+                new CurrentOrderPair("btc", "BTC", 2)));
+        List<CurrentOrder> orders = (List<CurrentOrder>) msg.getData();
+        Assert.assertEquals(1, orders.size());
+        Assert.assertEquals("2", orders.get(0).getId());
+        Assert.assertEquals("btc", orders.get(0).getName());
+
+        // 异步接口失败时返回 ERROR 消息
+        msg = processAsync(exchange, new ExAction<>(ExAction.ActionType.GET_CURRENT_ORDER,
+                new CurrentOrderPair("", "", 0)));
+        Assert.assertEquals(ExMessage.ExMsgType.ERROR, msg.getType());
+        Assert.assertTrue(msg.getData() instanceof ExApiException);
+        exchange.stop();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testBlockingApi() throws Exception {
+        AbstractExchange<?, ?> exchange = StubApi.createExchange(BlockingApi.class);
+        // 未实现异步接口时，同步接口在 action 线程池中执行
+        ExMessage<?> msg = processAsync(exchange, new ExAction<>(ExAction.ActionType.GET_BALANCES));
+        Assert.assertEquals(ExMessage.ExMsgType.RIGHT, msg.getType());
+        Assert.assertEquals("action-test", ((List<AccountValue>) msg.getData()).get(0).account);
+
+        exchange.stop();
+        msg = processAsync(exchange, new ExAction<>(ExAction.ActionType.GET_BALANCES));
+        Assert.assertEquals(ExMessage.ExMsgType.ERROR, msg.getType());
+    }
+
+    @Test
+    public void testFlattenFuture() throws Exception {
+        AbstractExchange<?, ?> exchange = StubApi.createExchange(StubApi.class);
+        Order order = new Order("test", "BTC", "BTC", OrderSide.BUY, OrderType.LIMIT_GTC, 1, 100, 0, "o1");
+        ExMessage<?> msg = processAsync(exchange, new ExAction<>(ExAction.ActionType.MAKE_ORDER_V2, order));
+        Assert.assertEquals(ExMessage.ExMsgType.RIGHT, msg.getType());
+        Assert.assertEquals("id-o1", ((CurrentOrder) msg.getData()).getId());
+
+        // 本地状态查询直接返回
+        msg = processAsync(exchange, new ExAction<>(ExAction.ActionType.GET_MARK_USDT));
+        Assert.assertEquals(ExMessage.ExMsgType.RIGHT, msg.getType());
+        exchange.stop();
+    }
+
+    @Test
+    public void testAsyncApiFailed() throws Exception {
+        AbstractExchange<AccountStatus, FailedApi> exchange = StubApi.createExchange(FailedApi.class);
+        // 异步接口执行失败时返回 ERROR 消息，不再通过同步接口重试
+        ExMessage<?> msg = processAsync(exchange, new ExAction<>(ExAction.ActionType.GET_BALANCES));
+        Assert.assertEquals(ExMessage.ExMsgType.ERROR, msg.getType());
+        Assert.assertTrue(msg.getData() instanceof ExApiException);
+        Assert.assertEquals(0, exchange.api.blockingCalls.get());
+        exchange.stop();
+    }
+
+    @Test
+    public void testActionQueueFull() throws Exception {
+        SlowApi.entered = new CountDownLatch(1);
+        SlowApi.release = new CountDownLatch(1);
+        AccountConfig accountConfig = StubApi.accountConfig(SlowApi.class);
+        accountConfig.setProperty("action_threads", "1");
+        accountConfig.setProperty("action_queue_size", "1");
+        AbstractExchange<AccountStatus, SlowApi> exchange = StubApi.createExchange(accountConfig);
+
+        ExAction<?> action = new ExAction<>(ExAction.ActionType.GET_BALANCES);
+        CompletableFuture<ExMessage<?>> running = exchange.processAsync(action);
+        Assert.assertTrue(SlowApi.entered.await(1, TimeUnit.SECONDS));
+        CompletableFuture<ExMessage<?>> queued = exchange.processAsync(action);
+
+        // 队列已满时直接返回 ERROR 消息，不阻塞调用线程
+        ExMessage<?> msg = processAsync(exchange, action);
+        Assert.assertEquals(ExMessage.ExMsgType.ERROR, msg.getType());
+
+        SlowApi.release.countDown();
+        Assert.assertEquals(ExMessage.ExMsgType.RIGHT, running.get(1, TimeUnit.SECONDS).getType());
+        Assert.assertEquals(ExMessage.ExMsgType.RIGHT, queued.get(1, TimeUnit.SECONDS).getType());
+        exchange.stop();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testAsyncFundingFees() throws Exception {
+        AbstractFutureExchange exchange = new AbstractFutureExchange(
+                StubApi.accountConfig(FundingApi.class), new FutureAccountStatus());
+        exchange.accountStatus.getSymbols().put("BTC", "btc");
+        exchange.accountStatus.getSymbols().put("ETH", "eth");
+
+        // 逐个交易对查询，只保留当前交易对的资金费用并设置名称
+        ExMessage<?> msg = processAsync(exchange, new ExAction<>(ExAction.ActionType.GET_FUNDING_FEES, 100L));
+        Assert.assertEquals(ExMessage.ExMsgType.RIGHT, msg.getType());
+        List<FundingValue> values = new ArrayList<>((List<FundingValue>) msg.getData());
+        values.sort(Comparator.comparing(FundingValue::getSymbol));
+        Assert.assertEquals(2, values.size());
+        Assert.assertEquals("btc", values.get(0).getName());
+        Assert.assertEquals("eth", values.get(1).getName());
+        Assert.assertEquals(100L, values.get(1).getTime());
+        exchange.stop();
+    }
+}
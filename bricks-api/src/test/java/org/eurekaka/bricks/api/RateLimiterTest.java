@@ -0,0 +1,141 @@
+package org.eurekaka.bricks.api;
+
+import org.eurekaka.bricks.common.model.AccountConfig;
+import org.eurekaka.bricks.common.model.RateLimitMetrics;
+import org.eurekaka.bricks.common.model.RequestPriority;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.net.http.HttpHeaders;
+import java.util.List;
+import java.util.Map;
+
+public class RateLimiterTest {
+
+    private static RateLimiter createLimiter(int weight, int orders) {
+        AccountConfig accountConfig = new AccountConfig(1, "test", 1, null, null, null,
+                null, "http://localhost", null, "key", "secret", true);
+        accountConfig.setProperty("rate_limit_weight", String.valueOf(weight));
+        // 测试期间额度不会恢复
+        accountConfig.setProperty("rate_limit_interval", "3600000");
+        accountConfig.setProperty("rate_limit_orders", String.valueOf(orders));
+        accountConfig.setProperty("rate_limit_order_interval", "3600000");
+        accountConfig.setProperty("rate_limit_weights", "/fapi/v1/depth:20, /fapi/v2/account:5");
+        return new RateLimiter(accountConfig);
+    }
+
+    private static HttpHeaders headers(Map<String, List<String>> values) {
+        return HttpHeaders.of(values, (name, value) -> true);
+    }
+
+    @Test
+    public void testPriorityReserve() {
+        RateLimiter limiter = createLimiter(100, 0);
+        // 查询最多使用 60% 的额度
+        for (int i = 0; i < 60; i++) {
+            Assert.assertTrue(limiter.tryAcquire(RequestPriority.QUERY, 1, false));
+        }
+        Assert.assertFalse(limiter.tryAcquire(RequestPriority.QUERY, 1, false));
+        // 挂单使用到 80%
+        for (int i = 0; i < 20; i++) {
+            Assert.assertTrue(limiter.tryAcquire(RequestPriority.QUOTE, 1, true));
+        }
+        Assert.assertFalse(limiter.tryAcquire(RequestPriority.QUOTE, 1, true));
+        Assert.assertTrue(limiter.tryAcquire(RequestPriority.HEDGE, 15, true));
+        Assert.assertFalse(limiter.tryAcquire(RequestPriority.HEDGE, 1, true));
+        // 撤单可以用完所有额度
+        Assert.assertTrue(limiter.tryAcquire(RequestPriority.CANCEL, 5, false));
+        Assert.assertFalse(limiter.tryAcquire(RequestPriority.CANCEL, 1, false));
+
+        RateLimitMetrics metrics = limiter.getMetrics();
+        Assert.assertEquals(0, metrics.getWeightRemaining());
+        Assert.assertEquals(82, metrics.getAcquired());
+        Assert.assertEquals(4, metrics.getTotalRejected());
+        Assert.assertEquals(1L, (long) metrics.getRejected().get(RequestPriority.QUERY.name()));
+    }
+
+    @Test
+    public void testOrderLimit() {
+        RateLimiter limiter = createLimiter(1000, 10);
+        for (int i = 0; i < 8; i++) {
+            Assert.assertTrue(limiter.tryAcquire(RequestPriority.QUOTE, 1, true));
+        }
+        Assert.assertFalse(limiter.tryAcquire(RequestPriority.QUOTE, 1, true));
+        Assert.assertTrue(limiter.tryAcquire(RequestPriority.HEDGE, 1, true));
+        // 非下单请求不受下单数量限制
+        Assert.assertTrue(limiter.tryAcquire(RequestPriority.QUOTE, 1, false));
+    }
+
+    @Test
+    public void testBatchOrders() {
+        RateLimiter limiter = createLimiter(1000, 10);
+        // 批量下单的第一个请求按订单数量占用额度，之后的请求只占用权重
+        RateLimiter.enterBatch(5);
+        Assert.assertEquals(5, RateLimiter.pendingOrders());
+        Assert.assertTrue(limiter.tryAcquire(RequestPriority.QUOTE, 1, RateLimiter.pendingOrders()));
+        RateLimiter.ordersAcquired();
+        Assert.assertEquals(0, RateLimiter.pendingOrders());
+        RateLimiter.exitBatch();
+        Assert.assertEquals(1, RateLimiter.pendingOrders());
+        Assert.assertEquals(5, limiter.getMetrics().getOrderRemaining());
+
+        // 剩余额度不足以完成整批订单时拒绝
+        Assert.assertFalse(limiter.tryAcquire(RequestPriority.QUOTE, 1, 4));
+        Assert.assertTrue(limiter.tryAcquire(RequestPriority.QUOTE, 1, 3));
+    }
+
+    @Test
+    public void testServerWeightCorrection() {
+        RateLimiter limiter = createLimiter(100, 10);
+        Assert.assertEquals(20, limiter.getWeight("/fapi/v1/depth"));
+        Assert.assertEquals(5, limiter.getWeight("/fapi/v2/account"));
+        Assert.assertEquals(1, limiter.getWeight("/fapi/v1/order"));
+
+        limiter.onResponse(200, headers(Map.of("X-MBX-USED-WEIGHT-1M", List.of("70"),
+                "X-MBX-ORDER-COUNT-10S", List.of("8"))));
+        RateLimitMetrics metrics = limiter.getMetrics();
+        Assert.assertEquals(70, metrics.getServerUsedWeight());
+        Assert.assertEquals(30, metrics.getWeightRemaining());
+        Assert.assertEquals(2, metrics.getOrderRemaining());
+        Assert.assertFalse(limiter.tryAcquire(RequestPriority.QUERY, 1, false));
+        Assert.assertTrue(limiter.tryAcquire(RequestPriority.HEDGE, 1, true));
+        Assert.assertFalse(limiter.tryAcquire(RequestPriority.HEDGE, 1, true));
+
+        // 非法的响应头被忽略
+        limiter.onResponse(200, headers(Map.of("X-MBX-USED-WEIGHT-1M", List.of("abc"))));
+        Assert.assertEquals(70, limiter.getMetrics().getServerUsedWeight());
+    }
+
+    @Test
+    public void testTooManyRequests() {
+        RateLimiter limiter = createLimiter(100, 0);
+        limiter.onResponse(429, headers(Map.of("Retry-After", List.of("30"))));
+        RateLimitMetrics metrics = limiter.getMetrics();
+        Assert.assertEquals(429, metrics.getLastBanStatus());
+        Assert.assertTrue(metrics.getBannedUntil() >= System.currentTimeMillis() + 29000);
+        // 退避期间只允许撤单
+        Assert.assertFalse(limiter.tryAcquire(RequestPriority.HEDGE, 1, true));
+        Assert.assertFalse(limiter.tryAcquire(RequestPriority.QUERY, 1, false));
+        Assert.assertTrue(limiter.tryAcquire(RequestPriority.CANCEL, 1, false));
+    }
+
+    @Test
+    public void testIpBanned() {
+        RateLimiter limiter = createLimiter(100, 0);
+        limiter.onResponse(418, headers(Map.of()));
+        Assert.assertFalse(limiter.tryAcquire(RequestPriority.CANCEL, 1, false));
+        Assert.assertTrue(limiter.getMetrics().getBannedUntil() > System.currentTimeMillis());
+    }
+
+    @Test
+    public void testThreadPriority() {
+        Assert.assertEquals(RequestPriority.QUERY, RateLimiter.currentPriority());
+        RequestPriority previous = RateLimiter.enter(RequestPriority.CANCEL);
+        RequestPriority inner = RateLimiter.enter(RequestPriority.HEDGE);
+        Assert.assertEquals(RequestPriority.HEDGE, RateLimiter.currentPriority());
+        RateLimiter.exit(inner);
+        Assert.assertEquals(RequestPriority.CANCEL, RateLimiter.currentPriority());
+        RateLimiter.exit(previous);
+        Assert.assertEquals(RequestPriority.QUERY, RateLimiter.currentPriority());
+    }
+}
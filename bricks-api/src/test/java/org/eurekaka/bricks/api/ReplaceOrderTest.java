@@ -0,0 +1,127 @@
+package org.eurekaka.bricks.api;
+
+import org.eurekaka.bricks.common.exception.ExApiException;
+import org.eurekaka.bricks.common.model.*;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.net.http.HttpClient;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+public class ReplaceOrderTest {
+
+    // 支持原生改单的交易所，只支持 LIMIT_GTC，价格为 0 时改单失败
+    public static class AmendApi extends StubApi {
+        public AmendApi(AccountConfig accountConfig, HttpClient httpClient) {
+            super(accountConfig, httpClient);
+        }
+
+        @Override
+        public boolean supportAmendOrder(Order order) {
+            return OrderType.LIMIT_GTC.equals(order.getOrderType());
+        }
+
+        @Override
+        public CompletableFuture<CurrentOrder> asyncAmendOrder(String clientOrderId, Order order) {
+            if (order.getPrice() == 0) {
+                return CompletableFuture.completedFuture(null);
+            }
+            return CompletableFuture.completedFuture(new CurrentOrder("amended-" + clientOrderId,
+                    order.getName(), order.getSymbol(), order.getSide(), order.getOrderType(),
+                    order.getSize(), order.getPrice(), 0));
+        }
+    }
+
+    // 记录撤单与下单时当前线程的请求优先级
+    public static class PriorityApi extends StubApi {
+        final List<RequestPriority> priorities = new ArrayList<>();
+
+        public PriorityApi(AccountConfig accountConfig, HttpClient httpClient) {
+            super(accountConfig, httpClient);
+        }
+
+        @Override
+        public CompletableFuture<CurrentOrder> asyncMakeOrder(Order order) throws ExApiException {
+            priorities.add(RateLimiter.currentPriority());
+            return super.asyncMakeOrder(order);
+        }
+
+        @Override
+        public CompletableFuture<Boolean> asyncCancelOrder(String symbol, String clientOrderId) {
+            priorities.add(RateLimiter.currentPriority());
+            return super.asyncCancelOrder(symbol, clientOrderId);
+        }
+    }
+
+    private static Order order(OrderType orderType, double price, String clientOrderId) {
+        return new Order("test", "BTC", "BTC", OrderSide.BUY, orderType, 1, price, 100, clientOrderId);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ReplaceOrderResult replace(AbstractExchange<?, ?> exchange,
+                                              Order origin, Order order) throws Exception {
+        ExMessage<?> msg = exchange.process(new ExAction<>(ExAction.ActionType.REPLACE_ORDER,
+                new ReplaceOrderPair(origin, order)));
+        Assert.assertEquals(ExMessage.ExMsgType.RIGHT, msg.getType());
+        return ((CompletableFuture<ReplaceOrderResult>) msg.getData()).get(1, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testCancelAndMake() throws Exception {
+        AbstractExchange<?, ?> exchange = StubApi.createExchange(StubApi.class);
+        Order order = order(OrderType.LIMIT_GTC, 101, "new");
+        ReplaceOrderResult result = replace(exchange, order(OrderType.LIMIT_GTC, 100, "BTC-1"), order);
+        Assert.assertFalse(result.isAmended());
+        Assert.assertTrue(result.isCancelled());
+        Assert.assertEquals("id-new", result.getOrder().getId());
+        Assert.assertEquals("id-new", order.getOrderId());
+
+        // 撤单失败时，新订单依然有效
+        result = replace(exchange, order(OrderType.LIMIT_GTC, 100, "ETH-1"), order(OrderType.LIMIT_GTC, 101, "o2"));
+        Assert.assertFalse(result.isCancelled());
+        Assert.assertEquals("id-o2", result.getOrder().getId());
+    }
+
+    @Test
+    public void testAmend() throws Exception {
+        AbstractExchange<?, ?> exchange = StubApi.createExchange(AmendApi.class);
+        Order order = order(OrderType.LIMIT_GTC, 101, "new");
+        ReplaceOrderResult result = replace(exchange, order(OrderType.LIMIT_GTC, 100, "origin"), order);
+        Assert.assertTrue(result.isAmended());
+        Assert.assertTrue(result.isCancelled());
+        Assert.assertEquals("amended-origin", result.getOrder().getId());
+        // 改单后新订单沿用原订单的 client order id
+        Assert.assertEquals("origin", order.getClientOrderId());
+
+        // 改单失败，原订单不变
+        result = replace(exchange, order(OrderType.LIMIT_GTC, 100, "origin"), order(OrderType.LIMIT_GTC, 0, "new"));
+        Assert.assertTrue(result.isAmended());
+        Assert.assertFalse(result.isCancelled());
+        Assert.assertNull(result.getOrder());
+    }
+
+    @Test
+    public void testAmendUnsupported() throws Exception {
+        AbstractExchange<?, ?> exchange = StubApi.createExchange(AmendApi.class);
+        // 订单类型变化或不支持改单时撤单重新下单
+        Order order = order(OrderType.LIMIT_GTX, 101, "new");
+        ReplaceOrderResult result = replace(exchange, order(OrderType.LIMIT_GTC, 100, "BTC-1"), order);
+        Assert.assertFalse(result.isAmended());
+        Assert.assertEquals("new", order.getClientOrderId());
+        Assert.assertEquals("id-new", result.getOrder().getId());
+    }
+
+    @Test
+    public void testCancelPriority() throws Exception {
+        AccountConfig accountConfig = StubApi.accountConfig(PriorityApi.class);
+        accountConfig.setProperty("rate_limit_weight", "1000");
+        AbstractExchange<AccountStatus, PriorityApi> exchange = StubApi.createExchange(accountConfig);
+        replace(exchange, order(OrderType.LIMIT_GTC, 100, "BTC-1"), order(OrderType.LIMIT_GTC, 101, "new"));
+        // 撤单部分按撤单优先级发送，下单部分按新订单的优先级
+        Assert.assertEquals(List.of(RequestPriority.CANCEL, RequestPriority.QUOTE), exchange.api.priorities);
+        Assert.assertEquals(RequestPriority.QUERY, RateLimiter.currentPriority());
+    }
+}
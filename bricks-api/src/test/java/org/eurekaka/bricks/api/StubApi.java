@@ -0,0 +1,86 @@
+package org.eurekaka.bricks.api;
+
+import org.eurekaka.bricks.common.exception.ExApiException;
+import org.eurekaka.bricks.common.model.*;
+
+import java.net.http.HttpClient;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 测试使用的交易所 api，不支持批量接口，使用默认的逐个下单撤单实现
+ * 下单返回 id-{client order id}，size 为 0 时失败，client order id 以交易对开头时撤单成功
+ */
+public class StubApi implements ExApi {
+    // 每次 asyncCancelOrders 调用的交易对
+    final List<String> cancelSymbols = new ArrayList<>();
+
+    public StubApi(AccountConfig accountConfig, HttpClient httpClient) {
+    }
+
+    @Override
+    public CompletableFuture<CurrentOrder> asyncMakeOrder(Order order) throws ExApiException {
+        if (order.getSize() == 0) {
+            throw new ExApiException("size is 0");
+        }
+        return CompletableFuture.completedFuture(new CurrentOrder("id-" + order.getClientOrderId(),
+                order.getName(), order.getSymbol(), order.getSide(), order.getOrderType(),
+                order.getSize(), order.getPrice(), 0));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> asyncCancelOrder(String symbol, String clientOrderId) {
+        return CompletableFuture.completedFuture(clientOrderId.startsWith(symbol));
+    }
+
+    @Override
+    public List<CompletableFuture<Boolean>> asyncCancelOrders(String symbol,
+                                                              List<String> clientOrderIds) throws ExApiException {
+        cancelSymbols.add(symbol);
+        return ExApi.super.asyncCancelOrders(symbol, clientOrderIds);
+    }
+
+    @Override
+    public String getAuthMessage() {
+        return null;
+    }
+
+    @Override
+    public List<ExSymbol> getExchangeInfos() {
+        return null;
+    }
+
+    @Override
+    public List<AccountValue> getAccountValue() {
+        return null;
+    }
+
+    @Override
+    public String makeOrder(Order order) {
+        return null;
+    }
+
+    @Override
+    public List<CurrentOrder> getCurrentOrders(String symbol, int type) {
+        return null;
+    }
+
+    @Override
+    public CurrentOrder cancelOrder(String symbol, String orderId) {
+        return null;
+    }
+
+    static AccountConfig accountConfig(Class<? extends ExApi> apiClz) {
+        return new AccountConfig(1, "test", 1, null, null,
+                apiClz.getName(), null, "http://localhost", null, "key", "secret", true);
+    }
+
+    static <B extends ExApi> AbstractExchange<AccountStatus, B> createExchange(Class<B> apiClz) {
+        return createExchange(accountConfig(apiClz));
+    }
+
+    static <B extends ExApi> AbstractExchange<AccountStatus, B> createExchange(AccountConfig accountConfig) {
+        return new AbstractExchange<>(accountConfig, new AccountStatus());
+    }
+}
@@ -0,0 +1,95 @@
+package org.eurekaka.bricks.api;
+
+import org.eurekaka.bricks.common.model.AccountConfig;
+import org.eurekaka.bricks.common.model.AccountStatus;
+import org.eurekaka.bricks.common.model.IngestMetrics;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.io.ByteArrayOutputStream;
+import java.net.http.WebSocket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.zip.GZIPOutputStream;
+
+public class WebSocketListenerTest {
+
+    // 按 channel 统计丢弃数量，ticker 可以丢弃，压缩的 ping 在回调线程处理
+    static class TestListener extends WebSocketListener<AccountStatus, StubApi> {
+        final CountDownLatch blocker = new CountDownLatch(1);
+        final List<String> pings = new CopyOnWriteArrayList<>();
+
+        TestListener(AccountConfig accountConfig) {
+            super(accountConfig, new AccountStatus(), null, null);
+            this.binaryControl = true;
+        }
+
+        @Override
+        protected String textType(char[] chars, int length) {
+            return asciiStringField(chars, length, "channel");
+        }
+
+        @Override
+        protected boolean isDroppableType(String type) {
+            return "ticker".equals(type);
+        }
+
+        @Override
+        protected boolean processControlBinary(WebSocket webSocket, byte[] content, int length) {
+            if (containsAscii(content, length, "\"ping\"")) {
+                pings.add(Thread.currentThread().getName());
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        protected void processWholeText(WebSocket webSocket, String message) throws Exception {
+            blocker.await();
+        }
+    }
+
+    private static byte[] gzip(String text) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(text.getBytes(StandardCharsets.UTF_8));
+        }
+        return out.toByteArray();
+    }
+
+    @Test
+    public void testDropsByType() throws Exception {
+        AccountConfig accountConfig = StubApi.accountConfig(StubApi.class);
+        accountConfig.setProperty("ingest_pipeline", "true");
+        accountConfig.setProperty("ingest_buffer_size", "2");
+        accountConfig.setProperty("ingest_overflow_size", "1");
+        TestListener listener = new TestListener(accountConfig);
+        WebSocket webSocket = Mockito.mock(WebSocket.class);
+
+        // 解析线程阻塞，环形队列已满
+        listener.onText(webSocket, "{\"channel\":\"orders\",\"n\":1}", true);
+        listener.onText(webSocket, "{\"channel\":\"orders\",\"n\":2}", true);
+        // 行情消息直接丢弃，其余消息进入溢出队列，溢出队列已满时丢弃
+        listener.onText(webSocket, "{\"channel\": \"ticker\"}", true);
+        listener.onText(webSocket, "{\"channel\":\"orders\",\"n\":3}", true);
+        listener.onText(webSocket, "{\"channel\":\"orders\",\"n\":4}", true);
+        listener.onText(webSocket, "{\"n\":5}", true);
+
+        // 压缩的 ping 不进入队列，在回调线程处理
+        listener.onBinary(webSocket, ByteBuffer.wrap(gzip("{\"ping\":1}")), true);
+        Assert.assertEquals(List.of(Thread.currentThread().getName()), listener.pings);
+
+        IngestMetrics metrics = listener.getIngestMetrics();
+        Assert.assertEquals(Map.of("ticker", 1L, "orders", 1L, IngestPipeline.UNKNOWN, 1L),
+                metrics.getDrops());
+        Assert.assertEquals(2, metrics.getPrivateDrops());
+        Assert.assertEquals(3, metrics.getTotalDrops());
+        listener.blocker.countDown();
+        listener.close();
+    }
+}
@@ -0,0 +1,212 @@
+package org.eurekaka.bricks.api;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.eurekaka.bricks.common.util.Utils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.net.http.HttpClient;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+public class WebSocketOrderChannelTest {
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+    private LocalWebSocketServer server;
+    private WebSocketOrderChannel channel;
+
+    // 消息格式: {"op": "login", "id": "1"}，响应: {"id": "1", "ack": false, "error": null}
+    private static class TestCodec implements WebSocketOrderChannel.Codec {
+        @Override
+        public String login(String requestId) {
+            return request("login", requestId);
+        }
+
+        @Override
+        public String requestId(JsonNode message) {
+            return message.has("id") ? message.get("id").asText() : null;
+        }
+
+        @Override
+        public String error(JsonNode message) {
+            return message.hasNonNull("error") ? message.get("error").asText() : null;
+        }
+
+        @Override
+        public boolean isFinal(JsonNode message) {
+            return !message.path("ack").asBoolean(false);
+        }
+
+        static String request(String op, String requestId) {
+            return "{\"op\":\"" + op + "\",\"id\":\"" + requestId + "\"}";
+        }
+    }
+
+    private static String response(JsonNode request, boolean ack, String error) {
+        return "{\"id\":\"" + request.get("id").asText() + "\",\"ack\":" + ack +
+                ",\"error\":" + (error == null ? "null" : "\"" + error + "\"") +
+                ",\"op\":\"" + request.get("op").asText() + "\"}";
+    }
+
+    private static JsonNode parse(String text) {
+        try {
+            return Utils.mapper.readTree(text);
+        } catch (Exception e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    private WebSocketOrderChannel connect(long timeout, long reconnectInterval) throws Exception {
+        channel = new WebSocketOrderChannel("test", server.getUri(), httpClient,
+                new TestCodec(), timeout, reconnectInterval, 0);
+        channel.connect().get(5, TimeUnit.SECONDS);
+        return channel;
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (channel != null) {
+            channel.close();
+        }
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    @Test
+    public void testRequestCorrelation() throws Exception {
+        List<JsonNode> held = new ArrayList<>();
+        server = new LocalWebSocketServer(text -> {
+            JsonNode request = parse(text);
+            if ("login".equals(request.get("op").asText())) {
+                return List.of(response(request, false, null));
+            }
+            // 先返回确认消息，收到第二个请求后按相反顺序返回结果
+            held.add(request);
+            if (held.size() < 2) {
+                return List.of(response(request, true, null));
+            }
+            return List.of("{\"channel\":\"push\"}",
+                    response(held.get(1), false, null), response(held.get(0), false, "REJECTED"));
+        });
+        connect(3000, 1000);
+        Assert.assertTrue(channel.isAvailable());
+
+        String id1 = channel.nextRequestId();
+        CompletableFuture<JsonNode> first = channel.request(id1, TestCodec.request("order", id1));
+        String id2 = channel.nextRequestId();
+        CompletableFuture<JsonNode> second = channel.request(id2, TestCodec.request("order", id2));
+        Assert.assertNotEquals(id1, id2);
+
+        JsonNode result1 = first.get(5, TimeUnit.SECONDS);
+        JsonNode result2 = second.get(5, TimeUnit.SECONDS);
+        Assert.assertEquals(id1, result1.get("id").asText());
+        Assert.assertEquals("REJECTED", result1.get("error").asText());
+        Assert.assertFalse(result1.get("ack").asBoolean());
+        Assert.assertEquals(id2, result2.get("id").asText());
+        Assert.assertTrue(result2.get("error").isNull());
+    }
+
+    @Test
+    public void testLoginFailed() throws Exception {
+        server = new LocalWebSocketServer(text -> List.of(response(parse(text), false, "INVALID_KEY")));
+        channel = new WebSocketOrderChannel("test", server.getUri(), httpClient,
+                new TestCodec(), 3000, 60000, 0);
+        try {
+            channel.connect().get(5, TimeUnit.SECONDS);
+            Assert.fail("login should fail");
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause().getMessage().contains("INVALID_KEY"));
+        }
+        Assert.assertFalse(channel.isAvailable());
+        String id = channel.nextRequestId();
+        Assert.assertTrue(channel.request(id, TestCodec.request("order", id)).isCompletedExceptionally());
+    }
+
+    @Test
+    public void testTimeout() throws Exception {
+        server = new LocalWebSocketServer(text -> {
+            JsonNode request = parse(text);
+            if ("login".equals(request.get("op").asText())) {
+                return List.of(response(request, false, null));
+            }
+            return Collections.emptyList();
+        });
+        connect(1000, 1000);
+        String id = channel.nextRequestId();
+        try {
+            channel.request(id, TestCodec.request("order", id)).get(5, TimeUnit.SECONDS);
+            Assert.fail("request should time out");
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof TimeoutException);
+        }
+        // 超时后连接依然可用
+        Assert.assertTrue(channel.isAvailable());
+    }
+
+    @Test
+    public void testReconnect() throws Exception {
+        server = new LocalWebSocketServer(text -> {
+            JsonNode request = parse(text);
+            if ("login".equals(request.get("op").asText())) {
+                return List.of(response(request, false, null));
+            }
+            return Collections.emptyList();
+        });
+        connect(3000, 100);
+        String id = channel.nextRequestId();
+        CompletableFuture<JsonNode> pending = channel.request(id, TestCodec.request("order", id));
+        // 等待请求到达服务端后断开连接
+        long deadline = System.currentTimeMillis() + 5000;
+        while (server.getReceived().size() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        server.dropClients();
+
+        try {
+            pending.get(5, TimeUnit.SECONDS);
+            Assert.fail("pending request should fail after disconnect");
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause().getMessage().contains("order channel"));
+        }
+        Assert.assertFalse(channel.isAvailable());
+
+        // 超过重连间隔后在后台重新连接并登录
+        deadline = System.currentTimeMillis() + 5000;
+        while (!channel.isAvailable() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        Assert.assertTrue(channel.isAvailable());
+        Assert.assertEquals(1, server.getConnections());
+    }
+
+    @Test
+    public void testSupersededAndClose() throws Exception {
+        server = new LocalWebSocketServer(text -> List.of(response(parse(text), false, null)));
+        connect(3000, 100);
+
+        // 已经被替换的连接的关闭与错误不影响当前连接
+        channel.onClose(null, 1006, "superseded");
+        channel.onError(null, new IllegalStateException("superseded"));
+        Assert.assertTrue(channel.isAvailable());
+        String id = channel.nextRequestId();
+        Assert.assertNotNull(channel.request(id, TestCodec.request("order", id)).get(5, TimeUnit.SECONDS));
+
+        // 关闭后不再重连
+        channel.close();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (server.getConnections() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        // 超过重连间隔后调用 isAvailable 也不会重新连接
+        Thread.sleep(200);
+        Assert.assertFalse(channel.isAvailable());
+        Thread.sleep(200);
+        Assert.assertEquals(0, server.getConnections());
+    }
+}
@@ -0,0 +1,47 @@
+package org.eurekaka.bricks.benchmark;
+
+import org.eurekaka.bricks.common.model.AccountConfig;
+import org.eurekaka.bricks.common.model.OrderBookValue;
+import org.eurekaka.bricks.common.model.PriceSizeBuffer;
+
+import java.util.Random;
+
+/**
+ * 基准测试使用的账户配置与订单簿快照
+ */
+public class Accounts {
+    public static final String AUTH_KEY = "bench-key-6c3f2a1e9d";
+    public static final String AUTH_SECRET = "bench-secret-0f4e8b7d2c6a19e35b7c4d0a8e1f2b3c";
+
+    // 与 payload 内行情数据一致的中间价与最小价格单位
+    public static final double MID_PRICE = 58287.7;
+    public static final double PRICE_TICK = 0.1;
+
+    private Accounts() {
+    }
+
+    /**
+     * 不连接 websocket 的账户配置，listener 由测试直接创建
+     */
+    public static AccountConfig create(String name, String clz, String listenerClz,
+                                       String apiClz, String url) {
+        return new AccountConfig(1, name, 1, clz, listenerClz, apiClz, null, url,
+                null, AUTH_KEY, AUTH_SECRET, true);
+    }
+
+    /**
+     * 固定随机种子生成的 rest 订单簿快照，价格与 payload 中的增量数据重叠
+     * @param levels 买卖盘档位数
+     * @param lastUpdateId 快照的 update id
+     */
+    public static OrderBookValue snapshot(int levels, long lastUpdateId) {
+        Random random = new Random(levels);
+        PriceSizeBuffer bids = new PriceSizeBuffer(levels);
+        PriceSizeBuffer asks = new PriceSizeBuffer(levels);
+        for (int i = 0; i < levels; i++) {
+            bids.add(MID_PRICE - PRICE_TICK / 2 - PRICE_TICK * i, 0.001 + random.nextDouble() * 10);
+            asks.add(MID_PRICE + PRICE_TICK / 2 + PRICE_TICK * i, 0.001 + random.nextDouble() * 10);
+        }
+        return new OrderBookValue(lastUpdateId, lastUpdateId, bids, asks);
+    }
+}
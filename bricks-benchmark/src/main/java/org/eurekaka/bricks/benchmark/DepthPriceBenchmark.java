@@ -0,0 +1,64 @@
+package org.eurekaka.bricks.benchmark;
+
+import org.eurekaka.bricks.common.model.*;
+import org.eurekaka.bricks.exchange.binance.BinanceFuture;
+import org.eurekaka.bricks.exchange.binance.BinanceFutureApi;
+import org.eurekaka.bricks.exchange.binance.BinanceFutureListener;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 策略线程通过 exchange.process 查询满足深度要求的买卖价格
+ * depthQty 为计价货币数量，快照每档约 29 万 USDT
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DepthPriceBenchmark {
+    private static final String NAME = "BTC";
+    private static final String SYMBOL = "BTCUSDT";
+
+    @Param({"10000", "1000000", "20000000"})
+    public int depthQty;
+
+    private BenchmarkExchange exchange;
+    private ExAction<DepthPricePair> bidAction;
+    private ExAction<DepthPricePair> askAction;
+
+    @Setup
+    public void setup() {
+        exchange = new BenchmarkExchange(Accounts.create("binance-bench",
+                BinanceFuture.class.getName(), BinanceFutureListener.class.getName(),
+                BinanceFutureApi.class.getName(), "https://fapi.binance.com"));
+        exchange.getAccountStatus().buildOrderBookValue(SYMBOL, Accounts.snapshot(500, 1));
+
+        DepthPricePair pair = new DepthPricePair(NAME, SYMBOL, depthQty);
+        bidAction = new ExAction<>(ExAction.ActionType.GET_BID_DEPTH_PRICE, pair);
+        askAction = new ExAction<>(ExAction.ActionType.GET_ASK_DEPTH_PRICE, pair);
+    }
+
+    @Benchmark
+    public ExMessage<?> bidDepthPrice() {
+        return exchange.process(bidAction);
+    }
+
+    @Benchmark
+    public ExMessage<?> askDepthPrice() {
+        return exchange.process(askAction);
+    }
+
+    // 未配置 websocket，不会启动 listener，只用于访问 accountStatus
+    static class BenchmarkExchange extends BinanceFuture {
+        BenchmarkExchange(AccountConfig accountConfig) {
+            super(accountConfig);
+        }
+
+        FutureAccountStatus getAccountStatus() {
+            return accountStatus;
+        }
+    }
+}
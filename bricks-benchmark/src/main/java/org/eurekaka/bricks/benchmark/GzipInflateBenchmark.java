@@ -0,0 +1,99 @@
+package org.eurekaka.bricks.benchmark;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.eurekaka.bricks.common.util.GzipInflater;
+import org.eurekaka.bricks.common.util.Utils;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * huobi gzip 行情帧的解压与解析
+ * legacy 为原 WebSocketListener.uncompress + String + readTree 的处理方式，
+ * pooled 为复用 GzipInflater 并直接流式解析
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GzipInflateBenchmark {
+    private byte[][] frames;
+    private int index;
+    private GzipInflater inflater;
+
+    @Setup
+    public void setup() throws IOException {
+        List<String> messages = Payloads.load("huobi-depth.generated.jsonl");
+        frames = new byte[messages.size()][];
+        for (int i = 0; i < messages.size(); i++) {
+            frames[i] = Payloads.gzip(messages.get(i));
+        }
+        inflater = new GzipInflater();
+    }
+
+    @TearDown
+    public void tearDown() {
+        inflater.close();
+    }
+
+    private byte[] nextFrame() {
+        byte[] frame = frames[index];
+        index = (index + 1) % frames.length;
+        return frame;
+    }
+
+    @Benchmark
+    public byte[] legacyUncompress() throws IOException {
+        return uncompress(nextFrame());
+    }
+
+    @Benchmark
+    public int pooledInflate() throws Exception {
+        byte[] frame = nextFrame();
+        return inflater.inflate(frame, 0, frame.length);
+    }
+
+    @Benchmark
+    public void legacyDecode(Blackhole blackhole) throws IOException {
+        String text = new String(uncompress(nextFrame()));
+        blackhole.consume(Utils.mapper.readTree(text));
+    }
+
+    @Benchmark
+    public void pooledDecode(Blackhole blackhole) throws Exception {
+        byte[] frame = nextFrame();
+        int length = inflater.inflate(frame, 0, frame.length);
+        try (JsonParser parser = Utils.mapper.getFactory().createParser(inflater.getBuffer(), 0, length)) {
+            JsonToken token;
+            while ((token = parser.nextToken()) != null) {
+                if (token == JsonToken.VALUE_NUMBER_FLOAT || token == JsonToken.VALUE_NUMBER_INT) {
+                    blackhole.consume(parser.getDoubleValue());
+                }
+            }
+        }
+    }
+
+    // 原 WebSocketListener.uncompress 实现
+    private static byte[] uncompress(byte[] data) throws IOException {
+        try (ByteArrayInputStream is = new ByteArrayInputStream(data);
+             ByteArrayOutputStream os = new ByteArrayOutputStream();
+             GZIPInputStream gis = new GZIPInputStream(is)) {
+            int count;
+            byte[] buffer = new byte[1024];
+            while ((count = gis.read(buffer, 0, 1024)) != -1) {
+                os.write(buffer, 0, count);
+            }
+            os.flush();
+            return os.toByteArray();
+        }
+    }
+}
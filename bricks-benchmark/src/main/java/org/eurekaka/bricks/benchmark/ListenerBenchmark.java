@@ -0,0 +1,193 @@
+package org.eurekaka.bricks.benchmark;
+
+import org.eurekaka.bricks.common.model.AccountConfig;
+import org.eurekaka.bricks.common.model.FutureAccountStatus;
+import org.eurekaka.bricks.exchange.binance.BinanceFuture;
+import org.eurekaka.bricks.exchange.binance.BinanceFutureApi;
+import org.eurekaka.bricks.exchange.binance.BinanceFutureListener;
+import org.eurekaka.bricks.exchange.ftx.FtxFuture;
+import org.eurekaka.bricks.exchange.ftx.FtxFutureApi;
+import org.eurekaka.bricks.exchange.ftx.FtxFutureListener;
+import org.eurekaka.bricks.exchange.gate.GateFuture;
+import org.eurekaka.bricks.exchange.gate.GateFutureApi;
+import org.eurekaka.bricks.exchange.gate.GateFutureListener;
+import org.eurekaka.bricks.exchange.huobi.HuoFuture;
+import org.eurekaka.bricks.exchange.huobi.HuoFutureApi;
+import org.eurekaka.bricks.exchange.huobi.HuoFutureMarketListener;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.net.http.WebSocket;
+import java.nio.ByteBuffer;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 各交易所 websocket listener 处理一条完整消息的耗时，包括解析与订单簿更新
+ * 通过 onText, onBinary 回调驱动，与 HttpClient 回调线程的调用方式一致，
+ * streaming 为 false 时走 processWholeText，rest 接口使用生成的响应回放
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ListenerBenchmark {
+    private static final WebSocket WEB_SOCKET = new NoopWebSocket();
+
+    @State(Scope.Thread)
+    public static class BinanceState {
+        static final String SYMBOL = "BTCUSDT";
+
+        @Param({"true", "false"})
+        public boolean streaming;
+
+        BinanceFutureListener listener;
+        FutureAccountStatus accountStatus;
+        List<String> messages;
+        int index;
+
+        @Setup
+        public void setup() throws IOException {
+            AccountConfig accountConfig = Accounts.create("binance-bench",
+                    BinanceFuture.class.getName(), BinanceFutureListener.class.getName(),
+                    BinanceFutureApi.class.getName(), "https://fapi.binance.com");
+            accountConfig.setProperty("streaming_decode", String.valueOf(streaming));
+            accountStatus = new FutureAccountStatus();
+            accountStatus.getSymbols().put(SYMBOL, "BTC");
+            accountStatus.getOrderBookValues().put(SYMBOL, new LinkedList<>());
+            accountStatus.buildOrderBookValue(SYMBOL, Accounts.snapshot(500, 0));
+            listener = new BinanceFutureListener(accountConfig, accountStatus,
+                    new BinanceFutureApi(accountConfig, new ReplayHttpClient()), null);
+            messages = Payloads.load("binance-depth.generated.jsonl");
+        }
+
+        String next() {
+            if (index == 0) {
+                // 重放回到开头时 update id 不再连续，清空缓存避免触发 rest 重建
+                accountStatus.getOrderBookValues().get(SYMBOL).clear();
+            }
+            String message = messages.get(index);
+            index = (index + 1) % messages.size();
+            return message;
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class GateState {
+        static final String SYMBOL = "BTC_USDT";
+
+        @Param({"true", "false"})
+        public boolean streaming;
+
+        GateFutureListener listener;
+        FutureAccountStatus accountStatus;
+        List<String> messages;
+        int index;
+
+        @Setup
+        public void setup() throws IOException {
+            AccountConfig accountConfig = Accounts.create("gate-bench",
+                    GateFuture.class.getName(), GateFutureListener.class.getName(),
+                    GateFutureApi.class.getName(), "https://fx-api.gateio.ws");
+            accountConfig.setProperty("streaming_decode", String.valueOf(streaming));
+            accountStatus = new FutureAccountStatus();
+            accountStatus.getSymbols().put(SYMBOL, "BTC");
+            accountStatus.getOrderBookValues().put(SYMBOL, new LinkedList<>());
+            accountStatus.buildOrderBookValue(SYMBOL, Accounts.snapshot(100, 0));
+            GateFutureApi api = new GateFutureApi(accountConfig, new ReplayHttpClient()
+                    .replay("/api/v4/futures/usdt/contracts", "gate-contracts.generated.json"));
+            listener = new GateFutureListener(accountConfig, accountStatus, api, null);
+            messages = Payloads.load("gate-depth.generated.jsonl");
+        }
+
+        String next() {
+            if (index == 0) {
+                accountStatus.getOrderBookValues().get(SYMBOL).clear();
+            }
+            String message = messages.get(index);
+            index = (index + 1) % messages.size();
+            return message;
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class HuobiState {
+        HuoFutureMarketListener listener;
+        byte[][] frames;
+        int index;
+
+        @Setup
+        public void setup() throws IOException {
+            AccountConfig accountConfig = Accounts.create("huobi-bench",
+                    HuoFuture.class.getName(), HuoFutureMarketListener.class.getName(),
+                    HuoFutureApi.class.getName(), "https://api.hbdm.com");
+            HuoFutureApi api = new HuoFutureApi(accountConfig, new ReplayHttpClient()
+                    .replay("/linear-swap-api/v1/swap_contract_info", "huobi-contract-info.generated.json")
+                    .replay("/linear-swap-api/v1/swap_cross_account_info", "huobi-account-info.generated.json"));
+            listener = new HuoFutureMarketListener(accountConfig, new FutureAccountStatus(), api, null);
+
+            List<String> messages = Payloads.load("huobi-depth.generated.jsonl");
+            frames = new byte[messages.size()][];
+            for (int i = 0; i < messages.size(); i++) {
+                frames[i] = Payloads.gzip(messages.get(i));
+            }
+        }
+
+        ByteBuffer next() {
+            byte[] frame = frames[index];
+            index = (index + 1) % frames.length;
+            return ByteBuffer.wrap(frame);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class FtxState {
+        static final String SYMBOL = "BTC-PERP";
+
+        FtxFutureListener listener;
+        List<String> messages;
+        int index;
+
+        @Setup
+        public void setup() throws IOException {
+            AccountConfig accountConfig = Accounts.create("ftx-bench",
+                    FtxFuture.class.getName(), FtxFutureListener.class.getName(),
+                    FtxFutureApi.class.getName(), "https://ftx.com");
+            FutureAccountStatus accountStatus = new FutureAccountStatus();
+            accountStatus.getSymbols().put(SYMBOL, "BTC");
+            listener = new FtxFutureListener(accountConfig, accountStatus,
+                    new FtxFutureApi(accountConfig, new ReplayHttpClient()), null);
+            // 第一条为 partial 快照，每轮重放都会重建订单簿
+            messages = Payloads.load("ftx-orderbook.generated.jsonl");
+        }
+
+        String next() {
+            String message = messages.get(index);
+            index = (index + 1) % messages.size();
+            return message;
+        }
+    }
+
+    @Benchmark
+    public CompletionStage<?> binance(BinanceState state) {
+        return state.listener.onText(WEB_SOCKET, state.next(), true);
+    }
+
+    @Benchmark
+    public CompletionStage<?> gate(GateState state) {
+        return state.listener.onText(WEB_SOCKET, state.next(), true);
+    }
+
+    @Benchmark
+    public CompletionStage<?> huobiGzip(HuobiState state) {
+        return state.listener.onBinary(WEB_SOCKET, state.next(), true);
+    }
+
+    @Benchmark
+    public CompletionStage<?> ftx(FtxState state) {
+        return state.listener.onText(WEB_SOCKET, state.next(), true);
+    }
+}
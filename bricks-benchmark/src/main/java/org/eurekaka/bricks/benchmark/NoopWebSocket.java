@@ -0,0 +1,60 @@
+package org.eurekaka.bricks.benchmark;
+
+import java.net.http.WebSocket;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 直接调用 listener 回调时使用的空 websocket，所有发送操作立即完成
+ */
+public class NoopWebSocket implements WebSocket {
+    private final CompletableFuture<WebSocket> completed = CompletableFuture.completedFuture(this);
+
+    @Override
+    public CompletableFuture<WebSocket> sendText(CharSequence data, boolean last) {
+        return completed;
+    }
+
+    @Override
+    public CompletableFuture<WebSocket> sendBinary(ByteBuffer data, boolean last) {
+        return completed;
+    }
+
+    @Override
+    public CompletableFuture<WebSocket> sendPing(ByteBuffer message) {
+        return completed;
+    }
+
+    @Override
+    public CompletableFuture<WebSocket> sendPong(ByteBuffer message) {
+        return completed;
+    }
+
+    @Override
+    public CompletableFuture<WebSocket> sendClose(int statusCode, String reason) {
+        return completed;
+    }
+
+    @Override
+    public void request(long n) {
+    }
+
+    @Override
+    public String getSubprotocol() {
+        return "";
+    }
+
+    @Override
+    public boolean isOutputClosed() {
+        return false;
+    }
+
+    @Override
+    public boolean isInputClosed() {
+        return false;
+    }
+
+    @Override
+    public void abort() {
+    }
+}
@@ -0,0 +1,162 @@
+package org.eurekaka.bricks.benchmark;
+
+import org.eurekaka.bricks.api.NotificationListener;
+import org.eurekaka.bricks.api.Strategy;
+import org.eurekaka.bricks.common.model.Notification;
+import org.eurekaka.bricks.common.model.TopDepthNotification;
+import org.eurekaka.bricks.server.manager.NotificationBus;
+import org.eurekaka.bricks.server.manager.NotificationConsumer;
+import org.eurekaka.bricks.server.manager.NotificationDispatcher;
+import org.eurekaka.bricks.server.manager.StrategyRunnerV3;
+import org.eurekaka.bricks.server.manager.WaitStrategy;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 交易所线程发布通知到所有策略处理完成的吞吐量
+ * blocking 为 LinkedBlockingQueue 加 NotificationDispatcher 与 StrategyRunnerV3 的两级转发，
+ * 其余为 NotificationBus 在对应等待策略下的表现
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NotificationDispatchBenchmark {
+    private static final String BLOCKING = "blocking";
+    private static final String[] NAMES = {"BTC", "ETH", "DOGE"};
+    private static final int BATCH = 1000;
+
+    @Param({BLOCKING, "park", "yield"})
+    public String dispatch;
+
+    private Queue<Notification> queue;
+    private Notification[] notifications;
+    private List<CountingStrategy> strategies;
+    private long expected;
+
+    // blocking 模式
+    private AtomicBoolean exited;
+    private List<Thread> threads;
+    // bus 模式
+    private List<NotificationConsumer> consumers;
+
+    @Setup
+    public void setup() {
+        notifications = new Notification[BATCH];
+        for (int i = 0; i < BATCH; i++) {
+            String name = NAMES[i % NAMES.length];
+            notifications[i] = new TopDepthNotification(name, name + "USDT", "bench",
+                    i % 2 == 0 ? TopDepthNotification.DepthSide.BID : TopDepthNotification.DepthSide.ASK,
+                    100 + i * 0.1);
+        }
+
+        strategies = new ArrayList<>();
+        for (String name : NAMES) {
+            strategies.add(new CountingStrategy(name));
+        }
+        NotificationListener listener = notification -> {};
+        threads = new ArrayList<>();
+        consumers = new ArrayList<>();
+
+        if (BLOCKING.equals(dispatch)) {
+            exited = new AtomicBoolean(false);
+            BlockingQueue<Notification> blockingQueue = new LinkedBlockingQueue<>();
+            Map<String, BlockingQueue<Notification>> queueMap = new ConcurrentHashMap<>();
+            threads.add(new Thread(new NotificationDispatcher(exited, queueMap, blockingQueue, listener)));
+            for (CountingStrategy strategy : strategies) {
+                BlockingQueue<Notification> strategyQueue = new LinkedBlockingQueue<>();
+                queueMap.put(strategy.name, strategyQueue);
+                threads.add(new Thread(new StrategyRunnerV3(exited, strategy, strategyQueue)));
+            }
+            queue = blockingQueue;
+        } else {
+            WaitStrategy waitStrategy = WaitStrategy.parse(dispatch);
+            NotificationBus bus = new NotificationBus();
+            consumers.add(new NotificationConsumer(null, 16384, waitStrategy, listener));
+            for (CountingStrategy strategy : strategies) {
+                consumers.add(new NotificationConsumer(strategy.name, 4096, waitStrategy, strategy));
+            }
+            for (NotificationConsumer consumer : consumers) {
+                bus.subscribe(consumer);
+                threads.add(new Thread(consumer));
+            }
+            queue = bus;
+        }
+        for (Thread thread : threads) {
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        if (exited != null) {
+            exited.set(true);
+        }
+        for (NotificationConsumer consumer : consumers) {
+            consumer.stop();
+        }
+        for (Thread thread : threads) {
+            thread.interrupt();
+            thread.join(1000);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public long publish() {
+        for (Notification notification : notifications) {
+            queue.add(notification);
+        }
+        expected += BATCH;
+        // 等待所有策略处理完本批通知
+        while (received() < expected) {
+            Thread.yield();
+        }
+        return expected;
+    }
+
+    private long received() {
+        long count = 0;
+        for (CountingStrategy strategy : strategies) {
+            count += strategy.count.get();
+        }
+        return count;
+    }
+
+    // 只计数的策略，bus 模式下直接作为订阅者的处理器
+    private static class CountingStrategy implements Strategy, NotificationListener {
+        final String name;
+        final AtomicLong count = new AtomicLong();
+
+        CountingStrategy(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public void run() {
+        }
+
+        @Override
+        public void notify(Notification notification) {
+            count.incrementAndGet();
+        }
+
+        @Override
+        public void onNotification(Notification notification) {
+            notify(notification);
+        }
+    }
+}
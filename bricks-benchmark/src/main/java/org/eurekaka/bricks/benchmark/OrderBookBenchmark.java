@@ -0,0 +1,99 @@
+package org.eurekaka.bricks.benchmark;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.eurekaka.bricks.common.model.AccountStatus;
+import org.eurekaka.bricks.common.model.OrderBookValue;
+import org.eurekaka.bricks.common.model.PriceSizeBuffer;
+import org.eurekaka.bricks.common.util.Utils;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * AccountStatus 订单簿维护
+ * update 重放 binance depthUpdate 增量，build 为 rest 快照重建并重放缓存增量，
+ * parsePairs 为 ftx 等 List<List<Double>> 深度数据的转换
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OrderBookBenchmark {
+    private static final String SYMBOL = "BTCUSDT";
+
+    @Param({"100", "500"})
+    public int snapshotLevels;
+
+    private List<OrderBookValue> updates;
+    private int index;
+    private AccountStatus updateStatus;
+
+    private AccountStatus buildStatus;
+    private OrderBookValue snapshot;
+
+    private List<List<Double>> partialBids;
+
+    @Setup
+    public void setup() throws IOException {
+        updates = new ArrayList<>();
+        for (String message : Payloads.load("binance-depth.generated.jsonl")) {
+            JsonNode node = Utils.mapper.readTree(message);
+            if ("depthUpdate".equals(node.get("e").asText())) {
+                // 与 BinanceFutureListener 一致，使用 pu 校验增量连续
+                updates.add(new OrderBookValue(node.get("u").asLong() - 1, node.get("pu").asLong(),
+                        toBuffer(node.get("b")), toBuffer(node.get("a"))));
+            }
+        }
+
+        updateStatus = new AccountStatus();
+        updateStatus.getOrderBookValues().put(SYMBOL, new LinkedList<>());
+        updateStatus.buildOrderBookValue(SYMBOL, Accounts.snapshot(snapshotLevels, 0));
+
+        // 快照位于缓存增量的中间，重建时重放后半部分
+        buildStatus = new AccountStatus();
+        LinkedList<OrderBookValue> cached = new LinkedList<>(updates.subList(0, 50));
+        buildStatus.getOrderBookValues().put(SYMBOL, cached);
+        snapshot = Accounts.snapshot(snapshotLevels, cached.get(25).lastUpdateId);
+
+        JsonNode partial = Utils.mapper.readTree(Payloads.load("ftx-orderbook.generated.jsonl").get(0));
+        partialBids = Utils.mapper.convertValue(partial.get("data").get("bids"),
+                new TypeReference<List<List<Double>>>() {});
+    }
+
+    private static PriceSizeBuffer toBuffer(JsonNode pairs) {
+        PriceSizeBuffer buffer = new PriceSizeBuffer(pairs.size());
+        for (JsonNode pair : pairs) {
+            buffer.add(pair.get(0).asDouble(), pair.get(1).asDouble());
+        }
+        return buffer;
+    }
+
+    @Benchmark
+    public boolean updateOrderBookValue() {
+        if (index == 0) {
+            // 重放回到开头时 update id 不再连续，清空缓存后重新接受
+            updateStatus.getOrderBookValues().get(SYMBOL).clear();
+        }
+        OrderBookValue value = updates.get(index);
+        index = (index + 1) % updates.size();
+        return updateStatus.updateOrderBookValue(SYMBOL, value);
+    }
+
+    @Benchmark
+    public AccountStatus buildOrderBookValue() {
+        buildStatus.buildOrderBookValue(SYMBOL, snapshot);
+        return buildStatus;
+    }
+
+    @Benchmark
+    public List<OrderBookValue.PriceSizePair> parsePairs() {
+        return OrderBookValue.parsePairs(partialBids);
+    }
+}
@@ -0,0 +1,47 @@
+package org.eurekaka.bricks.benchmark;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 读取 resources/payload 下的消息，每行一条
+ * 文件名带 generated 的是按交易所推送格式生成的数据，不是真实抓取的帧
+ */
+public class Payloads {
+
+    private Payloads() {
+    }
+
+    public static List<String> load(String name) throws IOException {
+        InputStream is = Payloads.class.getResourceAsStream("/payload/" + name);
+        if (is == null) {
+            throw new IOException("payload not found: " + name);
+        }
+        List<String> messages = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isBlank()) {
+                    messages.add(line);
+                }
+            }
+        }
+        return messages;
+    }
+
+    // 模拟交易所推送的 gzip 二进制帧
+    public static byte[] gzip(String message) throws IOException {
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        try (GZIPOutputStream gos = new GZIPOutputStream(os)) {
+            gos.write(message.getBytes(StandardCharsets.UTF_8));
+        }
+        return os.toByteArray();
+    }
+}
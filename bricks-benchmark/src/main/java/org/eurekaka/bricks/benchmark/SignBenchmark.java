@@ -0,0 +1,166 @@
+package org.eurekaka.bricks.benchmark;
+
+import org.eurekaka.bricks.common.cryption.HmacSigner;
+import org.eurekaka.bricks.common.model.AccountConfig;
+import org.eurekaka.bricks.common.util.Utils;
+import org.eurekaka.bricks.exchange.bhex.BhexFuture;
+import org.eurekaka.bricks.exchange.bhex.BhexFutureApi;
+import org.eurekaka.bricks.exchange.bhex.BhexFutureListener;
+import org.eurekaka.bricks.exchange.bhex.BhexUtils;
+import org.eurekaka.bricks.exchange.binance.BinanceFuture;
+import org.eurekaka.bricks.exchange.binance.BinanceFutureApi;
+import org.eurekaka.bricks.exchange.binance.BinanceFutureListener;
+import org.eurekaka.bricks.exchange.ftx.FtxFuture;
+import org.eurekaka.bricks.exchange.ftx.FtxFutureApi;
+import org.eurekaka.bricks.exchange.ftx.FtxFutureListener;
+import org.eurekaka.bricks.exchange.gate.GateFuture;
+import org.eurekaka.bricks.exchange.gate.GateFutureApi;
+import org.eurekaka.bricks.exchange.gate.GateFutureListener;
+import org.eurekaka.bricks.exchange.huobi.HuoFuture;
+import org.eurekaka.bricks.exchange.huobi.HuoFutureApi;
+import org.eurekaka.bricks.exchange.huobi.HuoFutureAccountListener;
+import org.openjdk.jmh.annotations.*;
+
+import javax.crypto.Mac;
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 下单请求的签名耗时，包括参数拼接、hmac 计算与请求构造
+ * 各交易所签名方法为 private，通过 MethodHandle 调用，legacyBinance 为改用 HmacSigner 之前的实现
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SignBenchmark {
+    private static final String ORDER_BODY = "{\"contract\":\"BTC_USDT\",\"size\":12," +
+            "\"price\":\"58287.7\",\"tif\":\"poc\",\"text\":\"t-1617180000000\"}";
+
+    private AccountConfig binanceConfig;
+    private AccountConfig bhexConfig;
+    private HmacSigner bhexSigner;
+
+    private BinanceFutureApi binanceApi;
+    private MethodHandle binanceSign;
+    private GateFutureApi gateApi;
+    private MethodHandle gateSign;
+    private HuoFutureApi huobiApi;
+    private MethodHandle huobiSign;
+    private FtxFutureApi ftxApi;
+    private MethodHandle ftxSign;
+
+    @Setup
+    public void setup() throws Exception {
+        binanceConfig = Accounts.create("binance-bench",
+                BinanceFuture.class.getName(), BinanceFutureListener.class.getName(),
+                BinanceFutureApi.class.getName(), "https://fapi.binance.com");
+        binanceApi = new BinanceFutureApi(binanceConfig, new ReplayHttpClient());
+        binanceSign = privateMethod(BinanceFutureApi.class, "generateSignedUrl", String.class, Map.class);
+
+        AccountConfig gateConfig = Accounts.create("gate-bench",
+                GateFuture.class.getName(), GateFutureListener.class.getName(),
+                GateFutureApi.class.getName(), "https://fx-api.gateio.ws");
+        gateApi = new GateFutureApi(gateConfig, new ReplayHttpClient()
+                .replay("/api/v4/futures/usdt/contracts", "gate-contracts.generated.json"));
+        gateSign = privateMethod(GateFutureApi.class, "generateSignedRequest",
+                String.class, String.class, String.class);
+
+        AccountConfig huobiConfig = Accounts.create("huobi-bench",
+                HuoFuture.class.getName(), HuoFutureAccountListener.class.getName(),
+                HuoFutureApi.class.getName(), "https://api.hbdm.com");
+        huobiApi = new HuoFutureApi(huobiConfig, huobiClient());
+        huobiSign = privateMethod(HuoFutureApi.class, "generateSignedRequest",
+                String.class, String.class, Map.class);
+
+        AccountConfig ftxConfig = Accounts.create("ftx-bench",
+                FtxFuture.class.getName(), FtxFutureListener.class.getName(),
+                FtxFutureApi.class.getName(), "https://ftx.com");
+        ftxApi = new FtxFutureApi(ftxConfig, new ReplayHttpClient());
+        ftxSign = privateMethod(FtxFutureApi.class, "generateSignedRequest",
+                String.class, String.class, String.class);
+
+        bhexConfig = Accounts.create("bhex-bench",
+                BhexFuture.class.getName(), BhexFutureListener.class.getName(),
+                BhexFutureApi.class.getName(), "https://api.hbtc.com");
+        bhexSigner = new HmacSigner(bhexConfig.getAuthSecret(), HmacSigner.HMAC_SHA256);
+    }
+
+    private static ReplayHttpClient huobiClient() throws IOException {
+        return new ReplayHttpClient()
+                .replay("/linear-swap-api/v1/swap_contract_info", "huobi-contract-info.generated.json")
+                .replay("/linear-swap-api/v1/swap_cross_account_info", "huobi-account-info.generated.json");
+    }
+
+    private static MethodHandle privateMethod(Class<?> clz, String name,
+                                              Class<?>... types) throws Exception {
+        Method method = clz.getDeclaredMethod(name, types);
+        method.setAccessible(true);
+        return MethodHandles.lookup().unreflect(method);
+    }
+
+    // 签名方法会向参数中写入 timestamp 等字段，每次调用使用新的参数
+    private static Map<String, String> orderParams() {
+        Map<String, String> params = new HashMap<>();
+        params.put("symbol", "BTCUSDT");
+        params.put("side", "BUY");
+        params.put("type", "LIMIT");
+        params.put("timeInForce", "GTX");
+        params.put("quantity", "0.012");
+        params.put("price", "58287.7");
+        params.put("newClientOrderId", "c-1617180000000");
+        return params;
+    }
+
+    // 原实现，每次请求创建 Mac 并复制参数到 TreeMap
+    @Benchmark
+    public String legacyBinance() {
+        Map<String, String> params = orderParams();
+        params.put("recvWindow", "5000");
+        params.put("timestamp", String.valueOf(System.currentTimeMillis()));
+        StringBuilder sb = new StringBuilder();
+        new TreeMap<>(params).forEach((key, value) -> {
+            if (sb.length() > 0) {
+                sb.append("&");
+            }
+            sb.append(key).append("=").append(value);
+        });
+        String paramString = sb.toString();
+        Mac sha256Mac = Utils.initialHMac(binanceConfig.getAuthSecret(), "HmacSHA256");
+        String signature = Utils.encodeHexString(sha256Mac.doFinal(paramString.getBytes()));
+        return binanceConfig.getUrl() + "/fapi/v1/order" + "?" + paramString + "&signature=" + signature;
+    }
+
+    @Benchmark
+    public Object binance() throws Throwable {
+        return binanceSign.invoke(binanceApi, "/fapi/v1/order", orderParams());
+    }
+
+    @Benchmark
+    public Object gateSha512() throws Throwable {
+        return gateSign.invoke(gateApi, "POST", "/api/v4/futures/usdt/orders", ORDER_BODY);
+    }
+
+    @Benchmark
+    public Object huobi() throws Throwable {
+        return huobiSign.invoke(huobiApi, "POST", "/linear-swap-api/v1/swap_cross_order", orderParams());
+    }
+
+    @Benchmark
+    public Object ftx() throws Throwable {
+        return ftxSign.invoke(ftxApi, "POST", "/api/orders", ORDER_BODY);
+    }
+
+    @Benchmark
+    public String bhex() {
+        return BhexUtils.generateSignedUrl(bhexConfig, bhexSigner, "/openapi/contract/order", orderParams());
+    }
+}
@@ -0,0 +1,37 @@
+package org.eurekaka.bricks.common.archive;
+
+/**
+ * 列存档案文件的列类型
+ */
+public enum ColumnKind {
+    // 相对文件最小时间的时间差，按文件时间跨度使用 4 或 8 字节
+    TIME(0, 0),
+    LONG(1, 8),
+    // 定点数，按文件的 price scale 换算
+    PRICE(2, 8),
+    DOUBLE(3, 8),
+    BYTE(4, 1),
+    // 字典编码，每行存储 4 字节字典序号，-1 代表 null
+    STRING(5, 4),
+    // 不使用字典，每行存储 4 字节内容结束偏移，适合 fill id 等基本不重复的字符串
+    TEXT(6, 4),
+    ;
+
+    public final byte id;
+    // 每行占用的字节数
+    public final int width;
+
+    ColumnKind(int id, int width) {
+        this.id = (byte) id;
+        this.width = width;
+    }
+
+    static ColumnKind of(byte id) {
+        for (ColumnKind kind : values()) {
+            if (kind.id == id) {
+                return kind;
+            }
+        }
+        throw new IllegalArgumentException("unknown column kind: " + id);
+    }
+}
@@ -0,0 +1,228 @@
+package org.eurekaka.bricks.common.archive;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 列存档案文件的读取，文件只读映射到内存，数值列直接从映射内存按行读取
+ * 字符串列的字典在第一次读取时解码缓存，文本列每次读取时解码
+ */
+public class ColumnarReader implements Closeable {
+    private final Path path;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+
+    private final byte type;
+    private final int timeWidth;
+    private final int rows;
+    private final int priceScale;
+    private final double priceFactor;
+    private final long minTime;
+    private final long maxTime;
+
+    private final ColumnKind[] kinds;
+    private final int[] offsets;
+    private final String[][] dictionaries;
+
+    public ColumnarReader(Path path) throws IOException {
+        this.path = path;
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            this.buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.limit() < ColumnarWriter.HEADER_SIZE || buffer.getInt(0) != ColumnarWriter.MAGIC) {
+                throw new IOException("invalid archive file: " + path);
+            }
+            if (buffer.getShort(4) != ColumnarWriter.VERSION) {
+                throw new IOException("unsupported archive version " + buffer.getShort(4) + ": " + path);
+            }
+            this.type = buffer.get(6);
+            this.timeWidth = buffer.get(7);
+            this.rows = buffer.getInt(8);
+            this.priceScale = buffer.getInt(12);
+            this.priceFactor = Math.pow(10, priceScale);
+            this.minTime = buffer.getLong(16);
+            this.maxTime = buffer.getLong(24);
+
+            int columnCount = buffer.getShort(32);
+            this.kinds = new ColumnKind[columnCount];
+            this.offsets = new int[columnCount];
+            this.dictionaries = new String[columnCount][];
+            for (int i = 0; i < columnCount; i++) {
+                int entry = ColumnarWriter.HEADER_SIZE + i * ColumnarWriter.COLUMN_ENTRY_SIZE;
+                kinds[i] = ColumnKind.of(buffer.get(entry));
+                offsets[i] = buffer.getInt(entry + 1);
+                if ((long) offsets[i] + buffer.getInt(entry + 5) > buffer.limit()) {
+                    throw new IOException("truncated archive file: " + path);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e instanceof IOException ? (IOException) e :
+                    new IOException("invalid archive file: " + path, e);
+        }
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public byte getType() {
+        return type;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getPriceScale() {
+        return priceScale;
+    }
+
+    public long getMinTime() {
+        return minTime;
+    }
+
+    public long getMaxTime() {
+        return maxTime;
+    }
+
+    public int getColumnCount() {
+        return kinds.length;
+    }
+
+    public ColumnKind getColumnKind(int column) {
+        return kinds[column];
+    }
+
+    /**
+     * @return 文件内是否有 [start, stop) 范围内的记录，不需要读取数据
+     */
+    public boolean overlaps(long start, long stop) {
+        return rows > 0 && minTime < stop && maxTime >= start;
+    }
+
+    /**
+     * @return 第一条时间不小于 time 的行，没有时返回行数
+     */
+    public int lowerBound(long time) {
+        int low = 0;
+        int high = rows;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (getTime(mid) < time) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    public long getTime(int row) {
+        checkRow(row);
+        if (timeWidth == 4) {
+            return minTime + buffer.getInt(offsets[0] + row * 4);
+        }
+        return minTime + buffer.getLong(offsets[0] + row * 8);
+    }
+
+    public long getLong(int column, int row) {
+        return buffer.getLong(position(column, row, ColumnKind.LONG));
+    }
+
+    /**
+     * @return 定点数原始值，即价格乘以 10^price scale
+     */
+    public long getRawPrice(int column, int row) {
+        return buffer.getLong(position(column, row, ColumnKind.PRICE));
+    }
+
+    public double getPrice(int column, int row) {
+        return getRawPrice(column, row) / priceFactor;
+    }
+
+    public double getDouble(int column, int row) {
+        return buffer.getDouble(position(column, row, ColumnKind.DOUBLE));
+    }
+
+    public byte getByte(int column, int row) {
+        return buffer.get(position(column, row, ColumnKind.BYTE));
+    }
+
+    /**
+     * 读取字符串列或者文本列
+     */
+    public String getString(int column, int row) {
+        if (kinds[column] == ColumnKind.TEXT) {
+            return getText(column, row);
+        }
+        int code = buffer.getInt(position(column, row, ColumnKind.STRING) + 4);
+        return code < 0 ? null : dictionary(column)[code];
+    }
+
+    private String getText(int column, int row) {
+        int position = position(column, row, ColumnKind.TEXT);
+        int end = buffer.getInt(position);
+        if (end < 0) {
+            return null;
+        }
+        int start = row == 0 ? 0 : buffer.getInt(position - 4);
+        if (start < 0) {
+            start = -start - 1;
+        }
+        byte[] bytes = new byte[end - start];
+        ByteBuffer text = buffer.duplicate();
+        text.position(offsets[column] + rows * 4 + start);
+        text.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private String[] dictionary(int column) {
+        String[] dictionary = dictionaries[column];
+        if (dictionary == null) {
+            int offset = offsets[column];
+            int size = buffer.getInt(offset);
+            int entries = offset + 4 + rows * 4;
+            int heap = entries + (size + 1) * 4;
+            dictionary = new String[size];
+            for (int i = 0; i < size; i++) {
+                int start = buffer.getInt(entries + i * 4);
+                int length = buffer.getInt(entries + i * 4 + 4) - start;
+                byte[] bytes = new byte[length];
+                ByteBuffer entry = buffer.duplicate();
+                entry.position(heap + start);
+                entry.get(bytes);
+                dictionary[i] = new String(bytes, StandardCharsets.UTF_8);
+            }
+            // 并发解码时结果相同，不需要加锁
+            dictionaries[column] = dictionary;
+        }
+        return dictionary;
+    }
+
+    private int position(int column, int row, ColumnKind kind) {
+        if (kinds[column] != kind) {
+            throw new IllegalArgumentException("column " + column + " is " + kinds[column] + ", not " + kind);
+        }
+        checkRow(row);
+        // 字符串列的序号在字典大小之后，由调用方加上 4 字节
+        return offsets[column] + row * kind.width;
+    }
+
+    private void checkRow(int row) {
+        if (row < 0 || row >= rows) {
+            throw new IndexOutOfBoundsException("row: " + row + ", rows: " + rows);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,352 @@
+package org.eurekaka.bricks.common.archive;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+
+/**
+ * 列存档案文件的写入
+ *
+ * 文件头: magic(int), version(short), 档案类型(byte), 时间列宽度(byte), 行数(int), price scale(int),
+ * 最小时间(long), 最大时间(long), 列数(short), 每列的类型(byte)、偏移(int)、长度(int)
+ * 每列数据按 8 字节对齐连续存放，第 0 列固定为时间列
+ *
+ * 时间列存储与文件最小时间的差值，字符串使用字典编码，基本不重复的字符串按行存储原文
+ * 价格存储为 10^scale 倍的定点数，scale 为能精确表示文件内所有价格的最小小数位数，
+ * 价格过大或者无法用有限位小数表示时，按定点数不超过 2^53 的最大位数保存
+ * 行按时间顺序写入，读取时可以按时间二分查找
+ *
+ * 所有行缓存在内存中，写入大量数据时由调用方按行数拆分为多个文件
+ */
+public class ColumnarWriter {
+    static final int MAGIC = 0x42524341;
+    static final short VERSION = 1;
+    static final int HEADER_SIZE = 34;
+    static final int COLUMN_ENTRY_SIZE = 9;
+
+    // 价格最多保留的小数位数
+    public static final int MAX_PRICE_SCALE = 16;
+    private static final double[] PRICE_FACTORS = new double[MAX_PRICE_SCALE + 1];
+    // 定点数不超过 2^53 时与 double 之间的转换是精确的
+    private static final double MAX_EXACT_PRICE = 1L << 53;
+
+    static {
+        for (int i = 0; i <= MAX_PRICE_SCALE; i++) {
+            PRICE_FACTORS[i] = Math.pow(10, i);
+        }
+    }
+
+    private final byte type;
+    private final Column[] columns;
+
+    private long[] times;
+    private int rows;
+    // 当前行写入到的列
+    private int cursor;
+
+    /**
+     * @param type 档案类型
+     * @param kinds 时间列之后每一列的类型
+     */
+    public ColumnarWriter(byte type, ColumnKind... kinds) {
+        this.type = type;
+        this.columns = new Column[kinds.length];
+        for (int i = 0; i < kinds.length; i++) {
+            if (kinds[i] == ColumnKind.TIME) {
+                throw new IllegalArgumentException("time column is implicit");
+            }
+            columns[i] = new Column(kinds[i]);
+        }
+        this.times = new long[64];
+        this.rows = 0;
+        this.cursor = -1;
+    }
+
+    public ColumnarWriter beginRow(long time) {
+        if (cursor >= 0) {
+            throw new IllegalStateException("previous row is not ended");
+        }
+        if (rows > 0 && time < times[rows - 1]) {
+            throw new IllegalArgumentException("rows must be written in time order, time: " +
+                    time + ", last time: " + times[rows - 1]);
+        }
+        if (rows == times.length) {
+            times = Arrays.copyOf(times, rows << 1);
+        }
+        times[rows] = time;
+        cursor = 0;
+        return this;
+    }
+
+    public ColumnarWriter putLong(long value) {
+        next(ColumnKind.LONG).addLong(value, rows);
+        return this;
+    }
+
+    // 写入文件时确定 price scale 后再转换为定点数
+    public ColumnarWriter putPrice(double value) {
+        next(ColumnKind.PRICE).addLong(Double.doubleToRawLongBits(value), rows);
+        return this;
+    }
+
+    public ColumnarWriter putDouble(double value) {
+        next(ColumnKind.DOUBLE).addLong(Double.doubleToRawLongBits(value), rows);
+        return this;
+    }
+
+    public ColumnarWriter putByte(byte value) {
+        next(ColumnKind.BYTE).addLong(value, rows);
+        return this;
+    }
+
+    public ColumnarWriter putString(String value) {
+        Column column = next(ColumnKind.STRING);
+        column.addLong(column.code(value), rows);
+        return this;
+    }
+
+    public ColumnarWriter putText(String value) {
+        Column column = next(ColumnKind.TEXT);
+        column.addLong(column.append(value), rows);
+        return this;
+    }
+
+    public void endRow() {
+        if (cursor != columns.length) {
+            throw new IllegalStateException("row has " + cursor + " columns, expected " + columns.length);
+        }
+        rows++;
+        cursor = -1;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    private Column next(ColumnKind kind) {
+        if (cursor < 0 || cursor >= columns.length) {
+            throw new IllegalStateException("no column to write, cursor: " + cursor);
+        }
+        Column column = columns[cursor];
+        if (column.kind != kind) {
+            throw new IllegalStateException("column " + (cursor + 1) + " is " + column.kind + ", not " + kind);
+        }
+        cursor++;
+        return column;
+    }
+
+    /**
+     * 先写入临时文件，完成后替换目标文件
+     */
+    public void write(Path path) throws IOException {
+        if (cursor >= 0) {
+            throw new IllegalStateException("last row is not ended");
+        }
+        long minTime = rows == 0 ? 0 : times[0];
+        long maxTime = rows == 0 ? 0 : times[rows - 1];
+        int timeWidth = maxTime - minTime <= Integer.MAX_VALUE ? 4 : 8;
+        int priceScale = priceScale();
+
+        int columnCount = columns.length + 1;
+        int[] lengths = new int[columnCount];
+        lengths[0] = rows * timeWidth;
+        for (int i = 0; i < columns.length; i++) {
+            lengths[i + 1] = columns[i].length(rows);
+        }
+        int[] offsets = new int[columnCount];
+        long offset = align(HEADER_SIZE + (long) columnCount * COLUMN_ENTRY_SIZE);
+        for (int i = 0; i < columnCount; i++) {
+            offsets[i] = (int) offset;
+            offset = align(offset + lengths[i]);
+            if (offset > Integer.MAX_VALUE) {
+                throw new IOException("archive file is too large, rows: " + rows);
+            }
+        }
+
+        Path tmp = Paths.get(path.toString() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeByte(type);
+            out.writeByte(timeWidth);
+            out.writeInt(rows);
+            out.writeInt(priceScale);
+            out.writeLong(minTime);
+            out.writeLong(maxTime);
+            out.writeShort(columnCount);
+            for (int i = 0; i < columnCount; i++) {
+                out.writeByte(i == 0 ? ColumnKind.TIME.id : columns[i - 1].kind.id);
+                out.writeInt(offsets[i]);
+                out.writeInt(lengths[i]);
+            }
+
+            for (int i = 0; i < columnCount; i++) {
+                pad(out, offsets[i]);
+                if (i == 0) {
+                    for (int row = 0; row < rows; row++) {
+                        if (timeWidth == 4) {
+                            out.writeInt((int) (times[row] - minTime));
+                        } else {
+                            out.writeLong(times[row] - minTime);
+                        }
+                    }
+                } else {
+                    columns[i - 1].write(out, rows, PRICE_FACTORS[priceScale]);
+                }
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private int priceScale() {
+        int scale = 0;
+        double max = 0;
+        for (Column column : columns) {
+            if (column.kind != ColumnKind.PRICE) {
+                continue;
+            }
+            for (int row = 0; row < rows; row++) {
+                double price = Double.longBitsToDouble(column.values[row]);
+                if (!Double.isFinite(price)) {
+                    continue;
+                }
+                max = Math.max(max, Math.abs(price));
+                while (scale < MAX_PRICE_SCALE &&
+                        Math.round(price * PRICE_FACTORS[scale]) / PRICE_FACTORS[scale] != price) {
+                    scale++;
+                }
+            }
+        }
+        while (scale > 0 && max * PRICE_FACTORS[scale] > MAX_EXACT_PRICE) {
+            scale--;
+        }
+        return scale;
+    }
+
+    private static long align(long offset) {
+        return (offset + 7) & ~7L;
+    }
+
+    private static void pad(DataOutputStream out, int offset) throws IOException {
+        while (out.size() < offset) {
+            out.writeByte(0);
+        }
+    }
+
+    private static class Column {
+        final ColumnKind kind;
+        // 所有数值统一以 long 缓存，写入时按列类型输出
+        long[] values;
+
+        // 字符串字典
+        Map<String, Integer> codes;
+        List<byte[]> entries;
+        int heapLength;
+        // 按行存储的字符串内容
+        byte[] text;
+
+        Column(ColumnKind kind) {
+            this.kind = kind;
+            this.values = new long[64];
+            if (kind == ColumnKind.STRING) {
+                this.codes = new HashMap<>();
+                this.entries = new ArrayList<>();
+            } else if (kind == ColumnKind.TEXT) {
+                this.text = new byte[256];
+            }
+        }
+
+        void addLong(long value, int row) {
+            if (row == values.length) {
+                values = Arrays.copyOf(values, row << 1);
+            }
+            values[row] = value;
+        }
+
+        int code(String value) {
+            if (value == null) {
+                return -1;
+            }
+            Integer code = codes.get(value);
+            if (code == null) {
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                code = entries.size();
+                codes.put(value, code);
+                entries.add(bytes);
+                heapLength += bytes.length;
+            }
+            return code;
+        }
+
+        /**
+         * @return 当前行内容的结束偏移，null 时为 -(结束偏移) - 1
+         */
+        int append(String value) {
+            if (value == null) {
+                return -heapLength - 1;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            if (heapLength + bytes.length > text.length) {
+                text = Arrays.copyOf(text, Math.max(text.length << 1, heapLength + bytes.length));
+            }
+            System.arraycopy(bytes, 0, text, heapLength, bytes.length);
+            heapLength += bytes.length;
+            return heapLength;
+        }
+
+        // 字符串列: 字典大小(int), 每行序号(int), 字典偏移(int * (字典大小 + 1)), 字典内容
+        // 文本列: 每行结束偏移(int), 内容
+        int length(int rows) {
+            if (kind == ColumnKind.STRING) {
+                return 4 + rows * 4 + (entries.size() + 1) * 4 + heapLength;
+            } else if (kind == ColumnKind.TEXT) {
+                return rows * 4 + heapLength;
+            }
+            return rows * kind.width;
+        }
+
+        void write(DataOutputStream out, int rows, double priceFactor) throws IOException {
+            if (kind == ColumnKind.STRING) {
+                out.writeInt(entries.size());
+                for (int row = 0; row < rows; row++) {
+                    out.writeInt((int) values[row]);
+                }
+                int offset = 0;
+                for (byte[] entry : entries) {
+                    out.writeInt(offset);
+                    offset += entry.length;
+                }
+                out.writeInt(offset);
+                for (byte[] entry : entries) {
+                    out.write(entry);
+                }
+            } else if (kind == ColumnKind.TEXT) {
+                for (int row = 0; row < rows; row++) {
+                    out.writeInt((int) values[row]);
+                }
+                out.write(text, 0, heapLength);
+            } else if (kind == ColumnKind.PRICE) {
+                for (int row = 0; row < rows; row++) {
+                    out.writeLong(Math.round(Double.longBitsToDouble(values[row]) * priceFactor));
+                }
+            } else if (kind == ColumnKind.BYTE) {
+                for (int row = 0; row < rows; row++) {
+                    out.writeByte((int) values[row]);
+                }
+            } else {
+                for (int row = 0; row < rows; row++) {
+                    out.writeLong(values[row]);
+                }
+            }
+        }
+    }
+}
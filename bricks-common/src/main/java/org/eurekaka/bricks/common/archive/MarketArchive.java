@@ -0,0 +1,260 @@
+package org.eurekaka.bricks.common.archive;
+
+import org.eurekaka.bricks.common.model.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * k线、深度增量、成交记录与仓位的列存档案
+ * 每个文件只存储一种记录，记录需要按时间顺序写入
+ */
+public class MarketArchive {
+    public static final byte KLINE = 1;
+    public static final byte ORDER_BOOK = 2;
+    public static final byte TRADE = 3;
+    public static final byte POSITION = 4;
+
+    // 深度档位的方向，一条深度增量没有任何档位时写入一行 EMPTY
+    static final byte BID = 0;
+    static final byte ASK = 1;
+    static final byte EMPTY = -1;
+
+    private static final ColumnKind[] KLINE_COLUMNS = {
+            ColumnKind.STRING, ColumnKind.STRING, ColumnKind.PRICE, ColumnKind.PRICE,
+            ColumnKind.PRICE, ColumnKind.PRICE, ColumnKind.DOUBLE};
+
+    private static final ColumnKind[] ORDER_BOOK_COLUMNS = {
+            ColumnKind.LONG, ColumnKind.LONG, ColumnKind.BYTE, ColumnKind.PRICE, ColumnKind.DOUBLE};
+
+    // fill id 与订单 id 基本不重复，不使用字典
+    private static final ColumnKind[] TRADE_COLUMNS = {
+            ColumnKind.TEXT, ColumnKind.TEXT, ColumnKind.TEXT, ColumnKind.STRING,
+            ColumnKind.STRING, ColumnKind.STRING, ColumnKind.BYTE, ColumnKind.BYTE,
+            ColumnKind.PRICE, ColumnKind.DOUBLE, ColumnKind.DOUBLE, ColumnKind.STRING, ColumnKind.DOUBLE};
+
+    private static final ColumnKind[] POSITION_COLUMNS = {
+            ColumnKind.STRING, ColumnKind.STRING, ColumnKind.STRING, ColumnKind.DOUBLE,
+            ColumnKind.PRICE, ColumnKind.LONG, ColumnKind.PRICE, ColumnKind.DOUBLE};
+
+    private MarketArchive() {}
+
+    public static ColumnarWriter kLineWriter() {
+        return new ColumnarWriter(KLINE, KLINE_COLUMNS);
+    }
+
+    public static void addKLine(ColumnarWriter writer, KLineValue value) {
+        writer.beginRow(value.time)
+                .putString(value.name)
+                .putString(value.symbol)
+                .putPrice(value.open)
+                .putPrice(value.close)
+                .putPrice(value.highest)
+                .putPrice(value.lowest)
+                .putDouble(value.volume)
+                .endRow();
+    }
+
+    public static void writeKLines(Path path, List<KLineValue> values) throws IOException {
+        ColumnarWriter writer = kLineWriter();
+        for (KLineValue value : values) {
+            addKLine(writer, value);
+        }
+        writer.write(path);
+    }
+
+    /**
+     * @return [start, stop) 范围内的 k 线
+     */
+    public static List<KLineValue> readKLines(ColumnarReader reader, long start, long stop) {
+        checkType(reader, KLINE);
+        List<KLineValue> values = new ArrayList<>();
+        for (int row = reader.lowerBound(start); row < reader.getRows(); row++) {
+            long time = reader.getTime(row);
+            if (time >= stop) {
+                break;
+            }
+            values.add(new KLineValue(time, reader.getString(1, row), reader.getString(2, row),
+                    reader.getPrice(3, row), reader.getPrice(4, row),
+                    reader.getPrice(5, row), reader.getPrice(6, row), reader.getDouble(7, row)));
+        }
+        return values;
+    }
+
+    public static ColumnarWriter orderBookWriter() {
+        return new ColumnarWriter(ORDER_BOOK, ORDER_BOOK_COLUMNS);
+    }
+
+    /**
+     * 深度增量按档位展开为多行，读取时按相邻行的 update id 合并
+     * @param time 收到深度增量的时间
+     */
+    public static void addOrderBook(ColumnarWriter writer, long time, OrderBookValue value) {
+        for (int i = 0; i < value.bids.size(); i++) {
+            addLevel(writer, time, value, BID, value.bids.getPrice(i), value.bids.getSize(i));
+        }
+        for (int i = 0; i < value.asks.size(); i++) {
+            addLevel(writer, time, value, ASK, value.asks.getPrice(i), value.asks.getSize(i));
+        }
+        if (value.bids.isEmpty() && value.asks.isEmpty()) {
+            addLevel(writer, time, value, EMPTY, 0, 0);
+        }
+    }
+
+    private static void addLevel(ColumnarWriter writer, long time, OrderBookValue value,
+                                 byte side, double price, double size) {
+        writer.beginRow(time)
+                .putLong(value.firstUpdateId)
+                .putLong(value.lastUpdateId)
+                .putByte(side)
+                .putPrice(price)
+                .putDouble(size)
+                .endRow();
+    }
+
+    public static void writeOrderBooks(Path path, List<OrderBookEntry> entries) throws IOException {
+        ColumnarWriter writer = orderBookWriter();
+        for (OrderBookEntry entry : entries) {
+            addOrderBook(writer, entry.time, entry.value);
+        }
+        writer.write(path);
+    }
+
+    public static List<OrderBookEntry> readOrderBooks(ColumnarReader reader, long start, long stop) {
+        checkType(reader, ORDER_BOOK);
+        List<OrderBookEntry> entries = new ArrayList<>();
+        int row = reader.lowerBound(start);
+        while (row < reader.getRows()) {
+            long time = reader.getTime(row);
+            if (time >= stop) {
+                break;
+            }
+            long firstUpdateId = reader.getLong(1, row);
+            long lastUpdateId = reader.getLong(2, row);
+            PriceSizeBuffer bids = new PriceSizeBuffer();
+            PriceSizeBuffer asks = new PriceSizeBuffer();
+            while (row < reader.getRows() && reader.getTime(row) == time &&
+                    reader.getLong(1, row) == firstUpdateId && reader.getLong(2, row) == lastUpdateId) {
+                byte side = reader.getByte(3, row);
+                if (side == BID) {
+                    bids.add(reader.getPrice(4, row), reader.getDouble(5, row));
+                } else if (side == ASK) {
+                    asks.add(reader.getPrice(4, row), reader.getDouble(5, row));
+                }
+                row++;
+            }
+            entries.add(new OrderBookEntry(time, new OrderBookValue(lastUpdateId, firstUpdateId, bids, asks)));
+        }
+        return entries;
+    }
+
+    public static ColumnarWriter tradeWriter() {
+        return new ColumnarWriter(TRADE, TRADE_COLUMNS);
+    }
+
+    public static void addTrade(ColumnarWriter writer, TradeNotification trade) {
+        writer.beginRow(trade.getTime())
+                .putText(trade.getFillId())
+                .putText(trade.getClientOrderId())
+                .putText(trade.getOrderId())
+                .putString(trade.getAccount())
+                .putString(trade.getName())
+                .putString(trade.getSymbol())
+                .putByte((byte) trade.getSide().ordinal())
+                .putByte((byte) trade.getType().ordinal())
+                .putPrice(trade.getPrice())
+                .putDouble(trade.getSize())
+                .putDouble(trade.getResult())
+                .putString(trade.getFeeAsset())
+                .putDouble(trade.getFee())
+                .endRow();
+    }
+
+    public static void writeTrades(Path path, List<TradeNotification> trades) throws IOException {
+        ColumnarWriter writer = tradeWriter();
+        for (TradeNotification trade : trades) {
+            addTrade(writer, trade);
+        }
+        writer.write(path);
+    }
+
+    public static List<TradeNotification> readTrades(ColumnarReader reader, long start, long stop) {
+        checkType(reader, TRADE);
+        List<TradeNotification> trades = new ArrayList<>();
+        for (int row = reader.lowerBound(start); row < reader.getRows(); row++) {
+            long time = reader.getTime(row);
+            if (time >= stop) {
+                break;
+            }
+            trades.add(new TradeNotification(reader.getString(1, row), reader.getString(2, row),
+                    reader.getString(3, row), reader.getString(4, row),
+                    reader.getString(5, row), reader.getString(6, row),
+                    OrderSide.values()[reader.getByte(7, row)], OrderType.values()[reader.getByte(8, row)],
+                    reader.getPrice(9, row), reader.getDouble(10, row), reader.getDouble(11, row),
+                    reader.getString(12, row), reader.getDouble(13, row), time));
+        }
+        return trades;
+    }
+
+    public static ColumnarWriter positionWriter() {
+        return new ColumnarWriter(POSITION, POSITION_COLUMNS);
+    }
+
+    public static void addPosition(ColumnarWriter writer, PositionValue value) {
+        writer.beginRow(value.getTime())
+                .putString(value.getName())
+                .putString(value.getSymbol())
+                .putString(value.getAccount())
+                .putDouble(value.getSize())
+                .putPrice(value.getPrice())
+                .putLong(value.getQuantity())
+                .putPrice(value.getEntryPrice())
+                .putDouble(value.getUnPnl())
+                .endRow();
+    }
+
+    public static void writePositions(Path path, List<PositionValue> values) throws IOException {
+        ColumnarWriter writer = positionWriter();
+        for (PositionValue value : values) {
+            addPosition(writer, value);
+        }
+        writer.write(path);
+    }
+
+    public static List<PositionValue> readPositions(ColumnarReader reader, long start, long stop) {
+        checkType(reader, POSITION);
+        List<PositionValue> values = new ArrayList<>();
+        for (int row = reader.lowerBound(start); row < reader.getRows(); row++) {
+            long time = reader.getTime(row);
+            if (time >= stop) {
+                break;
+            }
+            values.add(new PositionValue(reader.getString(1, row), reader.getString(2, row),
+                    reader.getString(3, row), reader.getDouble(4, row), reader.getPrice(5, row),
+                    reader.getLong(6, row), reader.getPrice(7, row), reader.getDouble(8, row), time));
+        }
+        return values;
+    }
+
+    private static void checkType(ColumnarReader reader, byte type) {
+        if (reader.getType() != type) {
+            throw new IllegalArgumentException("archive " + reader.getPath() +
+                    " has type " + reader.getType() + ", expected " + type);
+        }
+    }
+
+    /**
+     * 带接收时间的深度增量
+     */
+    public static class OrderBookEntry {
+        public final long time;
+        public final OrderBookValue value;
+
+        public OrderBookEntry(long time, OrderBookValue value) {
+            this.time = time;
+            this.value = value;
+        }
+    }
+}
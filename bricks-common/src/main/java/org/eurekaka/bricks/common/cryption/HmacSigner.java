@@ -0,0 +1,165 @@
+package org.eurekaka.bricks.common.cryption;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.InvalidKeyException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * 账户级别的 hmac 签名器，替代每次请求调用 Utils.initialHMac
+ * Mac 与 MessageDigest 非线程安全，每个线程持有独立实例，初始化一次后重复使用，
+ * 待签名内容通过 builder() 在线程内复用的缓冲中构造
+ */
+public class HmacSigner {
+    public static final String HMAC_SHA256 = "HmacSHA256";
+    public static final String HMAC_SHA512 = "HmacSHA512";
+
+    private static final char[] DIGITS_LOWER = "0123456789abcdef".toCharArray();
+
+    private final String algo;
+    private final SecretKeySpec key;
+    private final ThreadLocal<Context> contexts;
+
+    /**
+     * @param secret 账户密钥，为空时只有在签名时才抛出异常，与只订阅行情的账户兼容
+     * @param algo HmacSHA256, HmacSHA512
+     */
+    public HmacSigner(String secret, String algo) {
+        this.algo = algo;
+        this.key = secret == null || secret.isEmpty() ? null : new SecretKeySpec(secret.getBytes(), algo);
+        if (key != null) {
+            // 提前检查算法与密钥是否可用
+            newMac();
+        }
+        this.contexts = ThreadLocal.withInitial(() -> new Context(newMac()));
+    }
+
+    private Mac newMac() {
+        if (key == null) {
+            throw new IllegalStateException("failed to create hmac " + algo + ", secret is missing");
+        }
+        try {
+            Mac mac = Mac.getInstance(algo);
+            mac.init(key);
+            return mac;
+        } catch (NoSuchAlgorithmException | InvalidKeyException e) {
+            throw new RuntimeException("failed to create hmac " + algo, e);
+        }
+    }
+
+    /**
+     * 当前线程复用的 StringBuilder，用于拼接待签名内容，每次调用都会清空
+     * 同一线程在签名完成之前不能再次调用
+     */
+    public StringBuilder builder() {
+        StringBuilder builder = contexts.get().builder;
+        builder.setLength(0);
+        return builder;
+    }
+
+    public String signHex(CharSequence content) {
+        return signHex(content, 0, content.length());
+    }
+
+    /**
+     * 对 content 的 [start, end) 区间签名
+     * @return 小写十六进制签名
+     */
+    public String signHex(CharSequence content, int start, int end) {
+        Context context = contexts.get();
+        byte[] digest = context.sign(content, start, end);
+        return context.toHex(digest);
+    }
+
+    public String signBase64(CharSequence content) {
+        Context context = contexts.get();
+        byte[] digest = context.sign(content, 0, content.length());
+        return Base64.getEncoder().encodeToString(digest);
+    }
+
+    /**
+     * 请求体的 sha512 摘要，gate 签名内容需要包含请求体的摘要
+     * @return 小写十六进制摘要
+     */
+    public String sha512Hex(CharSequence content) {
+        Context context = contexts.get();
+        return context.toHex(context.sha512(content));
+    }
+
+    private static class Context {
+        final Mac mac;
+        final StringBuilder builder = new StringBuilder(256);
+        final byte[] digest;
+        MessageDigest sha512;
+        byte[] input = new byte[256];
+        char[] hex = new char[128];
+
+        Context(Mac mac) {
+            this.mac = mac;
+            this.digest = new byte[mac.getMacLength()];
+        }
+
+        byte[] sign(CharSequence content, int start, int end) {
+            int length = encode(content, start, end);
+            mac.update(input, 0, length);
+            try {
+                mac.doFinal(digest, 0);
+            } catch (Exception e) {
+                throw new IllegalStateException("failed to sign content", e);
+            }
+            return digest;
+        }
+
+        byte[] sha512(CharSequence content) {
+            if (sha512 == null) {
+                try {
+                    sha512 = MessageDigest.getInstance("SHA-512");
+                } catch (NoSuchAlgorithmException e) {
+                    throw new RuntimeException("failed to do sha512 hash", e);
+                }
+            }
+            int length = encode(content, 0, content.length());
+            sha512.update(input, 0, length);
+            return sha512.digest();
+        }
+
+        // ascii 内容直接写入复用的缓冲，其余按 utf-8 编码
+        int encode(CharSequence content, int start, int end) {
+            int length = end - start;
+            if (input.length < length) {
+                input = new byte[Math.max(length, input.length << 1)];
+            }
+            for (int i = 0; i < length; i++) {
+                char c = content.charAt(start + i);
+                if (c >= 0x80) {
+                    byte[] bytes = content.subSequence(start, end).toString()
+                            .getBytes(StandardCharsets.UTF_8);
+                    if (input.length < bytes.length) {
+                        input = Arrays.copyOf(bytes, bytes.length);
+                    } else {
+                        System.arraycopy(bytes, 0, input, 0, bytes.length);
+                    }
+                    return bytes.length;
+                }
+                input[i] = (byte) c;
+            }
+            return length;
+        }
+
+        String toHex(byte[] data) {
+            int length = data.length << 1;
+            if (hex.length < length) {
+                hex = new char[length];
+            }
+            for (int i = 0, j = 0; i < data.length; i++) {
+                hex[j++] = DIGITS_LOWER[(0xf0 & data[i]) >>> 4];
+                hex[j++] = DIGITS_LOWER[0x0f & data[i]];
+            }
+            return new String(hex, 0, length);
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package org.eurekaka.bricks.common.exception;
+
+/**
+ * 交易所未实现对应的接口，请求未发送到交易所
+ * 与执行失败区分，调用方可以安全地改用其它接口
+ */
+public class ExApiNotImplementedException extends ExApiException {
+
+    public ExApiNotImplementedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,14 @@
+package org.eurekaka.bricks.common.exception;
+
+import java.io.IOException;
+
+/**
+ * 请求在客户端被限频拒绝，未发送到交易所
+ * 继承 IOException，与 HttpClient.send 的异常声明保持一致
+ */
+public class RateLimitException extends IOException {
+
+    public RateLimitException(String message) {
+        super(message);
+    }
+}
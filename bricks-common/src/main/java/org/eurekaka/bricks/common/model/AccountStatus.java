@@ -26,11 +26,11 @@ public class AccountStatus {
     // k line ticker 数据
     private final Map<String, List<KLineValue>> klineValues;
 
-    // 大堆，first entry key 价格最高
-    private final Map<String, TreeMap<Double, Double>> bidOrderBooks;
+    // 买盘，level 0 价格最高
+    private final Map<String, OrderBook> bidOrderBooks;
 
-    // 小堆，first entry key 价格最低
-    private final Map<String, TreeMap<Double, Double>> askOrderBooks;
+    // 卖盘，level 0 价格最低
+    private final Map<String, OrderBook> askOrderBooks;
 
     // 买一
     private final Map<String, Double> topBids;
@@ -55,15 +55,16 @@ public class AccountStatus {
     public AccountStatus() {
         this.symbols = new ConcurrentHashMap<>();
         this.netValues = new ConcurrentHashMap<>();
-        this.bidOrderBooks = new HashMap<>();
-        this.askOrderBooks = new HashMap<>();
+        // websocket线程写入，策略线程读取
+        this.bidOrderBooks = new ConcurrentHashMap<>();
+        this.askOrderBooks = new ConcurrentHashMap<>();
         this.markUsdt = 1D;
         this.currencyRate = 0;
         this.balances = new ConcurrentHashMap<>();
         this.klineValues = new ConcurrentHashMap<>();
         this.orderBookValues = new ConcurrentHashMap<>();
-        this.topBids = new HashMap<>();
-        this.topAsks = new HashMap<>();
+        this.topBids = new ConcurrentHashMap<>();
+        this.topAsks = new ConcurrentHashMap<>();
     }
 
     public Map<String, String> getSymbols() {
@@ -74,14 +75,24 @@ public class AccountStatus {
         return netValues;
     }
 
-    public Map<String, TreeMap<Double, Double>> getBidOrderBooks() {
+    public Map<String, OrderBook> getBidOrderBooks() {
         return bidOrderBooks;
     }
 
-    public Map<String, TreeMap<Double, Double>> getAskOrderBooks() {
+    public Map<String, OrderBook> getAskOrderBooks() {
         return askOrderBooks;
     }
 
+    /**
+     * 初始化交易对的买卖盘，已存在则忽略
+     * @param symbol 交易对
+     * @param pricePrecision 价格精度，用于订单簿定点价格转换
+     */
+    public void addOrderBooks(String symbol, double pricePrecision) {
+        bidOrderBooks.computeIfAbsent(symbol, k -> new OrderBook(true, pricePrecision));
+        askOrderBooks.computeIfAbsent(symbol, k -> new OrderBook(false, pricePrecision));
+    }
+
     public Map<String, Double> getTopBids() {
         return topBids;
     }
@@ -135,104 +146,172 @@ public class AccountStatus {
         return klineValues;
     }
 
+    /**
+     * websocket线程增量更新订单簿
+     * 与 buildOrderBookValue 通过 order book value 缓存同步，保证同一时间只有一个写入方
+     * @return update id 不连续时返回 false，需要重新构建订单簿
+     */
     public boolean updateOrderBookValue(String symbol, OrderBookValue orderBookValue) {
         // 更新原有的order book
-        if (orderBookValues.containsKey(symbol)) {
+        LinkedList<OrderBookValue> bookValues = orderBookValues.get(symbol);
+        if (bookValues != null) {
             // 缓存order book value
-//            synchronized (orderBookValues.get(symbol)) {
-//
-//            }
-            LinkedList<OrderBookValue> bookValues = orderBookValues.get(symbol);
-            if (!bookValues.isEmpty() &&
-                    orderBookValue.firstUpdateId != bookValues.getLast().lastUpdateId + 1) {
-                // 此时id序列号不连续，重新构建order book
-                bookValues.clear();
-                return false;
-            }
-            bookValues.add(orderBookValue);
+            synchronized (bookValues) {
+                if (!bookValues.isEmpty() &&
+                        orderBookValue.firstUpdateId != bookValues.getLast().lastUpdateId + 1) {
+                    // 此时id序列号不连续，重新构建order book
+                    bookValues.clear();
+                    return false;
+                }
+                bookValues.add(orderBookValue);
 
-            if (!orderBookValue.bids.isEmpty()) {
-//                synchronized (bidOrderBooks.get(symbol)) {
-//                }
-                updateOrderBookValuePair(bidOrderBooks.get(symbol), orderBookValue.bids);
-            }
+                if (!orderBookValue.bids.isEmpty()) {
+                    updateOrderBookValuePair(bidOrderBooks.get(symbol),
+                            orderBookValue.bids, orderBookValue.lastUpdateId);
+                }
 
-            if (!orderBookValue.asks.isEmpty()) {
-//                synchronized (askOrderBooks.get(symbol)) {
-//                }
-                updateOrderBookValuePair(askOrderBooks.get(symbol), orderBookValue.asks);
+                if (!orderBookValue.asks.isEmpty()) {
+                    updateOrderBookValuePair(askOrderBooks.get(symbol),
+                            orderBookValue.asks, orderBookValue.lastUpdateId);
+                }
             }
         }
         return true;
     }
 
-    // not thread safe
+    /**
+     * 根据rest接口获取的snapshot重建订单簿，并重放缓存的增量数据
+     * 订单簿在原对象上重建，读取方持有的快照可以通过版本号检查是否过期
+     */
     public void buildOrderBookValue(String symbol, OrderBookValue orderBookValue) {
-        // 根据snapshot, 更新tree map
-        TreeMap<Double, Double> bidTreeMap = new TreeMap<>(Comparator.reverseOrder());
-        TreeMap<Double, Double> askTreeMap = new TreeMap<>(Comparator.naturalOrder());
-
-        updateOrderBookValuePair(bidTreeMap, orderBookValue.bids);
-        updateOrderBookValuePair(askTreeMap, orderBookValue.asks);
+        LinkedList<OrderBookValue> bookValues = this.orderBookValues.get(symbol);
+        if (bookValues == null) {
+            rebuildOrderBook(symbol, orderBookValue, null);
+        } else {
+            synchronized (bookValues) {
+                rebuildOrderBook(symbol, orderBookValue, bookValues);
+            }
+        }
+    }
 
-        // 检查当前status内的order book values缓存，检查可用
-        List<OrderBookValue> bookValues = this.orderBookValues.get(symbol);
-        if (bookValues != null) {
-            boolean found = false;
-            for (OrderBookValue bookValue : bookValues) {
-                if (orderBookValue.lastUpdateId <= bookValue.lastUpdateId) {
-                    found = true;
-                }
-                if (found) {
-                    updateOrderBookValuePair(bidTreeMap, bookValue.bids);
-                    updateOrderBookValuePair(askTreeMap, bookValue.asks);
+    private void rebuildOrderBook(String symbol, OrderBookValue orderBookValue,
+                                  List<OrderBookValue> bookValues) {
+        addOrderBooks(symbol, 0);
+        OrderBook bidBook = bidOrderBooks.get(symbol);
+        OrderBook askBook = askOrderBooks.get(symbol);
+        long lastUpdateId = orderBookValue.lastUpdateId;
+
+        // 固定先买盘后卖盘的加锁顺序
+        long bidStamp = bidBook.beginUpdate();
+        try {
+            long askStamp = askBook.beginUpdate();
+            try {
+                bidBook.clear();
+                askBook.clear();
+                updateOrderBookValuePair(bidBook, orderBookValue.bids);
+                updateOrderBookValuePair(askBook, orderBookValue.asks);
+
+                // 检查当前status内的order book values缓存，检查可用
+                if (bookValues != null) {
+                    boolean found = false;
+                    for (OrderBookValue bookValue : bookValues) {
+                        if (orderBookValue.lastUpdateId <= bookValue.lastUpdateId) {
+                            found = true;
+                        }
+                        if (found) {
+                            updateOrderBookValuePair(bidBook, bookValue.bids);
+                            updateOrderBookValuePair(askBook, bookValue.asks);
+                            lastUpdateId = bookValue.lastUpdateId;
+                        }
+                    }
                 }
+            } finally {
+                askBook.endUpdate(askStamp, lastUpdateId);
             }
+        } finally {
+            bidBook.endUpdate(bidStamp, lastUpdateId);
         }
-
-        bidOrderBooks.put(symbol, bidTreeMap);
-        askOrderBooks.put(symbol, askTreeMap);
     }
 
     public void buildOrderBook(String symbol, List<OrderBookValue.PriceSizePair> bidPairs,
                                     List<OrderBookValue.PriceSizePair> askPairs) {
-        TreeMap<Double, Double> bidTreeMap = new TreeMap<>(Comparator.reverseOrder());
-        TreeMap<Double, Double> askTreeMap = new TreeMap<>(Comparator.naturalOrder());
-
-        for (OrderBookValue.PriceSizePair pair : bidPairs) {
-            bidTreeMap.put(pair.price, pair.size);
-        }
-        for (OrderBookValue.PriceSizePair pair : askPairs) {
-            askTreeMap.put(pair.price, pair.size);
+        addOrderBooks(symbol, 0);
+        OrderBook bidBook = bidOrderBooks.get(symbol);
+        OrderBook askBook = askOrderBooks.get(symbol);
+
+        long stamp = bidBook.beginUpdate();
+        try {
+            bidBook.clear();
+            updateOrderBookValuePair(bidBook, bidPairs);
+        } finally {
+            bidBook.endUpdate(stamp);
         }
 
-        bidOrderBooks.put(symbol, bidTreeMap);
-        askOrderBooks.put(symbol, askTreeMap);
+        stamp = askBook.beginUpdate();
+        try {
+            askBook.clear();
+            updateOrderBookValuePair(askBook, askPairs);
+        } finally {
+            askBook.endUpdate(stamp);
+        }
     }
 
     public void updateOrderBook(String symbol, List<OrderBookValue.PriceSizePair> bidPairs,
                                List<OrderBookValue.PriceSizePair> askPairs) {
         if (!bidPairs.isEmpty()) {
-//            synchronized (bidOrderBooks.get(symbol)) {
-//            }
-            updateOrderBookValuePair(bidOrderBooks.get(symbol), bidPairs);
+            OrderBook bidBook = bidOrderBooks.get(symbol);
+            if (bidBook != null) {
+                updateOrderBookValuePair(bidBook, bidPairs, bidBook.getUpdateId());
+            }
         }
 
         if (!askPairs.isEmpty()) {
-//            synchronized (askOrderBooks.get(symbol)) {
-//            }
-            updateOrderBookValuePair(askOrderBooks.get(symbol), askPairs);
+            OrderBook askBook = askOrderBooks.get(symbol);
+            if (askBook != null) {
+                updateOrderBookValuePair(askBook, askPairs, askBook.getUpdateId());
+            }
         }
     }
 
+    // 批量写入并发布新版本
+    private void updateOrderBookValuePair(OrderBook orderBook,
+                                          List<OrderBookValue.PriceSizePair> pairs, long updateId) {
+        if (orderBook == null) {
+            return;
+        }
+        long stamp = orderBook.beginUpdate();
+        try {
+            updateOrderBookValuePair(orderBook, pairs);
+        } finally {
+            orderBook.endUpdate(stamp, updateId);
+        }
+    }
 
-    private void updateOrderBookValuePair(Map<Double, Double> map, List<OrderBookValue.PriceSizePair> pairs) {
-        for (OrderBookValue.PriceSizePair pair : pairs) {
-            if (pair.size == 0) {
-                map.remove(pair.price);
-            } else {
-                map.put(pair.price, pair.size);
-            }
+    private void updateOrderBookValuePair(OrderBook orderBook, PriceSizeBuffer pairs, long updateId) {
+        if (orderBook == null) {
+            return;
+        }
+        long stamp = orderBook.beginUpdate();
+        try {
+            updateOrderBookValuePair(orderBook, pairs);
+        } finally {
+            orderBook.endUpdate(stamp, updateId);
+        }
+    }
+
+    // 调用方需持有写锁
+    private void updateOrderBookValuePair(OrderBook orderBook, PriceSizeBuffer pairs) {
+        for (int i = 0; i < pairs.size(); i++) {
+            orderBook.update(pairs.getPrice(i), pairs.getSize(i));
+        }
+    }
+
+    // 调用方需持有写锁
+    private void updateOrderBookValuePair(OrderBook orderBook, List<OrderBookValue.PriceSizePair> pairs) {
+        // 使用下标遍历，避免创建iterator
+        for (int i = 0; i < pairs.size(); i++) {
+            OrderBookValue.PriceSizePair pair = pairs.get(i);
+            orderBook.update(pair.price, pair.size);
         }
     }
 
@@ -251,35 +330,20 @@ public class AccountStatus {
      * @param key 当前挂单价格
      * @param value 当前挂单数量
      */
-    private void updateOrderBookTicker(Map<String, TreeMap<Double, Double>> source, String symbol, double key, double value) {
-        if (source.containsKey(symbol) && !source.get(symbol).isEmpty()) {
-            TreeMap<Double, Double> map = source.get(symbol);
-
-            if (map.comparator().compare(map.firstKey(), key) >= 0) {
-                return;
-            }
-
-//            synchronized (source.get(symbol)) {
-//
-//            }
-            Iterator<Map.Entry<Double, Double>> iterator = source.get(symbol).entrySet().iterator();
-            while (iterator.hasNext()) {
-                Map.Entry<Double, Double> it = iterator.next();
-                if (map.comparator().compare(it.getKey(), key) < 0) {
-//                        System.out.println("remove key: " + it.getKey() + ", current: " + key);
-                    iterator.remove();
-                } else {
-                    break;
-                }
-            }
-            if (!iterator.hasNext()) {
-                map.put(key, value);
+    private void updateOrderBookTicker(Map<String, OrderBook> source, String symbol, double key, double value) {
+        OrderBook orderBook = source.get(symbol);
+        if (orderBook != null) {
+            long stamp = orderBook.beginUpdate();
+            try {
+                orderBook.updateTop(key, value);
+            } finally {
+                orderBook.endUpdate(stamp);
             }
         }
     }
 
     public void updateTopBid(String symbol, String account, double bidPrice) {
-        if (symbols.containsKey(symbol) &&
+        if (symbols.containsKey(symbol) && bidOrderBooks.containsKey(symbol) &&
                 !bidOrderBooks.get(symbol).isEmpty()) {
             if (!topBids.containsKey(symbol) || bidPrice != topBids.get(symbol)) {
                 topBids.put(symbol, bidPrice);
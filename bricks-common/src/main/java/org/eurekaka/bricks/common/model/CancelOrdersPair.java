@@ -0,0 +1,35 @@
+package org.eurekaka.bricks.common.model;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * 批量撤单请求，按 client order id 撤单，结果为与 pairs 一一对应的 CompletableFuture 列表
+ */
+public class CancelOrdersPair {
+    public final List<ActionPair> pairs;
+
+    public CancelOrdersPair(List<ActionPair> pairs) {
+        this.pairs = pairs;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof CancelOrdersPair)) return false;
+        CancelOrdersPair that = (CancelOrdersPair) o;
+        return pairs.equals(that.pairs);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(pairs);
+    }
+
+    @Override
+    public String toString() {
+        return "CancelOrdersPair{" +
+                "pairs=" + pairs +
+                '}';
+    }
+}
@@ -0,0 +1,14 @@
+package org.eurekaka.bricks.common.model;
+
+/**
+ * 可合并的行情类通知，同一个 key 只需保留最新的一条
+ * 订单，成交等通知不能实现此接口，必须保证不丢失且有序
+ */
+public interface ConflatableNotification extends Notification {
+
+    /**
+     * 每次发布通知都会调用，应返回预先创建的对象，且不能是 Notification
+     * @return 合并的 key，相同 key 的通知只保留最新值
+     */
+    Object getConflationKey();
+}
@@ -0,0 +1,44 @@
+package org.eurekaka.bricks.common.model;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+public class DepthLadderPair {
+    public final String name;
+    public final String symbol;
+
+    // 最小深度要求列表，返回结果与之一一对应
+    public final int[] depthQtys;
+
+    public DepthLadderPair(String name, String symbol, int... depthQtys) {
+        this.name = name;
+        this.symbol = symbol;
+        this.depthQtys = depthQtys;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof DepthLadderPair)) return false;
+        DepthLadderPair that = (DepthLadderPair) o;
+        return name.equals(that.name) &&
+                symbol.equals(that.symbol) &&
+                Arrays.equals(depthQtys, that.depthQtys);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = Objects.hash(name, symbol);
+        result = 31 * result + Arrays.hashCode(depthQtys);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "DepthLadderPair{" +
+                "name='" + name + '\'' +
+                ", symbol='" + symbol + '\'' +
+                ", depthQtys=" + Arrays.toString(depthQtys) +
+                '}';
+    }
+}
@@ -12,12 +12,23 @@ public class DepthPrice {
     // 实际深度size
     public final double realSize;
 
+    // 计算时订单簿的 update id 与更新时间
+    public final long updateId;
+    public final long timestamp;
+
     public DepthPrice(String name, String symbol, double price, int realQty, double realSize) {
+        this(name, symbol, price, realQty, realSize, 0, 0);
+    }
+
+    public DepthPrice(String name, String symbol, double price, int realQty, double realSize,
+                      long updateId, long timestamp) {
         this.name = name;
         this.symbol = symbol;
         this.price = price;
         this.realQty = realQty;
         this.realSize = realSize;
+        this.updateId = updateId;
+        this.timestamp = timestamp;
     }
 
     @Override
@@ -28,6 +39,8 @@ public class DepthPrice {
                 ", price=" + price +
                 ", realQty=" + realQty +
                 ", realSize=" + realSize +
+                ", updateId=" + updateId +
+                ", timestamp=" + timestamp +
                 '}';
     }
 }
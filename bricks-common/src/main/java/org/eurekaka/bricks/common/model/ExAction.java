@@ -60,6 +60,16 @@ public class ExAction<T> {
         GET_ASK_DEPTH_PRICE,
         GET_BID_TOP_PRICE,
         GET_ASK_TOP_PRICE,
+        // 订单簿一致性快照
+        GET_BID_ORDER_BOOK,
+        GET_ASK_ORDER_BOOK,
+        // 一次查询多个深度对应的价格
+        GET_BID_DEPTH_LADDER,
+        GET_ASK_DEPTH_LADDER,
+        // 客户端限频统计
+        GET_RATE_LIMIT,
+        // rest 连接预热与心跳统计
+        GET_HTTP_CONNECTION,
 
         // 转换统一计价货币参数
         GET_MARK_USDT,
@@ -91,6 +101,11 @@ public class ExAction<T> {
         CANCEL_ORDER_V2,
         GET_CURRENT_ORDER_V2,
         GET_ORDER_V2,
+        // 批量下单撤单，数据为 MakeOrdersPair 与 CancelOrdersPair，结果为与请求一一对应的 CompletableFuture 列表
+        MAKE_ORDERS,
+        CANCEL_ORDERS,
+        // 改单，数据为 ReplaceOrderPair，结果为 CompletableFuture<ReplaceOrderResult>
+        REPLACE_ORDER,
 
         GET_RISK_LIMIT_V2,
         UPDATE_RISK_LIMIT_V2,
@@ -11,10 +11,21 @@ public class ExSymbol {
     public final double pricePrecision;
     public final double sizePrecision;
 
+    // 最小下单数量与最小下单金额，交易所未提供时为 0
+    public final double minSize;
+    public final double minNotional;
+
     public ExSymbol(String symbol, double pricePrecision, double sizePrecision) {
+        this(symbol, pricePrecision, sizePrecision, 0, 0);
+    }
+
+    public ExSymbol(String symbol, double pricePrecision, double sizePrecision,
+                    double minSize, double minNotional) {
         this.symbol = symbol;
         this.pricePrecision = pricePrecision;
         this.sizePrecision = sizePrecision;
+        this.minSize = minSize;
+        this.minNotional = minNotional;
     }
 
     public String getName() {
@@ -31,6 +42,8 @@ public class ExSymbol {
                 "symbol='" + symbol + '\'' +
                 ", pricePrecision=" + pricePrecision +
                 ", sizePrecision=" + sizePrecision +
+                ", minSize=" + minSize +
+                ", minNotional=" + minNotional +
                 '}';
     }
 }
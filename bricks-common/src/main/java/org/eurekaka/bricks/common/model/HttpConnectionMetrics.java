@@ -0,0 +1,100 @@
+package org.eurekaka.bricks.common.model;
+
+/**
+ * 账户 rest 连接的预热与心跳统计
+ */
+public class HttpConnectionMetrics {
+    private final String account;
+    // 最近一次心跳响应的 http 版本，未收到响应时为 null
+    private final String version;
+    // 预热并保持的连接数量，http/2 下为 1
+    private final int warmConnections;
+    // tls 握手次数，持续增长说明连接没有被复用
+    private final long handshakes;
+    private final long heartbeats;
+    private final long heartbeatFailures;
+    private final int consecutiveFailures;
+    // 最近一次心跳的往返时间，微秒
+    private final long lastHeartbeatLatency;
+    private final long lastHeartbeatTime;
+    private final int lastStatus;
+    private final boolean healthy;
+
+    public HttpConnectionMetrics(String account, String version, int warmConnections, long handshakes,
+                                 long heartbeats, long heartbeatFailures, int consecutiveFailures,
+                                 long lastHeartbeatLatency, long lastHeartbeatTime, int lastStatus,
+                                 boolean healthy) {
+        this.account = account;
+        this.version = version;
+        this.warmConnections = warmConnections;
+        this.handshakes = handshakes;
+        this.heartbeats = heartbeats;
+        this.heartbeatFailures = heartbeatFailures;
+        this.consecutiveFailures = consecutiveFailures;
+        this.lastHeartbeatLatency = lastHeartbeatLatency;
+        this.lastHeartbeatTime = lastHeartbeatTime;
+        this.lastStatus = lastStatus;
+        this.healthy = healthy;
+    }
+
+    public String getAccount() {
+        return account;
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    public int getWarmConnections() {
+        return warmConnections;
+    }
+
+    public long getHandshakes() {
+        return handshakes;
+    }
+
+    public long getHeartbeats() {
+        return heartbeats;
+    }
+
+    public long getHeartbeatFailures() {
+        return heartbeatFailures;
+    }
+
+    public int getConsecutiveFailures() {
+        return consecutiveFailures;
+    }
+
+    public long getLastHeartbeatLatency() {
+        return lastHeartbeatLatency;
+    }
+
+    public long getLastHeartbeatTime() {
+        return lastHeartbeatTime;
+    }
+
+    public int getLastStatus() {
+        return lastStatus;
+    }
+
+    public boolean isHealthy() {
+        return healthy;
+    }
+
+    @Override
+    public String toString() {
+        return "HttpConnectionMetrics{" +
+                "account='" + account + '\'' +
+                ", version='" + version + '\'' +
+                ", warmConnections=" + warmConnections +
+                ", handshakes=" + handshakes +
+                ", heartbeats=" + heartbeats +
+                ", heartbeatFailures=" + heartbeatFailures +
+                ", consecutiveFailures=" + consecutiveFailures +
+                ", lastHeartbeatLatency=" + lastHeartbeatLatency +
+                ", lastHeartbeatTime=" + lastHeartbeatTime +
+                ", lastStatus=" + lastStatus +
+                ", healthy=" + healthy +
+                '}';
+    }
+}
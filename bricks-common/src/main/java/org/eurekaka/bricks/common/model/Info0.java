@@ -12,6 +12,16 @@ public class Info0 extends Info<Info0> {
     public final static String ASSET_KEY = "asset";
     public final static String DEPTH_QTY_KEY = "depth_qty";
     public final static String HEDGING_INFO_KEY = "hedging_info";
+    // 下单规则的最小数量与最小金额
+    public final static String MIN_SIZE_KEY = "min_size";
+    public final static String MIN_NOTIONAL_KEY = "min_notional";
+
+    // 所有 Info0 共用的属性类型定义，其他模块可以在此 schema 中定义属性
+    public final static PropertySchema SCHEMA = new PropertySchema("info0");
+    public final static PropertySchema.IntKey DEPTH_QTY = SCHEMA.intKey(DEPTH_QTY_KEY, 79);
+    public final static PropertySchema.IntKey KLINE_SIZE = SCHEMA.intKey("kline_size", 61);
+    public final static PropertySchema.DoubleKey MIN_SIZE = SCHEMA.doubleKey(MIN_SIZE_KEY, 0);
+    public final static PropertySchema.DoubleKey MIN_NOTIONAL = SCHEMA.doubleKey(MIN_NOTIONAL_KEY, 0);
 
     // 用于系统内交易对分组
     private int type;
@@ -26,9 +36,20 @@ public class Info0 extends Info<Info0> {
     @JsonIgnore
     private final Map<String, Object> cache;
 
+    // 交易所的交易对信息，与配置一起生成下单规则
+    @JsonIgnore
+    private volatile ExSymbol exSymbol;
+    // 配置更新时重新生成
+    @JsonIgnore
+    private volatile TradingRule tradingRule;
+    // 按 schema 解析后的属性，配置更新时整体替换
+    @JsonIgnore
+    private final TypedPropertiesHolder typedProperties;
+
     public Info0() {
         this.properties = new ConcurrentHashMap<>();
         this.cache = new ConcurrentHashMap<>();
+        this.typedProperties = new TypedPropertiesHolder(this.properties);
     }
 
     public Info0(int id, String name, String symbol, String account, int type,
@@ -38,6 +59,7 @@ public class Info0 extends Info<Info0> {
         this.type = type;
         this.properties = new ConcurrentHashMap<>(properties);
         this.cache = new ConcurrentHashMap<>();
+        this.typedProperties = new TypedPropertiesHolder(this.properties);
     }
 
     public int getType() {
@@ -127,14 +149,69 @@ public class Info0 extends Info<Info0> {
         }
     }
 
-    public void setProperty(String key, String value) {
+    public int getInt(PropertySchema.IntKey key) {
+        return typedProperties.get(key).get(key);
+    }
+
+    public long getLong(PropertySchema.LongKey key) {
+        return typedProperties.get(key).get(key);
+    }
+
+    public double getDouble(PropertySchema.DoubleKey key) {
+        return typedProperties.get(key).get(key);
+    }
+
+    public boolean getBoolean(PropertySchema.BooleanKey key) {
+        return typedProperties.get(key).get(key);
+    }
+
+    public synchronized void setProperty(String key, String value) {
         this.cache.remove(key);
         this.properties.put(key, value);
+        this.typedProperties.reparse();
+        this.tradingRule = null;
     }
 
-    public void setProperties(Map<String, String> properties) {
+    public synchronized void setProperties(Map<String, String> properties) {
         this.cache.clear();
         this.properties.putAll(properties);
+        this.typedProperties.reparse();
+        this.tradingRule = null;
+    }
+
+    @Override
+    public void setPricePrecision(double pricePrecision) {
+        super.setPricePrecision(pricePrecision);
+        this.tradingRule = null;
+    }
+
+    @Override
+    public void setSizePrecision(double sizePrecision) {
+        super.setSizePrecision(sizePrecision);
+        this.tradingRule = null;
+    }
+
+    @JsonIgnore
+    public ExSymbol getExSymbol() {
+        return exSymbol;
+    }
+
+    public void setExSymbol(ExSymbol exSymbol) {
+        this.exSymbol = exSymbol;
+        this.tradingRule = null;
+    }
+
+    /**
+     * @return 下单规则，配置或交易所信息更新后的首次调用重新生成
+     */
+    @JsonIgnore
+    public TradingRule getTradingRule() {
+        TradingRule rule = tradingRule;
+        if (rule == null) {
+            rule = TradingRule.of(this, exSymbol);
+            tradingRule = rule;
+        }
+        return rule;
     }
 
     public Map<String, String> getProperties() {
@@ -142,10 +219,12 @@ public class Info0 extends Info<Info0> {
     }
 
     @Override
-    public void copy(Info0 other) {
+    public synchronized void copy(Info0 other) {
         super.copy(other);
         this.cache.clear();
         this.properties.putAll(other.properties);
+        this.typedProperties.reparse();
+        this.tradingRule = null;
     }
 
     @Override
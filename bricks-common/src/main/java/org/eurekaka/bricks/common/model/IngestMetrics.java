@@ -0,0 +1,130 @@
+package org.eurekaka.bricks.common.model;
+
+import java.util.Map;
+
+/**
+ * websocket 消息接收队列的统计数据
+ * 时间单位均为微秒，均值与最大值为启动以来的累计统计
+ */
+public class IngestMetrics {
+    private final String account;
+    private final int capacity;
+    private final long queueDepth;
+    private final long received;
+    private final long processed;
+    private final long failed;
+    // 消息 channel 或事件类型 -> 队列已满被丢弃的数量，包括可合并的行情消息与溢出队列也已满时丢弃的其他消息
+    private final Map<String, Long> drops;
+    // 溢出队列已满时丢弃的非行情消息数量
+    private final long privateDrops;
+    // 队列已满时进入溢出队列的消息数量
+    private final long overflowed;
+
+    // 入队到开始处理的等待时间
+    private final long avgQueueLatency;
+    private final long maxQueueLatency;
+    // 解析与处理时间
+    private final long avgDecodeLatency;
+    private final long maxDecodeLatency;
+
+    public IngestMetrics(String account, int capacity, long queueDepth, long received,
+                         long processed, long failed, Map<String, Long> drops, long privateDrops, long overflowed,
+                         long avgQueueLatency, long maxQueueLatency,
+                         long avgDecodeLatency, long maxDecodeLatency) {
+        this.account = account;
+        this.capacity = capacity;
+        this.queueDepth = queueDepth;
+        this.received = received;
+        this.processed = processed;
+        this.failed = failed;
+        this.drops = drops;
+        this.privateDrops = privateDrops;
+        this.overflowed = overflowed;
+        this.avgQueueLatency = avgQueueLatency;
+        this.maxQueueLatency = maxQueueLatency;
+        this.avgDecodeLatency = avgDecodeLatency;
+        this.maxDecodeLatency = maxDecodeLatency;
+    }
+
+    public String getAccount() {
+        return account;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public long getQueueDepth() {
+        return queueDepth;
+    }
+
+    public long getReceived() {
+        return received;
+    }
+
+    public long getProcessed() {
+        return processed;
+    }
+
+    public long getFailed() {
+        return failed;
+    }
+
+    public Map<String, Long> getDrops() {
+        return drops;
+    }
+
+    public long getTotalDrops() {
+        long total = 0;
+        for (Long value : drops.values()) {
+            total += value;
+        }
+        return total;
+    }
+
+    /**
+     * @return 非行情消息被丢弃的数量，不为 0 时订单状态可能已经不一致
+     */
+    public long getPrivateDrops() {
+        return privateDrops;
+    }
+
+    public long getOverflowed() {
+        return overflowed;
+    }
+
+    public long getAvgQueueLatency() {
+        return avgQueueLatency;
+    }
+
+    public long getMaxQueueLatency() {
+        return maxQueueLatency;
+    }
+
+    public long getAvgDecodeLatency() {
+        return avgDecodeLatency;
+    }
+
+    public long getMaxDecodeLatency() {
+        return maxDecodeLatency;
+    }
+
+    @Override
+    public String toString() {
+        return "IngestMetrics{" +
+                "account='" + account + '\'' +
+                ", capacity=" + capacity +
+                ", queueDepth=" + queueDepth +
+                ", received=" + received +
+                ", processed=" + processed +
+                ", failed=" + failed +
+                ", drops=" + drops +
+                ", privateDrops=" + privateDrops +
+                ", overflowed=" + overflowed +
+                ", avgQueueLatency=" + avgQueueLatency +
+                ", maxQueueLatency=" + maxQueueLatency +
+                ", avgDecodeLatency=" + avgDecodeLatency +
+                ", maxDecodeLatency=" + maxDecodeLatency +
+                '}';
+    }
+}
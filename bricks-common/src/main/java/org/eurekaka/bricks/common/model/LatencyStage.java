@@ -0,0 +1,21 @@
+package org.eurekaka.bricks.common.model;
+
+/**
+ * 行情到下单链路上的延迟统计阶段
+ */
+public enum LatencyStage {
+    // 收到完整 websocket 帧到消息处理完成
+    FRAME,
+    // 收到完整帧到行情消息解析完成
+    DECODE,
+    // 行情解析完成到订单簿更新完成
+    BOOK_UPDATE,
+    // 通知发布到消费者取出
+    NOTIFICATION_QUEUE,
+    // Strategy.notify 执行时间
+    STRATEGY_NOTIFY,
+    // asyncMakeOrder 发送到交易所确认
+    ORDER_ACK,
+    // 成交记录进入写入队列到写入数据库
+    HISTORY_PERSIST
+}
@@ -0,0 +1,36 @@
+package org.eurekaka.bricks.common.model;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * 批量下单请求，结果为与 orders 一一对应的 CompletableFuture 列表
+ * 未设置 client order id 的订单会自动生成
+ */
+public class MakeOrdersPair {
+    public final List<Order> orders;
+
+    public MakeOrdersPair(List<Order> orders) {
+        this.orders = orders;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof MakeOrdersPair)) return false;
+        MakeOrdersPair that = (MakeOrdersPair) o;
+        return orders.equals(that.orders);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(orders);
+    }
+
+    @Override
+    public String toString() {
+        return "MakeOrdersPair{" +
+                "orders=" + orders +
+                '}';
+    }
+}
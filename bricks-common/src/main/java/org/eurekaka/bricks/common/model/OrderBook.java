@@ -0,0 +1,458 @@
+package org.eurekaka.bricks.common.model;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.StampedLock;
+
+import static org.eurekaka.bricks.common.util.Utils.PRECISION;
+
+/**
+ * 单边订单簿，替代 TreeMap<Double, Double>
+ *
+ * 价格按交易对价格精度转换为定点long，与数量分别存储在有序数组内
+ * 数组按优先级升序排列，最优价格位于数组末尾，盘口附近的更新只需移动少量元素
+ * 档位的更新与删除均在原数组内完成，除扩容外不分配任何对象
+ *
+ * level 0 代表买一或者卖一
+ *
+ * 并发模型为 seqlock：
+ *      写入方（websocket线程）必须在 beginUpdate / endUpdate 之间调用 update, clear, updateTop，
+ *      多个写入方之间通过写锁串行执行，例如 rest 快照重建
+ *      读取方通过 snapshot, getDepthPrice 获取一致的视图，乐观读不加锁，
+ *      读取期间发生写入则重试，多次失败后才退化为读锁
+ *      getPrice, getSize 等单档位方法只能由写入方使用
+ *
+ * 深度索引：
+ *      qtySums[i] 为数组下标 0..i 档位计价货币数量 floor(price * size) 的累计和，sizeSums 同理
+ *      累计方向从最差价格到最优价格，盘口附近的更新只需重算末尾少量元素
+ *      写入期间只记录最小的变更下标，endUpdate 时统一重算，深度查询通过二分查找完成
+ */
+public class OrderBook {
+    private static final int DEFAULT_CAPACITY = 64;
+    // 乐观读重试次数
+    private static final int OPTIMISTIC_RETRIES = 8;
+
+    private final boolean bid;
+    // 价格精度，例如 1000 代表价格最小单位为 0.001
+    private final double pricePrecision;
+
+    private final StampedLock lock;
+
+    // 排序键，bid 为定点价格，ask 为定点价格取负，升序排列时最优价格位于末尾
+    private long[] keys;
+    private double[] sizes;
+    private int count;
+
+    // 深度累计和，下标与 keys 一致
+    private long[] qtySums;
+    private double[] sizeSums;
+    // 累计和从该下标开始失效，不小于 count 时全部有效
+    private int dirtyFrom;
+
+    // 每次 endUpdate 递增，用于读取方判断快照是否过期
+    private volatile long version;
+    // 交易所推送的最近一次 update id，不支持则为 0
+    private long updateId;
+    // 最近一次更新的本地时间
+    private long timestamp;
+
+    public OrderBook(boolean bid) {
+        this(bid, PRECISION);
+    }
+
+    public OrderBook(boolean bid, double pricePrecision) {
+        this(bid, pricePrecision, DEFAULT_CAPACITY);
+    }
+
+    public OrderBook(boolean bid, double pricePrecision, int capacity) {
+        this.bid = bid;
+        this.pricePrecision = pricePrecision > 0 ? pricePrecision : PRECISION;
+        this.lock = new StampedLock();
+        capacity = Math.max(capacity, 1);
+        this.keys = new long[capacity];
+        this.sizes = new double[capacity];
+        this.qtySums = new long[capacity];
+        this.sizeSums = new double[capacity];
+        this.count = 0;
+        this.dirtyFrom = 0;
+    }
+
+    public boolean isBid() {
+        return bid;
+    }
+
+    public double getPricePrecision() {
+        return pricePrecision;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    // 仅写入方使用，读取方通过快照获取
+    public long getUpdateId() {
+        return updateId;
+    }
+
+    /**
+     * 开始一次批量写入，返回的 stamp 需要传入 endUpdate
+     */
+    public long beginUpdate() {
+        return lock.writeLock();
+    }
+
+    /**
+     * 结束批量写入，沿用原有 update id
+     */
+    public void endUpdate(long stamp) {
+        endUpdate(stamp, updateId);
+    }
+
+    /**
+     * 结束批量写入，发布新的版本
+     * @param stamp beginUpdate 返回值
+     * @param updateId 交易所 update id
+     */
+    public void endUpdate(long stamp, long updateId) {
+        rebuildSums();
+        this.updateId = updateId;
+        this.timestamp = System.currentTimeMillis();
+        this.version++;
+        lock.unlockWrite(stamp);
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    public void clear() {
+        count = 0;
+        dirtyFrom = 0;
+    }
+
+    /**
+     * 更新单个档位，数量为0时删除该档位
+     * @param price 档位价格
+     * @param size 档位数量
+     */
+    public void update(double price, double size) {
+        long key = toKey(price);
+        int index = Arrays.binarySearch(keys, 0, count, key);
+        if (index >= 0) {
+            if (size == 0) {
+                remove(index);
+            } else {
+                sizes[index] = size;
+                markDirty(index);
+            }
+        } else if (size != 0) {
+            insert(-index - 1, key, size);
+        }
+    }
+
+    /**
+     * 根据买一卖一更新订单簿，删除所有优于该价格的档位，认为已经失效
+     * 若当前最优价格不优于该价格，则不做任何处理
+     * @param price 当前买一或卖一价格
+     * @param size 当前买一或卖一数量
+     */
+    public void updateTop(double price, double size) {
+        long key = toKey(price);
+        if (count == 0 || keys[count - 1] <= key) {
+            return;
+        }
+        int index = Arrays.binarySearch(keys, 0, count, key);
+        if (index >= 0) {
+            count = index + 1;
+            if (size == 0) {
+                count--;
+            } else {
+                sizes[index] = size;
+                markDirty(index);
+            }
+        } else {
+            count = -index - 1;
+            if (size != 0) {
+                insert(count, key, size);
+            }
+        }
+    }
+
+    /**
+     * @param level 档位，0 为最优价格
+     * @return 档位价格
+     */
+    public double getPrice(int level) {
+        return fromKey(keys[checkLevel(level)]);
+    }
+
+    /**
+     * @param level 档位，0 为最优价格
+     * @return 档位数量
+     */
+    public double getSize(int level) {
+        return sizes[checkLevel(level)];
+    }
+
+    /**
+     * 返回价格对应的档位数量，不存在则返回 0
+     */
+    public double getSize(double price) {
+        int index = Arrays.binarySearch(keys, 0, count, toKey(price));
+        return index >= 0 ? sizes[index] : 0;
+    }
+
+    /**
+     * 从最优价格开始遍历前 limit 个档位
+     * @param limit 最多遍历档位数量
+     * @param visitor 返回 false 时停止遍历
+     */
+    public void forEach(int limit, LevelVisitor visitor) {
+        int end = Math.max(count - limit, 0);
+        for (int i = count - 1; i >= end; i--) {
+            if (!visitor.visit(fromKey(keys[i]), sizes[i])) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 复制前 limit 个档位，返回一致的快照
+     */
+    public OrderBookSnapshot snapshot(int limit) {
+        return snapshot(new OrderBookSnapshot(bid), limit);
+    }
+
+    /**
+     * 复制前 limit 个档位到已有的快照对象，便于读取方重复使用
+     * @param snapshot 快照对象
+     * @param limit 最多复制档位数量
+     * @return 传入的快照对象
+     */
+    public OrderBookSnapshot snapshot(OrderBookSnapshot snapshot, int limit) {
+        for (int i = 0; i < OPTIMISTIC_RETRIES; i++) {
+            long stamp = lock.tryOptimisticRead();
+            if (stamp != 0) {
+                long currentVersion = version;
+                long currentUpdateId = updateId;
+                long currentTimestamp = timestamp;
+                copyLevels(snapshot, limit);
+                if (lock.validate(stamp)) {
+                    snapshot.update(this, currentVersion, currentUpdateId, currentTimestamp);
+                    return snapshot;
+                }
+            }
+            Thread.onSpinWait();
+        }
+        long stamp = lock.readLock();
+        try {
+            copyLevels(snapshot, limit);
+            snapshot.update(this, version, updateId, timestamp);
+            return snapshot;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * 查询满足最小深度要求的价格，跳过优于 topPrice 的失效档位
+     * @param name 交易对内部名称
+     * @param symbol 交易对
+     * @param depthQty 最小深度，计价货币数量
+     * @param topPrice 当前买一卖一价格，0 则不做检查
+     * @return 深度不足时返回 null
+     */
+    public DepthPrice getDepthPrice(String name, String symbol, int depthQty, double topPrice) {
+        DepthPrice[] depthPrices = getDepthLadder(name, symbol, new int[]{depthQty}, topPrice);
+        return depthPrices[0];
+    }
+
+    /**
+     * 在同一个一致视图上批量查询多个深度对应的价格
+     * @param depthQtys 最小深度列表，计价货币数量
+     * @param topPrice 当前买一卖一价格，0 则不做检查
+     * @return 与 depthQtys 一一对应，深度不足的位置为 null
+     */
+    public DepthPrice[] getDepthLadder(String name, String symbol, int[] depthQtys, double topPrice) {
+        DepthPrice[] depthPrices = new DepthPrice[depthQtys.length];
+        for (int i = 0; i < OPTIMISTIC_RETRIES; i++) {
+            long stamp = lock.tryOptimisticRead();
+            if (stamp != 0) {
+                findDepthPrices(name, symbol, depthQtys, topPrice, depthPrices);
+                if (lock.validate(stamp)) {
+                    return depthPrices;
+                }
+            }
+            Thread.onSpinWait();
+        }
+        long stamp = lock.readLock();
+        try {
+            findDepthPrices(name, symbol, depthQtys, topPrice, depthPrices);
+            return depthPrices;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    // 乐观读期间数组可能被替换或移动，所有下标均需限制在数组范围内，结果由 validate 校验
+    private void findDepthPrices(String name, String symbol, int[] depthQtys,
+                                 double topPrice, DepthPrice[] depthPrices) {
+        long[] keys = this.keys;
+        double[] sizes = this.sizes;
+        long[] qtySums = this.qtySums;
+        double[] sizeSums = this.sizeSums;
+        int n = Math.min(count, Math.min(Math.min(keys.length, sizes.length),
+                Math.min(qtySums.length, sizeSums.length)));
+        long currentUpdateId = updateId;
+        long currentTimestamp = timestamp;
+
+        // 最优的有效档位下标，优于 topPrice 的档位认为已经失效
+        int top = n - 1;
+        if (topPrice > 0) {
+            top = upperBound(keys, n, toKey(topPrice)) - 1;
+        }
+
+        boolean indexed = dirtyFrom >= n;
+        for (int k = 0; k < depthQtys.length; k++) {
+            depthPrices[k] = null;
+            if (top < 0) {
+                continue;
+            }
+            if (!indexed) {
+                // 未经过 endUpdate 的写入，累计和尚未重算，退化为线性扫描
+                depthPrices[k] = scanDepthPrice(name, symbol, depthQtys[k],
+                        keys, sizes, top, currentUpdateId, currentTimestamp);
+                continue;
+            }
+            // 档位 i..top 的累计深度为 qtySums[top] - qtySums[i - 1]
+            // 查找满足深度要求且最靠近 top 的 i，即 qtySums[i - 1] <= qtySums[top] - depthQty 的最大 i
+            long target = qtySums[top] - depthQtys[k];
+            if (target < 0) {
+                continue;
+            }
+            int index = Math.min(upperBound(qtySums, top, target), top);
+            long qty = qtySums[top] - (index > 0 ? qtySums[index - 1] : 0);
+            double size = sizeSums[top] - (index > 0 ? sizeSums[index - 1] : 0);
+            depthPrices[k] = new DepthPrice(name, symbol, fromKey(keys[index]),
+                    (int) qty, size, currentUpdateId, currentTimestamp);
+        }
+    }
+
+    private DepthPrice scanDepthPrice(String name, String symbol, int depthQty, long[] keys,
+                                      double[] sizes, int top, long updateId, long timestamp) {
+        int sum1 = 0;
+        double sum2 = 0;
+        for (int i = top; i >= 0; i--) {
+            double price = fromKey(keys[i]);
+            double size = sizes[i];
+            sum1 += (int) Math.floor(price * size);
+            sum2 += size;
+            if (sum1 >= depthQty) {
+                return new DepthPrice(name, symbol, price, sum1, sum2, updateId, timestamp);
+            }
+        }
+        return null;
+    }
+
+    // 返回 values[0..end) 中第一个大于 value 的下标
+    private static int upperBound(long[] values, int end, long value) {
+        int low = 0;
+        int high = end;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (values[mid] <= value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private void markDirty(int index) {
+        if (index < dirtyFrom) {
+            dirtyFrom = index;
+        }
+    }
+
+    // 重算失效部分的累计和，调用方需持有写锁
+    private void rebuildSums() {
+        if (dirtyFrom >= count) {
+            return;
+        }
+        long qtySum = dirtyFrom > 0 ? qtySums[dirtyFrom - 1] : 0;
+        double sizeSum = dirtyFrom > 0 ? sizeSums[dirtyFrom - 1] : 0;
+        for (int i = dirtyFrom; i < count; i++) {
+            qtySum += (long) Math.floor(fromKey(keys[i]) * sizes[i]);
+            sizeSum += sizes[i];
+            qtySums[i] = qtySum;
+            sizeSums[i] = sizeSum;
+        }
+        dirtyFrom = count;
+    }
+
+    private void copyLevels(OrderBookSnapshot snapshot, int limit) {
+        long[] keys = this.keys;
+        double[] sizes = this.sizes;
+        int n = Math.min(count, Math.min(keys.length, sizes.length));
+        int levels = Math.min(n, limit);
+        snapshot.ensureCapacity(levels);
+        for (int level = 0; level < levels; level++) {
+            int index = n - 1 - level;
+            snapshot.setLevel(level, fromKey(keys[index]), sizes[index]);
+        }
+        snapshot.setSize(levels);
+    }
+
+    private int checkLevel(int level) {
+        if (level < 0 || level >= count) {
+            throw new IndexOutOfBoundsException("level: " + level + ", size: " + count);
+        }
+        return count - 1 - level;
+    }
+
+    private long toKey(double price) {
+        long value = Math.round(price * pricePrecision);
+        return bid ? value : -value;
+    }
+
+    private double fromKey(long key) {
+        return (bid ? key : -key) / pricePrecision;
+    }
+
+    private void remove(int index) {
+        System.arraycopy(keys, index + 1, keys, index, count - index - 1);
+        System.arraycopy(sizes, index + 1, sizes, index, count - index - 1);
+        count--;
+        markDirty(index);
+    }
+
+    private void insert(int index, long key, double size) {
+        if (count == keys.length) {
+            keys = Arrays.copyOf(keys, count << 1);
+            sizes = Arrays.copyOf(sizes, count << 1);
+            qtySums = Arrays.copyOf(qtySums, count << 1);
+            sizeSums = Arrays.copyOf(sizeSums, count << 1);
+        }
+        System.arraycopy(keys, index, keys, index + 1, count - index);
+        System.arraycopy(sizes, index, sizes, index + 1, count - index);
+        keys[index] = key;
+        sizes[index] = size;
+        count++;
+        markDirty(index);
+    }
+
+    @Override
+    public String toString() {
+        // 可能由读取方线程调用，通过快照输出
+        return snapshot(10).toString();
+    }
+
+    @FunctionalInterface
+    public interface LevelVisitor {
+        boolean visit(double price, double size);
+    }
+}
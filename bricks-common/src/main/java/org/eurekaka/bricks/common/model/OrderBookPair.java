@@ -0,0 +1,41 @@
+package org.eurekaka.bricks.common.model;
+
+import java.util.Objects;
+
+public class OrderBookPair {
+    public final String name;
+    public final String symbol;
+
+    // 快照最多返回的档位数量
+    public final int limit;
+
+    public OrderBookPair(String name, String symbol, int limit) {
+        this.name = name;
+        this.symbol = symbol;
+        this.limit = limit;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof OrderBookPair)) return false;
+        OrderBookPair that = (OrderBookPair) o;
+        return limit == that.limit &&
+                name.equals(that.name) &&
+                symbol.equals(that.symbol);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(name, symbol, limit);
+    }
+
+    @Override
+    public String toString() {
+        return "OrderBookPair{" +
+                "name='" + name + '\'' +
+                ", symbol='" + symbol + '\'' +
+                ", limit=" + limit +
+                '}';
+    }
+}
@@ -0,0 +1,122 @@
+package org.eurekaka.bricks.common.model;
+
+import java.util.Arrays;
+
+/**
+ * 订单簿的一致性快照，由 OrderBook.snapshot 生成
+ * 携带生成时的版本号，update id 与更新时间，可以检查快照是否仍为最新
+ *
+ * 快照对象可重复使用，但只能由单个读取线程持有
+ */
+public class OrderBookSnapshot {
+    private final boolean bid;
+
+    private double[] prices;
+    private double[] sizes;
+    private int count;
+
+    private OrderBook source;
+    private long version;
+    private long updateId;
+    private long timestamp;
+
+    public OrderBookSnapshot(boolean bid) {
+        this.bid = bid;
+        this.prices = new double[0];
+        this.sizes = new double[0];
+    }
+
+    void ensureCapacity(int capacity) {
+        if (prices.length < capacity) {
+            prices = Arrays.copyOf(prices, capacity);
+            sizes = Arrays.copyOf(sizes, capacity);
+        }
+    }
+
+    void setLevel(int level, double price, double size) {
+        prices[level] = price;
+        sizes[level] = size;
+    }
+
+    void setSize(int count) {
+        this.count = count;
+    }
+
+    void update(OrderBook source, long version, long updateId, long timestamp) {
+        this.source = source;
+        this.version = version;
+        this.updateId = updateId;
+        this.timestamp = timestamp;
+    }
+
+    public boolean isBid() {
+        return bid;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    /**
+     * @param level 档位，0 为最优价格
+     */
+    public double getPrice(int level) {
+        checkLevel(level);
+        return prices[level];
+    }
+
+    /**
+     * @param level 档位，0 为最优价格
+     */
+    public double getSize(int level) {
+        checkLevel(level);
+        return sizes[level];
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public long getUpdateId() {
+        return updateId;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * 检查生成快照之后，订单簿是否有新的更新
+     * @return 订单簿未更新则返回 true
+     */
+    public boolean isCurrent() {
+        return source != null && source.getVersion() == version;
+    }
+
+    private void checkLevel(int level) {
+        if (level < 0 || level >= count) {
+            throw new IndexOutOfBoundsException("level: " + level + ", size: " + count);
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("OrderBookSnapshot{")
+                .append(bid ? "bid" : "ask")
+                .append(", version=").append(version)
+                .append(", updateId=").append(updateId)
+                .append(", timestamp=").append(timestamp)
+                .append(", levels=").append(count).append(", [");
+        for (int i = 0; i < Math.min(count, 10); i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append('(').append(prices[i]).append(", ").append(sizes[i]).append(')');
+        }
+        return sb.append("]}").toString();
+    }
+}
@@ -9,8 +9,9 @@ public class OrderBookValue {
     public final long lastUpdateId;
     public final long firstUpdateId;
 
-    public final List<PriceSizePair> bids;
-    public final List<PriceSizePair> asks;
+    // 原始类型存储，流式解析时直接写入
+    public final PriceSizeBuffer bids;
+    public final PriceSizeBuffer asks;
 
     public static List<PriceSizePair> parsePairs(List<List<Double>> priceSizes) {
         List<PriceSizePair> pairs = new ArrayList<>();
@@ -24,6 +25,11 @@ public class OrderBookValue {
 
     public OrderBookValue(long lastUpdateId, long firstUpdateId,
                           List<PriceSizePair> bids, List<PriceSizePair> asks) {
+        this(lastUpdateId, firstUpdateId, PriceSizeBuffer.of(bids), PriceSizeBuffer.of(asks));
+    }
+
+    public OrderBookValue(long lastUpdateId, long firstUpdateId,
+                          PriceSizeBuffer bids, PriceSizeBuffer asks) {
         this.lastUpdateId = lastUpdateId;
         this.firstUpdateId = firstUpdateId;
         this.bids = bids;
@@ -47,12 +53,11 @@ public class OrderBookValue {
 
     @Override
     public String toString() {
-        List<PriceSizePair> bidHeads = bids.subList(0, Math.min(bids.size(), 10));
         return "OrderBookValue{" +
                 "lastUpdateId=" + lastUpdateId +
                 ", firstUpdateId=" + firstUpdateId +
-                ", bids=" + bids.size() + ", " + bids.subList(0, Math.min(bids.size(), 10)) +
-                ", asks=" + asks.size() + ", " + asks.subList(0, Math.min(asks.size(), 10)) +
+                ", bids=" + bids +
+                ", asks=" + asks +
                 '}';
     }
 
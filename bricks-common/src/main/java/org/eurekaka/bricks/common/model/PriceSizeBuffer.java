@@ -0,0 +1,111 @@
+package org.eurekaka.bricks.common.model;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 价格数量对的原始类型缓冲，替代 List<PriceSizePair>
+ * 流式解析时直接写入，避免中间 List 以及 Double 装箱
+ */
+public class PriceSizeBuffer {
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private double[] prices;
+    private double[] sizes;
+    private int count;
+
+    public PriceSizeBuffer() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public PriceSizeBuffer(int capacity) {
+        capacity = Math.max(capacity, 1);
+        this.prices = new double[capacity];
+        this.sizes = new double[capacity];
+        this.count = 0;
+    }
+
+    public static PriceSizeBuffer of(List<OrderBookValue.PriceSizePair> pairs) {
+        PriceSizeBuffer buffer = new PriceSizeBuffer(pairs == null ? 0 : pairs.size());
+        if (pairs != null) {
+            for (OrderBookValue.PriceSizePair pair : pairs) {
+                buffer.add(pair.price, pair.size);
+            }
+        }
+        return buffer;
+    }
+
+    public void add(double price, double size) {
+        if (count == prices.length) {
+            prices = Arrays.copyOf(prices, count << 1);
+            sizes = Arrays.copyOf(sizes, count << 1);
+        }
+        prices[count] = price;
+        sizes[count] = size;
+        count++;
+    }
+
+    public double getPrice(int index) {
+        return prices[checkIndex(index)];
+    }
+
+    public double getSize(int index) {
+        return sizes[checkIndex(index)];
+    }
+
+    public void setSize(int index, double size) {
+        sizes[checkIndex(index)] = size;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    public void clear() {
+        count = 0;
+    }
+
+    private int checkIndex(int index) {
+        if (index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException("index: " + index + ", size: " + count);
+        }
+        return index;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof PriceSizeBuffer)) return false;
+        PriceSizeBuffer that = (PriceSizeBuffer) o;
+        return count == that.count &&
+                Arrays.equals(prices, 0, count, that.prices, 0, count) &&
+                Arrays.equals(sizes, 0, count, that.sizes, 0, count);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = count;
+        for (int i = 0; i < count; i++) {
+            result = 31 * result + Double.hashCode(prices[i]);
+            result = 31 * result + Double.hashCode(sizes[i]);
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        // 只输出前10档
+        StringBuilder builder = new StringBuilder().append(count).append(", [");
+        for (int i = 0; i < Math.min(count, 10); i++) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            builder.append('(').append(prices[i]).append(", ").append(sizes[i]).append(')');
+        }
+        return builder.append(']').toString();
+    }
+}
@@ -0,0 +1,164 @@
+package org.eurekaka.bricks.common.model;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 配置属性的类型定义，每个属性在 schema 内有固定下标
+ * 配置加载或更新时按 schema 一次性解析为 TypedProperties，读取时只需一次数组访问
+ *
+ * 属性通常定义为静态常量，例如 Info0.DEPTH_QTY，
+ * 同一个配置对象应只使用一个 schema，不同 schema 交替读取时会重复解析
+ */
+public class PropertySchema {
+    private static final Logger logger = LoggerFactory.getLogger(PropertySchema.class);
+
+    private final String name;
+    private final List<Key> keys;
+
+    public PropertySchema(String name) {
+        this.name = name;
+        this.keys = new ArrayList<>();
+    }
+
+    public IntKey intKey(String key, int defaultValue) {
+        return add(new IntKey(this, size(), key, defaultValue));
+    }
+
+    public LongKey longKey(String key, long defaultValue) {
+        return add(new LongKey(this, size(), key, defaultValue));
+    }
+
+    public DoubleKey doubleKey(String key, double defaultValue) {
+        return add(new DoubleKey(this, size(), key, defaultValue));
+    }
+
+    public BooleanKey booleanKey(String key, boolean defaultValue) {
+        return add(new BooleanKey(this, size(), key, defaultValue));
+    }
+
+    private synchronized <K extends Key> K add(K key) {
+        keys.add(key);
+        return key;
+    }
+
+    public synchronized int size() {
+        return keys.size();
+    }
+
+    synchronized Key[] getKeys() {
+        return keys.toArray(new Key[0]);
+    }
+
+    @Override
+    public String toString() {
+        return "PropertySchema{" +
+                "name='" + name + '\'' +
+                ", keys=" + keys +
+                '}';
+    }
+
+    public abstract static class Key {
+        final PropertySchema schema;
+        final int index;
+        public final String name;
+
+        Key(PropertySchema schema, int index, String name) {
+            this.schema = schema;
+            this.index = index;
+            this.name = name;
+        }
+
+        // 解析失败时使用默认值，与 getInt(key, value) 等方法一致
+        abstract void parse(String value, long[] longs, double[] doubles);
+
+        // 配置错误不影响运行，但需要记录，避免静默使用默认值
+        void invalid(String value, Object used) {
+            logger.warn("invalid {} property {}: {}, use {}", schema.name, name, value, used);
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    public static class IntKey extends Key {
+        public final int defaultValue;
+
+        IntKey(PropertySchema schema, int index, String name, int defaultValue) {
+            super(schema, index, name);
+            this.defaultValue = defaultValue;
+        }
+
+        @Override
+        void parse(String value, long[] longs, double[] doubles) {
+            try {
+                longs[index] = value == null ? defaultValue : Integer.parseInt(value);
+            } catch (NumberFormatException e) {
+                invalid(value, defaultValue);
+                longs[index] = defaultValue;
+            }
+        }
+    }
+
+    public static class LongKey extends Key {
+        public final long defaultValue;
+
+        LongKey(PropertySchema schema, int index, String name, long defaultValue) {
+            super(schema, index, name);
+            this.defaultValue = defaultValue;
+        }
+
+        @Override
+        void parse(String value, long[] longs, double[] doubles) {
+            try {
+                longs[index] = value == null ? defaultValue : Long.parseLong(value);
+            } catch (NumberFormatException e) {
+                invalid(value, defaultValue);
+                longs[index] = defaultValue;
+            }
+        }
+    }
+
+    public static class DoubleKey extends Key {
+        public final double defaultValue;
+
+        DoubleKey(PropertySchema schema, int index, String name, double defaultValue) {
+            super(schema, index, name);
+            this.defaultValue = defaultValue;
+        }
+
+        @Override
+        void parse(String value, long[] longs, double[] doubles) {
+            try {
+                doubles[index] = value == null ? defaultValue : Double.parseDouble(value);
+            } catch (NumberFormatException e) {
+                invalid(value, defaultValue);
+                doubles[index] = defaultValue;
+            }
+        }
+    }
+
+    public static class BooleanKey extends Key {
+        public final boolean defaultValue;
+
+        BooleanKey(PropertySchema schema, int index, String name, boolean defaultValue) {
+            super(schema, index, name);
+            this.defaultValue = defaultValue;
+        }
+
+        @Override
+        void parse(String value, long[] longs, double[] doubles) {
+            boolean v = value == null ? defaultValue : Boolean.parseBoolean(value);
+            if (value != null && !v && !"false".equalsIgnoreCase(value)) {
+                // 与 Boolean.parseBoolean 一致，非 true 的值按 false 处理
+                invalid(value, false);
+            }
+            longs[index] = v ? 1 : 0;
+        }
+    }
+}
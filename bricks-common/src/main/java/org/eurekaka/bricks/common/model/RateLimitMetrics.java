@@ -0,0 +1,103 @@
+package org.eurekaka.bricks.common.model;
+
+import java.util.Map;
+
+/**
+ * 账户客户端限频的统计数据
+ * 剩余额度为本地令牌桶与交易所返回的已用权重校正后的结果
+ */
+public class RateLimitMetrics {
+    private final String account;
+    private final long weightLimit;
+    private final long weightRemaining;
+    // 交易所响应头中返回的已用权重，未返回时为 -1
+    private final long serverUsedWeight;
+    private final long orderLimit;
+    private final long orderRemaining;
+    // 429, 418 之后的退避截止时间，毫秒
+    private final long bannedUntil;
+    private final int lastBanStatus;
+    private final long acquired;
+    // 优先级 -> 本地拒绝的请求数量
+    private final Map<String, Long> rejected;
+
+    public RateLimitMetrics(String account, long weightLimit, long weightRemaining,
+                            long serverUsedWeight, long orderLimit, long orderRemaining,
+                            long bannedUntil, int lastBanStatus, long acquired,
+                            Map<String, Long> rejected) {
+        this.account = account;
+        this.weightLimit = weightLimit;
+        this.weightRemaining = weightRemaining;
+        this.serverUsedWeight = serverUsedWeight;
+        this.orderLimit = orderLimit;
+        this.orderRemaining = orderRemaining;
+        this.bannedUntil = bannedUntil;
+        this.lastBanStatus = lastBanStatus;
+        this.acquired = acquired;
+        this.rejected = rejected;
+    }
+
+    public String getAccount() {
+        return account;
+    }
+
+    public long getWeightLimit() {
+        return weightLimit;
+    }
+
+    public long getWeightRemaining() {
+        return weightRemaining;
+    }
+
+    public long getServerUsedWeight() {
+        return serverUsedWeight;
+    }
+
+    public long getOrderLimit() {
+        return orderLimit;
+    }
+
+    public long getOrderRemaining() {
+        return orderRemaining;
+    }
+
+    public long getBannedUntil() {
+        return bannedUntil;
+    }
+
+    public int getLastBanStatus() {
+        return lastBanStatus;
+    }
+
+    public long getAcquired() {
+        return acquired;
+    }
+
+    public Map<String, Long> getRejected() {
+        return rejected;
+    }
+
+    public long getTotalRejected() {
+        long total = 0;
+        for (Long value : rejected.values()) {
+            total += value;
+        }
+        return total;
+    }
+
+    @Override
+    public String toString() {
+        return "RateLimitMetrics{" +
+                "account='" + account + '\'' +
+                ", weightLimit=" + weightLimit +
+                ", weightRemaining=" + weightRemaining +
+                ", serverUsedWeight=" + serverUsedWeight +
+                ", orderLimit=" + orderLimit +
+                ", orderRemaining=" + orderRemaining +
+                ", bannedUntil=" + bannedUntil +
+                ", lastBanStatus=" + lastBanStatus +
+                ", acquired=" + acquired +
+                ", rejected=" + rejected +
+                '}';
+    }
+}
@@ -0,0 +1,39 @@
+package org.eurekaka.bricks.common.model;
+
+import java.util.Objects;
+
+/**
+ * 改单请求，撤销 origin 并以 order 替换
+ * 交易所支持原生改单且方向、类型、交易对一致时直接改单，order 的 client order id 会被设置为 origin 的 id，
+ * 否则同时发送撤单与新订单请求
+ */
+public class ReplaceOrderPair {
+    public final Order origin;
+    public final Order order;
+
+    public ReplaceOrderPair(Order origin, Order order) {
+        this.origin = origin;
+        this.order = order;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof ReplaceOrderPair)) return false;
+        ReplaceOrderPair that = (ReplaceOrderPair) o;
+        return origin.equals(that.origin) && order.equals(that.order);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(origin, order);
+    }
+
+    @Override
+    public String toString() {
+        return "ReplaceOrderPair{" +
+                "origin=" + origin +
+                ", order=" + order +
+                '}';
+    }
+}
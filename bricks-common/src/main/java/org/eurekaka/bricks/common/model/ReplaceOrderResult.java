@@ -0,0 +1,40 @@
+package org.eurekaka.bricks.common.model;
+
+/**
+ * 改单结果
+ */
+public class ReplaceOrderResult {
+    // 是否通过交易所原生接口改单，此时新旧订单为同一订单
+    private final boolean amended;
+    // 原订单是否已经撤销或修改，为 false 时原订单可能仍然有效
+    private final boolean cancelled;
+    // 新订单，下单失败时为 null
+    private final CurrentOrder order;
+
+    public ReplaceOrderResult(boolean amended, boolean cancelled, CurrentOrder order) {
+        this.amended = amended;
+        this.cancelled = cancelled;
+        this.order = order;
+    }
+
+    public boolean isAmended() {
+        return amended;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public CurrentOrder getOrder() {
+        return order;
+    }
+
+    @Override
+    public String toString() {
+        return "ReplaceOrderResult{" +
+                "amended=" + amended +
+                ", cancelled=" + cancelled +
+                ", order=" + order +
+                '}';
+    }
+}
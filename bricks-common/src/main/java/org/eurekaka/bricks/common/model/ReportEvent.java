@@ -76,6 +76,9 @@ public class ReportEvent {
         STRATEGY_FAILED("STRATEGY: running failed."),
         STRATEGY_NOT_BALANCE("STRATEGY: unbalance"),
 
+        STORE_HISTORY_ORDER_FAILED("STORE: failed to store history orders"),
+        STORE_EX_ORDER_FAILED("STORE: failed to store exchange orders"),
+
         ARBITRAGE_HISTORY_ORDER_FAILED("ARBITRAGE: failed to process history order"),
         ARBITRAGE_FUTURE_PROCESSOR_FAILED("ARBITRAGE: future processor failed");
 
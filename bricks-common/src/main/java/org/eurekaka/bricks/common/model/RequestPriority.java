@@ -0,0 +1,23 @@
+package org.eurekaka.bricks.common.model;
+
+/**
+ * 交易所 rest 请求的优先级，用于客户端限频
+ * reserve 为该优先级不能使用的权重比例，剩余额度低于该比例时请求在本地直接拒绝，
+ * 保证额度紧张时撤单优先于对冲单，对冲单优先于挂单报价
+ */
+public enum RequestPriority {
+    // 撤单
+    CANCEL(0),
+    // 市价单，IOC, FOK 等对冲成交的订单
+    HEDGE(0.05),
+    // 限价挂单
+    QUOTE(0.2),
+    // 查询
+    QUERY(0.4);
+
+    public final double reserve;
+
+    RequestPriority(double reserve) {
+        this.reserve = reserve;
+    }
+}
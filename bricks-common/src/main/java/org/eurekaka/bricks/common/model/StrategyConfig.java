@@ -30,10 +30,14 @@ public class StrategyConfig implements Copyable<StrategyConfig> {
 
     @JsonIgnore
     private final Map<String, Object> cache;
+    // 按策略的 schema 解析后的属性，配置更新时整体替换
+    @JsonIgnore
+    private final TypedPropertiesHolder typedProperties;
 
     public StrategyConfig() {
         this.properties = new ConcurrentHashMap<>();
         this.cache = new ConcurrentHashMap<>();
+        this.typedProperties = new TypedPropertiesHolder(this.properties);
     }
 
     public StrategyConfig(int id, String name, String clz, String infoName,
@@ -54,6 +58,7 @@ public class StrategyConfig implements Copyable<StrategyConfig> {
             this.properties.putAll(properties);
         }
         this.cache = new ConcurrentHashMap<>();
+        this.typedProperties = new TypedPropertiesHolder(this.properties);
     }
 
     public int getId() {
@@ -100,14 +105,16 @@ public class StrategyConfig implements Copyable<StrategyConfig> {
         return properties;
     }
 
-    public void setProperties(Map<String, String> properties) {
+    public synchronized void setProperties(Map<String, String> properties) {
         this.cache.clear();
         this.properties.putAll(properties);
+        this.typedProperties.reparse();
     }
 
-    public void setProperty(String key, String value) {
+    public synchronized void setProperty(String key, String value) {
         this.cache.remove(key);
         this.properties.put(key, value);
+        this.typedProperties.reparse();
     }
 
     public int getPriority() {
@@ -221,10 +228,27 @@ public class StrategyConfig implements Copyable<StrategyConfig> {
         return (double) cache.get(key);
     }
 
+    public int getInt(PropertySchema.IntKey key) {
+        return typedProperties.get(key).get(key);
+    }
+
+    public long getLong(PropertySchema.LongKey key) {
+        return typedProperties.get(key).get(key);
+    }
+
+    public double getDouble(PropertySchema.DoubleKey key) {
+        return typedProperties.get(key).get(key);
+    }
+
+    public boolean getBoolean(PropertySchema.BooleanKey key) {
+        return typedProperties.get(key).get(key);
+    }
+
     @Override
-    public void copy(StrategyConfig other) {
+    public synchronized void copy(StrategyConfig other) {
         this.properties.putAll(other.properties);
         this.cache.clear();
+        this.typedProperties.reparse();
     }
 
     @Override
@@ -6,9 +6,17 @@ public class SymbolPair {
     public final String name;
     public final String symbol;
 
+    // 价格精度，用于订单簿定点价格转换，0 则使用默认精度
+    public final double pricePrecision;
+
     public SymbolPair(String name, String symbol) {
+        this(name, symbol, 0);
+    }
+
+    public SymbolPair(String name, String symbol, double pricePrecision) {
         this.name = name;
         this.symbol = symbol;
+        this.pricePrecision = pricePrecision;
     }
 
     @Override
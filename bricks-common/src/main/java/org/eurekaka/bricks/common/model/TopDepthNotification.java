@@ -1,14 +1,19 @@
 package org.eurekaka.bricks.common.model;
 
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 
-public class TopDepthNotification implements Notification {
+public class TopDepthNotification implements ConflatableNotification {
     private final String name;
     private final String symbol;
     private final String account;
     private final DepthSide side;
     private final double topPrice;
 
+    // account -> symbol -> 买卖两个方向的合并 key，同一组合总是返回同一个实例
+    private static final Map<String, Map<String, Key[]>> KEYS = new ConcurrentHashMap<>();
+
     public TopDepthNotification(String name, String symbol, String account, DepthSide side, double topPrice) {
         this.name = name;
         this.symbol = symbol;
@@ -39,6 +44,22 @@ public class TopDepthNotification implements Notification {
         return topPrice;
     }
 
+    // 每个 account, symbol 的买一卖一分别只保留最新价格
+    // key 预先创建并缓存，发布通知时只做两次查表，不创建对象
+    @Override
+    public Object getConflationKey() {
+        Map<String, Key[]> symbolKeys = KEYS.get(account);
+        if (symbolKeys == null) {
+            symbolKeys = KEYS.computeIfAbsent(account, k -> new ConcurrentHashMap<>());
+        }
+        Key[] keys = symbolKeys.get(symbol);
+        if (keys == null) {
+            keys = symbolKeys.computeIfAbsent(symbol, k -> new Key[] {
+                    new Key(account, k, DepthSide.BID), new Key(account, k, DepthSide.ASK)});
+        }
+        return keys[side.ordinal()];
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -71,4 +92,22 @@ public class TopDepthNotification implements Notification {
         BID,
         ASK,
     }
+
+    // 缓存的合并 key，按实例比较
+    private static final class Key {
+        final String account;
+        final String symbol;
+        final DepthSide side;
+
+        Key(String account, String symbol, DepthSide side) {
+            this.account = account;
+            this.symbol = symbol;
+            this.side = side;
+        }
+
+        @Override
+        public String toString() {
+            return account + ':' + symbol + ':' + side;
+        }
+    }
 }
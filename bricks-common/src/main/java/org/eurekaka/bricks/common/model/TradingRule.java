@@ -0,0 +1,127 @@
+package org.eurekaka.bricks.common.model;
+
+/**
+ * 交易对的下单规则，由 Info0 配置与交易所 ExSymbol 生成，生成后不可变
+ * 精度与 Info 一致，为最小变动单位的倒数，例如价格最小变动 0.01 时精度为 100
+ * 下单前在本地完成价格数量取整与校验，避免无效订单发送到交易所
+ */
+public class TradingRule {
+    // 判断是否为最小变动单位整数倍时的误差
+    private static final double EPSILON = 1e-6;
+
+    public final String name;
+    public final String symbol;
+
+    public final double pricePrecision;
+    public final double sizePrecision;
+    public final double tickSize;
+    public final double lotSize;
+    public final double minSize;
+    public final double minNotional;
+
+    // 数量精度小于 1 时，数量为该值的整数倍
+    private final long lotMultiplier;
+
+    public TradingRule(String name, String symbol, double pricePrecision, double sizePrecision,
+                       double minSize, double minNotional) {
+        this.name = name;
+        this.symbol = symbol;
+        this.pricePrecision = pricePrecision;
+        this.sizePrecision = sizePrecision;
+        this.tickSize = 1.0 / pricePrecision;
+        this.lotSize = 1.0 / sizePrecision;
+        this.minSize = minSize;
+        this.minNotional = minNotional;
+        this.lotMultiplier = sizePrecision < 1 ? Math.round(1.0 / sizePrecision) : 1;
+    }
+
+    /**
+     * 交易所规则与本地配置同时存在时，选择更粗的精度与更大的最小值
+     * @param info 交易对配置
+     * @param exSymbol 交易所的交易对信息，可以为 null
+     * @return 下单规则
+     */
+    public static TradingRule of(Info0 info, ExSymbol exSymbol) {
+        double pricePrecision = info.getPricePrecision();
+        double sizePrecision = info.getSizePrecision();
+        double minSize = info.getDouble(Info0.MIN_SIZE);
+        double minNotional = info.getDouble(Info0.MIN_NOTIONAL);
+        if (exSymbol != null) {
+            pricePrecision = coarser(pricePrecision, exSymbol.pricePrecision);
+            sizePrecision = coarser(sizePrecision, exSymbol.sizePrecision);
+            minSize = Math.max(minSize, exSymbol.minSize);
+            minNotional = Math.max(minNotional, exSymbol.minNotional);
+        }
+        return new TradingRule(info.getName(), info.getSymbol(),
+                pricePrecision, sizePrecision, minSize, minNotional);
+    }
+
+    private static double coarser(double precision, double other) {
+        if (precision <= 0) {
+            return other;
+        }
+        return other > 0 ? Math.min(precision, other) : precision;
+    }
+
+    public double roundPrice(double price) {
+        return Math.round(price * pricePrecision) / pricePrecision;
+    }
+
+    public double floorPrice(double price) {
+        return Math.floor(price * pricePrecision) / pricePrecision;
+    }
+
+    public double ceilPrice(double price) {
+        return Math.ceil(price * pricePrecision) / pricePrecision;
+    }
+
+    public double roundSize(double size) {
+        double lots = Math.round(size * sizePrecision);
+        return sizePrecision < 1 ? lots * lotMultiplier : lots / sizePrecision;
+    }
+
+    /**
+     * 校验取整后的订单
+     * @param price 订单价格，市价单为 0 时不校验价格与最小金额
+     * @param size 订单数量
+     * @return 订单无效的原因，有效时返回 null
+     */
+    public String validate(double price, double size) {
+        if (size <= 0 || size < minSize) {
+            return "size " + size + " less than min size " + minSize;
+        }
+        if (!isMultiple(size, sizePrecision)) {
+            return "size " + size + " is not multiple of lot size " + lotSize;
+        }
+        if (price > 0) {
+            if (!isMultiple(price, pricePrecision)) {
+                return "price " + price + " is not multiple of tick size " + tickSize;
+            }
+            if (price * size < minNotional) {
+                return "notional " + price * size + " less than min notional " + minNotional;
+            }
+        }
+        return null;
+    }
+
+    public boolean isValid(double price, double size) {
+        return validate(price, size) == null;
+    }
+
+    private static boolean isMultiple(double value, double precision) {
+        double units = value * precision;
+        return Math.abs(units - Math.round(units)) < EPSILON * Math.max(1, Math.abs(units));
+    }
+
+    @Override
+    public String toString() {
+        return "TradingRule{" +
+                "name='" + name + '\'' +
+                ", symbol='" + symbol + '\'' +
+                ", tickSize=" + tickSize +
+                ", lotSize=" + lotSize +
+                ", minSize=" + minSize +
+                ", minNotional=" + minNotional +
+                '}';
+    }
+}
@@ -0,0 +1,79 @@
+package org.eurekaka.bricks.common.model;
+
+import java.util.Map;
+
+/**
+ * 按 PropertySchema 解析后的配置快照，生成后不可变
+ * 配置更新时重新解析并整体替换，读取方不会看到部分更新的配置
+ */
+public final class TypedProperties {
+    private final PropertySchema schema;
+    private final int size;
+    // int, long, boolean 类型的值
+    private final long[] longs;
+    private final double[] doubles;
+
+    private TypedProperties(PropertySchema schema, int size, long[] longs, double[] doubles) {
+        this.schema = schema;
+        this.size = size;
+        this.longs = longs;
+        this.doubles = doubles;
+    }
+
+    public static TypedProperties parse(PropertySchema schema, Map<String, String> properties) {
+        PropertySchema.Key[] keys = schema.getKeys();
+        long[] longs = new long[keys.length];
+        double[] doubles = new double[keys.length];
+        for (PropertySchema.Key key : keys) {
+            key.parse(properties.get(key.name), longs, doubles);
+        }
+        return new TypedProperties(schema, keys.length, longs, doubles);
+    }
+
+    /**
+     * @return 属性未包含在当前快照中，需要重新解析，schema 在快照生成后新增属性时出现
+     */
+    boolean isStale(PropertySchema.Key key) {
+        return key.schema != schema || key.index >= size;
+    }
+
+    PropertySchema getSchema() {
+        return schema;
+    }
+
+    public int get(PropertySchema.IntKey key) {
+        return (int) longs[key.index];
+    }
+
+    public long get(PropertySchema.LongKey key) {
+        return longs[key.index];
+    }
+
+    public double get(PropertySchema.DoubleKey key) {
+        return doubles[key.index];
+    }
+
+    public boolean get(PropertySchema.BooleanKey key) {
+        return longs[key.index] != 0;
+    }
+
+    /**
+     * Info0 与 StrategyConfig 共用，快照不包含该属性时按其 schema 重新解析
+     * @param current 当前快照，可以为 null
+     * @return 包含该属性的快照
+     */
+    static TypedProperties resolve(TypedProperties current, PropertySchema.Key key,
+                                   Map<String, String> properties) {
+        if (current == null || current.isStale(key)) {
+            return parse(key.schema, properties);
+        }
+        return current;
+    }
+
+    /**
+     * 配置更新后按原有 schema 重新解析
+     */
+    static TypedProperties reparse(TypedProperties current, Map<String, String> properties) {
+        return current == null ? null : parse(current.schema, properties);
+    }
+}
@@ -0,0 +1,37 @@
+package org.eurekaka.bricks.common.model;
+
+import java.util.Map;
+
+/**
+ * Info0 与 StrategyConfig 共用的 TypedProperties 快照
+ * 读取时不加锁，快照不包含读取的属性时重新解析
+ */
+final class TypedPropertiesHolder {
+    private final Map<String, String> properties;
+    private volatile TypedProperties current;
+
+    TypedPropertiesHolder(Map<String, String> properties) {
+        this.properties = properties;
+    }
+
+    TypedProperties get(PropertySchema.Key key) {
+        TypedProperties typed = current;
+        if (typed == null || typed.isStale(key)) {
+            typed = resolve(key);
+        }
+        return typed;
+    }
+
+    // 与配置更新互斥，避免旧的解析结果覆盖更新后的快照
+    private synchronized TypedProperties resolve(PropertySchema.Key key) {
+        current = TypedProperties.resolve(current, key, properties);
+        return current;
+    }
+
+    /**
+     * 配置更新后调用，按原有 schema 重新解析
+     */
+    synchronized void reparse() {
+        current = TypedProperties.reparse(current, properties);
+    }
+}
@@ -0,0 +1,86 @@
+package org.eurekaka.bricks.common.util;
+
+import javax.net.ssl.*;
+import java.security.KeyManagementException;
+import java.security.SecureRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 统计 tls 握手次数的 SSLContext，HttpClient 每建立一个 https 连接创建一个 SSLEngine
+ * 用于观察连接是否被复用，其余行为与被包装的 SSLContext 一致
+ */
+public class CountingSSLContext extends SSLContext {
+    private final CountingSpi spi;
+
+    private CountingSSLContext(CountingSpi spi, SSLContext delegate) {
+        super(spi, delegate.getProvider(), delegate.getProtocol());
+        this.spi = spi;
+    }
+
+    public static CountingSSLContext wrap(SSLContext delegate) {
+        return new CountingSSLContext(new CountingSpi(delegate), delegate);
+    }
+
+    /**
+     * @return 已建立的 tls 连接数量
+     */
+    public long getHandshakes() {
+        return spi.handshakes.get();
+    }
+
+    private static class CountingSpi extends SSLContextSpi {
+        private final SSLContext delegate;
+        private final AtomicLong handshakes = new AtomicLong();
+
+        CountingSpi(SSLContext delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        protected void engineInit(KeyManager[] km, TrustManager[] tm, SecureRandom sr) throws KeyManagementException {
+            delegate.init(km, tm, sr);
+        }
+
+        @Override
+        protected SSLSocketFactory engineGetSocketFactory() {
+            return delegate.getSocketFactory();
+        }
+
+        @Override
+        protected SSLServerSocketFactory engineGetServerSocketFactory() {
+            return delegate.getServerSocketFactory();
+        }
+
+        @Override
+        protected SSLEngine engineCreateSSLEngine() {
+            handshakes.incrementAndGet();
+            return delegate.createSSLEngine();
+        }
+
+        @Override
+        protected SSLEngine engineCreateSSLEngine(String host, int port) {
+            handshakes.incrementAndGet();
+            return delegate.createSSLEngine(host, port);
+        }
+
+        @Override
+        protected SSLSessionContext engineGetServerSessionContext() {
+            return delegate.getServerSessionContext();
+        }
+
+        @Override
+        protected SSLSessionContext engineGetClientSessionContext() {
+            return delegate.getClientSessionContext();
+        }
+
+        @Override
+        protected SSLParameters engineGetDefaultSSLParameters() {
+            return delegate.getDefaultSSLParameters();
+        }
+
+        @Override
+        protected SSLParameters engineGetSupportedSSLParameters() {
+            return delegate.getSupportedSSLParameters();
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package org.eurekaka.bricks.common.util;
+
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * 可重复使用的 gzip 解压器，替代每条消息创建 GZIPInputStream
+ * Inflater 与输出缓冲在多次解压之间复用，非线程安全，每个使用线程持有一个实例
+ *
+ * 解压结果位于 getBuffer() 的 [0, length) 区间，下一次调用 inflate 后失效
+ */
+public class GzipInflater {
+    private static final int GZIP_MAGIC = 0x8b1f;
+    private static final int FHCRC = 2;
+    private static final int FEXTRA = 4;
+    private static final int FNAME = 8;
+    private static final int FCOMMENT = 16;
+    // 尾部 CRC32 与 ISIZE
+    private static final int TRAILER_SIZE = 8;
+
+    private final Inflater inflater;
+    private final CRC32 crc;
+    private byte[] buffer;
+
+    public GzipInflater() {
+        this(8192);
+    }
+
+    public GzipInflater(int capacity) {
+        // nowrap，gzip 头部与尾部自行解析
+        this.inflater = new Inflater(true);
+        this.crc = new CRC32();
+        this.buffer = new byte[Math.max(capacity, 64)];
+    }
+
+    public byte[] getBuffer() {
+        return buffer;
+    }
+
+    /**
+     * 解压单个 gzip member
+     * @param data 压缩数据
+     * @param offset 起始位置
+     * @param length 压缩数据长度
+     * @return 解压后的数据长度
+     * @throws DataFormatException 数据格式错误或者校验失败
+     */
+    public int inflate(byte[] data, int offset, int length) throws DataFormatException {
+        int end = offset + length;
+        int index = readHeader(data, offset, end);
+        if (end - index < TRAILER_SIZE) {
+            throw new DataFormatException("truncated gzip data");
+        }
+
+        // 根据尾部 ISIZE 预估输出大小
+        int expected = readInt(data, end - 4);
+        if (expected > buffer.length && expected <= (1 << 26)) {
+            buffer = new byte[expected];
+        }
+
+        inflater.reset();
+        inflater.setInput(data, index, end - TRAILER_SIZE - index);
+        int count = 0;
+        while (!inflater.finished()) {
+            if (count == buffer.length) {
+                buffer = Arrays.copyOf(buffer, buffer.length << 1);
+            }
+            int n = inflater.inflate(buffer, count, buffer.length - count);
+            if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                throw new DataFormatException("truncated gzip data");
+            }
+            count += n;
+        }
+
+        crc.reset();
+        crc.update(buffer, 0, count);
+        if ((int) crc.getValue() != readInt(data, end - 8) || count != expected) {
+            throw new DataFormatException("corrupt gzip data, crc or size mismatch");
+        }
+        return count;
+    }
+
+    /**
+     * 释放 Inflater 占用的本地内存
+     */
+    public void close() {
+        inflater.end();
+    }
+
+    // 返回压缩数据的起始位置
+    private static int readHeader(byte[] data, int index, int end) throws DataFormatException {
+        if (end - index < 10 || readShort(data, index) != GZIP_MAGIC || data[index + 2] != 8) {
+            throw new DataFormatException("not in gzip format");
+        }
+        int flags = data[index + 3] & 0xff;
+        // 跳过 mtime, xfl, os
+        index += 10;
+        if ((flags & FEXTRA) != 0) {
+            index += 2 + readShort(data, index);
+        }
+        if ((flags & FNAME) != 0) {
+            index = skipZeroTerminated(data, index, end);
+        }
+        if ((flags & FCOMMENT) != 0) {
+            index = skipZeroTerminated(data, index, end);
+        }
+        if ((flags & FHCRC) != 0) {
+            index += 2;
+        }
+        if (index > end) {
+            throw new DataFormatException("truncated gzip header");
+        }
+        return index;
+    }
+
+    private static int skipZeroTerminated(byte[] data, int index, int end) throws DataFormatException {
+        while (index < end && data[index] != 0) {
+            index++;
+        }
+        if (index == end) {
+            throw new DataFormatException("truncated gzip header");
+        }
+        return index + 1;
+    }
+
+    private static int readShort(byte[] data, int index) {
+        return (data[index] & 0xff) | (data[index + 1] & 0xff) << 8;
+    }
+
+    private static int readInt(byte[] data, int index) {
+        return readShort(data, index) | readShort(data, index + 2) << 16;
+    }
+}
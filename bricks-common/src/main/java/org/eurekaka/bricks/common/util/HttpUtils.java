@@ -21,8 +21,8 @@ import java.security.SecureRandom;
 import java.security.cert.CertificateException;
 import java.security.cert.X509Certificate;
 import java.time.Duration;
+import java.util.Arrays;
 import java.util.Map;
-import java.util.TreeMap;
 import java.util.concurrent.*;
 
 public class HttpUtils {
@@ -90,6 +90,13 @@ public class HttpUtils {
             });
         }
 
+        // 与默认的 SSLContext 一致，包装后统计 tls 握手次数
+        try {
+            httpClientBuilder.sslContext(CountingSSLContext.wrap(SSLContext.getDefault()));
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("failed to initial http clients", e);
+        }
+
         return httpClientBuilder.build();
     }
 
@@ -127,16 +134,23 @@ public class HttpUtils {
     }
 
     public static String param2String(Map<String, String> paramMap) {
-        StringBuilder sb = new StringBuilder();
-        TreeMap<String, String> params = new TreeMap<>(paramMap);
-        params.forEach((key1, value) -> {
-            if (sb.length() > 0) {
-                sb.append("&");
+        return appendParams(new StringBuilder(paramMap.size() << 4), paramMap).toString();
+    }
+
+    /**
+     * 按 key 排序拼接 query 参数，追加到 builder 末尾
+     * 只对 key 数组排序，避免每次请求复制到 TreeMap
+     */
+    public static StringBuilder appendParams(StringBuilder sb, Map<String, String> paramMap) {
+        String[] keys = paramMap.keySet().toArray(new String[0]);
+        Arrays.sort(keys);
+        for (int i = 0; i < keys.length; i++) {
+            if (i > 0) {
+                sb.append('&');
             }
-            sb.append(key1).append("=");
-            sb.append(value);
-        });
-        return sb.toString();
+            sb.append(keys[i]).append('=').append(paramMap.get(keys[i]));
+        }
+        return sb;
     }
 
 }
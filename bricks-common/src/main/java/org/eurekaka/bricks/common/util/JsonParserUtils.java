@@ -0,0 +1,130 @@
+package org.eurekaka.bricks.common.util;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.eurekaka.bricks.common.model.PriceSizeBuffer;
+
+import java.io.IOException;
+
+/**
+ * 基于 JsonParser token 的流式解析工具
+ * 用于高频行情消息，直接解析到原始类型，不构建 JsonNode 以及中间对象
+ */
+public class JsonParserUtils {
+    // 10^0 ~ 10^22 均可由 double 精确表示
+    private static final double[] POW10 = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    // 小于 2^53 的整数可由 double 精确表示，保守取15位有效数字
+    private static final int MAX_FAST_DIGITS = 15;
+
+    private JsonParserUtils() {
+    }
+
+    /**
+     * 读取当前 token 的 double 值，兼容字符串形式的数字，例如 "0.01"
+     */
+    public static double getDouble(JsonParser parser) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.VALUE_NUMBER_FLOAT || token == JsonToken.VALUE_NUMBER_INT) {
+            return parser.getDoubleValue();
+        } else if (token == JsonToken.VALUE_STRING) {
+            return parseDouble(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength());
+        } else if (token == JsonToken.VALUE_NULL) {
+            return 0;
+        }
+        throw new IOException("unexpected token for double value: " + token);
+    }
+
+    /**
+     * 读取当前 token 的 long 值，兼容字符串形式的数字
+     */
+    public static long getLong(JsonParser parser) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.VALUE_NUMBER_INT) {
+            return parser.getLongValue();
+        } else if (token == JsonToken.VALUE_STRING || token == JsonToken.VALUE_NUMBER_FLOAT) {
+            return parser.getValueAsLong();
+        } else if (token == JsonToken.VALUE_NULL) {
+            return 0;
+        }
+        throw new IOException("unexpected token for long value: " + token);
+    }
+
+    /**
+     * 解析 [["price", "size"], ...] 格式的深度数组，当前 token 必须为 START_ARRAY
+     * @param parser json parser
+     * @param buffer 解析结果写入的缓冲
+     */
+    public static void readPriceSizeArrays(JsonParser parser, PriceSizeBuffer buffer) throws IOException {
+        if (parser.currentToken() == JsonToken.VALUE_NULL) {
+            return;
+        }
+        expect(parser, JsonToken.START_ARRAY);
+        while (parser.nextToken() == JsonToken.START_ARRAY) {
+            parser.nextToken();
+            double price = getDouble(parser);
+            parser.nextToken();
+            double size = getDouble(parser);
+            // 忽略多余的元素
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                parser.skipChildren();
+            }
+            buffer.add(price, size);
+        }
+        expect(parser, JsonToken.END_ARRAY);
+    }
+
+    public static void expect(JsonParser parser, JsonToken token) throws IOException {
+        if (parser.currentToken() != token) {
+            throw new IOException("expect token " + token + ", but " + parser.currentToken());
+        }
+    }
+
+    /**
+     * 解析十进制数字，有效数字不超过15位且不含指数时，
+     * 尾数与10的幂均可精确表示，一次除法即得到正确舍入的结果，无需创建 String
+     * 其他情况退化为 Double.parseDouble
+     */
+    public static double parseDouble(char[] chars, int offset, int length) {
+        int end = offset + length;
+        int index = offset;
+        boolean negative = false;
+        if (index < end && (chars[index] == '-' || chars[index] == '+')) {
+            negative = chars[index] == '-';
+            index++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int scale = 0;
+        boolean point = false;
+        boolean seen = false;
+        boolean valid = true;
+        for (; index < end; index++) {
+            char c = chars[index];
+            if (c >= '0' && c <= '9') {
+                seen = true;
+                // 前导零不计入有效数字
+                if ((mantissa != 0 || c != '0') && ++digits > MAX_FAST_DIGITS) {
+                    valid = false;
+                    break;
+                }
+                mantissa = mantissa * 10 + (c - '0');
+                if (point) {
+                    scale++;
+                }
+            } else if (c == '.' && !point) {
+                point = true;
+            } else {
+                valid = false;
+                break;
+            }
+        }
+        if (!valid || !seen || scale >= POW10.length) {
+            return Double.parseDouble(new String(chars, offset, length));
+        }
+        double value = scale == 0 ? mantissa : mantissa / POW10[scale];
+        return negative ? -value : value;
+    }
+}
@@ -0,0 +1,106 @@
+package org.eurekaka.bricks.common.util;
+
+import org.eurekaka.bricks.common.model.LatencySnapshot;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 对数线性分桶的延迟直方图，记录纳秒值，相对误差约 3%
+ * 每个 2 的幂次区间分为 16 个线性子桶，小于 32 的值精确记录
+ * 桶数组在创建时分配，record 不分配内存，可由多个线程同时调用
+ */
+public class LatencyHistogram {
+    private static final int SUB_BITS = 5;
+    private static final int HALF_SUB_COUNT = 1 << (SUB_BITS - 1);
+    // 最大记录约 1100 秒，更大的值记入最后一个桶
+    private static final int MAX_BITS = 40;
+    private static final int MAX_BUCKET = MAX_BITS - SUB_BITS + 1;
+    static final int LENGTH = HALF_SUB_COUNT * MAX_BUCKET + (1 << SUB_BITS);
+
+    private final AtomicLongArray counts;
+    private final AtomicLong total;
+    private final AtomicLong max;
+
+    public LatencyHistogram() {
+        this.counts = new AtomicLongArray(LENGTH);
+        this.total = new AtomicLong();
+        this.max = new AtomicLong();
+    }
+
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        counts.incrementAndGet(indexOf(nanos));
+        total.addAndGet(nanos);
+        long current = max.get();
+        while (nanos > current && !max.compareAndSet(current, nanos)) {
+            current = max.get();
+        }
+    }
+
+    /**
+     * 清空统计，与 record 并发执行时可能丢失少量记录
+     */
+    public void reset() {
+        for (int i = 0; i < LENGTH; i++) {
+            counts.set(i, 0);
+        }
+        total.set(0);
+        max.set(0);
+    }
+
+    public LatencySnapshot snapshot(String stage) {
+        long[] values = new long[LENGTH];
+        long count = 0;
+        for (int i = 0; i < LENGTH; i++) {
+            values[i] = counts.get(i);
+            count += values[i];
+        }
+        long maxValue = max.get();
+        if (count == 0) {
+            return new LatencySnapshot(stage, 0, 0, 0, 0, 0, 0, 0);
+        }
+        return new LatencySnapshot(stage, count, toMicros(total.get() / count),
+                toMicros(valueAt(values, count, 0.5, maxValue)),
+                toMicros(valueAt(values, count, 0.9, maxValue)),
+                toMicros(valueAt(values, count, 0.99, maxValue)),
+                toMicros(valueAt(values, count, 0.999, maxValue)),
+                toMicros(maxValue));
+    }
+
+    // 返回分位点所在桶的上界
+    private static long valueAt(long[] values, long count, double percentile, long maxValue) {
+        long rank = Math.max(1, (long) Math.ceil(count * percentile));
+        long sum = 0;
+        for (int i = 0; i < values.length; i++) {
+            sum += values[i];
+            if (sum >= rank) {
+                return Math.min(highestValue(i), maxValue);
+            }
+        }
+        return maxValue;
+    }
+
+    static int indexOf(long value) {
+        int bucket = Math.max(0, 64 - Long.numberOfLeadingZeros(value) - SUB_BITS);
+        if (bucket > MAX_BUCKET) {
+            return LENGTH - 1;
+        }
+        return (bucket << (SUB_BITS - 1)) + (int) (value >>> bucket);
+    }
+
+    static long highestValue(int index) {
+        if (index < (1 << SUB_BITS)) {
+            return index;
+        }
+        int bucket = (index >> (SUB_BITS - 1)) - 1;
+        long sub = index - ((long) bucket << (SUB_BITS - 1));
+        return ((sub + 1) << bucket) - 1;
+    }
+
+    private static double toMicros(long nanos) {
+        return Math.round(nanos / 100.0) / 10.0;
+    }
+}
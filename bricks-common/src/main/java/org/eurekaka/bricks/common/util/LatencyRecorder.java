@@ -0,0 +1,60 @@
+package org.eurekaka.bricks.common.util;
+
+import org.eurekaka.bricks.common.model.LatencySnapshot;
+import org.eurekaka.bricks.common.model.LatencyStage;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 全局的分阶段延迟统计，各阶段在调用处使用 System.nanoTime 计时后记录
+ */
+public class LatencyRecorder {
+    private static final LatencyStage[] STAGES = LatencyStage.values();
+    private static final LatencyHistogram[] histograms = new LatencyHistogram[STAGES.length];
+
+    static {
+        for (int i = 0; i < STAGES.length; i++) {
+            histograms[i] = new LatencyHistogram();
+        }
+    }
+
+    private static volatile boolean enabled = true;
+
+    public static void record(LatencyStage stage, long nanos) {
+        if (enabled) {
+            histograms[stage.ordinal()].record(nanos);
+        }
+    }
+
+    /**
+     * 记录从 startNanos 到当前时间的延迟
+     */
+    public static void recordSince(LatencyStage stage, long startNanos) {
+        if (enabled) {
+            histograms[stage.ordinal()].record(System.nanoTime() - startNanos);
+        }
+    }
+
+    public static List<LatencySnapshot> snapshot() {
+        List<LatencySnapshot> snapshots = new ArrayList<>(STAGES.length);
+        for (LatencyStage stage : STAGES) {
+            snapshots.add(histograms[stage.ordinal()].snapshot(stage.name()));
+        }
+        return snapshots;
+    }
+
+    public static void reset() {
+        for (LatencyHistogram histogram : histograms) {
+            histogram.reset();
+        }
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static void setEnabled(boolean enabled) {
+        LatencyRecorder.enabled = enabled;
+    }
+}
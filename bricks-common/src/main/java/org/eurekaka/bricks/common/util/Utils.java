@@ -10,6 +10,8 @@ import org.eurekaka.bricks.common.model.OrderSide;
 
 import javax.crypto.Mac;
 import javax.crypto.spec.SecretKeySpec;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.nio.charset.StandardCharsets;
 import java.security.InvalidKeyException;
 import java.security.MessageDigest;
@@ -158,6 +160,17 @@ public class Utils {
         return content.substring(0, 4) + "***" + content.substring(len - 4, len);
     }
 
+    /**
+     * 固定 6 位小数格式化，输出与 String.format("%f") 一致
+     * 不创建 Formatter，且不受默认 locale 的小数点影响
+     */
+    public static String formatDecimal(double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            return String.valueOf(value);
+        }
+        return BigDecimal.valueOf(value).setScale(6, RoundingMode.HALF_UP).toPlainString();
+    }
+
     public static double roundPrecisionValue(double value) {
         return value > 1.0 ? 1.0 / value : Math.round(1.0 / value);
     }
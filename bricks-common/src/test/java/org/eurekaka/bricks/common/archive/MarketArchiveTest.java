@@ -0,0 +1,158 @@
+package org.eurekaka.bricks.common.archive;
+
+import org.eurekaka.bricks.common.model.*;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+public class MarketArchiveTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testKLineArchive() throws Exception {
+        List<KLineValue> values = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            values.add(new KLineValue(1600000000000L + i * 60000L, "n1", "s1",
+                    100.12345678 + i, 100.5, 101.25, 99.1, 12.345));
+        }
+        Path path = folder.getRoot().toPath().resolve("s1.kline");
+        MarketArchive.writeKLines(path, values);
+
+        try (ColumnarReader reader = new ColumnarReader(path)) {
+            Assert.assertEquals(100, reader.getRows());
+            Assert.assertEquals(1600000000000L, reader.getMinTime());
+            Assert.assertEquals(1600000000000L + 99 * 60000L, reader.getMaxTime());
+            Assert.assertFalse(reader.overlaps(0, 1600000000000L));
+            Assert.assertTrue(reader.overlaps(0, 1600000000001L));
+
+            Assert.assertEquals(values, MarketArchive.readKLines(reader, 0, Long.MAX_VALUE));
+            // 按时间范围读取
+            Assert.assertEquals(values.subList(10, 20), MarketArchive.readKLines(reader,
+                    1600000000000L + 10 * 60000L - 1, 1600000000000L + 20 * 60000L));
+            Assert.assertEquals(10012345678L, reader.getRawPrice(3, 0));
+        }
+    }
+
+    @Test
+    public void testTradeAndPositionArchive() throws Exception {
+        List<TradeNotification> trades = new ArrayList<>();
+        trades.add(new TradeNotification("f1", null, "o1", "a1", "n1", "s1",
+                OrderSide.BUY, OrderType.LIMIT, 0.1, 2, 0.2, "USDT", 0.001, 1000));
+        trades.add(new TradeNotification("f2", "c2", "o1", "a1", "n1", "s1",
+                OrderSide.SELL, OrderType.MARKET, 0.3, 1, 0.3, "USDT", 0.002, 1000));
+        Path tradePath = folder.getRoot().toPath().resolve("trade");
+        MarketArchive.writeTrades(tradePath, trades);
+
+        List<PositionValue> positions = new ArrayList<>();
+        positions.add(new PositionValue("n1", "s1", "a1", 1.5, 30000.5, 3, 29999.25, -1.5, 1000));
+        // 时间跨度超过 int 范围
+        positions.add(new PositionValue("n1", "s1", "a1", -1.5, 30001, -3, 30000, 2, 1600000000000L));
+        Path positionPath = folder.getRoot().toPath().resolve("position");
+        MarketArchive.writePositions(positionPath, positions);
+
+        try (ColumnarReader reader = new ColumnarReader(tradePath)) {
+            Assert.assertEquals(trades, MarketArchive.readTrades(reader, 0, Long.MAX_VALUE));
+        }
+        try (ColumnarReader reader = new ColumnarReader(positionPath)) {
+            Assert.assertEquals(positions, MarketArchive.readPositions(reader, 0, Long.MAX_VALUE));
+            Assert.assertEquals(positions.subList(1, 2), MarketArchive.readPositions(reader, 1001, Long.MAX_VALUE));
+            try {
+                MarketArchive.readTrades(reader, 0, Long.MAX_VALUE);
+                Assert.fail("read position archive as trades");
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void testOrderBookArchive() throws Exception {
+        PriceSizeBuffer bids = new PriceSizeBuffer();
+        bids.add(100.1, 2);
+        bids.add(100, 0);
+        PriceSizeBuffer asks = new PriceSizeBuffer();
+        asks.add(100.2, 1.5);
+        List<MarketArchive.OrderBookEntry> entries = new ArrayList<>();
+        entries.add(new MarketArchive.OrderBookEntry(1000, new OrderBookValue(10, 5, bids, asks)));
+        entries.add(new MarketArchive.OrderBookEntry(1000, new OrderBookValue(11, 11,
+                new PriceSizeBuffer(), new PriceSizeBuffer())));
+        entries.add(new MarketArchive.OrderBookEntry(1001, new OrderBookValue(12, 12,
+                new PriceSizeBuffer(), asks)));
+        Path path = folder.getRoot().toPath().resolve("depth");
+        MarketArchive.writeOrderBooks(path, entries);
+
+        try (ColumnarReader reader = new ColumnarReader(path)) {
+            List<MarketArchive.OrderBookEntry> results = MarketArchive.readOrderBooks(reader, 0, Long.MAX_VALUE);
+            Assert.assertEquals(entries.size(), results.size());
+            for (int i = 0; i < entries.size(); i++) {
+                Assert.assertEquals(entries.get(i).time, results.get(i).time);
+                Assert.assertEquals(entries.get(i).value, results.get(i).value);
+            }
+        }
+    }
+
+    @Test
+    public void testPriceScale() throws Exception {
+        // 使用能精确表示所有价格的最小小数位数
+        List<KLineValue> values = new ArrayList<>();
+        values.add(new KLineValue(1000, "n1", "s1", 0.1, 0.25, 1, 0.5, 1));
+        Path path = folder.getRoot().toPath().resolve("scale2");
+        MarketArchive.writeKLines(path, values);
+        try (ColumnarReader reader = new ColumnarReader(path)) {
+            Assert.assertEquals(2, reader.getPriceScale());
+            Assert.assertEquals(values, MarketArchive.readKLines(reader, 0, Long.MAX_VALUE));
+        }
+
+        // 小于 1e-8 的价格不丢失精度
+        values.add(new KLineValue(2000, "n1", "s1", 1.5e-10, 2.25e-11, 3e-10, 1e-12, 1));
+        path = folder.getRoot().toPath().resolve("scale13");
+        MarketArchive.writeKLines(path, values);
+        try (ColumnarReader reader = new ColumnarReader(path)) {
+            Assert.assertEquals(13, reader.getPriceScale());
+            Assert.assertEquals(values, MarketArchive.readKLines(reader, 0, Long.MAX_VALUE));
+        }
+
+        // 超出精确范围时按最大可用位数保存
+        values.clear();
+        values.add(new KLineValue(1000, "n1", "s1", 1.0 / 3, 123456789.125, 1, 1, 1));
+        path = folder.getRoot().toPath().resolve("scale_max");
+        MarketArchive.writeKLines(path, values);
+        try (ColumnarReader reader = new ColumnarReader(path)) {
+            Assert.assertEquals(7, reader.getPriceScale());
+            KLineValue value = MarketArchive.readKLines(reader, 0, Long.MAX_VALUE).get(0);
+            Assert.assertEquals(1.0 / 3, value.open, 1e-7);
+            Assert.assertEquals(123456789.125, value.close, 0);
+        }
+    }
+
+    @Test
+    public void testTextColumn() throws Exception {
+        ColumnarWriter writer = new ColumnarWriter(MarketArchive.TRADE, ColumnKind.TEXT, ColumnKind.STRING);
+        String[] texts = {"f1", null, "", "成交-2", null, "f3"};
+        for (int i = 0; i < texts.length; i++) {
+            writer.beginRow(i).putText(texts[i]).putString("a1").endRow();
+        }
+        Path path = folder.getRoot().toPath().resolve("text");
+        writer.write(path);
+        try (ColumnarReader reader = new ColumnarReader(path)) {
+            Assert.assertEquals(ColumnKind.TEXT, reader.getColumnKind(1));
+            for (int i = 0; i < texts.length; i++) {
+                Assert.assertEquals(texts[i], reader.getString(1, i));
+                Assert.assertEquals("a1", reader.getString(2, i));
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testColumnarWriterTimeOrder() {
+        ColumnarWriter writer = MarketArchive.kLineWriter();
+        MarketArchive.addKLine(writer, new KLineValue(2, "n1", "s1", 1, 1, 1, 1, 1));
+        MarketArchive.addKLine(writer, new KLineValue(1, "n1", "s1", 1, 1, 1, 1, 1));
+    }
+}
@@ -0,0 +1,107 @@
+package org.eurekaka.bricks.common.cryption;
+
+import org.eurekaka.bricks.common.util.HttpUtils;
+import org.eurekaka.bricks.common.util.Utils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.crypto.Mac;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+
+public class HmacSignerTest {
+    private static final String SECRET = "NhqPtmdSJYdKjVHjA7PZj4Mge3R5YNiP1e3UZjInClVN65XAbvqqM6A7H5fATj0j";
+
+    @Test
+    public void testSignHex() {
+        // binance 文档中的签名示例
+        HmacSigner signer = new HmacSigner(SECRET, HmacSigner.HMAC_SHA256);
+        Map<String, String> params = new HashMap<>();
+        params.put("symbol", "LTCBTC");
+        params.put("side", "BUY");
+        params.put("type", "LIMIT");
+        params.put("timeInForce", "GTC");
+        params.put("quantity", "1");
+        params.put("price", "0.1");
+        params.put("recvWindow", "5000");
+        params.put("timestamp", "1499827319559");
+        String query = "symbol=LTCBTC&side=BUY&type=LIMIT&timeInForce=GTC&quantity=1" +
+                "&price=0.1&recvWindow=5000&timestamp=1499827319559";
+        Assert.assertEquals("c8db56825ae71d6d79447849e617115f4a920fa2acdcab2b053c4b2838bd6b71",
+                signer.signHex(query));
+
+        // 参数按 key 排序后与原有 TreeMap 拼接结果一致
+        StringBuilder sb = signer.builder().append("https://fapi.binance.com/fapi/v1/order?");
+        int start = sb.length();
+        HttpUtils.appendParams(sb, params);
+        Assert.assertEquals(HttpUtils.param2String(new TreeMap<>(params)), sb.substring(start));
+        Assert.assertEquals(legacySign(SECRET, "HmacSHA256", sb.substring(start)),
+                signer.signHex(sb, start, sb.length()));
+    }
+
+    @Test
+    public void testSignSameAsInitialHMac() {
+        HmacSigner signer256 = new HmacSigner(SECRET, HmacSigner.HMAC_SHA256);
+        HmacSigner signer512 = new HmacSigner(SECRET, HmacSigner.HMAC_SHA512);
+        String[] contents = {"", "GET\n/api/v4/futures/usdt/orders\n\n",
+                "1617180000000POST/api/orders{\"market\":\"BTC-PERP\",\"clientId\":\"订单\"}",
+                "x".repeat(1000)};
+        for (String content : contents) {
+            Assert.assertEquals(legacySign(SECRET, "HmacSHA256", content), signer256.signHex(content));
+            Assert.assertEquals(legacySign(SECRET, "HmacSHA512", content), signer512.signHex(content));
+
+            Mac mac = Utils.initialHMac(SECRET, "HmacSHA256");
+            Assert.assertEquals(Base64.getEncoder().encodeToString(
+                    mac.doFinal(content.getBytes(StandardCharsets.UTF_8))), signer256.signBase64(content));
+
+            Assert.assertEquals(Utils.encodeHexString(Utils.sha512(content)), signer512.sha512Hex(content));
+        }
+    }
+
+    @Test
+    public void testConcurrentSign() throws Exception {
+        HmacSigner signer = new HmacSigner(SECRET, HmacSigner.HMAC_SHA256);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Boolean>> futures = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                int id = i;
+                futures.add(executor.submit(() -> {
+                    for (int j = 0; j < 500; j++) {
+                        StringBuilder sb = signer.builder().append("timestamp=").append(id * 1000 + j);
+                        String expected = legacySign(SECRET, "HmacSHA256", sb.toString());
+                        if (!expected.equals(signer.signHex(sb))) {
+                            return false;
+                        }
+                    }
+                    return true;
+                }));
+            }
+            for (Future<Boolean> future : futures) {
+                Assert.assertTrue(future.get(10, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testMissingSecret() {
+        // 只订阅行情的账户可以创建签名器，签名时失败
+        HmacSigner signer = new HmacSigner(null, HmacSigner.HMAC_SHA256);
+        signer.signHex("timestamp=1");
+    }
+
+    @Test
+    public void testFormatDecimal() {
+        Assert.assertEquals(String.format(Locale.ROOT, "%f", 0.012), Utils.formatDecimal(0.012));
+        Assert.assertEquals(String.format(Locale.ROOT, "%f", 1234.5678915), Utils.formatDecimal(1234.5678915));
+        Assert.assertEquals(String.format(Locale.ROOT, "%f", 3.0), Utils.formatDecimal(3));
+    }
+
+    private static String legacySign(String secret, String algo, String content) {
+        Mac mac = Utils.initialHMac(secret, algo);
+        return Utils.encodeHexString(mac.doFinal(content.getBytes(StandardCharsets.UTF_8)));
+    }
+}
@@ -1,9 +1,10 @@
 package org.eurekaka.bricks.common.model;
 
+import org.junit.Assert;
 import org.junit.Test;
 
-import java.util.Comparator;
-import java.util.TreeMap;
+import java.util.LinkedList;
+import java.util.List;
 
 public class AccountStatusTest {
 
@@ -11,16 +12,55 @@ public class AccountStatusTest {
     public void testUpdateOrderBookTicker() {
         String symbol = "s1";
         AccountStatus accountStatus = new AccountStatus();
+        accountStatus.addOrderBooks(symbol, 1000);
 
-        TreeMap<Double, Double> map = new TreeMap<>(Comparator.reverseOrder());
-        accountStatus.getBidOrderBooks().put(symbol, map);
-
-        map.put(3.451, 1D);
-        map.put(3.452, 2D);
-        map.put(3.448, 3D);
-        map.put(3.443, 4D);
-        System.out.println(map);
+        OrderBook book = accountStatus.getBidOrderBooks().get(symbol);
+        book.update(3.451, 1D);
+        book.update(3.452, 2D);
+        book.update(3.448, 3D);
+        book.update(3.443, 4D);
         accountStatus.updateBidOrderBookTicker(symbol, 3.45, 1);
-        System.out.println(map);
+
+        Assert.assertEquals(3, book.size());
+        Assert.assertEquals(3.45, book.getPrice(0), 1e-9);
+        Assert.assertEquals(1D, book.getSize(0), 1e-9);
+        Assert.assertEquals(3.448, book.getPrice(1), 1e-9);
+    }
+
+    @Test
+    public void testBuildOrderBookValue() {
+        String symbol = "s1";
+        AccountStatus accountStatus = new AccountStatus();
+        accountStatus.addOrderBooks(symbol, 100);
+        accountStatus.getOrderBookValues().put(symbol, new LinkedList<>());
+
+        accountStatus.updateOrderBookValue(symbol, new OrderBookValue(11, 10,
+                List.of(new OrderBookValue.PriceSizePair(9.98, 5)),
+                List.of(new OrderBookValue.PriceSizePair(10.01, 0))));
+
+        accountStatus.buildOrderBookValue(symbol, new OrderBookValue(11, 0,
+                List.of(new OrderBookValue.PriceSizePair(9.99, 1),
+                        new OrderBookValue.PriceSizePair(9.98, 2)),
+                List.of(new OrderBookValue.PriceSizePair(10.01, 3),
+                        new OrderBookValue.PriceSizePair(10.02, 4))));
+
+        OrderBook bids = accountStatus.getBidOrderBooks().get(symbol);
+        OrderBook asks = accountStatus.getAskOrderBooks().get(symbol);
+        Assert.assertEquals(100, bids.getPricePrecision(), 0);
+        Assert.assertEquals(9.99, bids.getPrice(0), 1e-9);
+        Assert.assertEquals(5D, bids.getSize(9.98), 1e-9);
+        Assert.assertEquals(1, asks.size());
+        Assert.assertEquals(10.02, asks.getPrice(0), 1e-9);
+
+        // 连续更新
+        Assert.assertTrue(accountStatus.updateOrderBookValue(symbol, new OrderBookValue(12, 12,
+                List.of(new OrderBookValue.PriceSizePair(10.00, 1)),
+                List.of(new OrderBookValue.PriceSizePair(10.02, 0)))));
+        Assert.assertEquals(10.00, bids.getPrice(0), 1e-9);
+        Assert.assertTrue(asks.isEmpty());
+
+        // id 不连续
+        Assert.assertFalse(accountStatus.updateOrderBookValue(symbol, new OrderBookValue(20, 20,
+                List.of(), List.of())));
     }
 }
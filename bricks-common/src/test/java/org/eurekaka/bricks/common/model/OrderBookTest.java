@@ -0,0 +1,244 @@
+package org.eurekaka.bricks.common.model;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class OrderBookTest {
+
+    @Test
+    public void testBidOrderBook() {
+        OrderBook book = new OrderBook(true, 100, 2);
+        book.update(10.01, 1);
+        book.update(10.03, 3);
+        book.update(10.02, 2);
+        book.update(9.99, 4);
+
+        Assert.assertEquals(4, book.size());
+        Assert.assertEquals(10.03, book.getPrice(0), 1e-9);
+        Assert.assertEquals(3, book.getSize(0), 1e-9);
+        Assert.assertEquals(9.99, book.getPrice(3), 1e-9);
+
+        // 原地更新与删除
+        book.update(10.02, 5);
+        book.update(10.03, 0);
+        book.update(10.05, 0);
+        Assert.assertEquals(3, book.size());
+        Assert.assertEquals(10.02, book.getPrice(0), 1e-9);
+        Assert.assertEquals(5, book.getSize(0), 1e-9);
+        Assert.assertEquals(0, book.getSize(10.03), 1e-9);
+    }
+
+    @Test
+    public void testAskOrderBook() {
+        OrderBook book = new OrderBook(false, 1000);
+        book.update(10.003, 3);
+        book.update(10.001, 1);
+        book.update(10.002, 2);
+
+        Assert.assertEquals(10.001, book.getPrice(0), 1e-9);
+        Assert.assertEquals(10.003, book.getPrice(2), 1e-9);
+
+        List<Double> prices = new ArrayList<>();
+        book.forEach(2, (price, size) -> prices.add(price));
+        Assert.assertEquals(List.of(10.001, 10.002), prices);
+
+        book.clear();
+        Assert.assertTrue(book.isEmpty());
+    }
+
+    @Test
+    public void testUpdateTop() {
+        OrderBook book = new OrderBook(false, 100);
+        book.update(10.01, 1);
+        book.update(10.02, 2);
+        book.update(10.04, 4);
+
+        // 卖一价格更低，不处理
+        book.updateTop(10.00, 9);
+        Assert.assertEquals(3, book.size());
+
+        // 卖一价格升高，删除失效档位
+        book.updateTop(10.03, 3);
+        Assert.assertEquals(2, book.size());
+        Assert.assertEquals(10.03, book.getPrice(0), 1e-9);
+        Assert.assertEquals(3, book.getSize(0), 1e-9);
+
+        book.updateTop(10.04, 5);
+        Assert.assertEquals(1, book.size());
+        Assert.assertEquals(5, book.getSize(0), 1e-9);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testLevelOutOfBounds() {
+        OrderBook book = new OrderBook(true, 100);
+        book.update(1, 1);
+        book.getPrice(1);
+    }
+
+    @Test
+    public void testSnapshot() {
+        OrderBook book = new OrderBook(false, 100);
+        long stamp = book.beginUpdate();
+        book.update(10.02, 2);
+        book.update(10.01, 1);
+        book.update(10.03, 3);
+        book.endUpdate(stamp, 100);
+
+        OrderBookSnapshot snapshot = book.snapshot(2);
+        Assert.assertFalse(snapshot.isBid());
+        Assert.assertEquals(2, snapshot.size());
+        Assert.assertEquals(10.01, snapshot.getPrice(0), 1e-9);
+        Assert.assertEquals(10.02, snapshot.getPrice(1), 1e-9);
+        Assert.assertEquals(2, snapshot.getSize(1), 1e-9);
+        Assert.assertEquals(100, snapshot.getUpdateId());
+        Assert.assertEquals(book.getVersion(), snapshot.getVersion());
+        Assert.assertTrue(snapshot.isCurrent());
+
+        stamp = book.beginUpdate();
+        book.update(10.01, 0);
+        book.endUpdate(stamp, 101);
+        Assert.assertFalse(snapshot.isCurrent());
+
+        // 复用快照对象
+        book.snapshot(snapshot, 10);
+        Assert.assertTrue(snapshot.isCurrent());
+        Assert.assertEquals(2, snapshot.size());
+        Assert.assertEquals(10.02, snapshot.getPrice(0), 1e-9);
+        Assert.assertEquals(101, snapshot.getUpdateId());
+    }
+
+    @Test
+    public void testGetDepthPrice() {
+        OrderBook book = new OrderBook(true, 100);
+        long stamp = book.beginUpdate();
+        book.update(10.03, 1);
+        book.update(10.02, 2);
+        book.update(10.01, 10);
+        book.endUpdate(stamp, 7);
+
+        DepthPrice depthPrice = book.getDepthPrice("BTC", "BTCUSDT", 25, 0);
+        Assert.assertNotNull(depthPrice);
+        Assert.assertEquals(10.02, depthPrice.price, 1e-9);
+        Assert.assertEquals(30, depthPrice.realQty);
+        Assert.assertEquals(7, depthPrice.updateId);
+
+        // 跳过优于买一价格的档位
+        depthPrice = book.getDepthPrice("BTC", "BTCUSDT", 25, 10.02);
+        Assert.assertNotNull(depthPrice);
+        Assert.assertEquals(10.01, depthPrice.price, 1e-9);
+
+        Assert.assertNull(book.getDepthPrice("BTC", "BTCUSDT", 1000, 0));
+    }
+
+    @Test
+    public void testConcurrentSnapshot() throws Exception {
+        OrderBook book = new OrderBook(true, 100, 4);
+        int levels = 20;
+        Thread writer = new Thread(() -> {
+            for (int round = 1; round <= 2000; round++) {
+                long stamp = book.beginUpdate();
+                try {
+                    book.clear();
+                    for (int i = 0; i < levels; i++) {
+                        book.update(100 + i * 0.01, round);
+                    }
+                } finally {
+                    book.endUpdate(stamp, round);
+                }
+            }
+        });
+        writer.start();
+
+        OrderBookSnapshot snapshot = new OrderBookSnapshot(true);
+        while (writer.isAlive()) {
+            book.snapshot(snapshot, levels);
+            // 快照内所有档位数量一致，不会读到写入中间状态
+            for (int i = 0; i < snapshot.size(); i++) {
+                Assert.assertEquals(snapshot.getUpdateId(), snapshot.getSize(i), 1e-9);
+            }
+        }
+        writer.join();
+        Assert.assertEquals(2000, book.snapshot(1).getUpdateId());
+    }
+
+    @Test
+    public void testDepthLadder() {
+        OrderBook book = new OrderBook(false, 100);
+        long stamp = book.beginUpdate();
+        book.update(10.01, 1);
+        book.update(10.02, 2);
+        book.update(10.03, 10);
+        book.endUpdate(stamp);
+
+        DepthPrice[] ladder = book.getDepthLadder("BTC", "BTCUSDT", new int[]{0, 10, 25, 100, 1000}, 0);
+        Assert.assertEquals(10.01, ladder[0].price, 1e-9);
+        Assert.assertEquals(10.01, ladder[1].price, 1e-9);
+        Assert.assertEquals(10, ladder[1].realQty);
+        Assert.assertEquals(10.02, ladder[2].price, 1e-9);
+        Assert.assertEquals(30, ladder[2].realQty);
+        Assert.assertEquals(3, ladder[2].realSize, 1e-9);
+        Assert.assertEquals(10.03, ladder[3].price, 1e-9);
+        Assert.assertEquals(130, ladder[3].realQty);
+        Assert.assertNull(ladder[4]);
+
+        // 更新盘口后累计和增量重算
+        stamp = book.beginUpdate();
+        book.update(10.01, 0);
+        book.update(10.02, 5);
+        book.endUpdate(stamp);
+        ladder = book.getDepthLadder("BTC", "BTCUSDT", new int[]{25, 100}, 0);
+        Assert.assertEquals(10.02, ladder[0].price, 1e-9);
+        Assert.assertEquals(50, ladder[0].realQty);
+        Assert.assertEquals(10.03, ladder[1].price, 1e-9);
+    }
+
+    @Test
+    public void testDepthIndexMatchesScan() {
+        Random random = new Random(7);
+        OrderBook book = new OrderBook(true, 100, 4);
+        for (int round = 0; round < 500; round++) {
+            long stamp = book.beginUpdate();
+            for (int i = 0; i < 5; i++) {
+                double price = 100 + random.nextInt(50) / 100.0;
+                double size = random.nextInt(4) == 0 ? 0 : random.nextInt(1000) / 100.0;
+                book.update(price, size);
+            }
+            book.endUpdate(stamp);
+
+            double topPrice = random.nextBoolean() ? 0 : 100 + random.nextInt(50) / 100.0;
+            int depthQty = random.nextInt(3000);
+            DepthPrice expected = scanDepthPrice(book, depthQty, topPrice);
+            DepthPrice actual = book.getDepthPrice("BTC", "BTCUSDT", depthQty, topPrice);
+            if (expected == null) {
+                Assert.assertNull(actual);
+            } else {
+                Assert.assertNotNull(actual);
+                Assert.assertEquals(expected.price, actual.price, 1e-9);
+                Assert.assertEquals(expected.realQty, actual.realQty);
+                Assert.assertEquals(expected.realSize, actual.realSize, 1e-6);
+            }
+        }
+    }
+
+    private DepthPrice scanDepthPrice(OrderBook book, int depthQty, double topPrice) {
+        int sum1 = 0;
+        double sum2 = 0;
+        for (int i = 0; i < book.size(); i++) {
+            double price = book.getPrice(i);
+            double size = book.getSize(i);
+            if (topPrice > 0 && price > topPrice) {
+                continue;
+            }
+            sum1 += (int) Math.floor(price * size);
+            sum2 += size;
+            if (sum1 >= depthQty) {
+                return new DepthPrice("BTC", "BTCUSDT", price, sum1, sum2);
+            }
+        }
+        return null;
+    }
+}
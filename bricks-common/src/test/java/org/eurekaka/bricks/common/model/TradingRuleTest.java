@@ -0,0 +1,79 @@
+package org.eurekaka.bricks.common.model;
+
+import org.eurekaka.bricks.common.exception.StoreException;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.Collections;
+import java.util.Map;
+
+public class TradingRuleTest {
+
+    private static Info0 info(double pricePrecision, double sizePrecision, Map<String, String> properties) {
+        return new Info0(1, "n1", "s1", "a1", 1, pricePrecision, sizePrecision, true, properties);
+    }
+
+    @Test
+    public void testRounding() {
+        TradingRule rule = TradingRule.of(info(100, 1000, Collections.emptyMap()), null);
+        Assert.assertEquals(0.01, rule.tickSize, 1e-12);
+        Assert.assertEquals(0.001, rule.lotSize, 1e-12);
+        Assert.assertEquals(1.23, rule.roundPrice(1.2345), 1e-12);
+        Assert.assertEquals(1.23, rule.floorPrice(1.2399), 1e-12);
+        Assert.assertEquals(1.24, rule.ceilPrice(1.2301), 1e-12);
+        Assert.assertEquals(0.123, rule.roundSize(0.12345), 1e-12);
+
+        // 精度小于 1 时，数量为最小单位的整数倍
+        rule = TradingRule.of(info(100, 0.1, Collections.emptyMap()), null);
+        Assert.assertEquals(120, rule.roundSize(123), 1e-12);
+        Assert.assertEquals(0, rule.roundSize(4), 1e-12);
+    }
+
+    @Test
+    public void testValidate() {
+        TradingRule rule = TradingRule.of(info(100, 1000,
+                Map.of(Info0.MIN_SIZE_KEY, "0.01", Info0.MIN_NOTIONAL_KEY, "5")), null);
+        Assert.assertTrue(rule.isValid(100.01, 0.05));
+        Assert.assertNotNull(rule.validate(100, 0));
+        Assert.assertNotNull(rule.validate(100, 0.005));
+        Assert.assertNotNull(rule.validate(100, 0.0123));
+        Assert.assertNotNull(rule.validate(100.001, 0.05));
+        Assert.assertNotNull(rule.validate(100, 0.04));
+        // 市价单不校验价格与金额
+        Assert.assertTrue(rule.isValid(0, 0.04));
+    }
+
+    @Test
+    public void testExSymbol() {
+        Info0 info = info(1000, 1000, Map.of(Info0.MIN_NOTIONAL_KEY, "5"));
+        info.setExSymbol(new ExSymbol("s1", 100, 10000, 0.01, 1));
+        // 使用更粗的精度与更大的最小值
+        TradingRule rule = info.getTradingRule();
+        Assert.assertEquals(100, rule.pricePrecision, 1e-12);
+        Assert.assertEquals(1000, rule.sizePrecision, 1e-12);
+        Assert.assertEquals(0.01, rule.minSize, 1e-12);
+        Assert.assertEquals(5, rule.minNotional, 1e-12);
+        Assert.assertSame(rule, info.getTradingRule());
+    }
+
+    @Test
+    public void testRefreshOnUpdate() throws StoreException {
+        Info0 info = info(100, 1000, Collections.emptyMap());
+        InfoStore<Info0> store = Mockito.mock(InfoStore.class);
+        Mockito.when(store.query()).thenReturn(Collections.singletonList(info));
+        InfoState<Info0, ?> state = new InfoState<>(store);
+
+        TradingRule rule = state.getInfo(1).getTradingRule();
+        Assert.assertEquals(0, rule.minNotional, 1e-12);
+
+        Info0 update = info(10, 1000, Map.of(Info0.MIN_NOTIONAL_KEY, "10"));
+        state.updateInfo(update);
+        rule = state.getInfo(1).getTradingRule();
+        Assert.assertEquals(0.1, rule.tickSize, 1e-12);
+        Assert.assertEquals(10, rule.minNotional, 1e-12);
+
+        state.getInfo(1).setProperty(Info0.MIN_SIZE_KEY, "1");
+        Assert.assertEquals(1, state.getInfo(1).getTradingRule().minSize, 1e-12);
+    }
+}
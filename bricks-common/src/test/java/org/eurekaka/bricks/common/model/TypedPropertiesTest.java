@@ -0,0 +1,80 @@
+package org.eurekaka.bricks.common.model;
+
+import org.eurekaka.bricks.common.exception.StoreException;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+public class TypedPropertiesTest {
+
+    @Test
+    public void testParse() {
+        PropertySchema schema = new PropertySchema("test");
+        PropertySchema.IntKey intKey = schema.intKey("int", 1);
+        PropertySchema.LongKey longKey = schema.longKey("long", 2L);
+        PropertySchema.DoubleKey doubleKey = schema.doubleKey("double", 0.5);
+        PropertySchema.BooleanKey booleanKey = schema.booleanKey("boolean", true);
+
+        TypedProperties typed = TypedProperties.parse(schema, Collections.emptyMap());
+        Assert.assertEquals(1, typed.get(intKey));
+        Assert.assertEquals(2L, typed.get(longKey));
+        Assert.assertEquals(0.5, typed.get(doubleKey), 1e-12);
+        Assert.assertTrue(typed.get(booleanKey));
+
+        // 解析失败时使用默认值
+        typed = TypedProperties.parse(schema, Map.of("int", "abc", "long", "10",
+                "double", "0.1", "boolean", "false"));
+        Assert.assertEquals(1, typed.get(intKey));
+        Assert.assertEquals(10L, typed.get(longKey));
+        Assert.assertEquals(0.1, typed.get(doubleKey), 1e-12);
+        Assert.assertFalse(typed.get(booleanKey));
+
+        // 错误的值记录日志，不影响其他属性
+        typed = TypedProperties.parse(schema, Map.of("double", "1e-3x", "boolean", "yes"));
+        Assert.assertEquals(0.5, typed.get(doubleKey), 1e-12);
+        Assert.assertFalse(typed.get(booleanKey));
+    }
+
+    @Test
+    public void testInfoUpdate() throws StoreException {
+        Info0 info = new Info0(1, "n1", "s1", "a1", 1, 100, 100, true,
+                new HashMap<>(Map.of("depth_qty", "10")));
+        InfoStore<Info0> store = Mockito.mock(InfoStore.class);
+        Mockito.when(store.query()).thenReturn(Collections.singletonList(info));
+        InfoState<Info0, ?> state = new InfoState<>(store);
+
+        Assert.assertEquals(10, state.getInfo(1).getInt(Info0.DEPTH_QTY));
+        Assert.assertEquals(61, state.getInfo(1).getInt(Info0.KLINE_SIZE));
+
+        state.getInfo(1).setProperty("depth_qty", "20");
+        Assert.assertEquals(20, state.getInfo(1).getInt(Info0.DEPTH_QTY));
+
+        state.updateInfo(new Info0(1, "n1", "s1", "a1", 1, 100, 100, true,
+                Map.of("kline_size", "30")));
+        Assert.assertEquals(20, state.getInfo(1).getInt(Info0.DEPTH_QTY));
+        Assert.assertEquals(30, state.getInfo(1).getInt(Info0.KLINE_SIZE));
+    }
+
+    @Test
+    public void testStrategyConfig() {
+        PropertySchema schema = new PropertySchema("strategy");
+        PropertySchema.DoubleKey rate = schema.doubleKey("rate", 0.001);
+        StrategyConfig config = new StrategyConfig(1, "s1", "clz", "n1", true,
+                new HashMap<>(Map.of("rate", "0.01")));
+        Assert.assertEquals(0.01, config.getDouble(rate), 1e-12);
+
+        config.setProperties(Map.of("rate", "0.02"));
+        Assert.assertEquals(0.02, config.getDouble(rate), 1e-12);
+
+        // 快照生成后新增的属性，读取时重新解析
+        PropertySchema.IntKey quantity = schema.intKey("quantity", 100);
+        Assert.assertEquals(100, config.getInt(quantity));
+        config.setProperty("quantity", "50");
+        Assert.assertEquals(50, config.getInt(quantity));
+        Assert.assertEquals(0.02, config.getDouble(rate), 1e-12);
+    }
+}
@@ -0,0 +1,27 @@
+package org.eurekaka.bricks.common.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+
+public class CountingSSLContextTest {
+
+    @Test
+    public void testCountHandshakes() throws Exception {
+        SSLContext delegate = SSLContext.getDefault();
+        CountingSSLContext context = CountingSSLContext.wrap(delegate);
+        Assert.assertEquals(delegate.getProtocol(), context.getProtocol());
+        Assert.assertEquals(0, context.getHandshakes());
+
+        // 读取参数不创建连接
+        context.getDefaultSSLParameters();
+        context.getSupportedSSLParameters();
+        Assert.assertEquals(0, context.getHandshakes());
+
+        SSLEngine engine = context.createSSLEngine("localhost", 443);
+        Assert.assertEquals("localhost", engine.getPeerHost());
+        Assert.assertEquals(1, context.getHandshakes());
+    }
+}
@@ -0,0 +1,54 @@
+package org.eurekaka.bricks.common.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.zip.DataFormatException;
+import java.util.zip.GZIPOutputStream;
+
+public class GzipInflaterTest {
+
+    @Test
+    public void testInflate() throws Exception {
+        GzipInflater inflater = new GzipInflater(64);
+        Random random = new Random(3);
+        for (int i = 0; i < 50; i++) {
+            StringBuilder builder = new StringBuilder("{\"ch\":\"market.BTC_CQ.depth.step6\",\"tick\":{\"bids\":[");
+            for (int j = 0; j < random.nextInt(200); j++) {
+                builder.append('[').append(random.nextInt(60000)).append('.').append(random.nextInt(100))
+                        .append(',').append(random.nextInt(1000)).append("],");
+            }
+            builder.append("[1,1]]}}");
+            byte[] expected = builder.toString().getBytes(StandardCharsets.UTF_8);
+            byte[] compressed = gzip(expected);
+
+            // 带偏移量的输入
+            byte[] data = new byte[compressed.length + 3];
+            System.arraycopy(compressed, 0, data, 3, compressed.length);
+            int length = inflater.inflate(data, 3, compressed.length);
+            Assert.assertEquals(expected.length, length);
+            for (int k = 0; k < length; k++) {
+                Assert.assertEquals(expected[k], inflater.getBuffer()[k]);
+            }
+        }
+        inflater.close();
+    }
+
+    @Test(expected = DataFormatException.class)
+    public void testCorruptData() throws Exception {
+        byte[] compressed = gzip("{\"ping\":1}".getBytes(StandardCharsets.UTF_8));
+        compressed[compressed.length - 8] ^= 1;
+        new GzipInflater().inflate(compressed, 0, compressed.length);
+    }
+
+    private static byte[] gzip(byte[] data) throws Exception {
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        try (GZIPOutputStream gos = new GZIPOutputStream(os)) {
+            gos.write(data);
+        }
+        return os.toByteArray();
+    }
+}
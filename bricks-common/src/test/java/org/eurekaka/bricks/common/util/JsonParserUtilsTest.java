@@ -0,0 +1,62 @@
+package org.eurekaka.bricks.common.util;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.eurekaka.bricks.common.model.PriceSizeBuffer;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+
+public class JsonParserUtilsTest {
+
+    @Test
+    public void testParseDouble() {
+        String[] values = {"0", "0.0", "1", "-1.5", "0.00001234", "43251.17", "00012.500",
+                "123456789012345", "1234567890.123456789", "1e-5", "0.1000000000000000055511151231257827"};
+        for (String value : values) {
+            Assert.assertEquals(value, Double.parseDouble(value),
+                    JsonParserUtils.parseDouble(value.toCharArray(), 0, value.length()), 0);
+        }
+
+        Random random = new Random(11);
+        for (int i = 0; i < 10000; i++) {
+            String value = random.nextInt(100000) + "." + random.nextInt(100000000);
+            Assert.assertEquals(value, Double.parseDouble(value),
+                    JsonParserUtils.parseDouble(value.toCharArray(), 0, value.length()), 0);
+        }
+    }
+
+    @Test
+    public void testReadPriceSizeArrays() throws Exception {
+        String message = "{\"e\":\"depthUpdate\",\"b\":[[\"10.01\",\"1.5\"],[\"10.00\",\"0\"]]," +
+                "\"a\":[[10.02,3,\"ignored\"]],\"s\":\"BTCUSDT\"}";
+        PriceSizeBuffer bids = new PriceSizeBuffer(1);
+        PriceSizeBuffer asks = new PriceSizeBuffer();
+        String symbol = null;
+        try (JsonParser parser = Utils.mapper.getFactory().createParser(message.toCharArray())) {
+            Assert.assertEquals(JsonToken.START_OBJECT, parser.nextToken());
+            String field;
+            while ((field = parser.nextFieldName()) != null) {
+                parser.nextToken();
+                if ("b".equals(field)) {
+                    JsonParserUtils.readPriceSizeArrays(parser, bids);
+                } else if ("a".equals(field)) {
+                    JsonParserUtils.readPriceSizeArrays(parser, asks);
+                } else if ("s".equals(field)) {
+                    symbol = parser.getText();
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        Assert.assertEquals("BTCUSDT", symbol);
+        Assert.assertEquals(2, bids.size());
+        Assert.assertEquals(10.01, bids.getPrice(0), 0);
+        Assert.assertEquals(1.5, bids.getSize(0), 0);
+        Assert.assertEquals(0, bids.getSize(1), 0);
+        Assert.assertEquals(1, asks.size());
+        Assert.assertEquals(10.02, asks.getPrice(0), 0);
+        Assert.assertEquals(3, asks.getSize(0), 0);
+    }
+}
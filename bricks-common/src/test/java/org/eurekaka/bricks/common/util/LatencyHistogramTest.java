@@ -0,0 +1,48 @@
+package org.eurekaka.bricks.common.util;
+
+import org.eurekaka.bricks.common.model.LatencySnapshot;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void testBucketIndex() {
+        int last = -1;
+        for (long value = 0; value < 1_000_000; value++) {
+            int index = LatencyHistogram.indexOf(value);
+            Assert.assertTrue(index == last || index == last + 1);
+            Assert.assertTrue(LatencyHistogram.highestValue(index) >= value);
+            last = index;
+        }
+        // 相对误差在子桶精度以内
+        for (long value = 32; value < (1L << 40); value = value * 3 + 7) {
+            long highest = LatencyHistogram.highestValue(LatencyHistogram.indexOf(value));
+            Assert.assertTrue((highest - value) / (double) value < 1 / 16.0);
+        }
+        Assert.assertEquals(LatencyHistogram.LENGTH - 1, LatencyHistogram.indexOf(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void testSnapshot() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Assert.assertEquals(0, histogram.snapshot("empty").getCount());
+
+        // 1us 到 1000us 均匀分布
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000L);
+        }
+        LatencySnapshot snapshot = histogram.snapshot("test");
+        Assert.assertEquals("test", snapshot.getStage());
+        Assert.assertEquals(1000, snapshot.getCount());
+        Assert.assertEquals(500.5, snapshot.getMean(), 0.1);
+        Assert.assertEquals(500, snapshot.getP50(), 500 / 16.0);
+        Assert.assertEquals(900, snapshot.getP90(), 900 / 16.0);
+        Assert.assertEquals(990, snapshot.getP99(), 990 / 16.0);
+        Assert.assertEquals(1000, snapshot.getP999(), 0.1);
+        Assert.assertEquals(1000, snapshot.getMax(), 0.1);
+
+        histogram.reset();
+        Assert.assertEquals(0, histogram.snapshot("test").getCount());
+    }
+}
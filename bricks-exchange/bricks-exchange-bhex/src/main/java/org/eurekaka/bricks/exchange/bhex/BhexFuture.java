@@ -95,6 +95,12 @@ public class BhexFuture extends AbstractFutureExchange {
         return o;
     }
 
+    // 通过 rest 接口查询仓位，在 action 线程池中执行
+    @Override
+    protected boolean isBlockingAction(ExAction<?> action) {
+        return action.getType() == ExAction.ActionType.GET_POSITIONS || super.isBlockingAction(action);
+    }
+
     @Override
     protected ExMessage<List<PositionValue>> getPositions() throws ExApiException {
         List<PositionValue> positions = api.getPositionValue(null);
@@ -3,6 +3,7 @@ package org.eurekaka.bricks.exchange.bhex;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.JsonMappingException;
 import org.eurekaka.bricks.api.FutureExApi;
+import org.eurekaka.bricks.common.cryption.HmacSigner;
 import org.eurekaka.bricks.common.exception.ExApiException;
 import org.eurekaka.bricks.common.exception.InitializeException;
 import org.eurekaka.bricks.common.model.*;
@@ -21,6 +22,7 @@ public class BhexFutureApi implements FutureExApi {
 
     private final AccountConfig accountConfig;
     private final HttpClient httpClient;
+    private final HmacSigner signer;
 
     private final Map<String, Double> contractMultiplier;
     // 默认5倍杠杆不变
@@ -29,6 +31,7 @@ public class BhexFutureApi implements FutureExApi {
     public BhexFutureApi(AccountConfig accountConfig, HttpClient httpClient) {
         this.accountConfig = accountConfig;
         this.httpClient = httpClient;
+        this.signer = new HmacSigner(accountConfig.getAuthSecret(), HmacSigner.HMAC_SHA256);
 
         this.contractMultiplier = new ConcurrentHashMap<>();
         this.leverage = Integer.parseInt(accountConfig.getProperty("leverage", "5"));
@@ -78,7 +81,7 @@ public class BhexFutureApi implements FutureExApi {
     public List<AccountValue> getAccountValue() throws ExApiException {
         try {
             List<AccountValue> accountValues = new ArrayList<>();
-            String url = BhexUtils.generateSignedUrl(accountConfig,
+            String url = BhexUtils.generateSignedUrl(accountConfig, signer,
                     "/openapi/contract/v1/account", new HashMap<>());
             HttpRequest request = HttpRequest.newBuilder(new URI(url))
                     .GET()
@@ -166,11 +169,11 @@ public class BhexFutureApi implements FutureExApi {
             if (size == 0) {
                 return OrderResultValue.FAIL_OK.name();
             }
-            params.put("quantity", String.format("%f", size));
+            params.put("quantity", Utils.formatDecimal(size));
 
             params.put("leverage", String.valueOf(leverage));
 
-            String url = BhexUtils.generateSignedUrl(accountConfig, "/openapi/contract/v1/order", params);
+            String url = BhexUtils.generateSignedUrl(accountConfig, signer, "/openapi/contract/v1/order", params);
             HttpRequest request = HttpRequest.newBuilder(new URI(url))
                     .POST(HttpRequest.BodyPublishers.noBody())
                     .header("X-BH-APIKEY", accountConfig.getAuthKey())
@@ -196,7 +199,7 @@ public class BhexFutureApi implements FutureExApi {
             params.put("symbol", symbol);
             params.put("limit", String.valueOf(100));
 
-            String url = BhexUtils.generateSignedUrl(accountConfig,
+            String url = BhexUtils.generateSignedUrl(accountConfig, signer,
                     "/openapi/contract/v1/openOrders", params);
             HttpRequest request = HttpRequest.newBuilder(new URI(url))
                     .GET()
@@ -233,7 +236,7 @@ public class BhexFutureApi implements FutureExApi {
             params.put("orderType", "LIMIT");
             params.put("orderId", orderId);
 
-            String url = BhexUtils.generateSignedUrl(accountConfig,
+            String url = BhexUtils.generateSignedUrl(accountConfig, signer,
                     "/openapi/contract/v1/order/cancel", params);
             HttpRequest request = HttpRequest.newBuilder(new URI(url))
                     .DELETE()
@@ -247,7 +250,7 @@ public class BhexFutureApi implements FutureExApi {
             }
             if (value.code == -1139) {
                 // 订单已经成交
-                String url1 = BhexUtils.generateSignedUrl(accountConfig,
+                String url1 = BhexUtils.generateSignedUrl(accountConfig, signer,
                         "/openapi/contract/v1/getOrder", params);
                 HttpRequest request1 = HttpRequest.newBuilder(new URI(url1))
                         .GET()
@@ -315,7 +318,7 @@ public class BhexFutureApi implements FutureExApi {
 
     public Map<String, BhexPosValue> getBhexPositions() throws ExApiException {
         try {
-            String url = BhexUtils.generateSignedUrl(accountConfig,
+            String url = BhexUtils.generateSignedUrl(accountConfig, signer,
                     "/openapi/contract/v1/positions", new HashMap<>());
             HttpRequest request = HttpRequest.newBuilder(new URI(url))
                     .GET()
@@ -358,7 +361,7 @@ public class BhexFutureApi implements FutureExApi {
 
     public String getListenKey() throws ExApiException {
         try {
-            String url = BhexUtils.generateSignedUrl(accountConfig,
+            String url = BhexUtils.generateSignedUrl(accountConfig, signer,
                     "/openapi/v1/userDataStream", new HashMap<>());
             HttpRequest request = HttpRequest.newBuilder(new URI(url))
                     .POST(HttpRequest.BodyPublishers.noBody())
@@ -380,7 +383,7 @@ public class BhexFutureApi implements FutureExApi {
         try {
             Map<String, String> params = new HashMap<>();
             params.put("listenKey", listenKey);
-            String url = BhexUtils.generateSignedUrl(accountConfig,
+            String url = BhexUtils.generateSignedUrl(accountConfig, signer,
                     "/openapi/v1/userDataStream", params);
             HttpRequest request = HttpRequest.newBuilder(new URI(url))
                     .PUT(HttpRequest.BodyPublishers.noBody())
@@ -17,6 +17,17 @@ public class BhexFutureListener extends WebSocketListener<FutureAccountStatus, B
         super(accountConfig, accountStatus, api, executor);
     }
 
+    // pong 消息，{"pong": 1535975085052}，直接在回调线程更新时间
+    @Override
+    protected boolean processControlText(WebSocket webSocket, char[] chars, int length) {
+        if (length < 64 && containsAscii(chars, length, "\"pong\"") &&
+                !containsAscii(chars, length, "\"event\"")) {
+            accountStatus.updateLastPongTime();
+            return true;
+        }
+        return false;
+    }
+
     @Override
     protected void processWholeText(WebSocket webSocket, String message) throws Exception {
         if (message.startsWith("{")) {
@@ -2,12 +2,12 @@ package org.eurekaka.bricks.exchange.bhex;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import org.eurekaka.bricks.api.ExApi;
+import org.eurekaka.bricks.common.cryption.HmacSigner;
 import org.eurekaka.bricks.common.exception.ExApiException;
 import org.eurekaka.bricks.common.model.*;
 import org.eurekaka.bricks.common.util.HttpUtils;
 import org.eurekaka.bricks.common.util.Utils;
 
-import javax.crypto.Mac;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
@@ -21,10 +21,12 @@ public class BhexSpotApi implements ExApi {
 
     private final AccountConfig accountConfig;
     private final HttpClient httpClient;
+    private final HmacSigner signer;
 
     public BhexSpotApi(AccountConfig accountConfig, HttpClient httpClient) {
         this.accountConfig = accountConfig;
         this.httpClient = httpClient;
+        this.signer = new HmacSigner(accountConfig.getAuthSecret(), HmacSigner.HMAC_SHA256);
     }
 
     @Override
@@ -287,11 +289,12 @@ public class BhexSpotApi implements ExApi {
     private String generateSignedUrl(String path, Map<String, String> params) {
         params.put("recvWindow", "5000");
         params.put("timestamp", String.valueOf(System.currentTimeMillis()));
-        String paramString = HttpUtils.param2String(params);
-        // 该对象非线程安全，而且每次生成新对象并不影响性能
-        Mac sha256Mac = Utils.initialHMac(accountConfig.getAuthSecret(), "HmacSHA256");
-        String signature = Utils.encodeHexString(sha256Mac.doFinal(paramString.getBytes()));
-        return accountConfig.getUrl() + path + "?" + paramString + "&signature=" + signature;
+        // 在线程内复用的缓冲中拼接 url，只对 query 部分签名
+        StringBuilder sb = signer.builder().append(accountConfig.getUrl()).append(path).append('?');
+        int start = sb.length();
+        HttpUtils.appendParams(sb, params);
+        String signature = signer.signHex(sb, start, sb.length());
+        return sb.append("&signature=").append(signature).toString();
     }
 
     private String withdrawAssetStatus(int status) {
@@ -1,22 +1,23 @@
 package org.eurekaka.bricks.exchange.bhex;
 
+import org.eurekaka.bricks.common.cryption.HmacSigner;
 import org.eurekaka.bricks.common.model.AccountConfig;
 import org.eurekaka.bricks.common.util.HttpUtils;
-import org.eurekaka.bricks.common.util.Utils;
 
-import javax.crypto.Mac;
 import java.util.Map;
 
 public class BhexUtils {
 
-    public static String generateSignedUrl(AccountConfig accountConfig, String path, Map<String, String> params) {
+    public static String generateSignedUrl(AccountConfig accountConfig, HmacSigner signer,
+                                           String path, Map<String, String> params) {
         params.put("recvWindow", "5000");
         params.put("timestamp", String.valueOf(System.currentTimeMillis()));
-        String paramString = HttpUtils.param2String(params);
-        // 该对象非线程安全，而且每次生成新对象并不影响性能
-        Mac sha256Mac = Utils.initialHMac(accountConfig.getAuthSecret(), "HmacSHA256");
-        String signature = Utils.encodeHexString(sha256Mac.doFinal(paramString.getBytes()));
-        return accountConfig.getUrl() + path + "?" + paramString + "&signature=" + signature;
+        // 在线程内复用的缓冲中拼接 url，只对 query 部分签名
+        StringBuilder sb = signer.builder().append(accountConfig.getUrl()).append(path).append('?');
+        int start = sb.length();
+        HttpUtils.appendParams(sb, params);
+        String signature = signer.signHex(sb, start, sb.length());
+        return sb.append("&signature=").append(signature).toString();
     }
 
 }
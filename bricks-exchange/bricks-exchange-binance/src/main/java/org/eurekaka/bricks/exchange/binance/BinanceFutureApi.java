@@ -4,6 +4,7 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectReader;
 import org.eurekaka.bricks.api.FutureExApi;
+import org.eurekaka.bricks.common.cryption.HmacSigner;
 import org.eurekaka.bricks.common.exception.ExApiException;
 import org.eurekaka.bricks.common.model.*;
 import org.eurekaka.bricks.common.util.HttpUtils;
@@ -11,12 +12,13 @@ import org.eurekaka.bricks.common.util.Utils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import javax.crypto.Mac;
 import java.io.IOException;
 import java.net.URI;
+import java.net.URLEncoder;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
@@ -27,7 +29,12 @@ import static org.eurekaka.bricks.common.util.Utils.PRECISION;
 public class BinanceFutureApi implements FutureExApi {
     private final static Logger logger = LoggerFactory.getLogger(BinanceFutureApi.class);
 
+    // batchOrders 接口每次请求的最大订单数量
+    private static final int BATCH_ORDER_LIMIT = 5;
+    private static final int BATCH_CANCEL_LIMIT = 10;
+
     private final HttpClient httpClient;
+    private final HmacSigner signer;
     private final AccountConfig accountConfig;
 
     private final ObjectReader reader;
@@ -36,11 +43,28 @@ public class BinanceFutureApi implements FutureExApi {
     public BinanceFutureApi(AccountConfig accountConfig, HttpClient httpClient) {
         this.accountConfig = accountConfig;
         this.httpClient = httpClient;
+        this.signer = new HmacSigner(accountConfig.getAuthSecret(), HmacSigner.HMAC_SHA256);
         this.reader = Utils.mapper.reader().forType(BinanceRestV1.class);
         this.timeout = Duration.ofMillis(Integer.parseInt(
                 accountConfig.getProperty("http_request_timeout", "1500")));
     }
 
+    /**
+     * 延长 listen key 有效期，权重为 1，只需要 api key
+     */
+    @Override
+    public HttpRequest getHeartbeatRequest() throws ExApiException {
+        try {
+            return HttpRequest.newBuilder(new URI(accountConfig.getUrl() + "/fapi/v1/listenKey"))
+                    .PUT(HttpRequest.BodyPublishers.noBody())
+                    .header("X-MBX-APIKEY", accountConfig.getAuthKey())
+                    .timeout(timeout)
+                    .build();
+        } catch (Exception e) {
+            throw new ExApiException("failed to create heartbeat request", e);
+        }
+    }
+
     @Override
     public String getAuthMessage() throws ExApiException {
         try {
@@ -116,7 +140,18 @@ public class BinanceFutureApi implements FutureExApi {
             for (BinanceSymbolInfo info : result.symbols) {
                 double quantityPrecision = Math.pow(10, info.quantityPrecision);
                 double pricePrecision = Math.pow(10, info.pricePrecision);
-                symbols.add(new ExSymbol(info.symbol, pricePrecision, quantityPrecision));
+                double minSize = 0;
+                double minNotional = 0;
+                if (info.filters != null) {
+                    for (Map<String, Object> filter : info.filters) {
+                        if ("LOT_SIZE".equals(filter.get("filterType")) && filter.containsKey("minQty")) {
+                            minSize = Double.parseDouble(filter.get("minQty").toString());
+                        } else if ("MIN_NOTIONAL".equals(filter.get("filterType")) && filter.containsKey("notional")) {
+                            minNotional = Double.parseDouble(filter.get("notional").toString());
+                        }
+                    }
+                }
+                symbols.add(new ExSymbol(info.symbol, pricePrecision, quantityPrecision, minSize, minNotional));
             }
             return symbols;
         } catch (Throwable t) {
@@ -159,27 +194,51 @@ public class BinanceFutureApi implements FutureExApi {
     @Override
     public List<AccountValue> getAccountValue() throws ExApiException {
         try {
-            List<AccountValue> accountValues = new ArrayList<>();
-            String url = generateSignedUrl("/fapi/v2/account", new HashMap<>());
-            HttpRequest request = HttpRequest.newBuilder(new URI(url))
-                    .GET()
-                    .header("X-MBX-APIKEY", accountConfig.getAuthKey())
-                    .build();
-            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-            BinanceRestV1 result = reader.readValue(response.body());
-            if (result.assets != null) {
-                for (BinanceAssetData data : result.assets) {
-                    double totalBalance = data.walletBalance + data.unrealizedProfit;
-                    accountValues.add(new AccountValue(data.asset, accountConfig.getName(),
-                            totalBalance, data.walletBalance, data.availableBalance));
-                }
-            }
-            return  accountValues;
+            HttpResponse<String> response = httpClient.send(accountRequest(), HttpResponse.BodyHandlers.ofString());
+            return toAccountValues(reader.readValue(response.body()));
         } catch (Exception e) {
             throw new ExApiException("failed to get account info", e);
         }
     }
 
+    @Override
+    public CompletableFuture<List<AccountValue>> asyncGetAccountValues() throws ExApiException {
+        try {
+            return httpClient.sendAsync(accountRequest(), HttpResponse.BodyHandlers.ofString())
+                    .thenApply(response -> {
+                        try {
+                            return toAccountValues(reader.readValue(response.body()));
+                        } catch (Exception e) {
+                            throw new CompletionException("failed to parse response body: " + response.body(), e);
+                        }
+                    });
+        } catch (Exception e) {
+            throw new ExApiException("failed to get account info", e);
+        }
+    }
+
+    // 账户余额与风险信息使用同一接口
+    private HttpRequest accountRequest() throws Exception {
+        String url = generateSignedUrl("/fapi/v2/account", new HashMap<>());
+        return HttpRequest.newBuilder(new URI(url))
+                .GET()
+                .header("X-MBX-APIKEY", accountConfig.getAuthKey())
+                .timeout(timeout)
+                .build();
+    }
+
+    private List<AccountValue> toAccountValues(BinanceRestV1 result) {
+        List<AccountValue> accountValues = new ArrayList<>();
+        if (result.assets != null) {
+            for (BinanceAssetData data : result.assets) {
+                double totalBalance = data.walletBalance + data.unrealizedProfit;
+                accountValues.add(new AccountValue(data.asset, accountConfig.getName(),
+                        totalBalance, data.walletBalance, data.availableBalance));
+            }
+        }
+        return accountValues;
+    }
+
     @Override
     public String makeOrder(Order order) throws ExApiException {
         try {
@@ -191,7 +250,7 @@ public class BinanceFutureApi implements FutureExApi {
             if (size == 0) {
                 return OrderResultValue.FAIL_OK.name();
             }
-            params.put("quantity", String.format("%f", size));
+            params.put("quantity", Utils.formatDecimal(size));
             if (OrderType.LIMIT.equals(order.getOrderType())) {
                 params.put("price", String.valueOf(order.getPrice()));
                 params.put("timeInForce", "GTX");
@@ -219,37 +278,7 @@ public class BinanceFutureApi implements FutureExApi {
     @Override
     public CompletableFuture<CurrentOrder> asyncMakeOrder(Order order) throws ExApiException {
         try {
-            Map<String, String> params = new HashMap<>();
-            params.put("symbol", order.getSymbol());
-            params.put("side", order.getSide().name());
-            double size = order.getSize();
-            if (size == 0) {
-                throw new ExApiException("async make order failed, size is 0: " + order);
-            }
-            params.put("quantity", String.format("%f", size));
-            if (OrderType.MARKET.equals(order.getOrderType())) {
-                params.put("type", "MARKET");
-//                params.put("newOrderRespType", "RESULT");
-            } else if (OrderType.LIMIT_GTX.equals(order.getOrderType())) {
-                params.put("price", String.valueOf(order.getPrice()));
-                params.put("timeInForce", "GTX");
-                params.put("type", "LIMIT");
-//                params.put("newOrderRespType", "RESULT");
-            } else if (OrderType.LIMIT_IOC.equals(order.getOrderType())) {
-                params.put("type", "LIMIT");
-                params.put("price", String.valueOf(order.getPrice()));
-                params.put("timeInForce", "IOC");
-//                params.put("newOrderRespType", "RESULT");
-            } else if (OrderType.LIMIT_GTC.equals(order.getOrderType())) {
-                params.put("type", "LIMIT");
-                params.put("price", String.valueOf(order.getPrice()));
-                params.put("timeInForce", "GTC");
-//                params.put("newOrderRespType", "RESULT");
-            }
-            if (order.getClientOrderId() != null) {
-                params.put("newClientOrderId", order.getClientOrderId());
-            }
-            String url = generateSignedUrl("/fapi/v1/order", params);
+            String url = generateSignedUrl("/fapi/v1/order", orderParams(order));
             HttpRequest request = HttpRequest.newBuilder(new URI(url))
                     .POST(HttpRequest.BodyPublishers.noBody())
                     .timeout(timeout)
@@ -260,10 +289,7 @@ public class BinanceFutureApi implements FutureExApi {
                         try {
                             if (response.statusCode() == 200) {
                                 BinanceOrder result = Utils.mapper.readValue(response.body(), BinanceOrder.class);
-                                return new CurrentOrder(result.orderId, order.getName(), order.getSymbol(),
-                                        accountConfig.getName(), order.getSide(), order.getOrderType(),
-                                        order.getSize(), result.price, result.executedQty,
-                                        BinanceUtils.getStatus(result.status), result.updateTime, result.clientOrderId);
+                                return toCurrentOrder(order, result);
                             }
                         } catch (Exception e) {
                             throw new CompletionException("failed to parse body: " + response.body(), e);
@@ -278,6 +304,174 @@ public class BinanceFutureApi implements FutureExApi {
         }
     }
 
+    @Override
+    public boolean supportAmendOrder(Order order) {
+        return OrderType.LIMIT_GTC.equals(order.getOrderType()) || OrderType.LIMIT_GTX.equals(order.getOrderType());
+    }
+
+    /**
+     * PUT /fapi/v1/order 修改限价单的价格与数量，订单保留原有的 client order id 与已成交数量
+     */
+    @Override
+    public CompletableFuture<CurrentOrder> asyncAmendOrder(String clientOrderId, Order order) throws ExApiException {
+        try {
+            Map<String, String> params = new HashMap<>();
+            params.put("symbol", order.getSymbol());
+            params.put("side", order.getSide().name());
+            params.put("quantity", Utils.formatDecimal(order.getSize()));
+            params.put("price", String.valueOf(order.getPrice()));
+            params.put("origClientOrderId", clientOrderId);
+            String url = generateSignedUrl("/fapi/v1/order", params);
+            HttpRequest request = HttpRequest.newBuilder(new URI(url))
+                    .PUT(HttpRequest.BodyPublishers.noBody())
+                    .timeout(timeout)
+                    .header("X-MBX-APIKEY", accountConfig.getAuthKey())
+                    .build();
+            return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                    .thenApply(response -> {
+                        try {
+                            BinanceOrder result = Utils.mapper.readValue(response.body(), BinanceOrder.class);
+                            if (response.statusCode() != 200 || result.code != 0) {
+                                logger.info("failed to amend order: {}, code: {}, msg: {}",
+                                        order, result.code, result.msg);
+                                return null;
+                            }
+                            return toCurrentOrder(order, result);
+                        } catch (Exception e) {
+                            throw new CompletionException("failed to parse body: " + response.body(), e);
+                        }
+                    }).exceptionally(ex -> {
+                        logger.error("failed to async amend order, http request error", ex);
+                        return null;
+                    });
+        } catch (Exception e) {
+            throw new ExApiException("failed to amend order.", e);
+        }
+    }
+
+    /**
+     * 通过 batchOrders 接口下单，每次最多 5 个订单，参数错误的订单不加入请求
+     */
+    @Override
+    public List<CompletableFuture<CurrentOrder>> asyncMakeOrders(List<Order> orders) throws ExApiException {
+        List<CompletableFuture<CurrentOrder>> futures = new ArrayList<>(Collections.nCopies(orders.size(), null));
+        List<Integer> indexes = new ArrayList<>();
+        List<Map<String, String>> batch = new ArrayList<>();
+        for (int i = 0; i < orders.size(); i++) {
+            try {
+                batch.add(orderParams(orders.get(i)));
+                indexes.add(i);
+            } catch (ExApiException e) {
+                futures.set(i, CompletableFuture.failedFuture(e));
+            }
+        }
+
+        for (int start = 0; start < batch.size(); start += BATCH_ORDER_LIMIT) {
+            int end = Math.min(start + BATCH_ORDER_LIMIT, batch.size());
+            if (end - start == 1) {
+                futures.set(indexes.get(start), asyncMakeOrder(orders.get(indexes.get(start))));
+                continue;
+            }
+            CompletableFuture<List<BinanceOrder>> results = sendBatchRequest("POST",
+                    "batchOrders", batch.subList(start, end), null);
+            for (int i = start; i < end; i++) {
+                Order order = orders.get(indexes.get(i));
+                int position = i - start;
+                futures.set(indexes.get(i), results.thenApply(values -> {
+                    BinanceOrder result = values.get(position);
+                    if (result.code != 0) {
+                        logger.error("failed to make batch order: {}, code: {}, msg: {}",
+                                order, result.code, result.msg);
+                        return null;
+                    }
+                    return toCurrentOrder(order, result);
+                }).exceptionally(ex -> {
+                    logger.error("failed to async make batch orders, http request error", ex);
+                    return null;
+                }));
+            }
+        }
+        return futures;
+    }
+
+    private Map<String, String> orderParams(Order order) throws ExApiException {
+        Map<String, String> params = new HashMap<>();
+        params.put("symbol", order.getSymbol());
+        params.put("side", order.getSide().name());
+        double size = order.getSize();
+        if (size == 0) {
+            throw new ExApiException("async make order failed, size is 0: " + order);
+        }
+        params.put("quantity", Utils.formatDecimal(size));
+        if (OrderType.MARKET.equals(order.getOrderType())) {
+            params.put("type", "MARKET");
+//            params.put("newOrderRespType", "RESULT");
+        } else if (OrderType.LIMIT_GTX.equals(order.getOrderType())) {
+            params.put("price", String.valueOf(order.getPrice()));
+            params.put("timeInForce", "GTX");
+            params.put("type", "LIMIT");
+//            params.put("newOrderRespType", "RESULT");
+        } else if (OrderType.LIMIT_IOC.equals(order.getOrderType())) {
+            params.put("type", "LIMIT");
+            params.put("price", String.valueOf(order.getPrice()));
+            params.put("timeInForce", "IOC");
+//            params.put("newOrderRespType", "RESULT");
+        } else if (OrderType.LIMIT_GTC.equals(order.getOrderType())) {
+            params.put("type", "LIMIT");
+            params.put("price", String.valueOf(order.getPrice()));
+            params.put("timeInForce", "GTC");
+//            params.put("newOrderRespType", "RESULT");
+        }
+        if (order.getClientOrderId() != null) {
+            params.put("newClientOrderId", order.getClientOrderId());
+        }
+        return params;
+    }
+
+    private CurrentOrder toCurrentOrder(Order order, BinanceOrder result) {
+        return new CurrentOrder(result.orderId, order.getName(), order.getSymbol(),
+                accountConfig.getName(), order.getSide(), order.getOrderType(),
+                order.getSize(), result.price, result.executedQty,
+                BinanceUtils.getStatus(result.status), result.updateTime, result.clientOrderId);
+    }
+
+    /**
+     * batchOrders 接口，json 参数需要 url 编码，签名使用编码后的参数
+     * @param batchOrders 批量下单参数，撤单时为 null
+     * @param symbol 撤单的交易对，下单时为 null
+     * @return 与请求顺序一致的结果，失败的订单只有 code, msg
+     */
+    private CompletableFuture<List<BinanceOrder>> sendBatchRequest(String method, String name, Object values,
+                                                                   String symbol) throws ExApiException {
+        try {
+            Map<String, String> params = new HashMap<>();
+            if (symbol != null) {
+                params.put("symbol", symbol);
+            }
+            params.put(name, URLEncoder.encode(Utils.mapper.writeValueAsString(values), StandardCharsets.UTF_8));
+            String url = generateSignedUrl("/fapi/v1/batchOrders", params);
+            HttpRequest request = HttpRequest.newBuilder(new URI(url))
+                    .method(method, HttpRequest.BodyPublishers.noBody())
+                    .timeout(timeout)
+                    .header("X-MBX-APIKEY", accountConfig.getAuthKey())
+                    .build();
+            return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                    .thenApply(response -> {
+                        if (response.statusCode() != 200) {
+                            throw new CompletionException(new ExApiException(
+                                    "failed to send batch orders: " + response.body()));
+                        }
+                        try {
+                            return Utils.mapper.readValue(response.body(), new TypeReference<List<BinanceOrder>>() {});
+                        } catch (JsonProcessingException e) {
+                            throw new CompletionException("failed to parse body: " + response.body(), e);
+                        }
+                    });
+        } catch (Exception e) {
+            throw new ExApiException("failed to send batch orders", e);
+        }
+    }
+
     @Override
     public List<CurrentOrder> getCurrentOrders(String symbol, int type) throws ExApiException {
         try {
@@ -408,6 +602,42 @@ public class BinanceFutureApi implements FutureExApi {
         }
     }
 
+    /**
+     * 通过 batchOrders 接口撤单，每次最多 10 个订单
+     */
+    @Override
+    public List<CompletableFuture<Boolean>> asyncCancelOrders(String symbol,
+                                                              List<String> clientOrderIds) throws ExApiException {
+        List<CompletableFuture<Boolean>> futures = new ArrayList<>(clientOrderIds.size());
+        for (int start = 0; start < clientOrderIds.size(); start += BATCH_CANCEL_LIMIT) {
+            int end = Math.min(start + BATCH_CANCEL_LIMIT, clientOrderIds.size());
+            if (end - start == 1) {
+                futures.add(asyncCancelOrder(symbol, clientOrderIds.get(start)));
+                continue;
+            }
+            List<String> batch = clientOrderIds.subList(start, end);
+            CompletableFuture<List<BinanceOrder>> results = sendBatchRequest("DELETE",
+                    "origClientOrderIdList", batch, symbol);
+            for (int i = 0; i < batch.size(); i++) {
+                String clientOrderId = batch.get(i);
+                int position = i;
+                futures.add(results.thenApply(values -> {
+                    BinanceOrder result = values.get(position);
+                    if (result.code != 0 && result.code != -2011 && result.code != -2013) {
+                        logger.info("failed to cancel order, symbol: {}, client order id: {}, code: {}, msg: {}",
+                                symbol, clientOrderId, result.code, result.msg);
+                        return false;
+                    }
+                    return true;
+                }).exceptionally(ex -> {
+                    logger.error("failed to async cancel batch orders, http request error", ex);
+                    return false;
+                }));
+            }
+        }
+        return futures;
+    }
+
     @Override
     public CurrentOrder cancelOrder(String symbol, String orderId) throws ExApiException {
         try {
@@ -449,33 +679,48 @@ public class BinanceFutureApi implements FutureExApi {
     @Override
     public RiskLimitValue getRiskLimitValue() throws ExApiException {
         try {
-            String url = generateSignedUrl("/fapi/v2/account", new HashMap<>());
-            HttpRequest request = HttpRequest.newBuilder(new URI(url))
-                    .GET()
-                    .header("X-MBX-APIKEY", accountConfig.getAuthKey())
-                    .build();
-            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-            BinanceRestV1 result = Utils.mapper.readValue(response.body(), BinanceRestV1.class);
-
-            if (result.code != 0) {
-                throw new IOException("failed to get risk limit value: " + response.body());
-            }
-
-            List<PositionRiskLimitValue> positionRiskLimitValues = new ArrayList<>();
-            for (BinancePositionData position : result.positions) {
-                positionRiskLimitValues.add(new PositionRiskLimitValue(
-                        position.symbol, (int) position.leverage,
-                        (long) position.maxNotional, Math.round(position.leverage * position.initialMargin),
-                        position.initialMargin, position.maintMargin));
-            }
+            HttpResponse<String> response = httpClient.send(accountRequest(), HttpResponse.BodyHandlers.ofString());
+            return toRiskLimitValue(response.body());
+        } catch (Exception e) {
+            throw new ExApiException("failed to get risk limit value", e);
+        }
+    }
 
-            return new RiskLimitValue(result.totalWalletBalance,
-                    result.availableBalance, positionRiskLimitValues);
+    @Override
+    public CompletableFuture<RiskLimitValue> asyncGetRiskLimitValue() throws ExApiException {
+        try {
+            return httpClient.sendAsync(accountRequest(), HttpResponse.BodyHandlers.ofString())
+                    .thenApply(response -> {
+                        try {
+                            return toRiskLimitValue(response.body());
+                        } catch (Exception e) {
+                            throw new CompletionException(e);
+                        }
+                    });
         } catch (Exception e) {
             throw new ExApiException("failed to get risk limit value", e);
         }
     }
 
+    private RiskLimitValue toRiskLimitValue(String body) throws IOException {
+        BinanceRestV1 result = Utils.mapper.readValue(body, BinanceRestV1.class);
+
+        if (result.code != 0) {
+            throw new IOException("failed to get risk limit value: " + body);
+        }
+
+        List<PositionRiskLimitValue> positionRiskLimitValues = new ArrayList<>();
+        for (BinancePositionData position : result.positions) {
+            positionRiskLimitValues.add(new PositionRiskLimitValue(
+                    position.symbol, (int) position.leverage,
+                    (long) position.maxNotional, Math.round(position.leverage * position.initialMargin),
+                    position.initialMargin, position.maintMargin));
+        }
+
+        return new RiskLimitValue(result.totalWalletBalance,
+                result.availableBalance, positionRiskLimitValues);
+    }
+
     @Override
     public void updateRiskLimit(String symbol, int leverage) throws ExApiException {
         try {
@@ -501,45 +746,16 @@ public class BinanceFutureApi implements FutureExApi {
     @Override
     public List<FundingValue> getFundingValue(String symbol, long lastTime) throws ExApiException {
         try {
-            Map<String, String> params = new HashMap<>();
-            params.put("incomeType", "FUNDING_FEE");
-            params.put("symbol", symbol);
-            params.put("limit", "100");
-            params.put("startTime", String.valueOf(lastTime));
-            params.put("endTime", String.valueOf(System.currentTimeMillis()));
-
-            String url = generateSignedUrl("/fapi/v1/income", params);
-            HttpRequest request = HttpRequest.newBuilder(new URI(url))
-                    .GET()
-                    .header("X-MBX-APIKEY", accountConfig.getAuthKey())
-                    .build();
-            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+            HttpResponse<String> response = httpClient.send(fundingFeeRequest(symbol,
+                    lastTime, System.currentTimeMillis()), HttpResponse.BodyHandlers.ofString());
             List<BinanceAssetData> result = Utils.mapper.readValue(response.body(), new TypeReference<>() {});
 
             List<FundingValue> values = new ArrayList<>();
             for (BinanceAssetData data : result) {
                 // 此时rate为空，需要重新获取
-                params.clear();
-                params.put("symbol", symbol);
-                params.put("startTime", String.valueOf(data.time - 60000));
-                params.put("limit", "1");
-                params.put("endTime", String.valueOf(data.time + 60000));
-
-                url = generateSignedUrl("/fapi/v1/fundingRate", params);
-                request = HttpRequest.newBuilder(new URI(url))
-                        .GET()
-                        .header("X-MBX-APIKEY", accountConfig.getAuthKey())
-                        .build();
-                response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-                List<BinanceAssetData> result1 = Utils.mapper.readValue(response.body(), new TypeReference<>() {});
-
-                if (result1.isEmpty()) {
-                    throw new ExApiException("can not get funding rate, symbol: " +
-                            symbol + ", start time: " + lastTime);
-                }
-
-                values.add(new FundingValue(data.symbol,
-                        accountConfig.getName(), data.income, result1.get(0).fundingRate, data.time));
+                response = httpClient.send(fundingRateRequest(symbol, data.time),
+                        HttpResponse.BodyHandlers.ofString());
+                values.add(toFundingValue(symbol, lastTime, data, response.body()));
             }
             // 注意每次只获取一个symbol的funding value，为了防止触发频率限制，加入sleep
             Thread.sleep(200);
@@ -549,6 +765,86 @@ public class BinanceFutureApi implements FutureExApi {
         }
     }
 
+    @Override
+    public CompletableFuture<List<FundingValue>> asyncGetFundingValue(String symbol, long lastTime, long endTime)
+            throws ExApiException {
+        try {
+            return httpClient.sendAsync(fundingFeeRequest(symbol, lastTime, endTime),
+                    HttpResponse.BodyHandlers.ofString())
+                    .thenCompose(response -> {
+                        try {
+                            List<BinanceAssetData> result = Utils.mapper.readValue(response.body(),
+                                    new TypeReference<>() {});
+                            // 资金费用记录中没有费率，逐条查询，由限频器控制请求频率
+                            List<CompletableFuture<FundingValue>> futures = new ArrayList<>();
+                            for (BinanceAssetData data : result) {
+                                futures.add(httpClient.sendAsync(fundingRateRequest(symbol, data.time),
+                                        HttpResponse.BodyHandlers.ofString()).thenApply(rateResponse -> {
+                                    try {
+                                        return toFundingValue(symbol, lastTime, data, rateResponse.body());
+                                    } catch (Exception e) {
+                                        throw new CompletionException(e);
+                                    }
+                                }));
+                            }
+                            return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
+                                    .thenApply(v -> {
+                                        List<FundingValue> values = new ArrayList<>();
+                                        for (CompletableFuture<FundingValue> future : futures) {
+                                            values.add(future.join());
+                                        }
+                                        return values;
+                                    });
+                        } catch (Exception e) {
+                            throw new CompletionException("failed to parse response body: " + response.body(), e);
+                        }
+                    });
+        } catch (Exception e) {
+            throw new ExApiException("failed to get funding value", e);
+        }
+    }
+
+    private HttpRequest fundingFeeRequest(String symbol, long lastTime, long endTime) throws Exception {
+        Map<String, String> params = new HashMap<>();
+        params.put("incomeType", "FUNDING_FEE");
+        params.put("symbol", symbol);
+        params.put("limit", "100");
+        params.put("startTime", String.valueOf(lastTime));
+        params.put("endTime", String.valueOf(endTime));
+
+        String url = generateSignedUrl("/fapi/v1/income", params);
+        return HttpRequest.newBuilder(new URI(url))
+                .GET()
+                .header("X-MBX-APIKEY", accountConfig.getAuthKey())
+                .build();
+    }
+
+    // 资金费用发生时间前后一分钟内的资金费率
+    private HttpRequest fundingRateRequest(String symbol, long time) throws Exception {
+        Map<String, String> params = new HashMap<>();
+        params.put("symbol", symbol);
+        params.put("startTime", String.valueOf(time - 60000));
+        params.put("limit", "1");
+        params.put("endTime", String.valueOf(time + 60000));
+
+        String url = generateSignedUrl("/fapi/v1/fundingRate", params);
+        return HttpRequest.newBuilder(new URI(url))
+                .GET()
+                .header("X-MBX-APIKEY", accountConfig.getAuthKey())
+                .build();
+    }
+
+    private FundingValue toFundingValue(String symbol, long lastTime,
+                                        BinanceAssetData data, String rateBody) throws Exception {
+        List<BinanceAssetData> result = Utils.mapper.readValue(rateBody, new TypeReference<>() {});
+        if (result.isEmpty()) {
+            throw new ExApiException("can not get funding rate, symbol: " +
+                    symbol + ", start time: " + lastTime);
+        }
+        return new FundingValue(data.symbol,
+                accountConfig.getName(), data.income, result.get(0).fundingRate, data.time);
+    }
+
     private String generateUrl(String path, Map<String, String> params) {
         params.put("recvWindow", "5000");
         params.put("timestamp", String.valueOf(System.currentTimeMillis()));
@@ -558,11 +854,12 @@ public class BinanceFutureApi implements FutureExApi {
     private String generateSignedUrl(String path, Map<String, String> params) {
         params.put("recvWindow", "5000");
         params.put("timestamp", String.valueOf(System.currentTimeMillis()));
-        String paramString = HttpUtils.param2String(params);
-        // 该对象非线程安全，而且每次生成新对象并不影响性能
-        Mac sha256Mac = Utils.initialHMac(accountConfig.getAuthSecret(), "HmacSHA256");
-        String signature = Utils.encodeHexString(sha256Mac.doFinal(paramString.getBytes()));
-        return accountConfig.getUrl() + path + "?" + paramString + "&signature=" + signature;
+        // 在线程内复用的缓冲中拼接 url，只对 query 部分签名
+        StringBuilder sb = signer.builder().append(accountConfig.getUrl()).append(path).append('?');
+        int start = sb.length();
+        HttpUtils.appendParams(sb, params);
+        String signature = signer.signHex(sb, start, sb.length());
+        return sb.append("&signature=").append(signature).toString();
     }
 
     @Override
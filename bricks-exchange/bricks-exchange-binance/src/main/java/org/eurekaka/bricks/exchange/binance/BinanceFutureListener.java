@@ -1,10 +1,13 @@
 package org.eurekaka.bricks.exchange.binance;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectReader;
 import org.eurekaka.bricks.api.WebSocketListener;
 import org.eurekaka.bricks.common.model.*;
+import org.eurekaka.bricks.common.util.JsonParserUtils;
 import org.eurekaka.bricks.common.util.Utils;
 
 import java.net.http.WebSocket;
@@ -14,6 +17,9 @@ import java.util.concurrent.Executor;
 import static org.eurekaka.bricks.common.util.Utils.PRECISION;
 
 public class BinanceFutureListener extends WebSocketListener<FutureAccountStatus, BinanceFutureApi> {
+    private static final String DEPTH_UPDATE = "depthUpdate";
+    private static final String BOOK_TICKER = "bookTicker";
+
     private final ObjectReader reader1;
     private final ObjectReader reader2;
     private final ObjectReader reader3;
@@ -27,6 +33,125 @@ public class BinanceFutureListener extends WebSocketListener<FutureAccountStatus
         reader2 = Utils.mapper.reader().forType(SocketBookTicker.class);
         reader3 = Utils.mapper.reader().forType(BinanceWebSocketMsg.class);
         start = System.currentTimeMillis();
+
+        this.streamingDecode = Boolean.parseBoolean(accountConfig.getProperty("streaming_decode", "true"));
+    }
+
+    @Override
+    protected String textType(char[] chars, int length) {
+        return asciiStringField(chars, length, "e");
+    }
+
+    // 丢弃 depthUpdate 后 update id 不连续，会重新查询订单簿快照
+    @Override
+    protected boolean isDroppableType(String type) {
+        return "depthUpdate".equals(type) ||
+                "bookTicker".equals(type) ||
+                "markPriceUpdate".equals(type) ||
+                "kline".equals(type);
+    }
+
+    /**
+     * depthUpdate 与 bookTicker 使用流式解析，其余消息交给 processWholeText
+     * 字段顺序不固定，事件类型 e 之前的字段先暂存，读取完整个对象后再按事件类型处理
+     * 两种事件的 b、a 含义不同，按值的类型区分深度数组与买一卖一价格
+     */
+    @Override
+    protected boolean processStreamingText(WebSocket webSocket, JsonParser parser) throws Exception {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            return false;
+        }
+        String eventName = null;
+        String symbol = null;
+        long lastUpdateId = 0;
+        long parentUpdateId = 0;
+        PriceSizeBuffer bids = null;
+        PriceSizeBuffer asks = null;
+        double bidPrice = 0;
+        double bidSize = 0;
+        double askPrice = 0;
+        double askSize = 0;
+        String field;
+        while ((field = parser.nextFieldName()) != null) {
+            JsonToken token = parser.nextToken();
+            switch (field) {
+                case "e":
+                    eventName = parser.getText();
+                    if (!DEPTH_UPDATE.equals(eventName) && !BOOK_TICKER.equals(eventName)) {
+                        return false;
+                    }
+                    break;
+                case "s":
+                    symbol = parser.getText();
+                    break;
+                case "u":
+                    lastUpdateId = JsonParserUtils.getLong(parser);
+                    break;
+                case "pu":
+                    parentUpdateId = JsonParserUtils.getLong(parser);
+                    break;
+                case "b":
+                    if (token == JsonToken.START_ARRAY) {
+                        bids = new PriceSizeBuffer();
+                        JsonParserUtils.readPriceSizeArrays(parser, bids);
+                    } else {
+                        bidPrice = JsonParserUtils.getDouble(parser);
+                    }
+                    break;
+                case "a":
+                    if (token == JsonToken.START_ARRAY) {
+                        asks = new PriceSizeBuffer();
+                        JsonParserUtils.readPriceSizeArrays(parser, asks);
+                    } else {
+                        askPrice = JsonParserUtils.getDouble(parser);
+                    }
+                    break;
+                case "B":
+                    bidSize = JsonParserUtils.getDouble(parser);
+                    break;
+                case "A":
+                    askSize = JsonParserUtils.getDouble(parser);
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+
+        if (DEPTH_UPDATE.equals(eventName)) {
+            updateOrderBookValue(symbol, new OrderBookValue(lastUpdateId - 1, parentUpdateId,
+                    bids == null ? new PriceSizeBuffer() : bids,
+                    asks == null ? new PriceSizeBuffer() : asks));
+            return true;
+        } else if (BOOK_TICKER.equals(eventName)) {
+            updateBookTicker(symbol, bidPrice, bidSize, askPrice, askSize);
+            return true;
+        }
+        return false;
+    }
+
+    private void updateOrderBookValue(String symbol, OrderBookValue orderBookValue) throws Exception {
+        markDecoded();
+        if (!accountStatus.updateOrderBookValue(symbol, orderBookValue)) {
+            logger.warn("failed to update order book value, no serial update id: {}", orderBookValue);
+            api.asyncGetOrderBook(symbol, orderBookLimit).thenAccept(value -> {
+                accountStatus.buildOrderBookValue(symbol, value);
+            });
+        }
+    }
+
+    // 使用bookTicker更新 order book 的买一卖一
+    private void updateBookTicker(String symbol, double bidPrice, double bidSize,
+                                  double askPrice, double askSize) {
+        markDecoded();
+        if (bidPrice > 0 && bidSize > 0) {
+//            accountStatus.updateBidOrderBookTicker(symbol, bidPrice, bidSize);
+            accountStatus.updateTopBid(symbol, accountConfig.getName(), bidPrice);
+        }
+
+        if (askPrice > 0 && askSize > 0) {
+//            accountStatus.updateAskOrderBookTicker(symbol, askPrice, askSize);
+            accountStatus.updateTopAsk(symbol, accountConfig.getName(), askPrice);
+        }
     }
 
     @Override
@@ -36,7 +161,8 @@ public class BinanceFutureListener extends WebSocketListener<FutureAccountStatus
             return;
         }
         String eventName = node.get("e").asText();
-        if ("depthUpdate".equals(eventName)) {
+        if (DEPTH_UPDATE.equals(eventName)) {
+            streamingFallback(eventName);
             BinanceWebSocketMsgV2 msg = reader1.readValue(node);
 //            logger.info("book ticker, elapsed time: {}, message: {}",
 //                    System.currentTimeMillis() - msg.eventTime, message);
@@ -59,14 +185,8 @@ public class BinanceFutureListener extends WebSocketListener<FutureAccountStatus
 //                }
 //                accountStatus.getAskOrderBooks().put(msg.symbol, askOrderBook);
 //            }
-            OrderBookValue orderBookValue = new OrderBookValue(msg.lastUpdateId - 1, msg.parentUpdateId,
-                    OrderBookValue.parsePairs(msg.bids), OrderBookValue.parsePairs(msg.asks));
-            if (!accountStatus.updateOrderBookValue(msg.symbol, orderBookValue)) {
-                logger.warn("failed to update order book value, no serial update id: {}", orderBookValue);
-                api.asyncGetOrderBook(msg.symbol, orderBookLimit).thenAccept(value -> {
-                    accountStatus.buildOrderBookValue(msg.symbol, value);
-                });
-            }
+            updateOrderBookValue(msg.symbol, new OrderBookValue(msg.lastUpdateId - 1, msg.parentUpdateId,
+                    OrderBookValue.parsePairs(msg.bids), OrderBookValue.parsePairs(msg.asks)));
 //            long timer = System.currentTimeMillis() - start;
 //            double bid = 0;
 //            double ask = 0;
@@ -79,22 +199,15 @@ public class BinanceFutureListener extends WebSocketListener<FutureAccountStatus
 //                ask = askMap.firstKey();
 //            }
 //            logger.info("{}: bid: {}, ask: {}, depth update message: {}", timer, bid, ask, message);
-        } else if ("bookTicker".equals(eventName)) {
+        } else if (BOOK_TICKER.equals(eventName)) {
+            streamingFallback(eventName);
             // 使用bookTicker更新 order book 的买一卖一
 //            logger.info("bookTicker message: {}", message);
             SocketBookTicker msg = reader2.readValue(node);
 //            logger.info("book ticker, elapsed time: {}, message: {}",
 //                    System.currentTimeMillis() - msg.eventTime, message);
 
-            if (msg.bidPrice > 0 && msg.bidSize > 0) {
-//                accountStatus.updateBidOrderBookTicker(msg.symbol, msg.bidPrice, msg.bidSize);
-                accountStatus.updateTopBid(msg.symbol, accountConfig.getName(), msg.bidPrice);
-            }
-
-            if (msg.askPrice > 0 && msg.askSize > 0) {
-//                accountStatus.updateAskOrderBookTicker(msg.symbol, msg.askPrice, msg.askSize);
-                accountStatus.updateTopAsk(msg.symbol, accountConfig.getName(), msg.askPrice);
-            }
+            updateBookTicker(msg.symbol, msg.bidPrice, msg.bidSize, msg.askPrice, msg.askSize);
         } else {
             BinanceWebSocketMsg msg = reader3.readValue(node);
             if ("kline".equals(msg.eventName)) {
@@ -3,12 +3,12 @@ package org.eurekaka.bricks.exchange.binance;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectReader;
 import org.eurekaka.bricks.api.ExApi;
+import org.eurekaka.bricks.common.cryption.HmacSigner;
 import org.eurekaka.bricks.common.exception.ExApiException;
 import org.eurekaka.bricks.common.model.*;
 import org.eurekaka.bricks.common.util.HttpUtils;
 import org.eurekaka.bricks.common.util.Utils;
 
-import javax.crypto.Mac;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
@@ -27,11 +27,13 @@ public class BinanceSpotApi implements ExApi {
 
     private final AccountConfig accountConfig;
     private final HttpClient httpClient;
+    private final HmacSigner signer;
     private final ObjectReader reader;
 
     public BinanceSpotApi(AccountConfig accountConfig, HttpClient httpClient) {
         this.accountConfig = accountConfig;
         this.httpClient = httpClient;
+        this.signer = new HmacSigner(accountConfig.getAuthSecret(), HmacSigner.HMAC_SHA256);
         this.reader = Utils.mapper.reader().forType(BinanceRestV1.class);
     }
 
@@ -198,11 +200,12 @@ public class BinanceSpotApi implements ExApi {
     private String generateSignedUrl(String path, Map<String, String> params) {
         params.put("recvWindow", "5000");
         params.put("timestamp", String.valueOf(System.currentTimeMillis()));
-        String paramString = HttpUtils.param2String(params);
-        // 该对象非线程安全，而且每次生成新对象并不影响性能
-        Mac sha256Mac = Utils.initialHMac(accountConfig.getAuthSecret(), "HmacSHA256");
-        String signature = Utils.encodeHexString(sha256Mac.doFinal(paramString.getBytes()));
-        return accountConfig.getUrl() + path + "?" + paramString + "&signature=" + signature;
+        // 在线程内复用的缓冲中拼接 url，只对 query 部分签名
+        StringBuilder sb = signer.builder().append(accountConfig.getUrl()).append(path).append('?');
+        int start = sb.length();
+        HttpUtils.appendParams(sb, params);
+        String signature = signer.signHex(sb, start, sb.length());
+        return sb.append("&signature=").append(signature).toString();
     }
 
 
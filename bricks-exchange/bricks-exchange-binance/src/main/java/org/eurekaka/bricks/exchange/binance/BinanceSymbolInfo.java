@@ -1,5 +1,8 @@
 package org.eurekaka.bricks.exchange.binance;
 
+import java.util.List;
+import java.util.Map;
+
 class BinanceSymbolInfo {
     public String symbol;
     public int pricePrecision;
@@ -8,6 +11,9 @@ class BinanceSymbolInfo {
 
     public double markPrice;
 
+    // 下单规则，LOT_SIZE 与 MIN_NOTIONAL 中包含最小数量与最小金额
+    public List<Map<String, Object>> filters;
+
     public BinanceSymbolInfo() {
     }
 }
@@ -10,6 +10,7 @@ import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -100,7 +101,15 @@ public class FtxFuture extends AbstractFutureExchange {
 
     @Override
     protected ExMessage<List<AccountValue>> getBalances() throws ExApiException {
-        List<AccountValue> accountValues = api.getAccountValue();
+        return new ExMessage<>(ExMessage.ExMsgType.RIGHT, mergeBalances(api.getAccountValue()));
+    }
+
+    @Override
+    protected CompletableFuture<List<AccountValue>> asyncGetBalances() throws ExApiException {
+        return api.asyncGetAccountValues().thenApply(this::mergeBalances);
+    }
+
+    private List<AccountValue> mergeBalances(List<AccountValue> accountValues) {
         // 合并usd与usdt
         List<AccountValue> results = new ArrayList<>();
         double sumTotal = 0;
@@ -117,7 +126,7 @@ public class FtxFuture extends AbstractFutureExchange {
             }
         }
         results.add(new AccountValue("USDT", accountConfig.getName(), sumTotal, sumAvail));
-        return new ExMessage<>(ExMessage.ExMsgType.RIGHT, results);
+        return results;
     }
 
     private void updateFundingRate(String symbol) throws ExApiException {
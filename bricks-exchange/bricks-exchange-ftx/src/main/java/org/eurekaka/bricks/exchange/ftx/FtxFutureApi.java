@@ -4,6 +4,7 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectReader;
 import org.eurekaka.bricks.api.FutureExApi;
+import org.eurekaka.bricks.common.cryption.HmacSigner;
 import org.eurekaka.bricks.common.exception.ExApiException;
 import org.eurekaka.bricks.common.model.*;
 import org.eurekaka.bricks.common.util.HttpUtils;
@@ -11,7 +12,6 @@ import org.eurekaka.bricks.common.util.Utils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import javax.crypto.Mac;
 import java.io.IOException;
 import java.net.URI;
 import java.net.URLEncoder;
@@ -34,6 +34,7 @@ public class FtxFutureApi implements FutureExApi {
 
     private final AccountConfig accountConfig;
     private final HttpClient httpClient;
+    private final HmacSigner signer;
     private final String subAccount;
     private final ObjectReader reader;
     private final ObjectReader reader2;
@@ -42,6 +43,7 @@ public class FtxFutureApi implements FutureExApi {
     public FtxFutureApi(AccountConfig accountConfig, HttpClient httpClient) {
         this.accountConfig = accountConfig;
         this.httpClient = httpClient;
+        this.signer = new HmacSigner(accountConfig.getAuthSecret(), HmacSigner.HMAC_SHA256);
 
         this.subAccount = accountConfig.getUid() == null ? null :
                 URLEncoder.encode(accountConfig.getUid(), StandardCharsets.UTF_8);
@@ -61,9 +63,7 @@ public class FtxFutureApi implements FutureExApi {
         long currentTime = System.currentTimeMillis();
         args.put("key", accountConfig.getAuthKey());
 
-        String signString = currentTime + "websocket_login";
-        Mac sha256Mac = Utils.initialHMac(accountConfig.getAuthSecret(), "HmacSHA256");
-        String signature = Utils.encodeHexString(sha256Mac.doFinal(signString.getBytes()));
+        String signature = signer.signHex(signer.builder().append(currentTime).append("websocket_login"));
 
         args.put("sign", signature);
         args.put("time", currentTime);
@@ -596,12 +596,11 @@ public class FtxFutureApi implements FutureExApi {
                                               String body) throws ExApiException {
         try {
             long currentTime = System.currentTimeMillis();
-            String signString = currentTime + method + path;
+            StringBuilder signString = signer.builder().append(currentTime).append(method).append(path);
             if (body != null) {
-                signString += body;
+                signString.append(body);
             }
-            Mac sha256Mac = Utils.initialHMac(accountConfig.getAuthSecret(), "HmacSHA256");
-            String signature = Utils.encodeHexString(sha256Mac.doFinal(signString.getBytes()));
+            String signature = signer.signHex(signString);
 
             HttpRequest.Builder builder = HttpRequest.newBuilder(new URI(accountConfig.getUrl() + path));
             builder.header("FTX-KEY", accountConfig.getAuthKey())
@@ -23,6 +23,27 @@ public class FtxFutureListener extends WebSocketListener<FutureAccountStatus, Ft
         currencyRateSymbol = accountConfig.getProperty("currency_rate_symbol", "USDT/USD");
     }
 
+    // pong 消息，{"type": "pong"}，直接在回调线程更新时间
+    @Override
+    protected boolean processControlText(WebSocket webSocket, char[] chars, int length) {
+        if (length < 64 && containsAscii(chars, length, "\"pong\"")) {
+            accountStatus.updateLastPongTime();
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    protected String textType(char[] chars, int length) {
+        return asciiStringField(chars, length, "channel");
+    }
+
+    // orderbook 增量没有序号，丢弃后无法发现，只有 ticker 可以丢弃
+    @Override
+    protected boolean isDroppableType(String type) {
+        return "ticker".equals(type);
+    }
+
     @Override
     protected void processWholeText(WebSocket webSocket, String message) throws Exception {
         FtxWebSocketMsg msg = Utils.mapper.readValue(message, FtxWebSocketMsg.class);
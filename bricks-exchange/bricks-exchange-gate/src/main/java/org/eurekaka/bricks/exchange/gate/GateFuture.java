@@ -1,6 +1,7 @@
 package org.eurekaka.bricks.exchange.gate;
 
 import org.eurekaka.bricks.api.AbstractFutureExchange;
+import org.eurekaka.bricks.common.cryption.HmacSigner;
 import org.eurekaka.bricks.common.exception.ExApiException;
 import org.eurekaka.bricks.common.exception.ExchangeException;
 import org.eurekaka.bricks.common.model.AccountConfig;
@@ -8,18 +9,20 @@ import org.eurekaka.bricks.common.model.FutureAccountStatus;
 import org.eurekaka.bricks.common.model.PositionValue;
 import org.eurekaka.bricks.common.util.Utils;
 
-import javax.crypto.Mac;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 public class GateFuture extends AbstractFutureExchange {
+    // websocket 私有频道订阅签名
+    private final HmacSigner signer;
 
 //    private final String orderBookSize;
 
     public GateFuture(AccountConfig accountConfig) {
         super(accountConfig, new FutureAccountStatus());
+        this.signer = new HmacSigner(accountConfig.getAuthSecret(), HmacSigner.HMAC_SHA512);
 //        orderBookSize = accountConfig.getProperty("order_book_size", "20");
         // gate 只允许获取200个价格档位
         if (this.orderBookLimit > 200) {
@@ -156,15 +159,14 @@ public class GateFuture extends AbstractFutureExchange {
     }
 
     private void doAuth(GateWebSocketRequest request) {
-        String signString = "channel=" + request.channel +
-                "&event=" + request.event +
-                "&time=" + request.time;
+        StringBuilder signString = signer.builder().append("channel=").append(request.channel)
+                .append("&event=").append(request.event)
+                .append("&time=").append(request.time);
         Map<String, String> auth = new HashMap<>();
         auth.put("method", "api_key");
         auth.put("KEY", accountConfig.getAuthKey());
 
-        Mac sha512Mac = Utils.initialHMac(accountConfig.getAuthSecret(), "HmacSHA512");
-        String signature = Utils.encodeHexString(sha512Mac.doFinal(signString.getBytes()));
+        String signature = signer.signHex(signString);
         auth.put("SIGN", signature);
 
         request.auth = auth;
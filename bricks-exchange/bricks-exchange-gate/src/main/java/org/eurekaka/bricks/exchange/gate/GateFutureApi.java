@@ -5,6 +5,8 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import org.eurekaka.bricks.api.FutureExApi;
+import org.eurekaka.bricks.api.WebSocketOrderChannel;
+import org.eurekaka.bricks.common.cryption.HmacSigner;
 import org.eurekaka.bricks.common.exception.ExApiException;
 import org.eurekaka.bricks.common.exception.InitializeException;
 import org.eurekaka.bricks.common.model.*;
@@ -12,13 +14,13 @@ import org.eurekaka.bricks.common.util.Utils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import javax.crypto.Mac;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -31,18 +33,26 @@ public class GateFutureApi implements FutureExApi {
     private static final String EMPTY_STRING_HASHED = "cf83e1357eefb8bdf1542850d66d8007d6" +
             "20e4050b5715dc83f4a921d36ce9ce47d0d13c5d85f2b0ff8318d2877eec2f63b931bd47417a81a538327af927da3e";
     private static final String BASE_PREFIX = "/api/v4/futures/usdt";
+    // batch_orders 接口每次请求的最大订单数量
+    private static final int BATCH_ORDER_LIMIT = 10;
 
     private final static Logger logger = LoggerFactory.getLogger(GateFutureApi.class);
 
     private final AccountConfig accountConfig;
     private final HttpClient httpClient;
+    private final HmacSigner signer;
     private final Duration timeout;
 
     private final Map<String, Double> contractQuantos;
 
+    // 开启 ws_order_entry 后通过 websocket 下单撤单，连接不可用时使用 rest 接口
+    private final GateOrderCodec orderCodec;
+    private final WebSocketOrderChannel orderChannel;
+
     public GateFutureApi(AccountConfig accountConfig, HttpClient httpClient) {
         this.accountConfig = accountConfig;
         this.httpClient = httpClient;
+        this.signer = new HmacSigner(accountConfig.getAuthSecret(), HmacSigner.HMAC_SHA512);
         this.timeout = Duration.ofMillis(Integer.parseInt(
                 accountConfig.getProperty("http_request_timeout", "30000")));
 
@@ -53,6 +63,30 @@ public class GateFutureApi implements FutureExApi {
         } catch (ExApiException e) {
             throw new InitializeException("failed to initialize gate future api", e);
         }
+
+        if (Boolean.parseBoolean(accountConfig.getProperty("ws_order_entry", "false"))) {
+            String url = accountConfig.getProperty("ws_order_url", accountConfig.getWebsocket());
+            if (url == null) {
+                throw new InitializeException("no websocket url for gate order entry");
+            }
+            this.orderCodec = new GateOrderCodec(accountConfig, signer);
+            this.orderChannel = new WebSocketOrderChannel(accountConfig.getName(), URI.create(url),
+                    httpClient, orderCodec,
+                    Long.parseLong(accountConfig.getProperty("ws_order_timeout", "3000")),
+                    Long.parseLong(accountConfig.getProperty("ws_order_reconnect_interval", "5000")),
+                    Long.parseLong(accountConfig.getProperty("ws_order_ping_interval", "10000")));
+            this.orderChannel.connect();
+        } else {
+            this.orderCodec = null;
+            this.orderChannel = null;
+        }
+    }
+
+    @Override
+    public void close() {
+        if (orderChannel != null) {
+            orderChannel.close();
+        }
     }
 
     @Override
@@ -60,6 +94,15 @@ public class GateFutureApi implements FutureExApi {
         return null;
     }
 
+    @Override
+    public HttpRequest getHeartbeatRequest() throws ExApiException {
+        try {
+            return generateSignedRequest(BASE_PREFIX + "/accounts");
+        } catch (Exception e) {
+            throw new ExApiException("failed to create heartbeat request", e);
+        }
+    }
+
     @Override
     public List<ExSymbol> getExchangeInfos() throws ExApiException {
         try {
@@ -90,19 +133,43 @@ public class GateFutureApi implements FutureExApi {
     @Override
     public List<AccountValue> getAccountValue() throws ExApiException {
         try {
-            List<AccountValue> accountValues = new ArrayList<>();
             HttpRequest request = generateSignedRequest(BASE_PREFIX + "/accounts");
             HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-            GateRespV1 result = Utils.mapper.readValue(response.body(), GateRespV1.class);
-            accountValues.add(new AccountValue(result.currency, accountConfig.getName(),
-                    result.total + result.unrealised_pnl, result.total, result.available));
-            accountValues.add(new AccountValue("POINT", accountConfig.getName(), result.point, result.point));
-            return accountValues;
+            return toAccountValues(Utils.mapper.readValue(response.body(), GateRespV1.class));
         } catch (Exception e) {
             throw new ExApiException("failed to get account value", e);
         }
     }
 
+    @Override
+    public CompletableFuture<List<AccountValue>> asyncGetAccountValues() throws ExApiException {
+        try {
+            return asyncGetAccount().thenApply(this::toAccountValues);
+        } catch (Exception e) {
+            throw new ExApiException("failed to get account value", e);
+        }
+    }
+
+    private CompletableFuture<GateRespV1> asyncGetAccount() throws Exception {
+        HttpRequest request = generateSignedRequest(BASE_PREFIX + "/accounts");
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                .thenApply(response -> {
+                    try {
+                        return Utils.mapper.readValue(response.body(), GateRespV1.class);
+                    } catch (JsonProcessingException e) {
+                        throw new CompletionException("failed to parse response body: " + response.body(), e);
+                    }
+                });
+    }
+
+    private List<AccountValue> toAccountValues(GateRespV1 result) {
+        List<AccountValue> accountValues = new ArrayList<>();
+        accountValues.add(new AccountValue(result.currency, accountConfig.getName(),
+                result.total + result.unrealised_pnl, result.total, result.available));
+        accountValues.add(new AccountValue("POINT", accountConfig.getName(), result.point, result.point));
+        return accountValues;
+    }
+
     @Override
     public List<PositionValue> getPositionValue(String symbol) throws ExApiException {
         try {
@@ -168,36 +235,10 @@ public class GateFutureApi implements FutureExApi {
     @Override
     public CompletableFuture<CurrentOrder> asyncMakeOrder(Order order) throws ExApiException {
         try {
-            Map<String, String> data = new HashMap<>();
-            data.put("contract", order.getSymbol());
-            if (!contractQuantos.containsKey(order.getSymbol())) {
-                throw new ExApiException("no contract quanto found for " + order.getSymbol());
-            }
-            long size = Math.round(order.getSize() / contractQuantos.get(order.getSymbol()));
-            if (size == 0) {
-                throw new ExApiException("failed to make order, size is 0");
+            Map<String, Object> data = orderData(order);
+            if (orderChannel != null && orderChannel.isAvailable()) {
+                return wsMakeOrder(order, data);
             }
-            if (OrderSide.SELL.equals(order.getSide())) {
-                size = -size;
-            }
-            data.put("size", String.valueOf(size));
-            if (OrderType.MARKET.equals(order.getOrderType())) {
-                data.put("price", "0");
-                data.put("tif", "ioc");
-            } else if (OrderType.LIMIT_GTX.equals(order.getOrderType())) {
-                data.put("price", String.valueOf(order.getPrice()));
-                data.put("tif", "poc");
-            } else if (OrderType.LIMIT_IOC.equals(order.getOrderType())) {
-                data.put("price", String.valueOf(order.getPrice()));
-                data.put("tif", "ioc");
-            } else if (OrderType.LIMIT_GTC.equals(order.getOrderType())) {
-                data.put("price", String.valueOf(order.getPrice()));
-                data.put("tif", "gtc");
-            } else {
-                throw new ExApiException("unsupported order type: " + order.getOrderType());
-            }
-            data.put("iceberg", "0");
-            data.put("text", "t-" + order.getClientOrderId());
             String body = Utils.mapper.writeValueAsString(data);
             HttpRequest request = generateSignedRequest("POST", BASE_PREFIX + "/orders", body);
             return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString()).thenApply(response -> {
@@ -207,14 +248,7 @@ public class GateFutureApi implements FutureExApi {
                         logger.error("failed to make order {}", response.body());
                         return null;
                     }
-                    double filled = Math.abs(result.size - result.left);
-                    filled = filled * contractQuantos.get(result.contract);
-
-                    String clientOrderId = GateUtils.getClientOrderId(result.text);
-                    return new CurrentOrder(String.valueOf(result.id), order.getName(), order.getSymbol(),
-                            accountConfig.getName(), order.getSide(), order.getOrderType(), order.getSize(),
-                            order.getPrice(), filled, GateUtils.getStatus(result.status, result.finish_as, filled),
-                            result.create_time * 1000, clientOrderId);
+                    return toCurrentOrder(order, result);
                 } catch (Exception e) {
                     throw new CompletionException("failed to parse response body: " + response.body(), e);
                 }
@@ -227,6 +261,206 @@ public class GateFutureApi implements FutureExApi {
         }
     }
 
+    /**
+     * 请求已发送后失败时无法确定是否下单成功，不再通过 rest 重试，与 rest 请求失败的处理一致
+     */
+    private CompletableFuture<CurrentOrder> wsMakeOrder(Order order, Map<String, Object> data) throws Exception {
+        String requestId = orderChannel.nextRequestId();
+        String message = orderCodec.request(GateOrderCodec.ORDER_PLACE, requestId, data);
+        return orderChannel.request(requestId, message).thenApply(response -> {
+            if (orderCodec.error(response) != null) {
+                logger.error("failed to make order {}", response);
+                return null;
+            }
+            try {
+                GateOrder result = Utils.mapper.treeToValue(GateOrderCodec.result(response), GateOrder.class);
+                return toCurrentOrder(order, result);
+            } catch (Exception e) {
+                throw new CompletionException("failed to parse websocket response: " + response, e);
+            }
+        }).exceptionally(ex -> {
+            logger.error("failed to async make order, websocket request error", ex);
+            return null;
+        });
+    }
+
+    /**
+     * 下单请求体，rest, websocket 与批量下单共用
+     */
+    private Map<String, Object> orderData(Order order) throws ExApiException {
+        Map<String, Object> data = new HashMap<>();
+        data.put("contract", order.getSymbol());
+        if (!contractQuantos.containsKey(order.getSymbol())) {
+            throw new ExApiException("no contract quanto found for " + order.getSymbol());
+        }
+        long size = Math.round(order.getSize() / contractQuantos.get(order.getSymbol()));
+        if (size == 0) {
+            throw new ExApiException("failed to make order, size is 0");
+        }
+        if (OrderSide.SELL.equals(order.getSide())) {
+            size = -size;
+        }
+        data.put("size", size);
+        if (OrderType.MARKET.equals(order.getOrderType())) {
+            data.put("price", "0");
+            data.put("tif", "ioc");
+        } else if (OrderType.LIMIT_GTX.equals(order.getOrderType())) {
+            data.put("price", String.valueOf(order.getPrice()));
+            data.put("tif", "poc");
+        } else if (OrderType.LIMIT_IOC.equals(order.getOrderType())) {
+            data.put("price", String.valueOf(order.getPrice()));
+            data.put("tif", "ioc");
+        } else if (OrderType.LIMIT_GTC.equals(order.getOrderType())) {
+            data.put("price", String.valueOf(order.getPrice()));
+            data.put("tif", "gtc");
+        } else {
+            throw new ExApiException("unsupported order type: " + order.getOrderType());
+        }
+        data.put("iceberg", 0);
+        data.put("text", "t-" + order.getClientOrderId());
+        return data;
+    }
+
+    @Override
+    public boolean supportAmendOrder(Order order) {
+        return OrderType.LIMIT_GTC.equals(order.getOrderType()) || OrderType.LIMIT_GTX.equals(order.getOrderType());
+    }
+
+    /**
+     * 修改订单价格与数量，订单 id 使用 t- 前缀的 client order id，websocket 下单可用时通过 websocket 改单
+     */
+    @Override
+    public CompletableFuture<CurrentOrder> asyncAmendOrder(String clientOrderId, Order order) throws ExApiException {
+        try {
+            Map<String, Object> data = orderData(order);
+            Map<String, Object> amend = new HashMap<>();
+            amend.put("size", data.get("size"));
+            amend.put("price", data.get("price"));
+            if (orderChannel != null && orderChannel.isAvailable()) {
+                amend.put("order_id", "t-" + clientOrderId);
+                return wsAmendOrder(order, amend);
+            }
+            String body = Utils.mapper.writeValueAsString(amend);
+            HttpRequest request = generateSignedRequest("PUT",
+                    BASE_PREFIX + "/orders/t-" + clientOrderId, body);
+            return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString()).thenApply(response -> {
+                try {
+                    GateOrder result = Utils.mapper.readValue(response.body(), GateOrder.class);
+                    if (response.statusCode() != 200 || result.id == 0) {
+                        logger.info("failed to amend order {}", response.body());
+                        return null;
+                    }
+                    return toCurrentOrder(order, result);
+                } catch (Exception e) {
+                    throw new CompletionException("failed to parse response body: " + response.body(), e);
+                }
+            }).exceptionally(ex -> {
+                logger.error("failed to async amend order, http request error", ex);
+                return null;
+            });
+        } catch (Exception e) {
+            throw new ExApiException("failed to amend order", e);
+        }
+    }
+
+    private CompletableFuture<CurrentOrder> wsAmendOrder(Order order, Map<String, Object> amend) throws Exception {
+        String requestId = orderChannel.nextRequestId();
+        String message = orderCodec.request(GateOrderCodec.ORDER_AMEND, requestId, amend);
+        return orderChannel.request(requestId, message).thenApply(response -> {
+            if (orderCodec.error(response) != null) {
+                logger.info("failed to amend order {}", response);
+                return null;
+            }
+            try {
+                GateOrder result = Utils.mapper.treeToValue(GateOrderCodec.result(response), GateOrder.class);
+                return toCurrentOrder(order, result);
+            } catch (Exception e) {
+                throw new CompletionException("failed to parse websocket response: " + response, e);
+            }
+        }).exceptionally(ex -> {
+            logger.error("failed to async amend order, websocket request error", ex);
+            return null;
+        });
+    }
+
+    /**
+     * 通过 batch_orders 接口下单，每次最多 10 个订单，结果与请求顺序一致
+     * websocket 下单可用时逐个通过 websocket 发送
+     */
+    @Override
+    public List<CompletableFuture<CurrentOrder>> asyncMakeOrders(List<Order> orders) throws ExApiException {
+        if (orderChannel != null && orderChannel.isAvailable()) {
+            return FutureExApi.super.asyncMakeOrders(orders);
+        }
+        List<CompletableFuture<CurrentOrder>> futures = new ArrayList<>(Collections.nCopies(orders.size(), null));
+        List<Integer> indexes = new ArrayList<>();
+        List<Map<String, Object>> batch = new ArrayList<>();
+        for (int i = 0; i < orders.size(); i++) {
+            try {
+                batch.add(orderData(orders.get(i)));
+                indexes.add(i);
+            } catch (ExApiException e) {
+                futures.set(i, CompletableFuture.failedFuture(e));
+            }
+        }
+
+        for (int start = 0; start < batch.size(); start += BATCH_ORDER_LIMIT) {
+            int end = Math.min(start + BATCH_ORDER_LIMIT, batch.size());
+            if (end - start == 1) {
+                futures.set(indexes.get(start), asyncMakeOrder(orders.get(indexes.get(start))));
+                continue;
+            }
+            CompletableFuture<List<GateOrder>> results = sendBatchOrders(batch.subList(start, end));
+            for (int i = start; i < end; i++) {
+                Order order = orders.get(indexes.get(i));
+                int position = i - start;
+                futures.set(indexes.get(i), results.thenApply(values -> {
+                    GateOrder result = values.get(position);
+                    if (!result.succeeded || result.id == 0) {
+                        logger.error("failed to make batch order: {}, label: {}", order, result.label);
+                        return null;
+                    }
+                    return toCurrentOrder(order, result);
+                }).exceptionally(ex -> {
+                    logger.error("failed to async make batch orders, http request error", ex);
+                    return null;
+                }));
+            }
+        }
+        return futures;
+    }
+
+    private CompletableFuture<List<GateOrder>> sendBatchOrders(List<Map<String, Object>> batch) throws ExApiException {
+        try {
+            String body = Utils.mapper.writeValueAsString(batch);
+            HttpRequest request = generateSignedRequest("POST", BASE_PREFIX + "/batch_orders", body);
+            return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString()).thenApply(response -> {
+                if (response.statusCode() != 200) {
+                    throw new CompletionException(new ExApiException(
+                            "failed to make batch orders: " + response.body()));
+                }
+                try {
+                    return Utils.mapper.readValue(response.body(), new TypeReference<List<GateOrder>>() {});
+                } catch (JsonProcessingException e) {
+                    throw new CompletionException("failed to parse response body: " + response.body(), e);
+                }
+            });
+        } catch (Exception e) {
+            throw new ExApiException("failed to make batch orders", e);
+        }
+    }
+
+    private CurrentOrder toCurrentOrder(Order order, GateOrder result) {
+        double filled = Math.abs(result.size - result.left);
+        filled = filled * contractQuantos.get(result.contract);
+
+        String clientOrderId = GateUtils.getClientOrderId(result.text);
+        return new CurrentOrder(String.valueOf(result.id), order.getName(), order.getSymbol(),
+                accountConfig.getName(), order.getSide(), order.getOrderType(), order.getSize(),
+                order.getPrice(), filled, GateUtils.getStatus(result.status, result.finish_as, filled),
+                result.create_time * 1000, clientOrderId);
+    }
+
     @Override
     public List<CurrentOrder> getCurrentOrders(String symbol, int type) throws ExApiException {
         try {
@@ -337,6 +571,13 @@ public class GateFutureApi implements FutureExApi {
 
     @Override
     public CompletableFuture<Boolean> asyncCancelOrder(String symbol, String clientOrderId) throws ExApiException {
+        if (orderChannel != null && orderChannel.isAvailable()) {
+            return wsCancelOrder(symbol, clientOrderId);
+        }
+        return restCancelOrder(symbol, clientOrderId);
+    }
+
+    private CompletableFuture<Boolean> restCancelOrder(String symbol, String clientOrderId) throws ExApiException {
         try {
             HttpRequest request = generateSignedRequest("DELETE",
                     BASE_PREFIX + "/orders/t-" + clientOrderId, null);
@@ -346,9 +587,7 @@ public class GateFutureApi implements FutureExApi {
                         if (response.statusCode() != 200) {
                             try {
                                 GateOrder result = Utils.mapper.readValue(response.body(), GateOrder.class);
-                                if ("ORDER_NOT_FOUND".equals(result.label) ||
-                                        "ORDER_CLOSED".equals(result.label) ||
-                                        "ORDER_CANCELLED".equals(result.label)) {
+                                if (isCancelFinished(result.label)) {
                                     return true;
                                 }
                             } catch (Exception e) {
@@ -368,6 +607,45 @@ public class GateFutureApi implements FutureExApi {
         }
     }
 
+    /**
+     * 撤单可以重复执行，websocket 请求失败时改用 rest 接口重试
+     */
+    private CompletableFuture<Boolean> wsCancelOrder(String symbol, String clientOrderId) throws ExApiException {
+        try {
+            String requestId = orderChannel.nextRequestId();
+            Map<String, String> param = new HashMap<>();
+            param.put("order_id", "t-" + clientOrderId);
+            String message = orderCodec.request(GateOrderCodec.ORDER_CANCEL, requestId, param);
+            return orderChannel.request(requestId, message).handle((response, ex) -> {
+                if (ex == null) {
+                    String error = orderCodec.error(response);
+                    if (error == null || isCancelFinished(error)) {
+                        return CompletableFuture.completedFuture(true);
+                    }
+                    logger.error("failed to cancel order, symbol: {}, client order id: {}, response: {}",
+                            symbol, clientOrderId, response);
+                    return CompletableFuture.completedFuture(false);
+                }
+                logger.warn("failed to cancel order by websocket, retry by rest, client order id: {}",
+                        clientOrderId, ex);
+                try {
+                    return restCancelOrder(symbol, clientOrderId);
+                } catch (ExApiException e) {
+                    logger.error("failed to async cancel order", e);
+                    return CompletableFuture.completedFuture(false);
+                }
+            }).thenCompose(future -> future);
+        } catch (Exception e) {
+            throw new ExApiException("failed to cancel order", e);
+        }
+    }
+
+    private static boolean isCancelFinished(String label) {
+        return "ORDER_NOT_FOUND".equals(label) ||
+                "ORDER_CLOSED".equals(label) ||
+                "ORDER_CANCELLED".equals(label);
+    }
+
     @Override
     public CompletableFuture<OrderBookValue> asyncGetOrderBook(String symbol, int depth) throws ExApiException {
         try {
@@ -404,22 +682,9 @@ public class GateFutureApi implements FutureExApi {
     @Override
     public RiskLimitValue getRiskLimitValue() throws ExApiException {
         try {
-            List<PositionRiskLimitValue> positionRiskLimitValues = new ArrayList<>();
             HttpRequest request = generateSignedRequest(BASE_PREFIX + "/positions");
             HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-            List<GateRespDataV1> result = resolveResponse(response);
-            for (GateRespDataV1 res : result) {
-                if ("single".equals(res.mode)) {
-                    double sizeLimit = getSize(res.contract, res.risk_limit);
-                    long limitValue = Math.round(res.mark_price * sizeLimit);
-                    double initValue = Math.round(res.margin * 100) * 1.0 / 100;
-                    double maintValue = Math.round(res.value * res.maintenance_rate * 100) * 1.0 / 100;
-
-                    positionRiskLimitValues.add(new PositionRiskLimitValue(res.contract,
-                            res.cross_leverage_limit, limitValue, Math.round(res.value),
-                            initValue, maintValue));
-                }
-            }
+            List<PositionRiskLimitValue> positionRiskLimitValues = toPositionRiskLimitValues(resolveResponse(response));
 
             HttpRequest request2 = generateSignedRequest(BASE_PREFIX + "/accounts");
             HttpResponse<String> response2 = httpClient.send(request2, HttpResponse.BodyHandlers.ofString());
@@ -432,6 +697,45 @@ public class GateFutureApi implements FutureExApi {
         }
     }
 
+    @Override
+    public CompletableFuture<RiskLimitValue> asyncGetRiskLimitValue() throws ExApiException {
+        try {
+            // 仓位与账户同时查询
+            HttpRequest request = generateSignedRequest(BASE_PREFIX + "/positions");
+            CompletableFuture<List<PositionRiskLimitValue>> positions = httpClient
+                    .sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                    .thenApply(response -> {
+                        try {
+                            return toPositionRiskLimitValues(resolveResponse(response));
+                        } catch (ExApiException e) {
+                            throw new CompletionException(e);
+                        }
+                    });
+            return positions.thenCombine(asyncGetAccount(), (positionRiskLimitValues, account) ->
+                    new RiskLimitValue(account.total + account.unrealised_pnl,
+                            account.available, positionRiskLimitValues));
+        } catch (Exception e) {
+            throw new ExApiException("failed to get risk limit value", e);
+        }
+    }
+
+    private List<PositionRiskLimitValue> toPositionRiskLimitValues(List<GateRespDataV1> result) {
+        List<PositionRiskLimitValue> positionRiskLimitValues = new ArrayList<>();
+        for (GateRespDataV1 res : result) {
+            if ("single".equals(res.mode)) {
+                double sizeLimit = getSize(res.contract, res.risk_limit);
+                long limitValue = Math.round(res.mark_price * sizeLimit);
+                double initValue = Math.round(res.margin * 100) * 1.0 / 100;
+                double maintValue = Math.round(res.value * res.maintenance_rate * 100) * 1.0 / 100;
+
+                positionRiskLimitValues.add(new PositionRiskLimitValue(res.contract,
+                        res.cross_leverage_limit, limitValue, Math.round(res.value),
+                        initValue, maintValue));
+            }
+        }
+        return positionRiskLimitValues;
+    }
+
     @Override
     public void updateRiskLimit(String symbol, int leverage) throws ExApiException {
         try {
@@ -451,27 +755,15 @@ public class GateFutureApi implements FutureExApi {
     @Override
     public List<FundingValue> getFundingValue(String symbol, long lastTime) throws ExApiException {
         try {
-            long currentTime = System.currentTimeMillis();
-            HttpRequest request = generateSignedRequest(BASE_PREFIX +
-                    "/account_book?type=fund&limit=1000&from=" + lastTime / 1000 + "&to=" + currentTime / 1000);
-            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+            HttpResponse<String> response = httpClient.send(fundingFeeRequest(lastTime,
+                    System.currentTimeMillis()), HttpResponse.BodyHandlers.ofString());
             List<GateRespDataV1> result = resolveResponse(response);
             List<FundingValue> fundingValues = new ArrayList<>();
             for (GateRespDataV1 res : result) {
                 // 获取历史资金费率
-                String url = accountConfig.getUrl() + BASE_PREFIX +
-                        "/funding_rate?contract=" + res.text + "&limit=1";
-                HttpRequest request1 = HttpRequest.newBuilder(new URI(url)).GET().build();
-                HttpResponse<String> response1 = httpClient.send(request1, HttpResponse.BodyHandlers.ofString());
-                List<GateRespDataV1> result1 = resolveResponse(response1);
-                double rate = 0;
-                for (GateRespDataV1 res1 : result1) {
-                    if (res1.t == res.time) {
-                        rate = res1.r;
-                    }
-                }
-                fundingValues.add(new FundingValue(res.text,
-                        accountConfig.getName(), res.change, rate, res.time * 1000));
+                HttpResponse<String> response1 = httpClient.send(fundingRateRequest(res.text),
+                        HttpResponse.BodyHandlers.ofString());
+                fundingValues.add(toFundingValue(res, resolveResponse(response1)));
                 Thread.sleep(100);
             }
             return fundingValues;
@@ -480,6 +772,65 @@ public class GateFutureApi implements FutureExApi {
         }
     }
 
+    @Override
+    public CompletableFuture<List<FundingValue>> asyncGetFundingValue(String symbol, long lastTime, long endTime)
+            throws ExApiException {
+        try {
+            return httpClient.sendAsync(fundingFeeRequest(lastTime, endTime), HttpResponse.BodyHandlers.ofString())
+                    .thenCompose(response -> {
+                        try {
+                            // 资金费用记录中没有费率，逐条查询，由限频器控制请求频率
+                            List<CompletableFuture<FundingValue>> futures = new ArrayList<>();
+                            for (GateRespDataV1 res : resolveResponse(response)) {
+                                futures.add(httpClient.sendAsync(fundingRateRequest(res.text),
+                                        HttpResponse.BodyHandlers.ofString()).thenApply(response1 -> {
+                                    try {
+                                        return toFundingValue(res, resolveResponse(response1));
+                                    } catch (ExApiException e) {
+                                        throw new CompletionException(e);
+                                    }
+                                }));
+                            }
+                            return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
+                                    .thenApply(v -> {
+                                        List<FundingValue> fundingValues = new ArrayList<>();
+                                        for (CompletableFuture<FundingValue> future : futures) {
+                                            fundingValues.add(future.join());
+                                        }
+                                        return fundingValues;
+                                    });
+                        } catch (Exception e) {
+                            throw new CompletionException(e);
+                        }
+                    });
+        } catch (Exception e) {
+            throw new ExApiException("failed to get funding values", e);
+        }
+    }
+
+    // 账户资金费用流水，返回所有合约的资金费用
+    private HttpRequest fundingFeeRequest(long lastTime, long endTime) throws Exception {
+        return generateSignedRequest(BASE_PREFIX +
+                "/account_book?type=fund&limit=1000&from=" + lastTime / 1000 + "&to=" + endTime / 1000);
+    }
+
+    private HttpRequest fundingRateRequest(String contract) throws Exception {
+        String url = accountConfig.getUrl() + BASE_PREFIX +
+                "/funding_rate?contract=" + contract + "&limit=1";
+        return HttpRequest.newBuilder(new URI(url)).GET().build();
+    }
+
+    private FundingValue toFundingValue(GateRespDataV1 res, List<GateRespDataV1> rates) {
+        double rate = 0;
+        for (GateRespDataV1 res1 : rates) {
+            if (res1.t == res.time) {
+                rate = res1.r;
+            }
+        }
+        return new FundingValue(res.text,
+                accountConfig.getName(), res.change, rate, res.time * 1000);
+    }
+
 
     private double getRealSize(String contract, long size) {
         if (size < 0) {
@@ -503,24 +854,18 @@ public class GateFutureApi implements FutureExApi {
                                               String body) throws Exception {
         long currentTime = System.currentTimeMillis() / 1000;
 
-        String signString = method + "\n";
-        String[] paths = path.split("\\?");
-        if (paths.length == 1) {
-            signString += paths[0] + "\n\n";
-        } else if (paths.length == 2) {
-            signString += paths[0] + "\n" + paths[1] + "\n";
-        }
-
-        if (body != null) {
-            signString += Utils.encodeHexString(Utils.sha512(body));
+        // method\npath\nquery\nsha512(body)\ntimestamp
+        String bodyHashed = body != null ? signer.sha512Hex(body) : EMPTY_STRING_HASHED;
+        StringBuilder signString = signer.builder().append(method).append('\n');
+        int index = path.indexOf('?');
+        if (index < 0) {
+            signString.append(path).append("\n\n");
         } else {
-            signString += EMPTY_STRING_HASHED;
+            signString.append(path, 0, index).append('\n')
+                    .append(path, index + 1, path.length()).append('\n');
         }
-
-        signString += "\n" + currentTime;
-
-        Mac sha512Mac = Utils.initialHMac(accountConfig.getAuthSecret(), "HmacSHA512");
-        String signature = Utils.encodeHexString(sha512Mac.doFinal(signString.getBytes()));
+        signString.append(bodyHashed).append('\n').append(currentTime);
+        String signature = signer.signHex(signString);
 
         HttpRequest.Builder builder = HttpRequest.newBuilder(new URI(accountConfig.getUrl() + path));
         builder.header("KEY", accountConfig.getAuthKey())
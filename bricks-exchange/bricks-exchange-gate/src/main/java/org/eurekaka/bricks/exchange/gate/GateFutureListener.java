@@ -1,10 +1,13 @@
 package org.eurekaka.bricks.exchange.gate;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectReader;
 import org.eurekaka.bricks.api.WebSocketListener;
 import org.eurekaka.bricks.common.model.*;
+import org.eurekaka.bricks.common.util.JsonParserUtils;
 import org.eurekaka.bricks.common.util.Utils;
 
 import java.net.http.WebSocket;
@@ -14,12 +17,15 @@ import java.util.concurrent.Executor;
 import static org.eurekaka.bricks.common.util.Utils.PRECISION;
 
 public class GateFutureListener extends WebSocketListener<FutureAccountStatus, GateFutureApi> {
+    private static final String ORDER_BOOK_UPDATE = "futures.order_book_update";
 
     private final ObjectReader reader;
     private final ObjectReader reader1;
     private final ObjectReader reader2;
     private final ObjectReader reader3;
     private long start;
+    // 流式解析的深度增量，只由处理消息的线程使用
+    private final BookUpdate bookUpdate = new BookUpdate();
 
     public GateFutureListener(AccountConfig accountConfig,
                               FutureAccountStatus accountStatus,
@@ -36,6 +42,126 @@ public class GateFutureListener extends WebSocketListener<FutureAccountStatus, G
         if (orderBookLimit > 200) {
             orderBookLimit = 20;
         }
+
+        this.streamingDecode = Boolean.parseBoolean(accountConfig.getProperty("streaming_decode", "true"));
+    }
+
+    // pong 消息较短，直接在回调线程更新时间，避免被队列中的行情消息延迟
+    @Override
+    protected boolean processControlText(WebSocket webSocket, char[] chars, int length) {
+        if (length < 256 && containsAscii(chars, length, "\"futures.pong\"")) {
+            accountStatus.updateLastPongTime();
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    protected String textType(char[] chars, int length) {
+        return asciiStringField(chars, length, "channel");
+    }
+
+    // 丢弃深度增量后 update id 不连续，会重新查询订单簿快照
+    @Override
+    protected boolean isDroppableType(String type) {
+        return "futures.order_book_update".equals(type) ||
+                "futures.book_ticker".equals(type) ||
+                "futures.tickers".equals(type) ||
+                "futures.order_book".equals(type);
+    }
+
+    /**
+     * futures.order_book_update 使用流式解析，其余消息交给 processWholeText
+     * 字段顺序不固定，result 位于 channel、event 之前时先按深度增量格式解析暂存，
+     * 读取完整个对象后再确认消息类型
+     */
+    @Override
+    protected boolean processStreamingText(WebSocket webSocket, JsonParser parser) throws Exception {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            return false;
+        }
+        String channel = null;
+        String event = null;
+        boolean parsed = false;
+        String field;
+        while ((field = parser.nextFieldName()) != null) {
+            parser.nextToken();
+            if ("channel".equals(field)) {
+                channel = parser.getText();
+                if (!ORDER_BOOK_UPDATE.equals(channel)) {
+                    return false;
+                }
+            } else if ("event".equals(field)) {
+                event = parser.getText();
+                if (!"update".equals(event)) {
+                    return false;
+                }
+            } else if ("result".equals(field)) {
+                parsed = bookUpdate.read(parser);
+                if (!parsed && channel != null && event != null) {
+                    return false;
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+        if (!parsed || !ORDER_BOOK_UPDATE.equals(channel) || !"update".equals(event)) {
+            return false;
+        }
+        applyOrderBookUpdate(bookUpdate);
+        return true;
+    }
+
+    private void applyOrderBookUpdate(BookUpdate update) throws Exception {
+        logger.debug("book update, elapsed time: {}, symbol: {}",
+                System.currentTimeMillis() - update.time, update.symbol);
+
+        // 合约张数转换为实际数量，symbol 可能位于深度数据之后，解析完成后统一转换
+        PriceSizeBuffer bids = update.bids;
+        PriceSizeBuffer asks = update.asks;
+        for (int i = 0; i < bids.size(); i++) {
+            bids.setSize(i, api.getSize(update.symbol, bids.getSize(i)));
+        }
+        for (int i = 0; i < asks.size(); i++) {
+            asks.setSize(i, api.getSize(update.symbol, asks.getSize(i)));
+        }
+        updateOrderBookValue(update.symbol, new OrderBookValue(update.lastUpdateId,
+                update.firstUpdateId, bids, asks));
+    }
+
+    // 解析 [{"p": "price", "s": size}, ...] 格式的深度数组
+    private static void readPriceSizes(JsonParser parser, PriceSizeBuffer buffer) throws Exception {
+        if (parser.currentToken() == JsonToken.VALUE_NULL) {
+            return;
+        }
+        JsonParserUtils.expect(parser, JsonToken.START_ARRAY);
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            double price = 0;
+            double size = 0;
+            String field;
+            while ((field = parser.nextFieldName()) != null) {
+                parser.nextToken();
+                if ("p".equals(field)) {
+                    price = JsonParserUtils.getDouble(parser);
+                } else if ("s".equals(field)) {
+                    size = JsonParserUtils.getDouble(parser);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            buffer.add(price, size);
+        }
+        JsonParserUtils.expect(parser, JsonToken.END_ARRAY);
+    }
+
+    private void updateOrderBookValue(String symbol, OrderBookValue orderBookValue) throws Exception {
+        markDecoded();
+        if (!accountStatus.updateOrderBookValue(symbol, orderBookValue)) {
+            logger.warn("failed to update order book value, no serial update id: {}", orderBookValue);
+            api.asyncGetOrderBook(symbol, orderBookLimit).thenAccept(value -> {
+                accountStatus.buildOrderBookValue(symbol, value);
+            });
+        }
     }
 
     @Override
@@ -85,9 +211,10 @@ public class GateFutureListener extends WebSocketListener<FutureAccountStatus, G
 //                    accountStatus.updateBidOrderBookTicker(result.contract, result.price, 0);
 //                }
 //            }
-        } else if ("futures.order_book_update".equals(resp.channel) && "update".equals(resp.event)) {
+        } else if (ORDER_BOOK_UPDATE.equals(resp.channel) && "update".equals(resp.event)) {
+            streamingFallback(resp.channel);
             GateWebSocketResultV3 result = reader3.readValue(resp.result);
-            logger.info("book update, elapsed time: {}, message: {}",
+            logger.debug("book update, elapsed time: {}, message: {}",
                     System.currentTimeMillis() - result.time, message);
             List<OrderBookValue.PriceSizePair> bidPairs = new ArrayList<>();
             for (GatePriceSizePair bid : result.bids) {
@@ -98,14 +225,8 @@ public class GateFutureListener extends WebSocketListener<FutureAccountStatus, G
                 askPairs.add(new OrderBookValue.PriceSizePair(ask.price, api.getSize(result.symbol, ask.size)));
             }
 //            accountStatus.updateOrderBook(result.symbol, bidPairs, askPairs);
-            OrderBookValue orderBookValue = new OrderBookValue(result.lastUpdateId,
-                    result.firstUpdateId, bidPairs, askPairs);
-            if (!accountStatus.updateOrderBookValue(result.symbol, orderBookValue)) {
-                logger.warn("failed to update order book value, no serial update id: {}", orderBookValue);
-                api.asyncGetOrderBook(result.symbol, orderBookLimit).thenAccept(value -> {
-                    accountStatus.buildOrderBookValue(result.symbol, value);
-                });
-            }
+            updateOrderBookValue(result.symbol, new OrderBookValue(result.lastUpdateId,
+                    result.firstUpdateId, bidPairs, askPairs));
 //            long timer = System.currentTimeMillis() - start;
 //            double bid = 0;
 //            double ask = 0;
@@ -127,8 +248,9 @@ public class GateFutureListener extends WebSocketListener<FutureAccountStatus, G
 //            }
         } else if ("futures.book_ticker".equals(resp.channel) && "update".equals(resp.event)) {
             GateWebSocketResultV2 result = reader2.readValue(resp.result);
-            logger.info("book ticker, elapsed time: {}, message: {}",
+            logger.debug("book ticker, elapsed time: {}, message: {}",
                     System.currentTimeMillis() - result.time, message);
+            markDecoded();
             if (result.bidPrice > 0 && result.bidSize != 0) {
 //                accountStatus.updateBidOrderBookTicker(result.contract,
 //                        result.bidPrice, api.getSize(result.contract, result.bidSize));
@@ -218,4 +340,68 @@ public class GateFutureListener extends WebSocketListener<FutureAccountStatus, G
             }
         }
     }
+
+    /**
+     * 深度增量的解析结果，bids 与 asks 每次解析重新创建，交给 OrderBookValue 持有
+     */
+    private static class BookUpdate {
+        String symbol;
+        long time;
+        long firstUpdateId;
+        long lastUpdateId;
+        PriceSizeBuffer bids;
+        PriceSizeBuffer asks;
+
+        /**
+         * 当前 token 为 result 的值
+         * @return result 是否为深度增量格式，否则跳过剩余内容
+         */
+        boolean read(JsonParser parser) throws Exception {
+            if (parser.currentToken() != JsonToken.START_OBJECT) {
+                parser.skipChildren();
+                return false;
+            }
+            symbol = null;
+            time = 0;
+            firstUpdateId = 0;
+            lastUpdateId = 0;
+            bids = new PriceSizeBuffer();
+            asks = new PriceSizeBuffer();
+            boolean valid = true;
+            String field;
+            while ((field = parser.nextFieldName()) != null) {
+                JsonToken token = parser.nextToken();
+                switch (field) {
+                    case "s":
+                    case "contract":
+                        symbol = parser.getText();
+                        break;
+                    case "t":
+                        time = JsonParserUtils.getLong(parser);
+                        break;
+                    case "U":
+                        firstUpdateId = JsonParserUtils.getLong(parser);
+                        break;
+                    case "u":
+                        lastUpdateId = JsonParserUtils.getLong(parser);
+                        break;
+                    case "b":
+                    case "bids":
+                    case "a":
+                    case "asks":
+                        // 其他频道的 b、a 可能是价格字符串
+                        if (token == JsonToken.START_ARRAY || token == JsonToken.VALUE_NULL) {
+                            readPriceSizes(parser, field.startsWith("b") ? bids : asks);
+                        } else {
+                            valid = false;
+                            parser.skipChildren();
+                        }
+                        break;
+                    default:
+                        parser.skipChildren();
+                }
+            }
+            return valid;
+        }
+    }
 }
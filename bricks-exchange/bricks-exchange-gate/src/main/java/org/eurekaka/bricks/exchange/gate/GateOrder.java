@@ -2,6 +2,8 @@ package org.eurekaka.bricks.exchange.gate;
 
 class GateOrder {
     public String label;
+    // 批量下单时每个订单是否成功
+    public boolean succeeded = true;
 
     public long id;
     public String contract;
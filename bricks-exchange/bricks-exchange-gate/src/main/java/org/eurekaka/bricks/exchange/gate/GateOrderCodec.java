@@ -0,0 +1,94 @@
+package org.eurekaka.bricks.exchange.gate;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.eurekaka.bricks.api.WebSocketOrderChannel;
+import org.eurekaka.bricks.common.cryption.HmacSigner;
+import org.eurekaka.bricks.common.model.AccountConfig;
+import org.eurekaka.bricks.common.util.Utils;
+
+/**
+ * gate futures websocket api 的下单撤单消息
+ * 签名内容为 api\nchannel\nreq_param\ntimestamp，登录后的请求不需要再签名
+ */
+class GateOrderCodec implements WebSocketOrderChannel.Codec {
+    static final String LOGIN = "futures.login";
+    static final String ORDER_PLACE = "futures.order_place";
+    static final String ORDER_CANCEL = "futures.order_cancel";
+    static final String ORDER_AMEND = "futures.order_amend";
+
+    private final AccountConfig accountConfig;
+    private final HmacSigner signer;
+
+    GateOrderCodec(AccountConfig accountConfig, HmacSigner signer) {
+        this.accountConfig = accountConfig;
+        this.signer = signer;
+    }
+
+    @Override
+    public String login(String requestId) throws Exception {
+        long time = System.currentTimeMillis() / 1000;
+        String signature = signer.signHex(signer.builder().append("api\n")
+                .append(LOGIN).append("\n\n").append(time));
+        ObjectNode payload = Utils.mapper.createObjectNode();
+        payload.put("api_key", accountConfig.getAuthKey());
+        payload.put("signature", signature);
+        payload.put("timestamp", String.valueOf(time));
+        payload.put("req_id", requestId);
+        return message(LOGIN, time, payload);
+    }
+
+    /**
+     * @param param 请求参数，与 rest 接口的请求体一致
+     */
+    String request(String channel, String requestId, Object param) throws JsonProcessingException {
+        ObjectNode payload = Utils.mapper.createObjectNode();
+        payload.put("req_id", requestId);
+        payload.set("req_param", Utils.mapper.valueToTree(param));
+        return message(channel, System.currentTimeMillis() / 1000, payload);
+    }
+
+    private String message(String channel, long time, ObjectNode payload) throws JsonProcessingException {
+        ObjectNode node = Utils.mapper.createObjectNode();
+        node.put("time", time);
+        node.put("channel", channel);
+        node.put("event", "api");
+        node.set("payload", payload);
+        return Utils.mapper.writeValueAsString(node);
+    }
+
+    @Override
+    public String requestId(JsonNode message) {
+        JsonNode requestId = message.get("request_id");
+        return requestId == null ? null : requestId.asText();
+    }
+
+    @Override
+    public String error(JsonNode message) {
+        String status = message.path("header").path("status").asText();
+        if ("200".equals(status)) {
+            return null;
+        }
+        JsonNode errs = message.path("data").path("errs");
+        return errs.isMissingNode() ? "status " + status : errs.path("label").asText();
+    }
+
+    @Override
+    public boolean isFinal(JsonNode message) {
+        // 下单请求会先返回 ack 为 true 的确认消息
+        return !message.path("ack").asBoolean(false);
+    }
+
+    @Override
+    public String ping() {
+        return "{\"time\" : " + System.currentTimeMillis() / 1000 + ", \"channel\" : \"futures.ping\"}";
+    }
+
+    /**
+     * @return 请求结果，下单为订单信息
+     */
+    static JsonNode result(JsonNode message) {
+        return message.path("data").path("result");
+    }
+}
@@ -109,8 +109,7 @@ public class HuoFuture extends AbstractFutureExchange {
     }
 
     @Override
-    protected ExMessage<RiskLimitValue> getRiskLimit() throws ExApiException {
-        RiskLimitValue riskLimitValue = api.getRiskLimitValue();
+    protected RiskLimitValue filterRiskLimit(RiskLimitValue riskLimitValue) {
         List<PositionRiskLimitValue> availablePositions = new ArrayList<>();
         for (PositionRiskLimitValue value : riskLimitValue.positionRiskLimitValues) {
             if (accountStatus.getSymbols().containsKey(value.symbol) &&
@@ -126,8 +125,8 @@ public class HuoFuture extends AbstractFutureExchange {
                 availablePositions.add(posValue);
             }
         }
-        return new ExMessage<>(ExMessage.ExMsgType.RIGHT, new RiskLimitValue(
-                riskLimitValue.totalBalance, riskLimitValue.availableBalance, availablePositions));
+        return new RiskLimitValue(riskLimitValue.totalBalance,
+                riskLimitValue.availableBalance, availablePositions);
     }
 
     @Override
@@ -19,6 +19,20 @@ public class HuoFutureAccountListener extends WebSocketListener<FutureAccountSta
 
         this.reader = Utils.mapper.reader().forType(HuoFutureWebSocketV2.class)
                 .with(DeserializationFeature.ACCEPT_SINGLE_VALUE_AS_ARRAY);
+        this.binaryControl = true;
+    }
+
+    // ping 消息较短，在回调线程直接回复 pong，避免被队列中的订单消息延迟
+    @Override
+    protected boolean processControlBinary(WebSocket webSocket, byte[] content, int length) throws Exception {
+        if (containsAscii(content, length, "\"ping\"")) {
+            HuoFutureWebSocketV2 msg = reader.readValue(content, 0, length);
+            if ("ping".equals(msg.op)) {
+                webSocket.sendText(Utils.mapper.writeValueAsString(new HuoFuturePongV2(msg.ts)), true);
+                return true;
+            }
+        }
+        return false;
     }
 
     @Override
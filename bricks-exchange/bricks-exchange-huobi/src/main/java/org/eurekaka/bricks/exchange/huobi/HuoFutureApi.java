@@ -2,13 +2,13 @@ package org.eurekaka.bricks.exchange.huobi;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import org.eurekaka.bricks.api.FutureExApi;
+import org.eurekaka.bricks.common.cryption.HmacSigner;
 import org.eurekaka.bricks.common.exception.ExApiException;
 import org.eurekaka.bricks.common.exception.InitializeException;
 import org.eurekaka.bricks.common.model.*;
 import org.eurekaka.bricks.common.util.HttpUtils;
 import org.eurekaka.bricks.common.util.Utils;
 
-import javax.crypto.Mac;
 import java.net.URI;
 import java.net.URLEncoder;
 import java.net.http.HttpClient;
@@ -29,6 +29,7 @@ public class HuoFutureApi implements FutureExApi {
 
     private final AccountConfig accountConfig;
     private final HttpClient httpClient;
+    private final HmacSigner signer;
     // 张数转换器
     private final Map<String, Double> contractMultiplier;
     // 杠杆倍数，初始化获取仓位信息时，更新杠杆倍数
@@ -40,6 +41,7 @@ public class HuoFutureApi implements FutureExApi {
     public HuoFutureApi(AccountConfig accountConfig, HttpClient httpClient) {
         this.accountConfig = accountConfig;
         this.httpClient = httpClient;
+        this.signer = new HmacSigner(accountConfig.getAuthSecret(), HmacSigner.HMAC_SHA256);
 
         this.contractMultiplier = new ConcurrentHashMap<>();
         this.leverRate = new ConcurrentHashMap<>();
@@ -66,11 +68,10 @@ public class HuoFutureApi implements FutureExApi {
             encodedPs.put(entry.getKey(), urlEncode(entry.getValue()));
         }
 
-        // 该对象非线程安全，而且每次生成新对象并不影响性能
-        Mac sha256Mac = Utils.initialHMac(accountConfig.getAuthSecret(), "HmacSHA256");
         String host = accountConfig.getUrl().substring(8);
-        String signString =  "GET\n" + host + "\n/linear-swap-notification\n" + HttpUtils.param2String(encodedPs);
-        String signature = Base64.getEncoder().encodeToString(sha256Mac.doFinal(signString.getBytes()));
+        StringBuilder signString = signer.builder().append("GET\n").append(host)
+                .append("\n/linear-swap-notification\n");
+        String signature = signer.signBase64(HttpUtils.appendParams(signString, encodedPs));
         ps.put("Signature", signature);
 
         ps.put("op", "auth");
@@ -441,13 +442,13 @@ public class HuoFutureApi implements FutureExApi {
         for (Map.Entry<String, String> entry : ps.entrySet()) {
             encodedPs.put(entry.getKey(), urlEncode(entry.getValue()));
         }
-        String paramString = HttpUtils.param2String(encodedPs);
-
-        // 该对象非线程安全，而且每次生成新对象并不影响性能
-        Mac sha256Mac = Utils.initialHMac(accountConfig.getAuthSecret(), "HmacSHA256");
         String host = accountConfig.getUrl().substring(8);
-        String signString = method + "\n" + host + "\n" + path + "\n" + HttpUtils.param2String(encodedPs);
-        String signature = Base64.getEncoder().encodeToString(sha256Mac.doFinal(signString.getBytes()));
+        StringBuilder signString = signer.builder().append(method).append('\n').append(host)
+                .append('\n').append(path).append('\n');
+        int start = signString.length();
+        HttpUtils.appendParams(signString, encodedPs);
+        String paramString = signString.substring(start);
+        String signature = signer.signBase64(signString);
         String url = accountConfig.getUrl() + path + "?" + paramString + "&Signature=" + urlEncode(signature);
 
         params.put("Signature", signature);
@@ -1,24 +1,116 @@
 package org.eurekaka.bricks.exchange.huobi;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import org.eurekaka.bricks.api.WebSocketListener;
-import org.eurekaka.bricks.common.model.AccountConfig;
-import org.eurekaka.bricks.common.model.FutureAccountStatus;
-import org.eurekaka.bricks.common.model.NetValue;
+import org.eurekaka.bricks.common.model.*;
+import org.eurekaka.bricks.common.util.JsonParserUtils;
 import org.eurekaka.bricks.common.util.Utils;
 
 import java.net.http.WebSocket;
-import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
-import java.util.TreeMap;
+import java.util.Map;
 import java.util.concurrent.Executor;
 
 import static org.eurekaka.bricks.common.util.Utils.PRECISION;
 
 public class HuoFutureMarketListener extends WebSocketListener<FutureAccountStatus, HuoFutureApi> {
+    // 解析后的 topic 与深度缓冲，只由处理消息的线程使用
+    private final Map<String, HuoFutureTopic> topics = new HashMap<>();
+    private final PriceSizeBuffer bids = new PriceSizeBuffer();
+    private final PriceSizeBuffer asks = new PriceSizeBuffer();
+
     public HuoFutureMarketListener(AccountConfig accountConfig,
                                   FutureAccountStatus accountStatus,
                                    HuoFutureApi api, Executor executor) {
         super(accountConfig, accountStatus, api, executor);
+
+        this.streamingDecode = Boolean.parseBoolean(accountConfig.getProperty("streaming_decode", "true"));
+        this.binaryControl = true;
+    }
+
+    // ping 消息较短，在回调线程直接回复 pong，避免被队列中的行情消息延迟
+    @Override
+    protected boolean processControlBinary(WebSocket webSocket, byte[] content, int length) throws Exception {
+        if (containsAscii(content, length, "\"ping\"")) {
+            HuoFutureWebSocketV1 msg = Utils.mapper.readValue(content, 0, length, HuoFutureWebSocketV1.class);
+            if (msg.ping != 0) {
+                webSocket.sendText(Utils.mapper.writeValueAsString(new HuoFuturePongV1(msg.ping)), true);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 解压后的 ping 与深度快照使用流式解析，其余消息交给 processWholeText
+     * 字段顺序不固定，tick 位于 ch 之前时先解析暂存，读取完整个对象后再按 topic 处理
+     */
+    @Override
+    protected boolean processStreamingText(WebSocket webSocket, JsonParser parser) throws Exception {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            return false;
+        }
+        long ping = 0;
+        HuoFutureTopic topic = null;
+        boolean parsed = false;
+        String field;
+        while ((field = parser.nextFieldName()) != null) {
+            parser.nextToken();
+            if ("ping".equals(field)) {
+                ping = JsonParserUtils.getLong(parser);
+            } else if ("ch".equals(field)) {
+                topic = getTopic(parser.getText());
+                if (!"depth".equals(topic.part2)) {
+                    return false;
+                }
+            } else if ("tick".equals(field)) {
+                parsed = readTick(parser);
+            } else {
+                parser.skipChildren();
+            }
+        }
+
+        if (ping != 0) {
+            webSocket.sendText(Utils.mapper.writeValueAsString(new HuoFuturePongV1(ping)), true);
+            return true;
+        } else if (topic != null && parsed) {
+            markDecoded();
+            updateDepth(topic.part1, bids, asks);
+            return true;
+        }
+        return false;
+    }
+
+    // 解析 tick 中的 bids 与 asks，不是深度格式时返回 false
+    private boolean readTick(JsonParser parser) throws Exception {
+        bids.clear();
+        asks.clear();
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return false;
+        }
+        String field;
+        while ((field = parser.nextFieldName()) != null) {
+            JsonToken token = parser.nextToken();
+            if (("bids".equals(field) || "asks".equals(field)) &&
+                    (token == JsonToken.START_ARRAY || token == JsonToken.VALUE_NULL)) {
+                JsonParserUtils.readPriceSizeArrays(parser, "bids".equals(field) ? bids : asks);
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return true;
+    }
+
+    private HuoFutureTopic getTopic(String ch) throws Exception {
+        HuoFutureTopic topic = topics.get(ch);
+        if (topic == null) {
+            topic = HuoFutureTopic.parseTopicV1(ch);
+            topics.put(ch, topic);
+        }
+        return topic;
     }
 
     @Override
@@ -29,35 +121,64 @@ public class HuoFutureMarketListener extends WebSocketListener<FutureAccountStat
         } else if (msg.ch != null) {
             HuoFutureTopic topic = HuoFutureTopic.parseTopicV1(msg.ch);
             if ("depth".equals(topic.part2)) {
-                if (!msg.tick.bids.isEmpty()) {
-                    TreeMap<Double, Double> bidOrderBook = new TreeMap<>(Comparator.reverseOrder());
-                    for (List<Double> bid : msg.tick.bids) {
-                        bidOrderBook.put(bid.get(0), api.getSize(topic.part1, bid.get(1)));
-                    }
-                    accountStatus.getBidOrderBooks().put(topic.part1, bidOrderBook);
+                streamingFallback(topic.part2);
+                bids.clear();
+                asks.clear();
+                for (List<Double> bid : msg.tick.bids) {
+                    bids.add(bid.get(0), bid.get(1));
+                }
+                for (List<Double> ask : msg.tick.asks) {
+                    asks.add(ask.get(0), ask.get(1));
                 }
+                markDecoded();
+                updateDepth(topic.part1, bids, asks);
+            }
+        }
+    }
 
-                if (!msg.tick.asks.isEmpty()) {
-                    TreeMap<Double, Double> askOrderBook = new TreeMap<>();
-                    for (List<Double> ask : msg.tick.asks) {
-                        askOrderBook.put(ask.get(0), api.getSize(topic.part1, ask.get(1)));
-                    }
-                    accountStatus.getAskOrderBooks().put(topic.part1, askOrderBook);
+    // 深度消息为全量快照，原地重建订单簿
+    private void updateDepth(String symbol, PriceSizeBuffer bids, PriceSizeBuffer asks) {
+        if (!bids.isEmpty()) {
+            OrderBook bidOrderBook = getOrderBook(accountStatus.getBidOrderBooks(), symbol, true);
+            long stamp = bidOrderBook.beginUpdate();
+            try {
+                bidOrderBook.clear();
+                for (int i = 0; i < bids.size(); i++) {
+                    bidOrderBook.update(bids.getPrice(i), api.getSize(symbol, bids.getSize(i)));
                 }
+            } finally {
+                bidOrderBook.endUpdate(stamp);
+            }
+        }
 
-                if (!msg.tick.bids.isEmpty() && !msg.tick.asks.isEmpty()) {
-                    double bidPrice = msg.tick.bids.get(0).get(0);
-                    double askPrice = msg.tick.asks.get(0).get(0);
-                    double midPrice = (bidPrice + askPrice) / 2;
-                    double diff = (midPrice - bidPrice) / midPrice;
-                    if (diff < 0.03) {
-                        // 误差小于 3%，则认为有效价格
-                        long price = Math.round(midPrice * PRECISION);
-                        accountStatus.getNetValues().put(topic.part1,
-                                new NetValue(topic.part1, accountConfig.getName(), price));
-                    }
+        if (!asks.isEmpty()) {
+            OrderBook askOrderBook = getOrderBook(accountStatus.getAskOrderBooks(), symbol, false);
+            long stamp = askOrderBook.beginUpdate();
+            try {
+                askOrderBook.clear();
+                for (int i = 0; i < asks.size(); i++) {
+                    askOrderBook.update(asks.getPrice(i), api.getSize(symbol, asks.getSize(i)));
                 }
+            } finally {
+                askOrderBook.endUpdate(stamp);
+            }
+        }
+
+        if (!bids.isEmpty() && !asks.isEmpty()) {
+            double bidPrice = bids.getPrice(0);
+            double askPrice = asks.getPrice(0);
+            double midPrice = (bidPrice + askPrice) / 2;
+            double diff = (midPrice - bidPrice) / midPrice;
+            if (diff < 0.03) {
+                // 误差小于 3%，则认为有效价格
+                long price = Math.round(midPrice * PRECISION);
+                accountStatus.getNetValues().put(symbol,
+                        new NetValue(symbol, accountConfig.getName(), price));
             }
         }
     }
+
+    private OrderBook getOrderBook(Map<String, OrderBook> orderBooks, String symbol, boolean bid) {
+        return orderBooks.computeIfAbsent(symbol, k -> new OrderBook(bid));
+    }
 }
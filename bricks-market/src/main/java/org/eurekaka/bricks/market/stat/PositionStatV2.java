@@ -11,11 +11,15 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 public class PositionStatV2 implements Stat {
     private final static Logger logger = LoggerFactory.getLogger(PositionStatV2.class);
 
+    private final static PropertySchema.IntKey MAX_POSITION_QUANTITY_1K =
+            Info0.SCHEMA.intKey("max_position_quantity_1k", 10);
+
     private long nextTime;
 
     private final AccountManager accountManager;
@@ -50,19 +54,21 @@ public class PositionStatV2 implements Stat {
                 .filter(e -> e.getType() == 2)
                 .map(Info0::getAccount).collect(Collectors.toSet());
 
+        // 所有账户的仓位并发查询
+        List<CompletableFuture<ExMessage<?>>> futures1 = getPositions(accounts1);
+        List<CompletableFuture<ExMessage<?>>> futures2 = getPositions(accounts2);
+
         List<PositionValue> positionValues1 = new ArrayList<>();
-        for (String account : accounts1) {
-            ExMessage<?> positionValueMsg = accountManager.getAccount(account)
-                    .process(new ExAction<>(ExAction.ActionType.GET_POSITIONS));
+        for (CompletableFuture<ExMessage<?>> future : futures1) {
+            ExMessage<?> positionValueMsg = future.join();
             if (positionValueMsg.getType().equals(ExMessage.ExMsgType.RIGHT)) {
                 positionValues1.addAll((List<PositionValue>) positionValueMsg.getData());
             }
         }
 
         List<PositionValue> positionValues2 = new ArrayList<>();
-        for (String account : accounts2) {
-            ExMessage<?> positionValueMsg = accountManager.getAccount(account)
-                    .process(new ExAction<>(ExAction.ActionType.GET_POSITIONS));
+        for (CompletableFuture<ExMessage<?>> future : futures2) {
+            ExMessage<?> positionValueMsg = future.join();
             if (positionValueMsg.getType().equals(ExMessage.ExMsgType.RIGHT)) {
                 positionValues2.addAll((List<PositionValue>) positionValueMsg.getData());
             }
@@ -84,7 +90,7 @@ public class PositionStatV2 implements Stat {
         for (Info0 info : infos) {
             for (PositionValue position : positionValues1) {
                 if (info.getName().equals(position.getName())) {
-                    if (Math.abs(position.getQuantity()) / 1000 > info.getInt("max_position_quantity_1k", 10)) {
+                    if (Math.abs(position.getQuantity()) / 1000 > info.getInt(MAX_POSITION_QUANTITY_1K)) {
                         if (position.getQuantity() > 0) {
                             // 只允许卖合约
                             info.setProperty(Info0.ORDER_SIDE_KEY, OrderSide.SELL.name());
@@ -121,6 +127,15 @@ public class PositionStatV2 implements Stat {
         nextTime += MINUTE;
     }
 
+    private List<CompletableFuture<ExMessage<?>>> getPositions(Set<String> accounts) {
+        List<CompletableFuture<ExMessage<?>>> futures = new ArrayList<>();
+        for (String account : accounts) {
+            futures.add(accountManager.getAccount(account)
+                    .processAsync(new ExAction<>(ExAction.ActionType.GET_POSITIONS)));
+        }
+        return futures;
+    }
+
     private void updateFutureSide(Map<String, Map<String, Long>> hedgerPositions) {
         hedgerPositions.forEach((future, hPos) -> {
             if (hPos.size() == 1) {
@@ -14,6 +14,7 @@ import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
@@ -28,6 +29,16 @@ import java.util.concurrent.ExecutionException;
 public class Strategy07 implements Strategy {
     private final static Logger logger = LoggerFactory.getLogger(Strategy07.class);
 
+    // 下单时读取的配置，配置更新后重新解析
+    private final static PropertySchema SCHEMA = new PropertySchema("strategy07");
+    private final static PropertySchema.IntKey ORDER_QUANTITY = SCHEMA.intKey("order_quantity", 100);
+    private final static PropertySchema.BooleanKey RAND_ORDER_QUANTITY = SCHEMA.booleanKey("rand_order_quantity", true);
+    private final static PropertySchema.IntKey ORDER_INTERVAL = SCHEMA.intKey("order_interval", 1000);
+    private final static PropertySchema.DoubleKey BID_PRICE_RATE = SCHEMA.doubleKey("bid_price_rate", 0.0002);
+    private final static PropertySchema.DoubleKey ASK_PRICE_RATE = SCHEMA.doubleKey("ask_price_rate", 0.0002);
+    private final static PropertySchema.DoubleKey BID_CANCEL_RATE = SCHEMA.doubleKey("bid_cancel_rate", 0.001);
+    private final static PropertySchema.DoubleKey ASK_CANCEL_RATE = SCHEMA.doubleKey("ask_cancel_rate", 0.001);
+
     private final BrickContext brickContext;
     private final StrategyConfig strategyConfig;
 
@@ -64,6 +75,13 @@ public class Strategy07 implements Strategy {
     private boolean isDirect;
     private double orderProfitRate;
 
+    // 价格偏离时通过改单替换挂单，不等待撤单完成
+    private boolean replaceOrder;
+    // client order id -> 已被替换但还未确认撤销的订单，期间的成交仍需对冲
+    private final Map<String, AsyncStateOrder> replacingOrders;
+    // 本轮需要新下的挂单，在 run 结束时合并为一次批量下单
+    private final List<AsyncStateOrder> quoteOrders;
+
     private int timeCounterInterval;
 
     public Strategy07(BrickContext brickContext, StrategyConfig strategyConfig) {
@@ -80,6 +98,8 @@ public class Strategy07 implements Strategy {
         lastOrderTimeMap = new ConcurrentHashMap<>();
 
         filledOrderSize = new HashMap<>();
+        replacingOrders = new ConcurrentHashMap<>();
+        quoteOrders = new ArrayList<>(4);
     }
 
 
@@ -104,6 +124,8 @@ public class Strategy07 implements Strategy {
 
         orderProfitRate = strategyConfig.getDouble("order_profit_rate", 0.0003);
 
+        replaceOrder = strategyConfig.getBoolean("replace_order", false);
+
         posQuantity1 = accountActor.getPosition(info1).getQuantity();
         posQuantity2 = accountActor.getPosition(info2).getQuantity();
 
@@ -161,10 +183,7 @@ public class Strategy07 implements Strategy {
     @Override
     public void stop() throws StrategyException {
         try {
-            CompletableFuture.allOf(cancelOrder(bidOrder1),
-                    cancelOrder(askOrder1),
-                    cancelOrder(bidOrder2),
-                    cancelOrder(askOrder2)).get();
+            cancelAllOrders().get();
         } catch (InterruptedException | ExecutionException e) {
             logger.info("failed to stop strategy", e);
         }
@@ -176,10 +195,7 @@ public class Strategy07 implements Strategy {
                 !brickContext.getAccount(info2.getAccount()).isAlive()) {
             logger.warn("account dead, waiting...");
             try {
-                CompletableFuture.allOf(cancelOrder(bidOrder1),
-                        cancelOrder(askOrder1),
-                        cancelOrder(bidOrder2),
-                        cancelOrder(askOrder2)).get();
+                cancelAllOrders().get();
             } catch (InterruptedException | ExecutionException e) {
                 logger.info("failed to cancel all orders", e);
             }
@@ -204,26 +220,37 @@ public class Strategy07 implements Strategy {
         posQuantity1 = accountActor.getPosition(info1).getQuantity();
         posQuantity2 = accountActor.getPosition(info2).getQuantity();
 
-        AsyncStateOrder o1 = updateOrder(info1, info2, OrderSide.BUY, bidOrder1, posQuantity1);
-        if (o1 != null) {
-            bidOrder1 = o1;
-        }
+        try {
+            AsyncStateOrder o1 = updateOrder(info1, info2, OrderSide.BUY, bidOrder1, posQuantity1);
+            if (o1 != null) {
+                bidOrder1 = o1;
+            }
 
-        AsyncStateOrder o2 = updateOrder(info1, info2, OrderSide.SELL, askOrder1, posQuantity1);
-        if (o2 != null) {
-            askOrder1 = o2;
-        }
+            AsyncStateOrder o2 = updateOrder(info1, info2, OrderSide.SELL, askOrder1, posQuantity1);
+            if (o2 != null) {
+                askOrder1 = o2;
+            }
 
-        AsyncStateOrder o3 = updateOrder(info2, info1, OrderSide.BUY, bidOrder2, posQuantity2);
-        if (o3 != null) {
-            bidOrder2 = o3;
-        }
+            AsyncStateOrder o3 = updateOrder(info2, info1, OrderSide.BUY, bidOrder2, posQuantity2);
+            if (o3 != null) {
+                bidOrder2 = o3;
+            }
 
-        AsyncStateOrder o4 = updateOrder(info2, info1, OrderSide.SELL, askOrder2, posQuantity2);
-        if (o4 != null) {
-            askOrder2 = o4;
+            AsyncStateOrder o4 = updateOrder(info2, info1, OrderSide.SELL, askOrder2, posQuantity2);
+            if (o4 != null) {
+                askOrder2 = o4;
+            }
+        } catch (StrategyException | RuntimeException e) {
+            // 本轮已排队的挂单不再发出，标记为已取消，下个周期按最新价格重新下单
+            for (AsyncStateOrder order : quoteOrders) {
+                order.setState(OrderState.CANCELLED);
+            }
+            quoteOrders.clear();
+            throw e;
         }
 
+        makeQuoteOrders();
+
     }
 
     @Override
@@ -234,7 +261,8 @@ public class Strategy07 implements Strategy {
                     (bidOrder1 == null || !e.getKey().equals(bidOrder1.getClientOrderId())) &&
                             (askOrder1 == null || !e.getKey().equals(askOrder1.getClientOrderId())) &&
                             (bidOrder2 == null || !e.getKey().equals(bidOrder2.getClientOrderId())) &&
-                            (askOrder2 == null || !e.getKey().equals(askOrder2.getClientOrderId())));
+                            (askOrder2 == null || !e.getKey().equals(askOrder2.getClientOrderId())) &&
+                            !replacingOrders.containsKey(e.getKey()));
 
             OrderNotification orderNotify = (OrderNotification) notification;
             if (orderNotify.getFilledSize() > 0) {
@@ -249,6 +277,13 @@ public class Strategy07 implements Strategy {
                     order = generateMarketHedgingOrder(orderNotify, info2, info1, bidOrder2.getState());
                 } else if (askOrder2 != null && orderNotify.getClientOrderId().equals(askOrder2.getClientOrderId())) {
                     order = generateMarketHedgingOrder(orderNotify, info2, info1, askOrder2.getState());
+                } else if (replacingOrders.containsKey(orderNotify.getClientOrderId())) {
+                    AsyncStateOrder replacing = replacingOrders.get(orderNotify.getClientOrderId());
+                    if (replacing.getAccount().equals(info1.getAccount())) {
+                        order = generateMarketHedgingOrder(orderNotify, info1, info2, replacing.getState());
+                    } else {
+                        order = generateMarketHedgingOrder(orderNotify, info2, info1, replacing.getState());
+                    }
                 }
                 if (order != null) {
                     logger.info("{}: generated hedging order: {}", System.currentTimeMillis() - timeCounter, order);
@@ -376,9 +411,12 @@ public class Strategy07 implements Strategy {
                 currentOrder.getState().equals(OrderState.SUBMITTING))) {
             // 检查是否需要撤单
             if (side.equals(OrderSide.BUY)) {
-                double baseOrderCancelRate = strategyConfig.getDouble("bid_cancel_rate", 0.001);
+                double baseOrderCancelRate = strategyConfig.getDouble(BID_CANCEL_RATE);
                 if (currentOrder.getPrice() > order.getPrice() ||
                         currentOrder.getPrice() < order.getPrice() * (1 - baseOrderCancelRate)) {
+                    if (canReplace(info, side, currentOrder, order)) {
+                        return replaceOrder(info, currentOrder, order);
+                    }
                     currentOrder.setState(OrderState.CANCELLING);
                     long startCancelTime = System.currentTimeMillis();
                     accountActor.asyncCancelOrder(currentOrder).thenAccept(cancelled -> {
@@ -397,9 +435,12 @@ public class Strategy07 implements Strategy {
                     return null;
                 }
             } else {
-                double baseOrderCancelRate = strategyConfig.getDouble("ask_cancel_rate", 0.001);
+                double baseOrderCancelRate = strategyConfig.getDouble(ASK_CANCEL_RATE);
                 if (currentOrder.getPrice() < order.getPrice() ||
                         currentOrder.getPrice() > order.getPrice() * (1 + baseOrderCancelRate)) {
+                    if (canReplace(info, side, currentOrder, order)) {
+                        return replaceOrder(info, currentOrder, order);
+                    }
                     currentOrder.setState(OrderState.CANCELLING);
                     long startCancelTime = System.currentTimeMillis();
                     accountActor.asyncCancelOrder(currentOrder).thenAccept(cancelled -> {
@@ -426,43 +467,8 @@ public class Strategy07 implements Strategy {
         // 若是可以下单
         if (currentOrder == null || currentOrder.getState().equals(OrderState.CANCELLED)) {
             if (checkOrderInterval(info.getAccount() + side)) {
-                orderIndex1 = (orderIndex1 + 1) % 1000;
-                String timeString = String.valueOf(System.currentTimeMillis() / 60000).substring(5);
-                String clientOrderId = "_" + info.getName() + "_" + timeString + "_" + orderIndex1;
-                order.setClientOrderId(clientOrderId);
-
-                long startTime = System.currentTimeMillis();
-                accountActor.asyncMakeOrder(order).thenAccept(newOrder -> {
-                    if (newOrder == null || OrderStatus.EXPIRED.equals(newOrder.getStatus()) ||
-                            OrderStatus.CANCELLED.equals(newOrder.getStatus()) ||
-                            OrderStatus.REJECTED.equals(newOrder.getStatus())) {
-                        // 此时订单失效/取消，可以直接设置本地订单状态为cancelled
-                        logger.error("failed to make order: {}", newOrder);
-                        order.setState(OrderState.CANCELLED);
-                    } else {
-                        long currentTime = System.currentTimeMillis();
-                        if (order.getState().equals(OrderState.SUBMITTING)) {
-                            order.setState(OrderState.SUBMITTED);
-                            logger.info("{}: {} made new order: {}",
-                                    currentTime - timeCounter, currentTime - startTime, newOrder);
-                        } else if (order.getState().equals(OrderState.CANCELLING) ||
-                                order.getState().equals(OrderState.CANCELLED)) {
-                            // 状态为cancelled订单，也可能还未真正取消
-                            // 再次取消订单，保证订单撤销
-                            logger.info("{}: {} cancelling submitted order: {}",
-                                    currentTime - timeCounter, currentTime - startTime, newOrder);
-                            try {
-                                accountActor.asyncCancelOrder(order).thenAccept(cancelled -> {
-                                    order.setState(OrderState.CANCELLED);
-                                });
-                            } catch (StrategyException e) {
-                                logger.error("{}: failed to cancel submitted order: {}",
-                                        System.currentTimeMillis() - timeCounter, newOrder);
-                            }
-                        }
-                    }
-                });
-
+                order.setClientOrderId(nextClientOrderId(info));
+                quoteOrders.add(order);
                 return order;
             }
         }
@@ -470,14 +476,124 @@ public class Strategy07 implements Strategy {
         return null;
     }
 
+    // 本轮的新挂单按账户合并为批量下单，每个账户一次请求
+    private void makeQuoteOrders() throws StrategyException {
+        if (quoteOrders.isEmpty()) {
+            return;
+        }
+        Map<String, List<AsyncStateOrder>> accountOrders = new LinkedHashMap<>();
+        for (AsyncStateOrder order : quoteOrders) {
+            accountOrders.computeIfAbsent(order.getAccount(), k -> new ArrayList<>(2)).add(order);
+        }
+        quoteOrders.clear();
+
+        long startTime = System.currentTimeMillis();
+        StrategyException error = null;
+        for (List<AsyncStateOrder> orders : accountOrders.values()) {
+            try {
+                List<CompletableFuture<CurrentOrder>> futures = accountActor.asyncMakeOrders(orders);
+                for (int i = 0; i < orders.size(); i++) {
+                    AsyncStateOrder order = orders.get(i);
+                    futures.get(i).thenAccept(newOrder -> onOrderMade(order, newOrder, startTime));
+                }
+            } catch (StrategyException e) {
+                // 下单请求未发出，下个周期重新下单，不影响其他账户的订单
+                for (AsyncStateOrder order : orders) {
+                    order.setState(OrderState.CANCELLED);
+                }
+                error = e;
+            }
+        }
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    // 下单结果返回后更新本地订单状态
+    private void onOrderMade(AsyncStateOrder order, CurrentOrder newOrder, long startTime) {
+        if (newOrder == null || OrderStatus.EXPIRED.equals(newOrder.getStatus()) ||
+                OrderStatus.CANCELLED.equals(newOrder.getStatus()) ||
+                OrderStatus.REJECTED.equals(newOrder.getStatus())) {
+            // 此时订单失效/取消，可以直接设置本地订单状态为cancelled
+            logger.error("failed to make order: {}", newOrder);
+            order.setState(OrderState.CANCELLED);
+        } else {
+            long currentTime = System.currentTimeMillis();
+            if (order.getState().equals(OrderState.SUBMITTING)) {
+                order.setState(OrderState.SUBMITTED);
+                logger.info("{}: {} made new order: {}",
+                        currentTime - timeCounter, currentTime - startTime, newOrder);
+            } else if (order.getState().equals(OrderState.CANCELLING) ||
+                    order.getState().equals(OrderState.CANCELLED)) {
+                // 状态为cancelled订单，也可能还未真正取消
+                // 再次取消订单，保证订单撤销
+                logger.info("{}: {} cancelling submitted order: {}",
+                        currentTime - timeCounter, currentTime - startTime, newOrder);
+                try {
+                    accountActor.asyncCancelOrder(order).thenAccept(cancelled -> {
+                        order.setState(OrderState.CANCELLED);
+                    });
+                } catch (StrategyException e) {
+                    logger.error("{}: failed to cancel submitted order: {}",
+                            System.currentTimeMillis() - timeCounter, newOrder);
+                }
+            }
+        }
+    }
+
+    private String nextClientOrderId(Info0 info) {
+        orderIndex1 = (orderIndex1 + 1) % 1000;
+        String timeString = String.valueOf(System.currentTimeMillis() / 60000).substring(5);
+        return "_" + info.getName() + "_" + timeString + "_" + orderIndex1;
+    }
+
+    private boolean canReplace(Info0 info, OrderSide side, AsyncStateOrder currentOrder, AsyncStateOrder order) {
+        return replaceOrder && currentOrder.getState().equals(OrderState.SUBMITTED) &&
+                order.getQuantity() >= minOrderQuantity && checkOrderInterval(info.getAccount() + side);
+    }
+
+    /**
+     * 以新订单替换价格偏离的挂单，原订单视为撤销中，新订单视为提交中，直接作为当前挂单继续报价
+     * 原订单在确认撤销前保留在 replacingOrders 中，改单失败时再次撤销原订单
+     */
+    private AsyncStateOrder replaceOrder(Info0 info, AsyncStateOrder currentOrder,
+                                         AsyncStateOrder order) throws StrategyException {
+        currentOrder.setState(OrderState.CANCELLING);
+        String originId = currentOrder.getClientOrderId();
+        replacingOrders.put(originId, currentOrder);
+        order.setClientOrderId(nextClientOrderId(info));
+
+        long startTime = System.currentTimeMillis();
+        accountActor.asyncReplaceOrder(currentOrder, order).thenAccept(result -> {
+            long currentTime = System.currentTimeMillis();
+            logger.info("{}: {}: replaced order: {}, result: {}",
+                    currentTime - timeCounter, currentTime - startTime, currentOrder, result);
+            if (result.isCancelled()) {
+                currentOrder.setState(OrderState.CANCELLED);
+                replacingOrders.remove(originId);
+            } else {
+                try {
+                    accountActor.asyncCancelOrder(currentOrder).whenComplete((cancelled, t) -> {
+                        currentOrder.setState(OrderState.CANCELLED);
+                        replacingOrders.remove(originId);
+                    });
+                } catch (StrategyException e) {
+                    logger.error("failed to cancel replaced order: {}", currentOrder, e);
+                }
+            }
+            onOrderMade(order, result.getOrder(), startTime);
+        });
+        return order;
+    }
+
     private AsyncStateOrder generateBaseOrder(Info0 info, Info0 other, OrderSide side,
                                               long posQuantity) throws StrategyException {
         if (!side.equals(OrderSide.BUY) && !side.equals(OrderSide.SELL)) {
             throw new StrategyException("side error: " + side);
         }
 
-        long orderQuantity = strategyConfig.getInt("order_quantity", 100);
-        if (strategyConfig.getBoolean("rand_order_quantity", true)) {
+        long orderQuantity = strategyConfig.getInt(ORDER_QUANTITY);
+        if (strategyConfig.getBoolean(RAND_ORDER_QUANTITY)) {
             orderQuantity += System.nanoTime() % orderQuantity;
         }
         if (side.equals(OrderSide.BUY) && posQuantity < -orderQuantity) {
@@ -503,7 +619,7 @@ public class Strategy07 implements Strategy {
             }
 
             // 挂单，买一价价差配置
-            double bidPriceRate = strategyConfig.getDouble("bid_price_rate", 0.0002);
+            double bidPriceRate = strategyConfig.getDouble(BID_PRICE_RATE);
             double price = otherDepth.price;
 
             // 参考价格转通用货币计算
@@ -530,7 +646,7 @@ public class Strategy07 implements Strategy {
             }
 
             // 挂单，卖一价价差配置
-            double askPriceRate = strategyConfig.getDouble("ask_price_rate", 0.0002);
+            double askPriceRate = strategyConfig.getDouble(ASK_PRICE_RATE);
             double price = otherDepth.price;
 
             // 允许挂卖单
@@ -561,7 +677,7 @@ public class Strategy07 implements Strategy {
         if (currentOrder.getSide().equals(OrderSide.BUY)) {
             // 根据top price，计算当前合理价格
             double price = topPrice;
-            double bidPriceRate = strategyConfig.getDouble("bid_price_rate", 0.0002);
+            double bidPriceRate = strategyConfig.getDouble(BID_PRICE_RATE);
             // 参考价格转通用货币计算
             price = price / (1 + accountActor.getCurrencyRate(other.getAccount()));
             price = price * (1 - bidPriceRate);
@@ -571,7 +687,7 @@ public class Strategy07 implements Strategy {
 
             price = Utils.floor(price, info.getPricePrecision());
 
-            double baseOrderCancelRate = strategyConfig.getDouble("bid_cancel_rate", 0.001);
+            double baseOrderCancelRate = strategyConfig.getDouble(BID_CANCEL_RATE);
             if (currentOrder.getPrice() > price ||
                     currentOrder.getPrice() < price * (1 - baseOrderCancelRate)) {
                 currentOrder.setState(OrderState.CANCELLING);
@@ -590,7 +706,7 @@ public class Strategy07 implements Strategy {
                 lastOrderTimeMap.put(info.getAccount() + OrderSide.BUY, System.currentTimeMillis());
             }
         } else {
-            double askPriceRate = strategyConfig.getDouble("ask_price_rate", 0.0002);
+            double askPriceRate = strategyConfig.getDouble(ASK_PRICE_RATE);
             double price = topPrice;
 
             // 允许挂卖单
@@ -601,7 +717,7 @@ public class Strategy07 implements Strategy {
             price = price * (1 + accountActor.getCurrencyRate(info.getAccount()));
             price = Utils.ceil(price, info.getPricePrecision());
 
-            double baseOrderCancelRate = strategyConfig.getDouble("ask_cancel_rate", 0.001);
+            double baseOrderCancelRate = strategyConfig.getDouble(ASK_CANCEL_RATE);
             if (currentOrder.getPrice() < price ||
                     currentOrder.getPrice() > price * (1 + baseOrderCancelRate)) {
                 currentOrder.setState(OrderState.CANCELLING);
@@ -624,12 +740,27 @@ public class Strategy07 implements Strategy {
 
 
 
-    private CompletableFuture<Void> cancelOrder(AsyncStateOrder order) throws StrategyException {
-        if (order != null && OrderState.SUBMITTED.equals(order.getState())) {
-            order.setState(OrderState.CANCELLING);
-            return accountActor.asyncCancelOrder(order).thenAccept(unused -> order.setState(OrderState.CANCELLED));
+    /**
+     * 撤销两个账户的全部挂单，同一账户同一交易对的订单合并为一次批量撤单请求
+     */
+    private CompletableFuture<Void> cancelAllOrders() throws StrategyException {
+        List<AsyncStateOrder> orders = new ArrayList<>();
+        for (AsyncStateOrder order : List.of(bidOrder1, askOrder1, bidOrder2, askOrder2)) {
+            if (order != null && OrderState.SUBMITTED.equals(order.getState())) {
+                order.setState(OrderState.CANCELLING);
+                orders.add(order);
+            }
+        }
+        if (orders.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        List<CompletableFuture<Boolean>> futures = accountActor.asyncCancelOrders(orders);
+        CompletableFuture<?>[] results = new CompletableFuture<?>[futures.size()];
+        for (int i = 0; i < futures.size(); i++) {
+            AsyncStateOrder order = orders.get(i);
+            results[i] = futures.get(i).thenAccept(unused -> order.setState(OrderState.CANCELLED));
         }
-        return CompletableFuture.completedFuture(null);
+        return CompletableFuture.allOf(results);
     }
 
     /**
@@ -639,7 +770,7 @@ public class Strategy07 implements Strategy {
      */
     private boolean checkOrderInterval(String key) {
         long currentTime = System.currentTimeMillis();
-        if (currentTime - lastOrderTimeMap.get(key) < strategyConfig.getInt("order_interval", 1000)) {
+        if (currentTime - lastOrderTimeMap.get(key) < strategyConfig.getInt(ORDER_INTERVAL)) {
             return false;
         }
         lastOrderTimeMap.put(key, currentTime);
@@ -0,0 +1,128 @@
+package org.eurekaka.bricks.market.strategy;
+
+import org.eurekaka.bricks.api.AccountManager;
+import org.eurekaka.bricks.api.Exchange;
+import org.eurekaka.bricks.common.exception.ExApiException;
+import org.eurekaka.bricks.common.exception.StrategyException;
+import org.eurekaka.bricks.common.model.*;
+import org.eurekaka.bricks.server.BrickContext;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+public class Strategy07Test {
+    private Info0 info1;
+    private Info0 info2;
+    private Exchange ex1;
+    private Exchange ex2;
+    private BrickContext brickContext;
+    private StrategyConfig strategyConfig;
+
+    // 每次批量下单请求的订单
+    private final List<Order> madeOrders = new CopyOnWriteArrayList<>();
+    private volatile double bidPrice;
+    private volatile boolean askFailed;
+
+    @Before
+    public void setUp() throws Exception {
+        info1 = new Info0(1, "n1", "s1", "a1", 1, 1000, 100, true, Map.of());
+        info2 = new Info0(2, "n1", "s1", "a2", 1, 1000, 100, true, Map.of());
+        strategyConfig = new StrategyConfig(1, "sn1", "c1", "n1", true,
+                Map.of("rand_order_quantity", "false",
+                        "order_quantity", "100",
+                        "order_interval", "0",
+                        "bid_price_rate", "0"));
+
+        ex1 = mockExchange(info1);
+        ex2 = mockExchange(info2);
+        AccountManager accountManager = Mockito.mock(AccountManager.class);
+        Mockito.when(accountManager.getAccount("a1")).thenReturn(ex1);
+        Mockito.when(accountManager.getAccount("a2")).thenReturn(ex2);
+
+        brickContext = Mockito.mock(BrickContext.class);
+        Mockito.when(brickContext.getAccountManager()).thenReturn(accountManager);
+        Mockito.when(brickContext.getInfoByName("n1")).thenReturn(List.of(info1, info2));
+        Mockito.when(brickContext.getAccount("a1")).thenReturn(ex1);
+        Mockito.when(brickContext.getAccount("a2")).thenReturn(ex2);
+
+        bidPrice = 1;
+    }
+
+    private Exchange mockExchange(Info0 info) {
+        Exchange ex = Mockito.mock(Exchange.class);
+        Mockito.when(ex.isAlive()).thenReturn(true);
+        Mockito.when(ex.getMakerRate()).thenReturn(0D);
+        Mockito.when(ex.getTakerRate()).thenReturn(0D);
+        Mockito.when(ex.process(Mockito.any())).thenAnswer(invocation -> {
+            ExAction<?> action = invocation.getArgument(0);
+            switch (action.getType()) {
+                case GET_CURRENCY_RATE:
+                    return new ExMessage<>(ExMessage.ExMsgType.RIGHT, 0D);
+                case GET_POSITION:
+                    return new ExMessage<>(ExMessage.ExMsgType.RIGHT,
+                            new PositionValue("n1", "s1", info.getAccount(), 0, 1, 0, 1, 0, 1L));
+                case GET_CURRENT_ORDER_V2:
+                    return new ExMessage<>(ExMessage.ExMsgType.RIGHT,
+                            CompletableFuture.completedFuture(List.of()));
+                case GET_BID_DEPTH_PRICE:
+                    // 对方账户的买价更高，本账户挂买单
+                    double price = info.getAccount().equals("a2") ? bidPrice : bidPrice - 0.1;
+                    return new ExMessage<>(ExMessage.ExMsgType.RIGHT, new DepthPrice("n1", "s1", price, 100, 100));
+                case GET_ASK_DEPTH_PRICE:
+                    if (askFailed) {
+                        return new ExMessage<>(ExMessage.ExMsgType.ERROR, new ExApiException("depth error"));
+                    }
+                    return new ExMessage<>(ExMessage.ExMsgType.RIGHT, new DepthPrice("n1", "s1", 2, 100, 50));
+                case MAKE_ORDERS:
+                    List<CompletableFuture<CurrentOrder>> futures = new ArrayList<>();
+                    for (Order order : ((MakeOrdersPair) action.getData()).orders) {
+                        madeOrders.add(order);
+                        futures.add(new CompletableFuture<>());
+                    }
+                    return new ExMessage<>(ExMessage.ExMsgType.RIGHT, futures);
+                case CANCEL_ORDER_V2:
+                    return new ExMessage<>(ExMessage.ExMsgType.RIGHT, CompletableFuture.completedFuture(true));
+                default:
+                    return new ExMessage<>(ExMessage.ExMsgType.ERROR, new ExApiException("unexpected " + action));
+            }
+        });
+        return ex;
+    }
+
+    @Test
+    public void testQuoteOrdersDiscardedOnError() throws Exception {
+        Strategy07 strategy = new Strategy07(brickContext, strategyConfig);
+        strategy.start();
+
+        // 第一个挂单已排队，第二个挂单查询深度失败
+        askFailed = true;
+        try {
+            strategy.run();
+            Assert.fail("ask depth error expected");
+        } catch (StrategyException e) {
+            // expected
+        }
+        Assert.assertTrue(madeOrders.isEmpty());
+
+        // 价格变化后，下一轮只按最新价格下单，不会发出上一轮排队的挂单
+        askFailed = false;
+        bidPrice = 1.5;
+        strategy.run();
+        Assert.assertFalse(madeOrders.isEmpty());
+        int bids = 0;
+        for (Order order : madeOrders) {
+            if (OrderSide.BUY.equals(order.getSide())) {
+                Assert.assertEquals(1.5, order.getPrice(), 1e-9);
+                bids++;
+            }
+        }
+        Assert.assertEquals(1, bids);
+    }
+}
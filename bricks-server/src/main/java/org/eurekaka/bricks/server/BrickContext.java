@@ -6,6 +6,7 @@ import org.eurekaka.bricks.api.Exchange;
 import org.eurekaka.bricks.api.StrategyFactory;
 import org.eurekaka.bricks.common.exception.InitializeException;
 import org.eurekaka.bricks.common.exception.ServiceException;
+import org.eurekaka.bricks.common.exception.StoreException;
 import org.eurekaka.bricks.common.exception.StrategyException;
 import org.eurekaka.bricks.common.model.*;
 import org.eurekaka.bricks.common.util.MonitorReporter;
@@ -13,6 +14,11 @@ import org.eurekaka.bricks.common.util.Utils;
 import org.eurekaka.bricks.server.listener.HistoryOrderListener;
 import org.eurekaka.bricks.server.manager.*;
 import org.eurekaka.bricks.server.rest.AppResource;
+import org.eurekaka.bricks.server.stat.HistoryOrderStat;
+import org.eurekaka.bricks.server.stat.LatencyDumpStat;
+import org.eurekaka.bricks.server.stat.PartitionStat;
+import org.eurekaka.bricks.server.stat.Stat;
+import org.eurekaka.bricks.server.stat.StatManager;
 import org.eurekaka.bricks.server.state.StrategyConfigState;
 import org.eurekaka.bricks.server.store.*;
 import org.glassfish.jersey.server.ResourceConfig;
@@ -36,6 +42,9 @@ public class BrickContext {
 
     protected AccountManagerImpl accountManager;
     protected StrategyManager strategyManager;
+    protected StatManager statManager;
+    protected HistoryOrderListener historyOrderListener;
+    protected JournalExOrderStore executionStore;
 
     public BrickContext(Config config) {
         this.config = config;
@@ -66,6 +75,18 @@ public class BrickContext {
     }
 
     public void start() throws InitializeException {
+        // 数据库结构迁移，database.migrate 为 false 时跳过
+        SchemaMigrator migrator = new SchemaMigrator();
+        Config databaseConfig = config.getConfig("database");
+        if (!databaseConfig.hasPath("migrate") || databaseConfig.getBoolean("migrate")) {
+            try {
+                migrator.migrate();
+                migrator.ensurePartitions();
+            } catch (StoreException e) {
+                throw new InitializeException("failed to migrate database schema", e);
+            }
+        }
+
         // 初始化四个配置state
         accountConfigState = new AccountConfigState(new AccountConfigStore());
         assetState = new AccountAssetState(new AssetBaseValueStore());
@@ -74,17 +95,71 @@ public class BrickContext {
 
         accountManager = new AccountManagerImpl(accountConfigState, infoState);
 
+        // 配置 execution_journal 时，下单记录先写入本地执行日志，再异步同步到数据库
+        Config serverConfig = config.getConfig("server");
+        if (serverConfig.hasPath("execution_journal")) {
+            executionStore = new JournalExOrderStore(serverConfig.getString("execution_journal"),
+                    serverConfig.hasPath("execution_journal_size") ?
+                            serverConfig.getInt("execution_journal_size") : JournalExOrderStore.DEFAULT_CAPACITY,
+                    serverConfig.hasPath("execution_sync_interval") ?
+                            serverConfig.getLong("execution_sync_interval") : JournalExOrderStore.DEFAULT_SYNC_INTERVAL,
+                    serverConfig.hasPath("execution_replicate_interval") ?
+                            serverConfig.getLong("execution_replicate_interval") :
+                            JournalExOrderStore.DEFAULT_REPLICATE_INTERVAL);
+            try {
+                executionStore.start();
+            } catch (StoreException e) {
+                throw new InitializeException("failed to start execution journal", e);
+            }
+            ExOrderStore.setExecutionStore(executionStore);
+        }
+
+        // 成交记录异步批量写入
+        HistoryOrderWriter historyOrderWriter = new HistoryOrderWriter(new ExOrderStore(),
+                serverConfig.hasPath("history_batch_size") ?
+                        serverConfig.getInt("history_batch_size") : HistoryOrderWriter.DEFAULT_BATCH_SIZE,
+                serverConfig.hasPath("history_flush_interval") ?
+                        serverConfig.getLong("history_flush_interval") : HistoryOrderWriter.DEFAULT_FLUSH_INTERVAL,
+                serverConfig.hasPath("history_queue_size") ?
+                        serverConfig.getInt("history_queue_size") : HistoryOrderWriter.DEFAULT_QUEUE_SIZE,
+                serverConfig.hasPath("history_spill_file") ?
+                        serverConfig.getString("history_spill_file") : HistoryOrderWriter.DEFAULT_SPILL_FILE);
+        historyOrderListener = new HistoryOrderListener(historyOrderWriter);
+        historyOrderListener.start();
+
         StrategyFactory strategyFactory = new StrategyFactoryImpl(this);
-        strategyManager = new AsyncMultiStrategyManager(strategyFactory,
-                accountManager.getBlockingQueue(), new HistoryOrderListener(new ExOrderStore()));
+        strategyManager = new BusMultiStrategyManager(strategyFactory,
+                accountManager.getNotificationBus(), historyOrderListener);
 
         accountManager.start();
         strategyManager.start();
+
+        // 定时输出延迟统计，latency_dump_interval 为 0 时不输出
+        long dumpInterval = serverConfig.hasPath("latency_dump_interval") ?
+                serverConfig.getLong("latency_dump_interval") : Stat.MINUTE;
+        statManager = new StatManager();
+        statManager.registerStat(new PartitionStat(migrator));
+        if (dumpInterval > 0) {
+            statManager.registerStat(new LatencyDumpStat(dumpInterval));
+            statManager.registerStat(new HistoryOrderStat(historyOrderWriter, dumpInterval));
+        }
+        statManager.start();
     }
 
     public void stop() {
+        if (statManager != null) {
+            statManager.stop();
+        }
         strategyManager.stop();
         accountManager.stop();
+        // 策略与账户停止后不再产生成交记录，写入剩余记录
+        if (historyOrderListener != null) {
+            historyOrderListener.stop();
+        }
+        if (executionStore != null) {
+            executionStore.stop();
+            ExOrderStore.setExecutionStore(null);
+        }
 
         MonitorReporter.stop();
         try {
@@ -173,7 +248,7 @@ public class BrickContext {
      * @param notification 通知
      */
     public void notifyStrategy(Notification notification) {
-        accountManager.getBlockingQueue().add(notification);
+        accountManager.getNotificationBus().add(notification);
     }
 
     // infos查询
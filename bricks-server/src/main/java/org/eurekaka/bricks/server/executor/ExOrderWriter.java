@@ -0,0 +1,115 @@
+package org.eurekaka.bricks.server.executor;
+
+import org.eurekaka.bricks.common.exception.StoreException;
+import org.eurekaka.bricks.common.model.ReportEvent;
+import org.eurekaka.bricks.common.util.MonitorReporter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.*;
+
+/**
+ * 下单记录的异步写入，存储操作按提交顺序在单独线程内执行，不阻塞下单
+ * 顺序执行保证 commitExOrder 执行时 storeExOrder 已经生成订单 id
+ *
+ * 写入失败时按退避间隔重试当前步骤，之后的记录等待，保持写入顺序，
+ * 停止时重试到超时为止，仍然失败的记录只记录日志
+ */
+class ExOrderWriter {
+    private final static Logger logger = LoggerFactory.getLogger(ExOrderWriter.class);
+
+    final static long MIN_RETRY_INTERVAL = 100;
+    final static long MAX_RETRY_INTERVAL = 5000;
+
+    private final String name;
+    private final ExecutorService executorService;
+    // 停止时重试的截止时间，未停止时为 0
+    private volatile long stopDeadline;
+
+    ExOrderWriter(String name) {
+        this.name = name;
+        this.executorService = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, name);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * @param steps 按顺序执行，每一步单独重试，已经成功的步骤不会重复执行
+     */
+    void submit(StoreTask... steps) {
+        try {
+            executorService.execute(() -> run(steps));
+        } catch (RejectedExecutionException e) {
+            // 已经停止时直接写入，避免丢失记录
+            run(steps);
+        }
+    }
+
+    private void run(StoreTask[] steps) {
+        for (StoreTask step : steps) {
+            try {
+                if (!runWithRetry(step)) {
+                    // 之后的步骤依赖当前步骤的结果，一并放弃
+                    return;
+                }
+            } catch (Throwable t) {
+                logger.error("failed to run order writer task", t);
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return 停止时仍然写入失败返回 false
+     */
+    private boolean runWithRetry(StoreTask step) throws InterruptedException {
+        long interval = MIN_RETRY_INTERVAL;
+        boolean reported = false;
+        while (true) {
+            try {
+                step.run();
+                if (reported) {
+                    logger.info("{} recovered writing order records", name);
+                }
+                return true;
+            } catch (StoreException e) {
+                logger.error("{} failed to write order record, retry in {} ms", name, interval, e);
+                if (!reported) {
+                    MonitorReporter.report(ReportEvent.EventType.STORE_EX_ORDER_FAILED.name(),
+                            new ReportEvent(ReportEvent.EventType.STORE_EX_ORDER_FAILED,
+                                    ReportEvent.EventLevel.SERIOUS,
+                                    name + " failed to write order record: " + e.getMessage()));
+                    reported = true;
+                }
+                long deadline = stopDeadline;
+                if (deadline > 0 && System.currentTimeMillis() + interval > deadline) {
+                    logger.error("{} gave up writing order record when stopping", name);
+                    return false;
+                }
+                Thread.sleep(interval);
+                interval = Math.min(interval * 2, MAX_RETRY_INTERVAL);
+            }
+        }
+    }
+
+    /**
+     * 停止前写入所有已经提交的记录
+     */
+    void stop(long timeout) {
+        stopDeadline = System.currentTimeMillis() + timeout;
+        executorService.shutdown();
+        try {
+            if (!executorService.awaitTermination(timeout, TimeUnit.MILLISECONDS)) {
+                logger.error("order writer failed to flush in {} ms", timeout);
+            }
+        } catch (InterruptedException e) {
+            logger.warn("order writer interrupted while flushing");
+        }
+    }
+
+    interface StoreTask {
+        void run() throws StoreException;
+    }
+}
@@ -49,6 +49,14 @@ public class FutureLimitOrderExecutor implements OrderExecutor {
     private final int limitExpiredTime;
 
     private final Object cleanLock;
+    private final OrderSignal signal;
+
+    public FutureLimitOrderExecutor(Map<String, String> config,
+                                    AccountManager accountManager,
+                                    InfoState<Info0, ?> infoState,
+                                    OrderExecutor marketOrderExecutor) {
+        this(config, accountManager, infoState, marketOrderExecutor, ExOrderStore.getExecutionStore());
+    }
 
     public FutureLimitOrderExecutor(Map<String, String> config,
                                     AccountManager accountManager,
@@ -71,6 +79,7 @@ public class FutureLimitOrderExecutor implements OrderExecutor {
         this.executorService = Executors.newSingleThreadExecutor();
 
         this.cleanLock = new Object();
+        this.signal = new OrderSignal();
     }
 
     @Override
@@ -111,6 +120,7 @@ public class FutureLimitOrderExecutor implements OrderExecutor {
                 logger.info("removed plan order: {}", id);
             }
         }
+        signal.signal();
     }
 
     @Override
@@ -163,6 +173,7 @@ public class FutureLimitOrderExecutor implements OrderExecutor {
         }
         logger.info("make limit planed orders: {}", planOrder);
         planOrders.put(planOrder.getId(), planOrder);
+        signal.signal();
     }
 
     @Override
@@ -246,6 +257,7 @@ public class FutureLimitOrderExecutor implements OrderExecutor {
     }
 
     private ExOrder generateOrder(PlanOrder planOrder, Info0 orderInfo, Exchange hedger) {
+        TradingRule rule = orderInfo.getTradingRule();
         ExMessage<?> fundingRateMsg = hedger.process(new ExAction<>(ExAction.ActionType.GET_FUNDING_RATE,
                 new SymbolPair(orderInfo.getName(), orderInfo.getSymbol())));
         ExMessage<?> markUsdtMsg = hedger.process(new ExAction<>(ExAction.ActionType.GET_MARK_USDT));
@@ -268,17 +280,17 @@ public class FutureLimitOrderExecutor implements OrderExecutor {
 //                if (price <= bidPrice) {
 //                    price = askPrice;
 //                }
-                double price = bidPrice + 1.0 / orderInfo.getPricePrecision();
+                double price = bidPrice + rule.tickSize;
                 if (price >= askPrice) {
                     price = bidPrice;
                 }
                 // 此处防止计算double导致精度问题
-                price = Math.round(price * orderInfo.getPricePrecision()) / orderInfo.getPricePrecision();
+                price = rule.roundPrice(price);
 
                 double last_price = price / (double) markUsdtMsg.getData();
                 last_price = last_price * (1 + (double) fundingRateMsg.getData());
                 last_price = last_price * (1 + hedger.getMakerRate());
-                last_price = Math.floor(last_price * orderInfo.getPricePrecision()) / orderInfo.getPricePrecision();
+                last_price = rule.floorPrice(last_price);
 
                 logger.trace("{} limit bid price: {}, usdt mark: {}, funding rate: {}, maker rate: {}",
                         hedger.getName(), price, markUsdtMsg.getData(),
@@ -286,14 +298,9 @@ public class FutureLimitOrderExecutor implements OrderExecutor {
 
                 // 计算size
                 double size = planOrder.getLeftQuantity() * 1.0 * PRECISION / planOrder.getSymbolPrice();
-                size = Math.round(size * orderInfo.getSizePrecision());
-                if (orderInfo.getSizePrecision() < 1) {
-                    size = size * Math.round(1.0 / orderInfo.getSizePrecision());
-                } else {
-                    size = size / orderInfo.getSizePrecision();
-                }
+                size = rule.roundSize(size);
 
-                return size == 0 ? null :  new ExOrder(orderInfo.getAccount(), planOrder.getName(),
+                return !rule.isValid(price, size) ? null :  new ExOrder(orderInfo.getAccount(), planOrder.getName(),
                         orderInfo.getSymbol(), OrderSide.BUY, OrderType.LIMIT, size, price,
                         planOrder.getLeftQuantity(), last_price, planOrder.getId());
             } else {
@@ -302,16 +309,16 @@ public class FutureLimitOrderExecutor implements OrderExecutor {
 //                if (price >= askPrice) {
 //                    price = bidPrice;
 //                }
-                double price = askPrice - 1.0 / orderInfo.getPricePrecision();
+                double price = askPrice - rule.tickSize;
                 if (price <= bidPrice) {
                     price = askPrice;
                 }
-                price = Math.round(price * orderInfo.getPricePrecision()) / orderInfo.getPricePrecision();
+                price = rule.roundPrice(price);
 
                 double last_price = price / (double) markUsdtMsg.getData();
                 last_price = last_price * (1 + (double) fundingRateMsg.getData());
                 last_price = last_price * (1 - hedger.getMakerRate());
-                last_price = Math.ceil(last_price * orderInfo.getPricePrecision()) / orderInfo.getPricePrecision();
+                last_price = rule.ceilPrice(last_price);
 
                 logger.trace("{} limit ask price: {}, usdt mark: {}, funding rate: {}, maker rate: {}",
                         hedger.getName(), price, markUsdtMsg.getData(),
@@ -319,14 +326,9 @@ public class FutureLimitOrderExecutor implements OrderExecutor {
 
                 // 计算size
                 double size = planOrder.getLeftQuantity() * 1.0 * PRECISION / planOrder.getSymbolPrice();
-                size = Math.round(size * orderInfo.getSizePrecision());
-                if (orderInfo.getSizePrecision() < 1) {
-                    size = size * Math.round(1.0 / orderInfo.getSizePrecision());
-                } else {
-                    size = size / orderInfo.getSizePrecision();
-                }
+                size = rule.roundSize(size);
 
-                return size == 0 ? null :  new ExOrder(orderInfo.getAccount(), planOrder.getName(),
+                return !rule.isValid(price, size) ? null :  new ExOrder(orderInfo.getAccount(), planOrder.getName(),
                         orderInfo.getSymbol(), OrderSide.SELL, OrderType.LIMIT, size, price,
                         planOrder.getLeftQuantity(), last_price, planOrder.getId());
             }
@@ -419,7 +421,8 @@ public class FutureLimitOrderExecutor implements OrderExecutor {
         public void run() {
             while (!exited.get()) {
                 try {
-                    Thread.sleep(limitCheckInterval);
+                    // 新的 plan order 到达时立即处理，否则按间隔检查当前挂单
+                    signal.await(limitCheckInterval);
 
                     synchronized (cleanLock) {
                         // 先处理订单完成的消息
@@ -583,47 +586,10 @@ public class FutureLimitOrderExecutor implements OrderExecutor {
         }
 
         private void shrink() throws StoreException {
-            List<ExOrder> shrinkOrders = new ArrayList<>();
-            List<Long> planOrderIds = new ArrayList<>(planOrders.keySet());
-            for (int i = 0; i < planOrderIds.size() - 1; i++) {
-                PlanOrder order1 = planOrders.get(planOrderIds.get(i));
-
-                for (int j = i + 1; j < planOrderIds.size(); j++) {
-                    PlanOrder order2 = planOrders.get(planOrderIds.get(j));
-
-                    if (order1.getName().equals(order2.getName())) {
-                        // 确定两者方向相反
-                        if (order1.getQuantity() > 0 && order2.getQuantity() < 0 ||
-                                order1.getQuantity() < 0 && order2.getQuantity() > 0) {
-                            // 两者都还有剩余金额
-                            if (order1.getLeftQuantity() > 0 && order2.getLeftQuantity() > 0) {
-                                long oldQty = 0;
-                                if (order1.getLeftQuantity() > order2.getLeftQuantity()) {
-                                    oldQty = order2.getLeftQuantity();
-                                    order1.setLeftQuantity(order1.getLeftQuantity() - oldQty);
-                                    order2.setLeftQuantity(0);
-                                } else {
-                                    oldQty = order1.getLeftQuantity();
-                                    order2.setLeftQuantity(order2.getLeftQuantity() - oldQty);
-                                    order1.setLeftQuantity(0);
-                                }
-                                order1.setUpdateTime(System.currentTimeMillis());
-                                order2.setUpdateTime(System.currentTimeMillis());
-
-                                OrderSide side1 = order1.getQuantity() > 0 ? OrderSide.BUY : OrderSide.SELL;
-                                shrinkOrders.add(new ExOrder(null, order1.getName(), null,
-                                        side1, OrderType.LIMIT, 0, 0, oldQty, 0, order1.getId()));
-
-                                OrderSide side2 = order2.getQuantity() > 0 ? OrderSide.BUY : OrderSide.SELL;
-                                shrinkOrders.add(new ExOrder(null, order2.getName(), null,
-                                        side2, OrderType.LIMIT, 0, 0, oldQty, 0, order2.getId()));
-                            }
-                        }
-                    }
-                }
-            }
+            List<PlanOrderNetting.Shrink> shrinkOrders = PlanOrderNetting.net(planOrders.values(), OrderType.LIMIT);
 
-            for (ExOrder shrinkOrder : shrinkOrders) {
+            for (PlanOrderNetting.Shrink shrink : shrinkOrders) {
+                ExOrder shrinkOrder = shrink.order;
                 // update order store
                 // 在hedging_order_v2内增加shrink order的记录
                 orderStore.storeExOrder(shrinkOrder);
@@ -633,7 +599,7 @@ public class FutureLimitOrderExecutor implements OrderExecutor {
                         shrinkOrder.getPlanId(), shrinkOrder.getName(),
                         shrinkOrder.getSide(), shrinkOrder.getQuantity());
                 // update hedging_plan_order
-                PlanOrder planOrder = planOrders.get(shrinkOrder.getPlanId());
+                PlanOrder planOrder = shrink.planOrder;
                 orderStore.updatePlanOrderLeftQuantity(
                         planOrder.getLeftQuantity(), planOrder.getUpdateTime(), planOrder.getId());
             }
@@ -11,32 +11,46 @@ import org.eurekaka.bricks.server.store.ExOrderStore;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.ArrayList;
-import java.util.Comparator;
-import java.util.List;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
+import java.util.*;
+import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 
 import static org.eurekaka.bricks.common.util.Utils.PRECISION;
 
+/**
+ * 市价单执行器，事件驱动
+ * 新的 plan order 到达时立即唤醒下单线程，下单线程只负责抵消与分发，
+ * 每个 plan order 的比价与下单在下单线程池内并发执行，下单后的记录异步写入
+ */
 public class FutureMarketOrderExecutor implements OrderExecutor {
     private final static Logger logger = LoggerFactory.getLogger(FutureMarketOrderExecutor.class);
 
     // ??? config 可动态配置？？
     private static final int LOWEST_ORDER_QUANTITY = 20;
+    // 同一个 plan order 两次下单的间隔，等待深度更新
     private static final int ORDER_MAKER_INTERVAL = 500;
+    private static final int ORDER_MAKER_THREADS = 8;
 
     private final AccountManager accountManager;
     private final InfoState<Info0, ?> state;
     private final ExOrderStore orderStore;
 
     private final Map<Long, PlanOrder> planOrders;
+    // 正在下单的 plan order，同一个 plan order 同时只有一个下单任务
+    private final Set<Long> runningPlanOrders;
+    // plan order id -> 下一次允许下单的时间
+    private final Map<Long, Long> nextOrderTimes;
+
+    private final OrderSignal signal;
+    private final ExOrderWriter orderWriter;
     private final ExecutorService executorService;
+    private final ExecutorService orderMakerService;
+
+    public FutureMarketOrderExecutor(AccountManager accountManager,
+                                     InfoState<Info0, ?> state) {
+        this(accountManager, state, ExOrderStore.getExecutionStore());
+    }
 
     public FutureMarketOrderExecutor(AccountManager accountManager,
                                      InfoState<Info0, ?> state,
@@ -46,8 +60,13 @@ public class FutureMarketOrderExecutor implements OrderExecutor {
         this.orderStore = orderStore;
 
         this.planOrders = new ConcurrentHashMap<>();
+        this.runningPlanOrders = ConcurrentHashMap.newKeySet();
+        this.nextOrderTimes = new ConcurrentHashMap<>();
 
+        this.signal = new OrderSignal();
+        this.orderWriter = new ExOrderWriter("market-order-writer");
         executorService = Executors.newFixedThreadPool(1);
+        orderMakerService = Executors.newFixedThreadPool(ORDER_MAKER_THREADS);
     }
 
     @Override
@@ -58,11 +77,14 @@ public class FutureMarketOrderExecutor implements OrderExecutor {
     @Override
     public void stop() {
         executorService.shutdownNow();
+        orderMakerService.shutdown();
         try {
             executorService.awaitTermination(200, TimeUnit.MILLISECONDS);
+            orderMakerService.awaitTermination(1000, TimeUnit.MILLISECONDS);
         } catch (InterruptedException e) {
             logger.warn("future market order executor exited abnormally");
         }
+        orderWriter.stop(1000);
     }
 
     @Override
@@ -89,6 +111,7 @@ public class FutureMarketOrderExecutor implements OrderExecutor {
         }
         logger.info("make market planed orders: {}", planOrder);
         planOrders.put(planOrder.getId(), planOrder);
+        signal.signal();
 
         // 1. 生成订单列表，便于第一个下单失败时，继续第二个下单
         // 2. 下单
@@ -250,66 +273,84 @@ public class FutureMarketOrderExecutor implements OrderExecutor {
     }
 
 
+    /**
+     * 执行一次 plan order 下单，在下单线程池内执行
+     * storeExOrder 生成的订单 id 在下单时使用，需要在下单前写入，其余记录异步写入
+     */
+    private void makePlanOrder(PlanOrder planOrder) throws StoreException {
+        List<ExOrder> orderV2s = generateOrders(planOrder);
+        boolean made = false;
+        for (ExOrder order : orderV2s) {
+            orderStore.storeExOrder(order);
+            if (makeOrder(order)) {
+                // 更新planOrder
+                planOrder.setLeftQuantity(planOrder.getLeftQuantity() - order.getQuantity());
+                planOrder.setUpdateTime(System.currentTimeMillis());
+                long leftQuantity = planOrder.getLeftQuantity();
+                long updateTime = planOrder.getUpdateTime();
+                orderWriter.submit(
+                        () -> orderStore.commitExOrder(order.getOrderId(), order.getId()),
+                        () -> orderStore.updatePlanOrderLeftQuantity(leftQuantity, updateTime, planOrder.getId()));
+
+                made = true;
+                break;
+            } else {
+                logger.error("failed to make order ");
+                orderWriter.submit(() -> orderStore.commitExOrder(OrderResultValue.FAIL.name(), order.getId()));
+            }
+        }
+        if (!made) {
+            String msg = "failed to make plan order, plan id: " + planOrder.getId() +
+                    ", symbol: " + planOrder.getName() +
+                    ", left size: " + planOrder.getLeftQuantity();
+            logger.error(msg);
+            MonitorReporter.report(String.valueOf(planOrder.getId()), new ReportEvent(
+                    ReportEvent.EventType.HEDGING_MAKE_ORDER_FAILED,
+                    ReportEvent.EventLevel.SERIOUS, msg));
+        }
+    }
+
     class MarketOrderMaker implements Runnable {
         private final AtomicBoolean exited;
-        private int lastSize;
 
         public MarketOrderMaker() {
             this.exited = new AtomicBoolean(false);
-            this.lastSize = 0;
         }
 
         @Override
         public void run() {
+            long waitTime = 0;
             while (!exited.get()) {
                 try {
-                    Thread.sleep(ORDER_MAKER_INTERVAL);
+                    signal.await(waitTime);
+
+                    // 正在下单的 plan order 在下单完成后再参与抵消与下单
+                    List<PlanOrder> idlePlanOrders = planOrders.values().stream()
+                            .filter(e -> !runningPlanOrders.contains(e.getId()))
+                            .collect(Collectors.toList());
 
                     // do shrink
-                    // 先找一轮能够合并抵消的plan order，放在线程内部操作的目的为了避免加锁
-                    if (planOrders.size() > lastSize) {
-                        shrink();
-                        planOrders.entrySet().removeIf(entry -> entry.getValue().getLeftQuantity() == 0);
-                    }
+                    // 先找一轮能够合并抵消的plan order
+                    shrink(idlePlanOrders);
 
-                    for (Map.Entry<Long, PlanOrder> entry : planOrders.entrySet()) {
-                        long planOrderId = entry.getKey();
-                        PlanOrder planOrder = entry.getValue();
-
-                        List<ExOrder> orderV2s = generateOrders(planOrder);
-                        boolean made = false;
-                        for (ExOrder order : orderV2s) {
-                            orderStore.storeExOrder(order);
-                            if (makeOrder(order)) {
-                                // 更新planOrder
-                                planOrder.setLeftQuantity(planOrder.getLeftQuantity() - order.getQuantity());
-                                planOrder.setUpdateTime(System.currentTimeMillis());
-                                orderStore.commitExOrder(order.getOrderId(), order.getId());
-                                orderStore.updatePlanOrderLeftQuantity(
-                                        planOrder.getLeftQuantity(), planOrder.getUpdateTime(), planOrder.getId());
-
-                                made = true;
-                                break;
-                            } else {
-                                logger.error("failed to make order ");
-                                orderStore.commitExOrder(OrderResultValue.FAIL.name(), order.getId());
-                            }
+                    // 如果已经完成订单，则移除该订单
+                    planOrders.entrySet().removeIf(entry -> entry.getValue().getLeftQuantity() == 0 &&
+                            !runningPlanOrders.contains(entry.getKey()));
+                    nextOrderTimes.keySet().retainAll(planOrders.keySet());
+
+                    waitTime = ORDER_MAKER_INTERVAL;
+                    long currentTime = System.currentTimeMillis();
+                    for (PlanOrder planOrder : idlePlanOrders) {
+                        if (planOrder.getLeftQuantity() <= 0) {
+                            continue;
                         }
-                        if (!made) {
-                            String msg = "failed to make plan order, plan id: " + planOrderId +
-                                    ", symbol: " + planOrder.getName() +
-                                    ", left size: " + planOrder.getLeftQuantity();
-                            logger.error(msg);
-                            MonitorReporter.report(String.valueOf(planOrderId), new ReportEvent(
-                                    ReportEvent.EventType.HEDGING_MAKE_ORDER_FAILED,
-                                    ReportEvent.EventLevel.SERIOUS, msg));
+                        long nextTime = nextOrderTimes.getOrDefault(planOrder.getId(), 0L);
+                        if (nextTime > currentTime) {
+                            waitTime = Math.min(waitTime, nextTime - currentTime);
+                            continue;
                         }
-
+                        dispatch(planOrder);
                     }
-                    // 如果已经完成订单，则移除该订单
-                    planOrders.entrySet().removeIf(entry -> entry.getValue().getLeftQuantity() == 0);
-
-                    lastSize = planOrders.size();
                 } catch (InterruptedException e) {
                     this.exited.set(true);
                     logger.info("market order maker interrupted, existing");
@@ -327,60 +368,47 @@ public class FutureMarketOrderExecutor implements OrderExecutor {
             this.exited.set(true);
         }
 
-        private void shrink() throws StoreException {
-            List<ExOrder> shrinkOrders = new ArrayList<>();
-            List<Long> planOrderIds = new ArrayList<>(planOrders.keySet());
-            for (int i = 0; i < planOrderIds.size() - 1; i++) {
-                PlanOrder order1 = planOrders.get(planOrderIds.get(i));
-
-                for (int j = i + 1; j < planOrderIds.size(); j++) {
-                    PlanOrder order2 = planOrders.get(planOrderIds.get(j));
-
-                    if (order1.getName().equals(order2.getName())) {
-                        // 确定两者方向相反
-                        if (order1.getQuantity() > 0 && order2.getQuantity() < 0 ||
-                                order1.getQuantity() < 0 && order2.getQuantity() > 0) {
-                            // 两者都还有剩余金额
-                            if (order1.getLeftQuantity() > 0 && order2.getLeftQuantity() > 0) {
-                                long oldQty = 0;
-                                if (order1.getLeftQuantity() > order2.getLeftQuantity()) {
-                                    oldQty = order2.getLeftQuantity();
-                                    order1.setLeftQuantity(order1.getLeftQuantity() - oldQty);
-                                    order2.setLeftQuantity(0);
-                                } else {
-                                    oldQty = order1.getLeftQuantity();
-                                    order2.setLeftQuantity(order2.getLeftQuantity() - oldQty);
-                                    order1.setLeftQuantity(0);
-                                }
-                                order1.setUpdateTime(System.currentTimeMillis());
-                                order2.setUpdateTime(System.currentTimeMillis());
-
-                                OrderSide side1 = order1.getQuantity() > 0 ? OrderSide.BUY : OrderSide.SELL;
-                                shrinkOrders.add(new ExOrder(null, order1.getName(), null,
-                                        side1, OrderType.MARKET, 0, 0, oldQty, 0, order1.getId()));
-
-                                OrderSide side2 = order2.getQuantity() > 0 ? OrderSide.BUY : OrderSide.SELL;
-                                shrinkOrders.add(new ExOrder(null, order2.getName(), null,
-                                        side2, OrderType.MARKET, 0, 0, oldQty, 0, order2.getId()));
-                            }
-                        }
+        private void dispatch(PlanOrder planOrder) {
+            long planOrderId = planOrder.getId();
+            runningPlanOrders.add(planOrderId);
+            try {
+                orderMakerService.execute(() -> {
+                    try {
+                        makePlanOrder(planOrder);
+                    } catch (Throwable e) {
+                        logger.error("failed to make plan order: {}", planOrder, e);
+                        MonitorReporter.report(ReportEvent.EventType.HEDGING_MARKET_PROCESSOR_FAILED.name(),
+                                new ReportEvent(ReportEvent.EventType.HEDGING_MARKET_PROCESSOR_FAILED,
+                                        ReportEvent.EventLevel.SERIOUS,
+                                        "market order processor failed: " + e.getMessage()));
+                    } finally {
+                        // 部分成交或者下单失败，等待间隔后继续下单
+                        nextOrderTimes.put(planOrderId, System.currentTimeMillis() + ORDER_MAKER_INTERVAL);
+                        runningPlanOrders.remove(planOrderId);
+                        signal.signal();
                     }
-                }
+                });
+            } catch (RejectedExecutionException e) {
+                runningPlanOrders.remove(planOrderId);
+                logger.warn("order maker stopped, plan order not dispatched: {}", planOrderId);
             }
+        }
 
-            for (ExOrder shrinkOrder : shrinkOrders) {
-                // update order store
-                // 在hedging_order_v2内增加shrink order的记录
-                orderStore.storeExOrder(shrinkOrder);
-                orderStore.commitExOrder(shrinkOrder.getOrderId(), shrinkOrder.getId());
-
+        private void shrink(List<PlanOrder> idlePlanOrders) {
+            for (PlanOrderNetting.Shrink shrink : PlanOrderNetting.net(idlePlanOrders, OrderType.MARKET)) {
+                ExOrder shrinkOrder = shrink.order;
+                PlanOrder planOrder = shrink.planOrder;
                 logger.info("shrink order, plan order id: {}, symbol: {}, side: {}, quantity: {}",
                         shrinkOrder.getPlanId(), shrinkOrder.getSymbol(),
                         shrinkOrder.getSide(), shrinkOrder.getQuantity());
-                // update hedging_plan_order
-                PlanOrder planOrder = planOrders.get(shrinkOrder.getPlanId());
-                orderStore.updatePlanOrderLeftQuantity(
-                        planOrder.getLeftQuantity(), planOrder.getUpdateTime(), planOrder.getId());
+                long leftQuantity = planOrder.getLeftQuantity();
+                long updateTime = planOrder.getUpdateTime();
+                orderWriter.submit(
+                        // 在hedging_order_v2内增加shrink order的记录
+                        () -> orderStore.storeExOrder(shrinkOrder),
+                        () -> orderStore.commitExOrder(shrinkOrder.getOrderId(), shrinkOrder.getId()),
+                        // update hedging_plan_order
+                        () -> orderStore.updatePlanOrderLeftQuantity(leftQuantity, updateTime, planOrder.getId()));
             }
         }
     }
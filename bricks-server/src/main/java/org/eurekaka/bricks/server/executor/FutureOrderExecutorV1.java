@@ -38,6 +38,7 @@ public class FutureOrderExecutorV1 implements OrderExecutor {
     private final AtomicBoolean exited;
     private final ExecutorService executorService;
     private final BlockingQueue<Long> queue;
+    private final OrderSignal signal;
 
     private final Map<String, String> config;
     private int maxOrderQuantity;
@@ -56,7 +57,7 @@ public class FutureOrderExecutorV1 implements OrderExecutor {
     public FutureOrderExecutorV1(Map<String, String> config,
                                  AccountManager accountManager,
                                  InfoState<Info0, ?> infoState) {
-        this(config, accountManager, infoState, new ExOrderStore());
+        this(config, accountManager, infoState, ExOrderStore.getExecutionStore());
     }
 
     public FutureOrderExecutorV1(Map<String, String> config,
@@ -72,6 +73,7 @@ public class FutureOrderExecutorV1 implements OrderExecutor {
         this.marketPlanOrders = new ConcurrentHashMap<>();
         this.currentOrders = new ConcurrentHashMap<>();
         this.queue = new LinkedBlockingQueue<>();
+        this.signal = new OrderSignal();
         exited = new AtomicBoolean(false);
         executorService = Executors.newSingleThreadExecutor();
     }
@@ -177,6 +179,7 @@ public class FutureOrderExecutorV1 implements OrderExecutor {
             logger.info("make limit planeOrder: {}", planOrder);
             limitPlanOrders.put(planOrder.getId(), planOrder);
         }
+        signal.signal();
     }
 
     @Override
@@ -207,6 +210,7 @@ public class FutureOrderExecutorV1 implements OrderExecutor {
             StrategyNotification<?> not = (StrategyNotification<?>) notification;
             if (not.getData() instanceof Long) {
                 this.queue.add((Long) not.getData());
+                signal.signal();
             }
         }
     }
@@ -256,6 +260,7 @@ public class FutureOrderExecutorV1 implements OrderExecutor {
     }
 
     private ExOrder generateLimitOrder(PlanOrder planOrder, Info0 orderInfo, Exchange hedger) throws OrderException {
+        TradingRule rule = orderInfo.getTradingRule();
         ExMessage<?> fundingRateMsg = hedger.process(new ExAction<>(ExAction.ActionType.GET_FUNDING_RATE,
                 new SymbolPair(orderInfo.getName(), orderInfo.getSymbol())));
         ExMessage<?> markUsdtMsg = hedger.process(new ExAction<>(ExAction.ActionType.GET_MARK_USDT));
@@ -275,19 +280,19 @@ public class FutureOrderExecutorV1 implements OrderExecutor {
                 // 挂买单，选择最低买价挂单
                 double price = bidPrice;
                 if (addOne) {
-                    price += 1.0 / orderInfo.getPricePrecision();
+                    price += rule.tickSize;
                     if (price >= askPrice) {
                         price = bidPrice;
                     }
                 }
 
                 // 此处防止计算double导致精度问题
-                price = Math.round(price * orderInfo.getPricePrecision()) / orderInfo.getPricePrecision();
+                price = rule.roundPrice(price);
 
                 double last_price = price / (double) markUsdtMsg.getData();
                 last_price = last_price * (1 + (double) fundingRateMsg.getData());
                 last_price = last_price * (1 + hedger.getMakerRate());
-                last_price = Math.floor(last_price * orderInfo.getPricePrecision()) / orderInfo.getPricePrecision();
+                last_price = rule.floorPrice(last_price);
 
                 logger.trace("{} limit bid price: {}, usdt mark: {}, funding rate: {}, maker rate: {}",
                         hedger.getName(), price, markUsdtMsg.getData(),
@@ -295,16 +300,13 @@ public class FutureOrderExecutorV1 implements OrderExecutor {
 
                 // 计算size
                 double size = planOrder.getLeftQuantity() * 1.0 * PRECISION / planOrder.getSymbolPrice();
-                size = Math.round(size * orderInfo.getSizePrecision());
-                if (orderInfo.getSizePrecision() < 1) {
-                    size = size * Math.round(1.0 / orderInfo.getSizePrecision());
-                } else {
-                    size = size / orderInfo.getSizePrecision();
-                }
+                size = rule.roundSize(size);
 
-                if (size == 0) {
-                    throw new OrderException("generate size 0 limit order for: " +
-                            planOrder.getName() + ", account: " + hedger.getName());
+                // 本地校验下单规则，避免无效订单发送到交易所
+                String invalid = rule.validate(price, size);
+                if (invalid != null) {
+                    throw new OrderException("generate invalid limit order for: " +
+                            planOrder.getName() + ", account: " + hedger.getName() + ", " + invalid);
                 }
                 return new ExOrder(orderInfo.getAccount(), planOrder.getName(),
                         orderInfo.getSymbol(), OrderSide.BUY, OrderType.LIMIT, size, price,
@@ -318,17 +320,17 @@ public class FutureOrderExecutorV1 implements OrderExecutor {
 
                 double price = askPrice;
                 if (addOne) {
-                    price -= 1.0 / orderInfo.getPricePrecision();
+                    price -= rule.tickSize;
                     if (price <= bidPrice) {
                         price = askPrice;
                     }
                 }
-                price = Math.round(price * orderInfo.getPricePrecision()) / orderInfo.getPricePrecision();
+                price = rule.roundPrice(price);
 
                 double last_price = price / (double) markUsdtMsg.getData();
                 last_price = last_price * (1 + (double) fundingRateMsg.getData());
                 last_price = last_price * (1 - hedger.getMakerRate());
-                last_price = Math.ceil(last_price * orderInfo.getPricePrecision()) / orderInfo.getPricePrecision();
+                last_price = rule.ceilPrice(last_price);
 
                 logger.trace("{} limit ask price: {}, usdt mark: {}, funding rate: {}, maker rate: {}",
                         hedger.getName(), price, markUsdtMsg.getData(),
@@ -336,16 +338,13 @@ public class FutureOrderExecutorV1 implements OrderExecutor {
 
                 // 计算size
                 double size = planOrder.getLeftQuantity() * 1.0 * PRECISION / planOrder.getSymbolPrice();
-                size = Math.round(size * orderInfo.getSizePrecision());
-                if (orderInfo.getSizePrecision() < 1) {
-                    size = size * Math.round(1.0 / orderInfo.getSizePrecision());
-                } else {
-                    size = size / orderInfo.getSizePrecision();
-                }
+                size = rule.roundSize(size);
 
-                if (size == 0) {
-                    throw new OrderException("generate size 0 limit order for: " +
-                            planOrder.getName() + ", account: " + hedger.getName());
+                // 本地校验下单规则，避免无效订单发送到交易所
+                String invalid = rule.validate(price, size);
+                if (invalid != null) {
+                    throw new OrderException("generate invalid limit order for: " +
+                            planOrder.getName() + ", account: " + hedger.getName() + ", " + invalid);
                 }
                 return new ExOrder(orderInfo.getAccount(), planOrder.getName(),
                         orderInfo.getSymbol(), OrderSide.SELL, OrderType.LIMIT, size, price,
@@ -357,6 +356,7 @@ public class FutureOrderExecutorV1 implements OrderExecutor {
     }
 
     private ExOrder generateMarketOrder(PlanOrder planOrder, Info0 orderInfo, Exchange hedger) throws OrderException {
+        TradingRule rule = orderInfo.getTradingRule();
         int infoDepth = orderInfo.getInt("depth", 79);
         if (planOrder.getQuantity() > 0) {
             // 买单，找最低卖价
@@ -376,7 +376,7 @@ public class FutureOrderExecutorV1 implements OrderExecutor {
                 last_price = last_price * (1 + (double) fundingRateMsg.getData());
                 last_price = last_price * (1 + hedger.getTakerRate());
                 // 调整后实际价格，此价格仅作为比价依据
-                last_price = Math.ceil(last_price * orderInfo.getPricePrecision()) / orderInfo.getPricePrecision();
+                last_price = rule.ceilPrice(last_price);
 
                 // 多家数量精度可能不一致
                 long quantity;
@@ -389,16 +389,13 @@ public class FutureOrderExecutorV1 implements OrderExecutor {
                 }
 
                 double size = quantity * 1.0 * PRECISION / planOrder.getSymbolPrice();
-                size = Math.round(size * orderInfo.getSizePrecision());
-                if (orderInfo.getSizePrecision() < 1) {
-                    size = size * Math.round(1.0 / orderInfo.getSizePrecision());
-                } else {
-                    size = size / orderInfo.getSizePrecision();
-                }
+                size = rule.roundSize(size);
 
-                if (size == 0) {
-                    throw new OrderException("generate size 0 market order for: " +
-                            planOrder.getName() + ", account: " + hedger.getName());
+                // 市价单只校验数量
+                String invalid = rule.validate(0, size);
+                if (invalid != null) {
+                    throw new OrderException("generate invalid market order for: " +
+                            planOrder.getName() + ", account: " + hedger.getName() + ", " + invalid);
                 }
                 return new ExOrder(orderInfo.getAccount(), planOrder.getName(),
                         orderInfo.getSymbol(), OrderSide.BUY, OrderType.MARKET, size, depthPrice.price,
@@ -424,7 +421,7 @@ public class FutureOrderExecutorV1 implements OrderExecutor {
                 last_price = last_price * (1 + (double) fundingRateMsg.getData());
                 last_price = last_price * (1 - hedger.getTakerRate());
                 // 调整后实际价格
-                last_price = Math.floor(last_price * orderInfo.getPricePrecision()) / orderInfo.getPricePrecision();
+                last_price = rule.floorPrice(last_price);
 
                 long quantity;
                 // 避免落下过小的订单金额
@@ -436,15 +433,12 @@ public class FutureOrderExecutorV1 implements OrderExecutor {
                 }
 
                 double size = quantity * 1.0 * PRECISION / planOrder.getSymbolPrice();
-                size = Math.round(size * orderInfo.getSizePrecision());
-                if (orderInfo.getSizePrecision() < 1) {
-                    size = size * Math.round(1.0 / orderInfo.getSizePrecision());
-                } else {
-                    size = size / orderInfo.getSizePrecision();
-                }
-                if (size == 0) {
-                    throw new OrderException("generate size 0 market order for: " +
-                            planOrder.getName() + ", account: " + hedger.getName());
+                size = rule.roundSize(size);
+                // 市价单只校验数量
+                String invalid = rule.validate(0, size);
+                if (invalid != null) {
+                    throw new OrderException("generate invalid market order for: " +
+                            planOrder.getName() + ", account: " + hedger.getName() + ", " + invalid);
                 }
                 return new ExOrder(orderInfo.getAccount(), planOrder.getName(),
                         orderInfo.getSymbol(), OrderSide.SELL, OrderType.MARKET, size, depthPrice.price,
@@ -647,53 +641,15 @@ public class FutureOrderExecutorV1 implements OrderExecutor {
     }
 
     private void shrink(List<PlanOrder> planOrders) throws StoreException {
-        for (int i = 0; i < planOrders.size() - 1; i++) {
-            PlanOrder order1 = planOrders.get(i);
-            for (int j = i + 1; j < planOrders.size(); j++) {
-                PlanOrder order2 = planOrders.get(j);
-
-                if (order1.getName().equals(order2.getName())) {
-                    // 确定两者方向相反
-                    if (order1.getQuantity() > 0 && order2.getQuantity() < 0 ||
-                            order1.getQuantity() < 0 && order2.getQuantity() > 0) {
-                        // 两者都还有剩余金额
-                        if (order1.getLeftQuantity() > 0 && order2.getLeftQuantity() > 0) {
-                            long oldQty = 0;
-                            if (order1.getLeftQuantity() > order2.getLeftQuantity()) {
-                                oldQty = order2.getLeftQuantity();
-                                order1.setLeftQuantity(order1.getLeftQuantity() - oldQty);
-                                order2.setLeftQuantity(0);
-                            } else {
-                                oldQty = order1.getLeftQuantity();
-                                order2.setLeftQuantity(order2.getLeftQuantity() - oldQty);
-                                order1.setLeftQuantity(0);
-                            }
-                            order1.setUpdateTime(System.currentTimeMillis());
-                            order2.setUpdateTime(System.currentTimeMillis());
-
-                            OrderSide side1 = order1.getQuantity() > 0 ? OrderSide.BUY : OrderSide.SELL;
-                            ExOrder exOrder1 = new ExOrder(null, order1.getName(), null,
-                                    side1, OrderType.LIMIT, 0, 0, oldQty, 0, order1.getId());
-                            // 在hedging_order_v2内增加shrink order的记录
-                            orderStore.storeExOrder(exOrder1);
-                            orderStore.commitExOrder("SHRINK", exOrder1.getId());
-                            orderStore.updatePlanOrderLeftQuantity(
-                                    order1.getLeftQuantity(), order1.getUpdateTime(), order1.getId());
-
-                            OrderSide side2 = order2.getQuantity() > 0 ? OrderSide.BUY : OrderSide.SELL;
-                            ExOrder exOrder2 = new ExOrder(null, order2.getName(), null,
-                                    side2, OrderType.LIMIT, 0, 0, oldQty, 0, order2.getId());
-                            orderStore.storeExOrder(exOrder2);
-                            orderStore.commitExOrder("SHRINK", exOrder2.getId());
-                            orderStore.updatePlanOrderLeftQuantity(
-                                    order2.getLeftQuantity(), order2.getUpdateTime(), order2.getId());
-
-                            logger.info("shrink order1: {}", exOrder1);
-                            logger.info("shrink order2: {}", exOrder2);
-                        }
-                    }
-                }
-            }
+        for (PlanOrderNetting.Shrink shrink : PlanOrderNetting.net(planOrders, OrderType.LIMIT)) {
+            PlanOrder planOrder = shrink.planOrder;
+            ExOrder exOrder = shrink.order;
+            // 在hedging_order_v2内增加shrink order的记录
+            orderStore.storeExOrder(exOrder);
+            orderStore.commitExOrder("SHRINK", exOrder.getId());
+            orderStore.updatePlanOrderLeftQuantity(
+                    planOrder.getLeftQuantity(), planOrder.getUpdateTime(), planOrder.getId());
+            logger.info("shrink order: {}", exOrder);
         }
     }
 
@@ -703,7 +659,8 @@ public class FutureOrderExecutorV1 implements OrderExecutor {
         public void run() {
             while (!exited.get()) {
                 try {
-                    Thread.sleep(orderInterval);
+                    // 新的 plan order 或订单完成消息到达时立即处理，否则按间隔检查当前挂单
+                    signal.await(orderInterval);
 
                     // 1. 处理订单完成消息（没啥用的感觉）
                     Long discardPlanOrderId;
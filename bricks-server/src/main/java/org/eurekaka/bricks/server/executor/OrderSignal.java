@@ -0,0 +1,42 @@
+package org.eurekaka.bricks.server.executor;
+
+/**
+ * 下单线程的唤醒信号
+ * 新的 plan order 或成交消息到达时立即唤醒，没有事件时按间隔超时检查
+ * 多次唤醒在下单线程处理前合并为一次
+ */
+class OrderSignal {
+    private final Object lock;
+    private boolean signalled;
+
+    OrderSignal() {
+        this.lock = new Object();
+        this.signalled = false;
+    }
+
+    void signal() {
+        synchronized (lock) {
+            signalled = true;
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * 等待唤醒或超时
+     * @param timeout 最长等待时间，毫秒
+     * @return true 代表被唤醒
+     */
+    boolean await(long timeout) throws InterruptedException {
+        synchronized (lock) {
+            long deadline = System.currentTimeMillis() + timeout;
+            long wait = timeout;
+            while (!signalled && wait > 0) {
+                lock.wait(wait);
+                wait = deadline - System.currentTimeMillis();
+            }
+            boolean result = signalled;
+            signalled = false;
+            return result;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package org.eurekaka.bricks.server.executor;
+
+import org.eurekaka.bricks.common.model.OrderSide;
+import org.eurekaka.bricks.common.model.OrderType;
+import org.eurekaka.bricks.common.model.PlanOrder;
+import org.eurekaka.bricks.server.model.ExOrder;
+
+import java.util.*;
+
+/**
+ * 反向 plan order 互相抵消（shrink）
+ * 按名称分别索引买卖方向未完成的 plan order，每个 plan order 只需与反方向队列头部匹配，
+ * 替代两两比较的扫描
+ */
+class PlanOrderNetting {
+
+    private PlanOrderNetting() {}
+
+    /**
+     * 抵消后直接更新 plan order 的 left quantity 与 update time
+     * @param planOrders 参与抵消的 plan order，按遍历顺序优先抵消先出现的订单
+     * @param type 记录抵消结果的订单类型
+     * @return 抵消记录，成对出现，先出现的 plan order 在前
+     */
+    static List<Shrink> net(Collection<PlanOrder> planOrders, OrderType type) {
+        List<Shrink> shrinks = new ArrayList<>();
+        // name -> 买单队列，卖单队列
+        Map<String, Deque<PlanOrder>> buys = new HashMap<>();
+        Map<String, Deque<PlanOrder>> sells = new HashMap<>();
+        for (PlanOrder planOrder : planOrders) {
+            if (planOrder.getLeftQuantity() <= 0 || planOrder.getQuantity() == 0) {
+                continue;
+            }
+            boolean buy = planOrder.getQuantity() > 0;
+            Deque<PlanOrder> opposite = (buy ? sells : buys).get(planOrder.getName());
+            while (opposite != null && !opposite.isEmpty() && planOrder.getLeftQuantity() > 0) {
+                PlanOrder head = opposite.peekFirst();
+                long qty = Math.min(head.getLeftQuantity(), planOrder.getLeftQuantity());
+                long time = System.currentTimeMillis();
+                head.setLeftQuantity(head.getLeftQuantity() - qty);
+                head.setUpdateTime(time);
+                planOrder.setLeftQuantity(planOrder.getLeftQuantity() - qty);
+                planOrder.setUpdateTime(time);
+                shrinks.add(new Shrink(head, shrinkOrder(head, qty, type)));
+                shrinks.add(new Shrink(planOrder, shrinkOrder(planOrder, qty, type)));
+                if (head.getLeftQuantity() == 0) {
+                    opposite.pollFirst();
+                }
+            }
+            if (planOrder.getLeftQuantity() > 0) {
+                (buy ? buys : sells).computeIfAbsent(planOrder.getName(),
+                        k -> new ArrayDeque<>()).addLast(planOrder);
+            }
+        }
+        return shrinks;
+    }
+
+    private static ExOrder shrinkOrder(PlanOrder planOrder, long quantity, OrderType type) {
+        OrderSide side = planOrder.getQuantity() > 0 ? OrderSide.BUY : OrderSide.SELL;
+        return new ExOrder(null, planOrder.getName(), null,
+                side, type, 0, 0, quantity, 0, planOrder.getId());
+    }
+
+    static class Shrink {
+        final PlanOrder planOrder;
+        final ExOrder order;
+
+        Shrink(PlanOrder planOrder, ExOrder order) {
+            this.planOrder = planOrder;
+            this.order = order;
+        }
+    }
+}
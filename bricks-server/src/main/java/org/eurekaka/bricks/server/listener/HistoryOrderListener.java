@@ -4,24 +4,35 @@ import org.eurekaka.bricks.api.NotificationListener;
 import org.eurekaka.bricks.common.exception.NotificationException;
 import org.eurekaka.bricks.common.model.TradeNotification;
 import org.eurekaka.bricks.common.model.Notification;
-import org.eurekaka.bricks.server.store.ExOrderStore;
+import org.eurekaka.bricks.server.store.HistoryOrderWriter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * 成交记录持久化，写入 HistoryOrderWriter 的队列后立即返回，由写入线程批量写入数据库
+ */
 public class HistoryOrderListener implements NotificationListener {
     private final static Logger logger = LoggerFactory.getLogger(HistoryOrderListener.class);
 
-    private final ExOrderStore orderStore;
+    private final HistoryOrderWriter writer;
 
-    public HistoryOrderListener(ExOrderStore orderStore) {
-        this.orderStore = orderStore;
+    public HistoryOrderListener(HistoryOrderWriter writer) {
+        this.writer = writer;
+    }
+
+    public void start() {
+        writer.start();
+    }
+
+    public void stop() {
+        writer.stop();
     }
 
     @Override
     public void onNotification(Notification notification) throws NotificationException {
         try {
             if (notification instanceof TradeNotification) {
-                orderStore.storeHistoryOrder((TradeNotification) notification);
+                writer.write((TradeNotification) notification);
             }
 //            else {
 //                logger.warn("received unknown notification, {}", notification);
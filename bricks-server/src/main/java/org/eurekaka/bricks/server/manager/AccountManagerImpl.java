@@ -9,11 +9,13 @@ import org.eurekaka.bricks.common.model.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.LinkedBlockingQueue;
 import java.util.stream.Collectors;
 
 public class AccountManagerImpl implements AccountManager {
@@ -22,13 +24,17 @@ public class AccountManagerImpl implements AccountManager {
     private final Map<String, Exchange> accountMap;
     private final AccountConfigState accountConfigState;
     private final InfoState<Info0, ?> infoState;
-    private final BlockingQueue<Notification> blockingQueue;
+    // 所有交易所账户共用的通知总线
+    private final NotificationBus notificationBus;
+    // 交易所 -> symbol -> 交易所的交易对信息，同一交易所的账户共用一次查询
+    private final Map<String, CompletableFuture<Map<String, ExSymbol>>> exSymbols;
 
     public AccountManagerImpl(AccountConfigState accountConfigState,
                               InfoState<Info0, ?> infoState) {
         this.accountConfigState = accountConfigState;
         this.accountMap = new ConcurrentHashMap<>();
-        this.blockingQueue = new LinkedBlockingQueue<>();
+        this.notificationBus = new NotificationBus();
+        this.exSymbols = new ConcurrentHashMap<>();
 
         this.infoState = infoState;
     }
@@ -102,13 +108,76 @@ public class AccountManagerImpl implements AccountManager {
         if (ex != null) {
             logger.info("register symbol {} for account {}", info.getName(), info.getAccount());
             ex.process(new ExAction<>(ExAction.ActionType.ADD_SYMBOL,
-                    new SymbolPair(info.getName(), info.getSymbol())));
+                    new SymbolPair(info.getName(), info.getSymbol(), info.getPricePrecision())));
+            if (info instanceof Info0) {
+                updateExSymbol(ex, (Info0) info);
+            }
             postAddSymbol(info);
         }
     }
 
     protected void postAddSymbol(Info<?> info) {}
 
+    /**
+     * 设置交易所的交易对信息，用于生成本地下单规则，查询完成之前以及查询失败时只使用 info 配置
+     * 同一交易所只异步查询一次，查询失败或者新增交易对不在缓存中时重新查询
+     */
+    private void updateExSymbol(Exchange ex, Info0 info) {
+        CompletableFuture<Map<String, ExSymbol>> future = exSymbols.compute(exchangeKey(ex), (key, value) ->
+                value == null || value.isCompletedExceptionally() ||
+                        value.isDone() && !value.join().containsKey(info.getSymbol()) ?
+                        queryExSymbols(ex) : value);
+        future.whenComplete((symbols, t) -> {
+            if (t == null && symbols.containsKey(info.getSymbol())) {
+                info.setExSymbol(symbols.get(info.getSymbol()));
+                logger.info("{} trading rule: {}", info.getAccount(), info.getTradingRule());
+            } else {
+                logger.warn("failed to get exchange symbol {} for account {}",
+                        info.getSymbol(), info.getAccount(), t);
+            }
+        });
+    }
+
+    private CompletableFuture<Map<String, ExSymbol>> queryExSymbols(Exchange ex) {
+        return ex.processAsync(new ExAction<>(ExAction.ActionType.GET_SYMBOLS)).thenApply(message -> {
+            ExMessage<List<ExSymbol>> msg = toExSymbols(message);
+            if (msg.getType() != ExMessage.ExMsgType.RIGHT) {
+                throw new CompletionException(new ExchangeException(
+                        "failed to get exchange symbols for account " + ex.getName() + ": " + message.getData()));
+            }
+            Map<String, ExSymbol> symbols = new HashMap<>();
+            for (ExSymbol exSymbol : msg.getData()) {
+                symbols.put(exSymbol.symbol, exSymbol);
+            }
+            return symbols;
+        });
+    }
+
+    // GET_SYMBOLS 的结果逐个检查类型，失败或者数据格式错误时返回 ERROR 消息
+    private static ExMessage<List<ExSymbol>> toExSymbols(ExMessage<?> msg) {
+        if (msg.getType() != ExMessage.ExMsgType.RIGHT || !(msg.getData() instanceof List)) {
+            return new ExMessage<>(ExMessage.ExMsgType.ERROR);
+        }
+        List<ExSymbol> symbols = new ArrayList<>();
+        for (Object value : (List<?>) msg.getData()) {
+            if (!(value instanceof ExSymbol)) {
+                return new ExMessage<>(ExMessage.ExMsgType.ERROR);
+            }
+            symbols.add((ExSymbol) value);
+        }
+        return new ExMessage<>(ExMessage.ExMsgType.RIGHT, symbols);
+    }
+
+    // 交易对信息是交易所的公开数据，相同实现与地址的账户共用
+    private String exchangeKey(Exchange ex) {
+        for (AccountConfig accountConfig : accountConfigState.getAccountConfigs()) {
+            if (accountConfig.getName().equals(ex.getName())) {
+                return accountConfig.getClz() + "@" + accountConfig.getUrl();
+            }
+        }
+        return ex.getName();
+    }
+
     public void removeSymbol(Info<?> info) {
         Exchange ex = accountMap.get(info.getAccount());
         if (ex != null) {
@@ -136,7 +205,7 @@ public class AccountManagerImpl implements AccountManager {
         accountMap.put(accountConfig.getName(), exchange);
         // 新的account不存在交易对，所以只需要注册 notification queue
         if (accountConfig.getWebsocket() != null) {
-            exchange.process(new ExAction<>(ExAction.ActionType.REGISTER_QUEUE, blockingQueue));
+            exchange.process(new ExAction<>(ExAction.ActionType.REGISTER_QUEUE, notificationBus));
         }
         logger.info("started account: {}", accountConfig);
     }
@@ -156,7 +225,7 @@ public class AccountManagerImpl implements AccountManager {
         }
     }
 
-    public BlockingQueue<Notification> getBlockingQueue() {
-        return blockingQueue;
+    public NotificationBus getNotificationBus() {
+        return notificationBus;
     }
 }
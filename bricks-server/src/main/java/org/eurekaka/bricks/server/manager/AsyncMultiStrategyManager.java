@@ -9,6 +9,7 @@ import org.eurekaka.bricks.common.model.StrategyConfig;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -16,11 +17,20 @@ import java.util.concurrent.atomic.AtomicBoolean;
 public class AsyncMultiStrategyManager implements StrategyManager {
     private final static Logger logger = LoggerFactory.getLogger(AsyncMultiStrategyManager.class);
 
+    // 策略配置 notification_queue 可选的队列类型
+    // fifo: 所有通知先进先出
+    // conflating: 买一卖一等行情通知只保留最新值，订单成交通知仍然先进先出
+    public final static String FIFO_QUEUE = "fifo";
+    public final static String CONFLATING_QUEUE = "conflating";
+
     // 多策略模式，策略注册表
     private final Map<String, Strategy> strategyMap;
     private final Map<String, AtomicBoolean> strategyLocks;
     private final Map<String, AtomicBoolean> strategyNotifyLocks;
-    private final Map<String, BlockingQueue<Notification>> queueMap;
+    // info 名称 -> 订阅该 info 的每个策略的通知队列
+    private final Map<String, List<BlockingQueue<Notification>>> queueMap;
+    // 策略名称 -> 通知队列，停止策略时从 queueMap 移除
+    private final Map<String, BlockingQueue<Notification>> strategyQueues;
 
 //    private final StrategyFactoryManager factoryManager;
     private final StrategyFactory strategyFactory;
@@ -40,12 +50,13 @@ public class AsyncMultiStrategyManager implements StrategyManager {
         this.strategyLocks = new ConcurrentHashMap<>();
         this.strategyNotifyLocks = new ConcurrentHashMap<>();
         this.queueMap = new ConcurrentHashMap<>();
+        this.strategyQueues = new ConcurrentHashMap<>();
         this.executorService = Executors.newCachedThreadPool();
     }
 
     @Override
     public void start() {
-        executorService.execute(new NotificationDispatcher(
+        executorService.execute(NotificationDispatcher.fanOut(
                 new AtomicBoolean(false), queueMap, blockingQueue, listener));
         logger.info("multi strategy manager started.");
     }
@@ -65,6 +76,11 @@ public class AsyncMultiStrategyManager implements StrategyManager {
     @Override
     public void startStrategy(StrategyConfig strategyConfig) throws StrategyException {
         if (!strategyLocks.containsKey(strategyConfig.getName())) {
+            // 先检查队列配置，避免策略启动后才失败
+            BlockingQueue<Notification> queue = null;
+            if (strategyConfig.getInfoName() != null) {
+                queue = createQueue(strategyConfig);
+            }
             Strategy strategy = strategyFactory.createStrategy(strategyConfig);
             strategy.start();
             int interval = strategyConfig.getInt("interval", 1000);
@@ -73,25 +89,39 @@ public class AsyncMultiStrategyManager implements StrategyManager {
             strategyMap.put(strategyConfig.getName(), strategy);
             strategyLocks.put(strategyConfig.getName(), exited1);
             strategyNotifyLocks.put(strategyConfig.getName(), exited2);
-            if (strategyConfig.getInfoName() != null) {
-                if (!queueMap.containsKey(strategyConfig.getInfoName())) {
-                    queueMap.put(strategyConfig.getInfoName(), new LinkedBlockingQueue<>());
-                }
-                executorService.execute(new StrategyRunnerV3(exited2,
-                        strategy, queueMap.get(strategyConfig.getInfoName())));
+            if (queue != null) {
+                strategyQueues.put(strategyConfig.getName(), queue);
+                queueMap.computeIfAbsent(strategyConfig.getInfoName(),
+                        k -> new CopyOnWriteArrayList<>()).add(queue);
+                executorService.execute(new StrategyRunnerV3(exited2, strategy, queue));
             }
             executorService.execute(new StrategyRunnerV1(exited1, strategy, interval));
         }
     }
 
+    // 每个策略按自己的配置创建队列，同一个 info 的通知复制到每个策略的队列
+    private BlockingQueue<Notification> createQueue(StrategyConfig strategyConfig) throws StrategyException {
+        String queueType = strategyConfig.getProperty("notification_queue", FIFO_QUEUE);
+        if (CONFLATING_QUEUE.equals(queueType)) {
+            return new ConflatingNotificationQueue();
+        } else if (FIFO_QUEUE.equals(queueType)) {
+            return new LinkedBlockingQueue<>();
+        }
+        throw new StrategyException("unknown notification queue type: " + queueType);
+    }
+
     @Override
     public void stopStrategy(StrategyConfig strategyConfig) throws StrategyException {
         if (strategyLocks.containsKey(strategyConfig.getName())) {
             strategyLocks.get(strategyConfig.getName()).set(true);
             strategyNotifyLocks.get(strategyConfig.getName()).set(true);
-//            if (strategyConfig.getInfoName() != null) {
-//                queueMap.remove(strategyConfig.getInfoName());
-//            }
+            BlockingQueue<Notification> queue = strategyQueues.remove(strategyConfig.getName());
+            if (queue != null && strategyConfig.getInfoName() != null) {
+                List<BlockingQueue<Notification>> queues = queueMap.get(strategyConfig.getInfoName());
+                if (queues != null) {
+                    queues.remove(queue);
+                }
+            }
             strategyMap.remove(strategyConfig.getName());
             strategyLocks.remove(strategyConfig.getName());
             strategyNotifyLocks.remove(strategyConfig.getName());
@@ -0,0 +1,196 @@
+package org.eurekaka.bricks.server.manager;
+
+import org.eurekaka.bricks.api.NotificationListener;
+import org.eurekaka.bricks.api.Strategy;
+import org.eurekaka.bricks.api.StrategyFactory;
+import org.eurekaka.bricks.common.exception.NotificationException;
+import org.eurekaka.bricks.common.exception.StrategyException;
+import org.eurekaka.bricks.common.model.LatencyStage;
+import org.eurekaka.bricks.common.model.Notification;
+import org.eurekaka.bricks.common.model.StrategyConfig;
+import org.eurekaka.bricks.common.util.LatencyRecorder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.eurekaka.bricks.server.manager.AsyncMultiStrategyManager.CONFLATING_QUEUE;
+import static org.eurekaka.bricks.server.manager.AsyncMultiStrategyManager.FIFO_QUEUE;
+
+/**
+ * 基于通知总线的多策略管理器
+ * 每个策略在总线上订阅自己 info 的通知，交易所监听线程直接写入策略的环形队列
+ * 持久化等统一监听器使用独立的消费者，不占用策略的通知处理路径
+ *
+ * 策略配置:
+ * notification_buffer: 环形队列容量，默认 4096
+ * notification_overflow: 环形队列满时的溢出队列容量，默认 65536，溢出队列也满时丢弃通知并计数
+ * wait_strategy: 队列为空时的等待方式，busy_spin, yield, park，默认 park
+ * notification_queue: conflating 时行情通知先合并再交给策略处理
+ */
+public class BusMultiStrategyManager implements StrategyManager {
+    private final static Logger logger = LoggerFactory.getLogger(BusMultiStrategyManager.class);
+
+    public final static int DEFAULT_BUFFER_SIZE = 4096;
+    // 策略处理缓慢时交易所监听线程不等待，通知先写入溢出队列
+    public final static int DEFAULT_OVERFLOW_SIZE = NotificationConsumer.DEFAULT_OVERFLOW_CAPACITY;
+    public final static int DEFAULT_LISTENER_BUFFER_SIZE = 16384;
+    // 统一监听器不是延迟敏感的，队列满时写入溢出队列，不让交易所监听线程等待
+    public final static int DEFAULT_LISTENER_OVERFLOW_SIZE = 1 << 20;
+
+    private final Map<String, Strategy> strategyMap;
+    private final Map<String, AtomicBoolean> strategyLocks;
+    private final Map<String, AtomicBoolean> strategyNotifyLocks;
+    private final Map<String, NotificationConsumer> consumerMap;
+
+    private final StrategyFactory strategyFactory;
+    private final ExecutorService executorService;
+    private final NotificationBus notificationBus;
+    private final NotificationListener listener;
+    private NotificationConsumer listenerConsumer;
+
+    public BusMultiStrategyManager(StrategyFactory strategyFactory,
+                                   NotificationBus notificationBus,
+                                   NotificationListener listener) {
+        this.strategyFactory = strategyFactory;
+        this.notificationBus = notificationBus;
+        this.listener = listener;
+
+        this.strategyMap = new ConcurrentHashMap<>();
+        this.strategyLocks = new ConcurrentHashMap<>();
+        this.strategyNotifyLocks = new ConcurrentHashMap<>();
+        this.consumerMap = new ConcurrentHashMap<>();
+        this.executorService = Executors.newCachedThreadPool();
+    }
+
+    @Override
+    public void start() {
+        if (listener != null) {
+            // 统一监听所有通知，比如成交记录持久化
+            listenerConsumer = new NotificationConsumer(null,
+                    DEFAULT_LISTENER_BUFFER_SIZE, DEFAULT_LISTENER_OVERFLOW_SIZE, WaitStrategy.PARK, listener);
+            notificationBus.subscribe(listenerConsumer);
+            executorService.execute(listenerConsumer);
+        }
+        logger.info("bus multi strategy manager started.");
+    }
+
+    @Override
+    public void stop() {
+        for (NotificationConsumer consumer : consumerMap.values()) {
+            notificationBus.unsubscribe(consumer);
+            consumer.stop();
+        }
+        if (listenerConsumer != null) {
+            notificationBus.unsubscribe(listenerConsumer);
+            listenerConsumer.stop();
+            if (listenerConsumer.getDropped() > 0) {
+                logger.error("listener consumer dropped {} notifications", listenerConsumer.getDropped());
+            }
+        }
+        executorService.shutdownNow();
+        boolean succ;
+        try {
+            succ = executorService.awaitTermination(3000, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            succ = false;
+        }
+        logger.info("bus multi strategy manager exited, success: {}", succ);
+    }
+
+    @Override
+    public void startStrategy(StrategyConfig strategyConfig) throws StrategyException {
+        if (!strategyLocks.containsKey(strategyConfig.getName())) {
+            // 先检查通知配置，避免策略启动后才失败
+            String queueType = strategyConfig.getProperty("notification_queue", FIFO_QUEUE);
+            if (!FIFO_QUEUE.equals(queueType) && !CONFLATING_QUEUE.equals(queueType)) {
+                throw new StrategyException("unknown notification queue type: " + queueType);
+            }
+            WaitStrategy waitStrategy;
+            try {
+                waitStrategy = WaitStrategy.parse(strategyConfig.getProperty("wait_strategy", "park"));
+            } catch (IllegalArgumentException e) {
+                throw new StrategyException("unknown wait strategy: " +
+                        strategyConfig.getProperty("wait_strategy"));
+            }
+            int bufferSize = strategyConfig.getInt("notification_buffer", DEFAULT_BUFFER_SIZE);
+            int overflowSize = strategyConfig.getInt("notification_overflow", DEFAULT_OVERFLOW_SIZE);
+
+            Strategy strategy = strategyFactory.createStrategy(strategyConfig);
+            strategy.start();
+            int interval = strategyConfig.getInt("interval", 1000);
+            AtomicBoolean exited1 = new AtomicBoolean(false);
+            AtomicBoolean exited2 = new AtomicBoolean(false);
+            strategyMap.put(strategyConfig.getName(), strategy);
+            strategyLocks.put(strategyConfig.getName(), exited1);
+            strategyNotifyLocks.put(strategyConfig.getName(), exited2);
+
+            if (strategyConfig.getInfoName() != null) {
+                NotificationListener handler;
+                if (CONFLATING_QUEUE.equals(queueType)) {
+                    // 合并队列由独立线程交给策略处理
+                    ConflatingNotificationQueue queue = new ConflatingNotificationQueue();
+                    executorService.execute(new StrategyRunnerV3(exited2, strategy, queue));
+                    handler = queue::add;
+                } else {
+                    handler = notification -> notifyStrategy(strategy, notification);
+                }
+                NotificationConsumer consumer = new NotificationConsumer(
+                        strategyConfig.getInfoName(), bufferSize, overflowSize, waitStrategy, handler);
+                consumerMap.put(strategyConfig.getName(), consumer);
+                notificationBus.subscribe(consumer);
+                executorService.execute(consumer);
+            }
+            executorService.execute(new StrategyRunnerV1(exited1, strategy, interval));
+        }
+    }
+
+    private static void notifyStrategy(Strategy strategy, Notification notification)
+            throws NotificationException {
+        long startTime = System.nanoTime();
+        try {
+            strategy.notify(notification);
+        } catch (StrategyException e) {
+            throw new NotificationException("strategy notification error", e);
+        } finally {
+            LatencyRecorder.recordSince(LatencyStage.STRATEGY_NOTIFY, startTime);
+        }
+    }
+
+    @Override
+    public void stopStrategy(StrategyConfig strategyConfig) throws StrategyException {
+        if (strategyLocks.containsKey(strategyConfig.getName())) {
+            strategyLocks.get(strategyConfig.getName()).set(true);
+            strategyNotifyLocks.get(strategyConfig.getName()).set(true);
+            NotificationConsumer consumer = consumerMap.remove(strategyConfig.getName());
+            if (consumer != null) {
+                notificationBus.unsubscribe(consumer);
+                consumer.stop();
+                if (consumer.getDropped() > 0) {
+                    logger.error("strategy {} dropped {} notifications",
+                            strategyConfig.getName(), consumer.getDropped());
+                }
+            }
+            strategyMap.remove(strategyConfig.getName());
+            strategyLocks.remove(strategyConfig.getName());
+            strategyNotifyLocks.remove(strategyConfig.getName());
+        }
+    }
+
+    @Override
+    public void notifyStrategy(Notification notification) throws StrategyException {
+        if (!strategyMap.containsKey(notification.getName())) {
+            throw new StrategyException("unknown strategy, notify failed.");
+        }
+        strategyMap.get(notification.getName()).notify(notification);
+    }
+
+    public NotificationBus getNotificationBus() {
+        return notificationBus;
+    }
+}
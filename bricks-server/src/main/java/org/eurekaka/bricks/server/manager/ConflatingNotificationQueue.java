@@ -0,0 +1,282 @@
+package org.eurekaka.bricks.server.manager;
+
+import org.eurekaka.bricks.common.model.ConflatableNotification;
+import org.eurekaka.bricks.common.model.Notification;
+
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 合并行情通知的队列
+ * ConflatableNotification 按 key 只保留最新的一条，在队列中只占一个位置，
+ * 位置由该 key 第一条未消费的通知决定，消费时读取最新值
+ * 其他通知保持先进先出，不丢失
+ *
+ * 突发行情时策略不再逐条处理过期的买一卖一，总是读取最新状态
+ */
+public class ConflatingNotificationQueue extends AbstractQueue<Notification>
+        implements BlockingQueue<Notification> {
+
+    private final ReentrantLock lock;
+    private final Condition notEmpty;
+
+    // 队列元素，ConflatableNotification 以 key 本身占位，不另外创建对象
+    private final ArrayDeque<Object> entries;
+    // key -> 最新通知
+    private final Map<Object, ConflatableNotification> slots;
+
+    // 被合并的通知数量
+    private long conflated;
+
+    public ConflatingNotificationQueue() {
+        this.lock = new ReentrantLock();
+        this.notEmpty = lock.newCondition();
+        this.entries = new ArrayDeque<>();
+        this.slots = new HashMap<>();
+    }
+
+    public long getConflatedCount() {
+        lock.lock();
+        try {
+            return conflated;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean offer(Notification notification) {
+        Objects.requireNonNull(notification);
+        lock.lock();
+        try {
+            if (notification instanceof ConflatableNotification) {
+                ConflatableNotification value = (ConflatableNotification) notification;
+                Object key = value.getConflationKey();
+                if (slots.put(key, value) != null) {
+                    // 已有未消费的通知，只更新为最新值，不再唤醒消费者
+                    conflated++;
+                    return true;
+                }
+                entries.addLast(key);
+            } else {
+                entries.addLast(notification);
+            }
+            notEmpty.signal();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void put(Notification notification) {
+        offer(notification);
+    }
+
+    @Override
+    public boolean offer(Notification notification, long timeout, TimeUnit unit) {
+        return offer(notification);
+    }
+
+    @Override
+    public Notification take() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (entries.isEmpty()) {
+                notEmpty.await();
+            }
+            return dequeue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Notification poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (entries.isEmpty()) {
+                if (nanos <= 0) {
+                    return null;
+                }
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+            return dequeue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Notification poll() {
+        lock.lock();
+        try {
+            return entries.isEmpty() ? null : dequeue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Notification peek() {
+        lock.lock();
+        try {
+            return entries.isEmpty() ? null : resolve(entries.peekFirst());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int remainingCapacity() {
+        return Integer.MAX_VALUE;
+    }
+
+    @Override
+    public int drainTo(Collection<? super Notification> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(Collection<? super Notification> c, int maxElements) {
+        Objects.requireNonNull(c);
+        if (c == this) {
+            throw new IllegalArgumentException();
+        }
+        lock.lock();
+        try {
+            int n = 0;
+            while (n < maxElements && !entries.isEmpty()) {
+                c.add(dequeue());
+                n++;
+            }
+            return n;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 删除队列中第一个与 o 相等的通知，合并的通知按当前最新值比较
+     */
+    @Override
+    public boolean remove(Object o) {
+        if (o == null) {
+            return false;
+        }
+        lock.lock();
+        try {
+            Iterator<Object> it = entries.iterator();
+            while (it.hasNext()) {
+                Object entry = it.next();
+                if (o.equals(resolve(entry))) {
+                    it.remove();
+                    release(entry);
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 返回当前队列内容的快照，合并的通知为最新值
+     * 迭代器的 remove 删除快照对应的队列元素，元素已被消费时不做处理
+     */
+    @Override
+    public Iterator<Notification> iterator() {
+        lock.lock();
+        try {
+            Object[] snapshot = entries.toArray();
+            Notification[] values = new Notification[snapshot.length];
+            for (int i = 0; i < snapshot.length; i++) {
+                values[i] = resolve(snapshot[i]);
+            }
+            return new Iterator<>() {
+                private int cursor;
+                private int last = -1;
+
+                @Override
+                public boolean hasNext() {
+                    return cursor < snapshot.length;
+                }
+
+                @Override
+                public Notification next() {
+                    if (cursor >= snapshot.length) {
+                        throw new NoSuchElementException();
+                    }
+                    last = cursor++;
+                    return values[last];
+                }
+
+                @Override
+                public void remove() {
+                    if (last < 0) {
+                        throw new IllegalStateException();
+                    }
+                    removeEntry(snapshot[last]);
+                    last = -1;
+                }
+            };
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // 按实例删除队列元素
+    private void removeEntry(Object entry) {
+        lock.lock();
+        try {
+            Iterator<Object> it = entries.iterator();
+            while (it.hasNext()) {
+                if (it.next() == entry) {
+                    it.remove();
+                    release(entry);
+                    return;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // 调用方需持有锁，删除合并通知的占位后同时删除最新值
+    private void release(Object entry) {
+        if (!(entry instanceof Notification)) {
+            slots.remove(entry);
+        }
+    }
+
+    // 调用方需持有锁
+    private Notification dequeue() {
+        Object entry = entries.pollFirst();
+        if (entry instanceof Notification) {
+            return (Notification) entry;
+        }
+        return slots.remove(entry);
+    }
+
+    private Notification resolve(Object entry) {
+        if (entry instanceof Notification) {
+            return (Notification) entry;
+        }
+        return slots.get(entry);
+    }
+}
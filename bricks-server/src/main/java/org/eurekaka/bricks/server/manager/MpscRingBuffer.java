@@ -0,0 +1,99 @@
+package org.eurekaka.bricks.server.manager;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 多生产者单消费者的有界环形队列，容量在创建时确定，入队出队不分配内存
+ * 每个槽位带有序号，生产者通过 CAS 申请写入位置，写入元素后再发布序号
+ * 消费者读取到与期望一致的序号时才读取元素，poll 只能由同一个消费者线程调用
+ */
+public class MpscRingBuffer<E> {
+    private final Object[] buffer;
+    // 元素入队时的时间戳
+    private final long[] timestamps;
+    private final AtomicLongArray sequences;
+    private final int mask;
+
+    // 下一个申请写入的位置
+    private final AtomicLong tail = new AtomicLong();
+    // 下一个读取位置，只由消费者修改
+    private volatile long head;
+    // 最近一次出队元素的时间戳，只由消费者读写
+    private long lastTimestamp;
+
+    public MpscRingBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+        this.buffer = new Object[size];
+        this.timestamps = new long[size];
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+        this.mask = size - 1;
+    }
+
+    /**
+     * 入队，队列已满时返回 false
+     */
+    public boolean offer(E e) {
+        return offer(e, 0);
+    }
+
+    /**
+     * 入队并记录时间戳，出队后通过 getLastTimestamp 获取
+     */
+    public boolean offer(E e, long timestamp) {
+        while (true) {
+            long sequence = tail.get();
+            int index = (int) (sequence & mask);
+            long current = sequences.get(index);
+            if (current == sequence) {
+                if (tail.compareAndSet(sequence, sequence + 1)) {
+                    buffer[index] = e;
+                    timestamps[index] = timestamp;
+                    // 发布元素，消费者读取到序号后元素一定可见
+                    sequences.lazySet(index, sequence + 1);
+                    return true;
+                }
+            } else if (current < sequence) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * 出队，队列为空或者生产者尚未发布时返回 null
+     */
+    @SuppressWarnings("unchecked")
+    public E poll() {
+        long sequence = head;
+        int index = (int) (sequence & mask);
+        if (sequences.get(index) != sequence + 1) {
+            return null;
+        }
+        E e = (E) buffer[index];
+        buffer[index] = null;
+        lastTimestamp = timestamps[index];
+        // 释放槽位，供下一轮生产者写入
+        sequences.lazySet(index, sequence + buffer.length);
+        head = sequence + 1;
+        return e;
+    }
+
+    public long getLastTimestamp() {
+        return lastTimestamp;
+    }
+
+    public int capacity() {
+        return buffer.length;
+    }
+
+    public int size() {
+        return (int) Math.max(0, tail.get() - head);
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+}
@@ -0,0 +1,77 @@
+package org.eurekaka.bricks.server.manager;
+
+import org.eurekaka.bricks.common.model.Notification;
+
+import java.util.AbstractQueue;
+import java.util.Collections;
+import java.util.Iterator;
+
+/**
+ * 通知总线，替代 LinkedBlockingQueue 加 NotificationDispatcher 的两次转发
+ * 交易所监听线程调用 add/offer 发布通知，总线直接写入每个订阅者的环形队列
+ * 订阅者列表写时复制，发布时无锁
+ *
+ * 总线本身不保存通知，poll 与 peek 总是返回 null
+ */
+public class NotificationBus extends AbstractQueue<Notification> {
+    private volatile NotificationConsumer[] consumers = new NotificationConsumer[0];
+
+    public synchronized void subscribe(NotificationConsumer consumer) {
+        NotificationConsumer[] current = consumers;
+        NotificationConsumer[] next = new NotificationConsumer[current.length + 1];
+        System.arraycopy(current, 0, next, 0, current.length);
+        next[current.length] = consumer;
+        consumers = next;
+    }
+
+    public synchronized void unsubscribe(NotificationConsumer consumer) {
+        NotificationConsumer[] current = consumers;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i] == consumer) {
+                NotificationConsumer[] next = new NotificationConsumer[current.length - 1];
+                System.arraycopy(current, 0, next, 0, i);
+                System.arraycopy(current, i + 1, next, i, current.length - i - 1);
+                consumers = next;
+                return;
+            }
+        }
+    }
+
+    public NotificationConsumer[] getConsumers() {
+        return consumers.clone();
+    }
+
+    @Override
+    public boolean offer(Notification notification) {
+        if (notification == null) {
+            throw new NullPointerException();
+        }
+        long publishTime = System.nanoTime();
+        for (NotificationConsumer consumer : consumers) {
+            if (consumer.accept(notification)) {
+                consumer.publish(notification, publishTime);
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public Notification poll() {
+        return null;
+    }
+
+    @Override
+    public Notification peek() {
+        return null;
+    }
+
+    @Override
+    public Iterator<Notification> iterator() {
+        return Collections.emptyIterator();
+    }
+
+    @Override
+    public int size() {
+        return 0;
+    }
+}
@@ -0,0 +1,203 @@
+package org.eurekaka.bricks.server.manager;
+
+import org.eurekaka.bricks.api.NotificationListener;
+import org.eurekaka.bricks.common.model.LatencyStage;
+import org.eurekaka.bricks.common.model.Notification;
+import org.eurekaka.bricks.common.util.LatencyRecorder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 通知总线上的单个消费者，持有独立的环形队列与消费线程
+ * 生产者直接写入消费者的队列，生产者是交易所监听线程，任何情况下都不等待
+ * 环形队列已满时通知写入有界的溢出队列，溢出队列也满时丢弃并计数
+ */
+public class NotificationConsumer implements Runnable {
+    private final static Logger logger = LoggerFactory.getLogger(NotificationConsumer.class);
+
+    public static final int DEFAULT_OVERFLOW_CAPACITY = 1 << 16;
+
+    // 订阅的 info 名称，为 null 时接收所有通知
+    private final String name;
+    private final MpscRingBuffer<Notification> ringBuffer;
+    private final WaitStrategy waitStrategy;
+    private final NotificationListener listener;
+
+    // 环形队列满时的溢出队列
+    private final ConcurrentLinkedQueue<Notification> overflow;
+    private final AtomicInteger overflowSize;
+    private final int overflowCapacity;
+
+    private volatile boolean running;
+    private volatile boolean waiting;
+    private volatile Thread thread;
+
+    private final LongAdder published = new LongAdder();
+    private final LongAdder overflowed = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private volatile long failed;
+
+    public NotificationConsumer(String name, int capacity,
+                                WaitStrategy waitStrategy, NotificationListener listener) {
+        this(name, capacity, DEFAULT_OVERFLOW_CAPACITY, waitStrategy, listener);
+    }
+
+    /**
+     * @param overflowCapacity 溢出队列容量，为 0 时环形队列已满直接丢弃
+     */
+    public NotificationConsumer(String name, int capacity, int overflowCapacity,
+                                WaitStrategy waitStrategy, NotificationListener listener) {
+        this.name = name;
+        this.ringBuffer = new MpscRingBuffer<>(capacity);
+        this.waitStrategy = waitStrategy;
+        this.listener = listener;
+        this.overflowCapacity = overflowCapacity;
+        this.overflow = new ConcurrentLinkedQueue<>();
+        this.overflowSize = new AtomicInteger();
+        this.running = true;
+    }
+
+    boolean accept(Notification notification) {
+        return name == null || name.equals(notification.getName());
+    }
+
+    /**
+     * 生产者写入通知，可由多个线程同时调用，不会等待
+     * 溢出队列不为空时新通知也写入溢出队列，保持同一生产者的通知顺序
+     * @param publishTime 发布时间，System.nanoTime
+     */
+    void publish(Notification notification, long publishTime) {
+        if (overflowSize.get() > 0 || !ringBuffer.offer(notification, publishTime)) {
+            if (!running) {
+                dropped.increment();
+                return;
+            }
+            if (overflowSize.incrementAndGet() > overflowCapacity) {
+                overflowSize.decrementAndGet();
+                dropped.increment();
+                long count = dropped.sum();
+                if (count % 10000 == 1) {
+                    logger.error("notification consumer {} overflow queue is full, dropped: {}, last: {}",
+                            name, count, notification);
+                }
+                signal();
+                return;
+            }
+            overflow.offer(notification);
+            overflowed.increment();
+        }
+        published.increment();
+        signal();
+    }
+
+    private Notification pollOverflow() {
+        Notification notification = overflow.poll();
+        if (notification != null) {
+            overflowSize.decrementAndGet();
+        }
+        return notification;
+    }
+
+    private boolean isEmpty() {
+        return ringBuffer.isEmpty() && overflow.isEmpty();
+    }
+
+    private void signal() {
+        if (waiting) {
+            Thread t = thread;
+            if (t != null) {
+                LockSupport.unpark(t);
+            }
+        }
+    }
+
+    public void stop() {
+        running = false;
+        Thread t = thread;
+        if (t != null) {
+            LockSupport.unpark(t);
+        }
+    }
+
+    @Override
+    public void run() {
+        thread = Thread.currentThread();
+        int tries = 0;
+        while (running && !thread.isInterrupted()) {
+            Notification notification = ringBuffer.poll();
+            if (notification == null) {
+                // 环形队列中的通知早于溢出队列，先处理完环形队列
+                notification = pollOverflow();
+                if (notification != null) {
+                    tries = 0;
+                    handle(notification);
+                    continue;
+                }
+                if (waitStrategy.idle(tries++)) {
+                    waiting = true;
+                    // 设置等待标记后再次检查，避免错过生产者的唤醒
+                    if (isEmpty() && running) {
+                        WaitStrategy.park();
+                    }
+                    waiting = false;
+                }
+                continue;
+            }
+            tries = 0;
+            // 只统计策略的通知队列延迟，统一监听器允许积压
+            if (name != null) {
+                LatencyRecorder.recordSince(LatencyStage.NOTIFICATION_QUEUE, ringBuffer.getLastTimestamp());
+            }
+            handle(notification);
+        }
+        running = false;
+
+        // 退出前处理剩余的通知
+        Notification notification;
+        while ((notification = ringBuffer.poll()) != null || (notification = pollOverflow()) != null) {
+            handle(notification);
+        }
+    }
+
+    private void handle(Notification notification) {
+        try {
+            listener.onNotification(notification);
+        } catch (Exception e) {
+            failed++;
+            logger.error("failed to process notification: {}", notification, e);
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public WaitStrategy getWaitStrategy() {
+        return waitStrategy;
+    }
+
+    public int getPending() {
+        return ringBuffer.size() + overflowSize.get();
+    }
+
+    public long getPublished() {
+        return published.sum();
+    }
+
+    public long getOverflowed() {
+        return overflowed.sum();
+    }
+
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    public long getFailed() {
+        return failed;
+    }
+}
@@ -5,6 +5,7 @@ import org.eurekaka.bricks.common.model.Notification;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Collection;
 import java.util.Map;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -13,7 +14,7 @@ public class NotificationDispatcher implements Runnable {
     private final static Logger logger = LoggerFactory.getLogger(NotificationDispatcher.class);
 
     private final AtomicBoolean exited;
-    private final Map<String, BlockingQueue<Notification>> queueMap;
+    private final Router router;
     private final BlockingQueue<Notification> blockingQueue;
     private final NotificationListener listener;
 
@@ -21,12 +22,41 @@ public class NotificationDispatcher implements Runnable {
                                   Map<String, BlockingQueue<Notification>> queueMap,
                                   BlockingQueue<Notification> blockingQueue,
                                   NotificationListener listener) {
+        this(exited, notification -> {
+            BlockingQueue<Notification> queue = queueMap.get(notification.getName());
+            if (queue != null) {
+                queue.add(notification);
+            }
+        }, blockingQueue, listener);
+    }
+
+    private NotificationDispatcher(AtomicBoolean exited, Router router,
+                                   BlockingQueue<Notification> blockingQueue,
+                                   NotificationListener listener) {
         this.exited = exited;
-        this.queueMap = queueMap;
+        this.router = router;
         this.blockingQueue = blockingQueue;
         this.listener = listener;
     }
 
+    /**
+     * 同一个 info 有多个策略时，通知复制到每个策略的队列
+     * @param queuesMap info 名称 -> 策略队列
+     */
+    public static NotificationDispatcher fanOut(AtomicBoolean exited,
+                                                Map<String, ? extends Collection<BlockingQueue<Notification>>> queuesMap,
+                                                BlockingQueue<Notification> blockingQueue,
+                                                NotificationListener listener) {
+        return new NotificationDispatcher(exited, notification -> {
+            Collection<BlockingQueue<Notification>> queues = queuesMap.get(notification.getName());
+            if (queues != null) {
+                for (BlockingQueue<Notification> queue : queues) {
+                    queue.add(notification);
+                }
+            }
+        }, blockingQueue, listener);
+    }
+
     @Override
     public void run() {
         while (!exited.get()) {
@@ -35,13 +65,7 @@ public class NotificationDispatcher implements Runnable {
                 Notification notification = blockingQueue.take();
                 // 统一监听处理所有消息通知
                 listener.onNotification(notification);
-                BlockingQueue<Notification> queue = queueMap.get(notification.getName());
-                if (queue != null) {
-                    queue.add(notification);
-                }
-//                else {
-//                    logger.warn("found unknown notification: {}", notification);
-//                }
+                router.route(notification);
             } catch (InterruptedException e) {
                 exited.set(true);
 //                logger.info("notification processor interrupted.");
@@ -53,14 +77,16 @@ public class NotificationDispatcher implements Runnable {
         if (blockingQueue.size() != 0) {
             for (Notification notification : blockingQueue) {
                 try {
-                    BlockingQueue<Notification> queue = queueMap.get(notification.getName());
-                    if (queue != null) {
-                        queue.add(notification);
-                    }
+                    router.route(notification);
                 } catch (Exception e) {
                     logger.error("failed to process notification: {} when existing", notification, e);
                 }
             }
         }
     }
+
+    @FunctionalInterface
+    private interface Router {
+        void route(Notification notification);
+    }
 }
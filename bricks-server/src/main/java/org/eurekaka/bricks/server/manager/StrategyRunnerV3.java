@@ -2,7 +2,9 @@ package org.eurekaka.bricks.server.manager;
 
 import org.eurekaka.bricks.api.NotificationListener;
 import org.eurekaka.bricks.api.Strategy;
+import org.eurekaka.bricks.common.model.LatencyStage;
 import org.eurekaka.bricks.common.model.Notification;
+import org.eurekaka.bricks.common.util.LatencyRecorder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -37,12 +39,13 @@ public class StrategyRunnerV3 implements Runnable {
     public void run() {
         while (!exited.get()) {
             try {
-                // todo:: add metrics for orders
                 Notification notification = queue.take();
                 if (listener != null) {
                     listener.onNotification(notification);
                 }
+                long startTime = System.nanoTime();
                 strategy.notify(notification);
+                LatencyRecorder.recordSince(LatencyStage.STRATEGY_NOTIFY, startTime);
             } catch (InterruptedException e) {
                 exited.set(true);
 //                logger.info("notification runner interrupted.");
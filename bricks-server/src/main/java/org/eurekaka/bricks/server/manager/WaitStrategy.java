@@ -0,0 +1,66 @@
+package org.eurekaka.bricks.server.manager;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 通知消费者在队列为空时的等待方式
+ * busy_spin: 一直自旋，延迟最低，独占一个cpu核心
+ * yield: 短暂自旋后让出cpu
+ * park: 自旋及让出cpu后休眠，由生产者唤醒，适合对延迟不敏感的消费者
+ */
+public enum WaitStrategy {
+    BUSY_SPIN {
+        @Override
+        boolean idle(int tries) {
+            Thread.onSpinWait();
+            return false;
+        }
+    },
+
+    YIELD {
+        @Override
+        boolean idle(int tries) {
+            if (tries < SPIN_TRIES) {
+                Thread.onSpinWait();
+            } else {
+                Thread.yield();
+            }
+            return false;
+        }
+    },
+
+    PARK {
+        @Override
+        boolean idle(int tries) {
+            if (tries < SPIN_TRIES) {
+                Thread.onSpinWait();
+                return false;
+            } else if (tries < SPIN_TRIES + YIELD_TRIES) {
+                Thread.yield();
+                return false;
+            }
+            return true;
+        }
+    };
+
+    private static final int SPIN_TRIES = 100;
+    private static final int YIELD_TRIES = 100;
+
+    // 休眠的最长时间，避免错过唤醒时长时间阻塞
+    static final long PARK_NANOS = 1_000_000;
+
+    /**
+     * 队列为空时执行一次等待
+     * @param tries 连续等待的次数
+     * @return 是否需要进入休眠，由调用方设置等待标记后休眠
+     */
+    abstract boolean idle(int tries);
+
+    public static WaitStrategy parse(String value) {
+        return WaitStrategy.valueOf(value.trim().toUpperCase());
+    }
+
+    static void park() {
+        LockSupport.parkNanos(PARK_NANOS);
+    }
+}
@@ -70,6 +70,18 @@ public class AccountResource {
         return value;
     }
 
+    @GET
+    @Path("rate_limit")
+    public List<RateLimitMetrics> getRateLimitMetrics() {
+        return accountService.getRateLimitMetrics();
+    }
+
+    @GET
+    @Path("http_connection")
+    public List<HttpConnectionMetrics> getHttpConnectionMetrics() {
+        return accountService.getHttpConnectionMetrics();
+    }
+
     @POST
     @Path("wallet/transfer")
     public Response transfer1(@QueryParam("from_account") String fromAccount,
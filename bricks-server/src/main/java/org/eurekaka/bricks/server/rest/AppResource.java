@@ -81,6 +81,7 @@ public class AppResource extends ResourceConfig {
         registerClasses(StrategyConfigResource.class);
         registerClasses(AccountResource.class);
         registerClasses(OrderResource.class);
+        registerClasses(LatencyResource.class);
     }
 
 }
@@ -0,0 +1,31 @@
+package org.eurekaka.bricks.server.rest;
+
+import org.eurekaka.bricks.common.model.LatencySnapshot;
+import org.eurekaka.bricks.common.util.LatencyRecorder;
+import org.eurekaka.bricks.server.model.CommonResp;
+
+import javax.ws.rs.DELETE;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.Response;
+import java.util.List;
+
+/**
+ * 行情到下单各阶段的延迟分布，统计区间为上一次定时输出或者重置之后
+ */
+@Path("api/v1/latency")
+@Produces("application/json")
+public class LatencyResource {
+
+    @GET
+    public CommonResp<List<LatencySnapshot>> getLatencies() {
+        return new CommonResp<>(200, LatencyRecorder.snapshot());
+    }
+
+    @DELETE
+    public Response resetLatencies() {
+        LatencyRecorder.reset();
+        return Response.ok().build();
+    }
+}
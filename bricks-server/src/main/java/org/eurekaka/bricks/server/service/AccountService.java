@@ -16,6 +16,7 @@ import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * 对账，查询快照，调整账户杠杆，转入转出资产
@@ -75,9 +76,13 @@ public class AccountService {
     public List<AccountValue> getAccountValues() {
         // 收集所有的account values
         List<AccountValue> accountValues = new ArrayList<>();
-        // 所有账户的资产余额
-        for (Exchange ex : accountManager.getAccounts()) {
-            ExMessage<?> msg = ex.process(new ExAction<>(ExAction.ActionType.GET_BALANCES));
+        // 所有账户的资产余额，并发查询
+        List<Exchange> exchanges = accountManager.getAccounts();
+        List<CompletableFuture<ExMessage<?>>> futures = processAll(exchanges,
+                new ExAction<>(ExAction.ActionType.GET_BALANCES));
+        for (int i = 0; i < exchanges.size(); i++) {
+            Exchange ex = exchanges.get(i);
+            ExMessage<?> msg = futures.get(i).join();
             if (msg.getType() == ExMessage.ExMsgType.RIGHT) {
                 List<AccountValue> values = (List<AccountValue>) msg.getData();
                 accountValues.addAll(values);
@@ -91,8 +96,12 @@ public class AccountService {
 
     public List<PositionValue> getPositionValues() {
         List<PositionValue> positionValues = new ArrayList<>();
-        for (Exchange ex : accountManager.getAccounts()) {
-            ExMessage<?> msg = ex.process(new ExAction<>(ExAction.ActionType.GET_POSITIONS));
+        List<Exchange> exchanges = accountManager.getAccounts();
+        List<CompletableFuture<ExMessage<?>>> futures = processAll(exchanges,
+                new ExAction<>(ExAction.ActionType.GET_POSITIONS));
+        for (int i = 0; i < exchanges.size(); i++) {
+            Exchange ex = exchanges.get(i);
+            ExMessage<?> msg = futures.get(i).join();
             if (msg.getType().equals(ExMessage.ExMsgType.RIGHT)) {
                 positionValues.addAll((List<PositionValue>) msg.getData());
             } else {
@@ -313,6 +322,34 @@ public class AccountService {
         return null;
     }
 
+    /**
+     * @return 开启客户端限频的账户的限频统计
+     */
+    public List<RateLimitMetrics> getRateLimitMetrics() {
+        List<RateLimitMetrics> metrics = new ArrayList<>();
+        for (Exchange ex : accountManager.getAccounts()) {
+            ExMessage<?> msg = ex.process(new ExAction<>(ExAction.ActionType.GET_RATE_LIMIT));
+            if (msg.getType() == ExMessage.ExMsgType.RIGHT && msg.getData() != null) {
+                metrics.add((RateLimitMetrics) msg.getData());
+            }
+        }
+        return metrics;
+    }
+
+    /**
+     * @return 所有账户 rest 连接的预热与心跳统计
+     */
+    public List<HttpConnectionMetrics> getHttpConnectionMetrics() {
+        List<HttpConnectionMetrics> metrics = new ArrayList<>();
+        for (Exchange ex : accountManager.getAccounts()) {
+            ExMessage<?> msg = ex.process(new ExAction<>(ExAction.ActionType.GET_HTTP_CONNECTION));
+            if (msg.getType() == ExMessage.ExMsgType.RIGHT && msg.getData() != null) {
+                metrics.add((HttpConnectionMetrics) msg.getData());
+            }
+        }
+        return metrics;
+    }
+
     public boolean updateRiskLimit(String account, String futureName, int leverage) {
         RiskLimitPair riskLimitPair = null;
         for (Info<?> info : infoState.getInfos()) {
@@ -336,9 +373,12 @@ public class AccountService {
      */
     public List<FundingValue> getFundingValues() {
         List<FundingValue> fundingValues = new ArrayList<>();
-        for (Exchange ex : accountManager.getAccounts()) {
-            ExMessage<?> msg = ex.process(new ExAction<>(ExAction.ActionType.GET_FUNDING_FEES,
-                    System.currentTimeMillis() - 3600000));
+        List<Exchange> exchanges = accountManager.getAccounts();
+        List<CompletableFuture<ExMessage<?>>> futures = processAll(exchanges,
+                new ExAction<>(ExAction.ActionType.GET_FUNDING_FEES, System.currentTimeMillis() - 3600000));
+        for (int i = 0; i < exchanges.size(); i++) {
+            Exchange ex = exchanges.get(i);
+            ExMessage<?> msg = futures.get(i).join();
             if (msg.getType().equals(ExMessage.ExMsgType.RIGHT)) {
                 fundingValues.addAll((List<FundingValue>) msg.getData());
             } else {
@@ -348,4 +388,14 @@ public class AccountService {
         return fundingValues;
     }
 
+    // 所有账户并发执行，避免逐个账户等待 rest 请求
+    private static List<CompletableFuture<ExMessage<?>>> processAll(List<Exchange> exchanges,
+                                                                    ExAction<?> action) {
+        List<CompletableFuture<ExMessage<?>>> futures = new ArrayList<>();
+        for (Exchange ex : exchanges) {
+            futures.add(ex.processAsync(action));
+        }
+        return futures;
+    }
+
 }
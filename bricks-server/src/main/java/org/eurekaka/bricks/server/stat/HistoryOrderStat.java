@@ -0,0 +1,40 @@
+package org.eurekaka.bricks.server.stat;
+
+import org.eurekaka.bricks.common.exception.StatException;
+import org.eurekaka.bricks.server.store.HistoryOrderWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 定时输出成交记录写入的积压数量与延迟
+ */
+public class HistoryOrderStat implements Stat {
+    private final static Logger logger = LoggerFactory.getLogger(HistoryOrderStat.class);
+
+    private final HistoryOrderWriter writer;
+    private final long interval;
+    private long nextTime;
+
+    public HistoryOrderStat(HistoryOrderWriter writer, long interval) {
+        this.writer = writer;
+        this.interval = interval;
+        this.nextTime = System.currentTimeMillis() / interval * interval + interval;
+    }
+
+    @Override
+    public void execute() throws StatException {
+        logger.info("history order writer backlog: {}, lag: {} ms, written: {}, duplicated: {}, spilled: {}",
+                writer.getBacklog(), writer.getLag(), writer.getWritten(),
+                writer.getDuplicated(), writer.getSpilled());
+    }
+
+    @Override
+    public long getNextTime() {
+        return nextTime;
+    }
+
+    @Override
+    public void updateNextTime() {
+        nextTime = System.currentTimeMillis() / interval * interval + interval;
+    }
+}
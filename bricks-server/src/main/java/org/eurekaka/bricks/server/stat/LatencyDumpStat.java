@@ -0,0 +1,44 @@
+package org.eurekaka.bricks.server.stat;
+
+import org.eurekaka.bricks.common.exception.StatException;
+import org.eurekaka.bricks.common.model.LatencySnapshot;
+import org.eurekaka.bricks.common.util.LatencyRecorder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 定时输出各阶段的延迟分布，输出后清空，每次输出只包含最近一个区间
+ */
+public class LatencyDumpStat implements Stat {
+    private final static Logger logger = LoggerFactory.getLogger(LatencyDumpStat.class);
+
+    private final long interval;
+    private long nextTime;
+
+    public LatencyDumpStat(long interval) {
+        this.interval = interval;
+        this.nextTime = System.currentTimeMillis() / interval * interval + interval;
+    }
+
+    @Override
+    public void execute() throws StatException {
+        for (LatencySnapshot snapshot : LatencyRecorder.snapshot()) {
+            if (snapshot.getCount() > 0) {
+                logger.info("latency {}: count: {}, mean: {}, p50: {}, p90: {}, p99: {}, p999: {}, max: {} us",
+                        snapshot.getStage(), snapshot.getCount(), snapshot.getMean(), snapshot.getP50(),
+                        snapshot.getP90(), snapshot.getP99(), snapshot.getP999(), snapshot.getMax());
+            }
+        }
+        LatencyRecorder.reset();
+    }
+
+    @Override
+    public long getNextTime() {
+        return nextTime;
+    }
+
+    @Override
+    public void updateNextTime() {
+        nextTime = System.currentTimeMillis() / interval * interval + interval;
+    }
+}
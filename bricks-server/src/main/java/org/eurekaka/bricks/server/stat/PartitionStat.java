@@ -0,0 +1,37 @@
+package org.eurekaka.bricks.server.stat;
+
+import org.eurekaka.bricks.common.exception.StatException;
+import org.eurekaka.bricks.common.exception.StoreException;
+import org.eurekaka.bricks.server.store.SchemaMigrator;
+
+/**
+ * 每天提前创建按月分区的表的后续分区
+ */
+public class PartitionStat implements Stat {
+    private final SchemaMigrator migrator;
+    private long nextTime;
+
+    public PartitionStat(SchemaMigrator migrator) {
+        this.migrator = migrator;
+        this.nextTime = System.currentTimeMillis() / DAY * DAY + DAY;
+    }
+
+    @Override
+    public void execute() throws StatException {
+        try {
+            migrator.ensurePartitions();
+        } catch (StoreException e) {
+            throw new StatException("failed to create table partitions", e);
+        }
+    }
+
+    @Override
+    public long getNextTime() {
+        return nextTime;
+    }
+
+    @Override
+    public void updateNextTime() {
+        nextTime = System.currentTimeMillis() / DAY * DAY + DAY;
+    }
+}
@@ -194,7 +194,7 @@ public class AssetBaseValueStore {
             "(asset, account, size, price, result, time) values (?, ?, ?, ?, ?, ?)";
 
     private static final String SQL_QUERY_ACCOUNT_BALANCE = "select * from checking_balance " +
-            "where date_trunc('minute', time) = ?";
+            "where time >= ? and time < ?";
 
     public void storeAccountBalance(AccountBalance value) throws StoreException {
         try (Connection conn = DatabaseStore.getConnection();
@@ -215,6 +215,7 @@ public class AssetBaseValueStore {
         try (Connection conn = DatabaseStore.getConnection();
              PreparedStatement statement = conn.prepareStatement(SQL_QUERY_ACCOUNT_BALANCE)) {
             statement.setTimestamp(1, new Timestamp(time));
+            statement.setTimestamp(2, new Timestamp(time + DatabaseStore.MINUTE));
             ResultSet resultSet = statement.executeQuery();
             List<AccountBalance> accountBalanceValues = new ArrayList<>();
             while (resultSet.next()) {
@@ -13,13 +13,13 @@ public class BalanceStore {
             "(asset, account, size, price, result, time) values (?, ?, ?, ?, ?, ?)";
 
     private static final String SQL_QUERY_CHECKING_BALANCE = "select * from checking_balance " +
-            "where date_trunc('minute', time) = ?";
+            "where time >= ? and time < ?";
 
     private static final String SQL_INSERT_CHECKING_PROFIT = "insert into checking_profit " +
             "(asset, account, last_size, size, price, result, time) values (?, ?, ?, ?, ?, ?, ?)";
 
     private static final String SQL_QUERY_CHECKING_PROFIT = "select * from checking_profit " +
-            "where date_trunc('minute', time) = ?";
+            "where time >= ? and time < ?";
 
     @Deprecated
     public void storeAccountBalance(AccountBalance value) throws StoreException {
@@ -42,6 +42,7 @@ public class BalanceStore {
         try (Connection conn = DatabaseStore.getConnection();
              PreparedStatement statement = conn.prepareStatement(SQL_QUERY_CHECKING_BALANCE)) {
             statement.setTimestamp(1, new Timestamp(time));
+            statement.setTimestamp(2, new Timestamp(time + DatabaseStore.MINUTE));
             ResultSet resultSet = statement.executeQuery();
             List<AccountBalance> balanceValues = new ArrayList<>();
             while (resultSet.next()) {
@@ -79,6 +80,7 @@ public class BalanceStore {
         try (Connection conn = DatabaseStore.getConnection();
              PreparedStatement statement = conn.prepareStatement(SQL_QUERY_CHECKING_PROFIT)) {
             statement.setTimestamp(1, new Timestamp(time));
+            statement.setTimestamp(2, new Timestamp(time + DatabaseStore.MINUTE));
             ResultSet resultSet = statement.executeQuery();
             List<AccountProfit> balanceValues = new ArrayList<>();
             while (resultSet.next()) {
@@ -21,6 +21,9 @@ import java.util.Objects;
  * 使用全局静态数据库连接入口
  */
 public class DatabaseStore {
+    // 按分钟查询时的时间范围，使用 time >= ? and time < ? 以便使用 time 索引
+    static final long MINUTE = 60 * 1000;
+
     private static DataSource dataSource;
 
     private DatabaseStore() {}
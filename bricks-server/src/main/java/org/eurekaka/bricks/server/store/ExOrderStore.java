@@ -9,9 +9,22 @@ import org.eurekaka.bricks.server.model.ExOrder;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 public class ExOrderStore {
+    // 执行器使用的存储，配置执行日志时为 JournalExOrderStore
+    private static volatile ExOrderStore executionStore;
+
+    public static void setExecutionStore(ExOrderStore store) {
+        executionStore = store;
+    }
+
+    public static ExOrderStore getExecutionStore() {
+        ExOrderStore store = executionStore;
+        return store == null ? new ExOrderStore() : store;
+    }
 
     private static final String SQL_INSERT_HEDGING_ORDER = "insert into hedging_order " +
             "(name, symbol, account, side, order_type, quantity, size, price, last_price, plan_id) " +
@@ -165,30 +178,218 @@ public class ExOrderStore {
     }
 
 
+    private static final String SQL_UPDATE_HEDGING_PLAN_ORDER = "update hedging_plan_order " +
+            "set name = ?, quantity = ?, symbol_price = ?, left_quantity = ?, start_time = ?, update_time = ? " +
+            "where id = ?";
+    private static final String SQL_INSERT_HEDGING_PLAN_ORDER_WITH_ID = "insert into hedging_plan_order " +
+            "(name, quantity, symbol_price, left_quantity, start_time, update_time, id) " +
+            "values (?, ?, ?, ?, ?, ?, ?)";
+    private static final String SQL_UPDATE_HEDGING_ORDER = "update hedging_order " +
+            "set name = ?, symbol = ?, account = ?, side = ?, order_type = ?, quantity = ?, " +
+            "size = ?, price = ?, last_price = ?, plan_id = ? where id = ?";
+    private static final String SQL_INSERT_HEDGING_ORDER_WITH_ID = "insert into hedging_order " +
+            "(name, symbol, account, side, order_type, quantity, size, price, last_price, plan_id, id) " +
+            "values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    /**
+     * 打开一个同步批次，批次内的写入使用同一个连接与事务
+     */
+    ReplicationBatch openReplicationBatch() throws StoreException {
+        try {
+            return new ReplicationBatch(DatabaseStore.getConnection());
+        } catch (SQLException e) {
+            throw new StoreException("failed to open replication batch", e);
+        }
+    }
+
+    /**
+     * 执行日志同步到数据库的批次，语句在批次内复用，commit 时一起提交
+     * plan order 与订单使用已有 id 写入，已经存在时更新，重复执行结果不变
+     * 其余更新延后到 commit 时批量执行，同一记录的先后顺序不变
+     */
+    static class ReplicationBatch implements AutoCloseable {
+        private final Connection conn;
+        private final boolean autoCommit;
+        private final PreparedStatement updatePlanOrder;
+        private final PreparedStatement insertPlanOrder;
+        private final PreparedStatement updateLeftQuantity;
+        private final PreparedStatement updateStartTime;
+        private final PreparedStatement updateExOrder;
+        private final PreparedStatement insertExOrder;
+        private final PreparedStatement commitExOrder;
+        private final PreparedStatement insertOrderResult;
+        // 使用已有 id 插入了记录，需要更新 id 序列
+        private boolean inserted;
+        private boolean committed;
+
+        ReplicationBatch(Connection conn) throws SQLException {
+            this.conn = conn;
+            this.autoCommit = conn.getAutoCommit();
+            try {
+                conn.setAutoCommit(false);
+                this.updatePlanOrder = conn.prepareStatement(SQL_UPDATE_HEDGING_PLAN_ORDER);
+                this.insertPlanOrder = conn.prepareStatement(SQL_INSERT_HEDGING_PLAN_ORDER_WITH_ID);
+                this.updateLeftQuantity = conn.prepareStatement(SQL_UPDATE_HEDGING_PLAN_ORDER_LEFT_QUANTITY);
+                this.updateStartTime = conn.prepareStatement(SQL_UPDATE_HEDGING_PLAN_ORDER_START_TIME);
+                this.updateExOrder = conn.prepareStatement(SQL_UPDATE_HEDGING_ORDER);
+                this.insertExOrder = conn.prepareStatement(SQL_INSERT_HEDGING_ORDER_WITH_ID);
+                this.commitExOrder = conn.prepareStatement(SQL_UPDATE_HEDGING_ORDER_COMMITTED);
+                this.insertOrderResult = conn.prepareStatement(SQL_INSERT_ORDER_RESULT);
+            } catch (SQLException e) {
+                conn.close();
+                throw e;
+            }
+        }
+
+        void planOrder(PlanOrder order) throws SQLException {
+            if (executePlanOrder(updatePlanOrder, order) == 0) {
+                executePlanOrder(insertPlanOrder, order);
+                inserted = true;
+            }
+        }
+
+        void planOrderLeftQuantity(long leftQuantity, long updateTime, long id) throws SQLException {
+            updateLeftQuantity.setLong(1, leftQuantity);
+            updateLeftQuantity.setTimestamp(2, new Timestamp(updateTime));
+            updateLeftQuantity.setLong(3, id);
+            updateLeftQuantity.addBatch();
+        }
+
+        void planOrderStartTime(long startTime, long id) throws SQLException {
+            updateStartTime.setTimestamp(1, new Timestamp(startTime));
+            updateStartTime.setLong(2, id);
+            updateStartTime.addBatch();
+        }
+
+        // 不修改 committed 状态
+        void exOrder(ExOrder order) throws SQLException {
+            if (executeExOrder(updateExOrder, order) == 0) {
+                executeExOrder(insertExOrder, order);
+                inserted = true;
+            }
+        }
+
+        void commitExOrder(String orderId, long id) throws SQLException {
+            commitExOrder.setString(1, orderId);
+            commitExOrder.setLong(2, id);
+            commitExOrder.addBatch();
+        }
+
+        void orderResult(String orderId, double leftSize, String status) throws SQLException {
+            insertOrderResult.setString(1, orderId);
+            insertOrderResult.setDouble(2, leftSize);
+            insertOrderResult.setString(3, status);
+            insertOrderResult.addBatch();
+        }
+
+        boolean isInserted() {
+            return inserted;
+        }
+
+        void commit() throws SQLException {
+            updateLeftQuantity.executeBatch();
+            updateStartTime.executeBatch();
+            commitExOrder.executeBatch();
+            insertOrderResult.executeBatch();
+            conn.commit();
+            committed = true;
+        }
+
+        @Override
+        public void close() throws SQLException {
+            try {
+                for (PreparedStatement statement : new PreparedStatement[] {updatePlanOrder, insertPlanOrder,
+                        updateLeftQuantity, updateStartTime, updateExOrder, insertExOrder,
+                        commitExOrder, insertOrderResult}) {
+                    statement.close();
+                }
+                if (!committed) {
+                    conn.rollback();
+                }
+                conn.setAutoCommit(autoCommit);
+            } finally {
+                conn.close();
+            }
+        }
+
+        private static int executePlanOrder(PreparedStatement statement, PlanOrder order) throws SQLException {
+            statement.setString(1, order.getName());
+            statement.setLong(2, order.getQuantity());
+            statement.setLong(3, order.getSymbolPrice());
+            statement.setLong(4, order.getLeftQuantity());
+            statement.setTimestamp(5, new Timestamp(order.getStartTime()));
+            statement.setTimestamp(6, new Timestamp(order.getUpdateTime()));
+            statement.setLong(7, order.getId());
+            return statement.executeUpdate();
+        }
+
+        private static int executeExOrder(PreparedStatement statement, ExOrder order) throws SQLException {
+            statement.setString(1, order.getName());
+            statement.setString(2, order.getSymbol());
+            statement.setString(3, order.getAccount());
+            statement.setString(4, order.getSide().name());
+            statement.setString(5, order.getOrderType().name());
+            statement.setLong(6, order.getQuantity());
+            statement.setDouble(7, order.getSize());
+            statement.setDouble(8, order.getPrice());
+            statement.setDouble(9, order.getLastPrice());
+            statement.setLong(10, order.getPlanId());
+            statement.setLong(11, order.getId());
+            return statement.executeUpdate();
+        }
+    }
+
+    /**
+     * 使用已有 id 插入记录后，将表的 id 序列推进到最大 id 之后，避免之后自动生成的 id 冲突
+     * @param table hedging_plan_order 或者 hedging_order
+     */
+    void syncIdSequence(String table) throws StoreException {
+        try (Connection conn = DatabaseStore.getConnection()) {
+            long next = queryMaxId(conn, table) + 1;
+            String sql = SchemaMigrator.POSTGRESQL.equals(SchemaMigrator.getDialect(conn)) ?
+                    "select setval(pg_get_serial_sequence('" + table + "', 'id'), " + next + ", false)" :
+                    "alter table " + table + " alter column id restart with " + next;
+            try (Statement statement = conn.createStatement()) {
+                statement.execute(sql);
+            }
+        } catch (SQLException e) {
+            throw new StoreException("failed to sync id sequence of " + table, e);
+        }
+    }
+
+    /**
+     * @param table hedging_plan_order 或者 hedging_order
+     * @return 表内最大的 id，没有记录时返回 0
+     */
+    long queryMaxId(String table) throws StoreException {
+        try (Connection conn = DatabaseStore.getConnection()) {
+            return queryMaxId(conn, table);
+        } catch (SQLException e) {
+            throw new StoreException("failed to query max id of " + table, e);
+        }
+    }
+
+    private static long queryMaxId(Connection conn, String table) throws SQLException {
+        try (PreparedStatement statement = conn.prepareStatement("select max(id) from " + table)) {
+            ResultSet resultSet = statement.executeQuery();
+            return resultSet.next() ? resultSet.getLong(1) : 0;
+        }
+    }
+
+
     private static final String SQL_INSERT_HISTORY_ORDER = "insert into history_order (" +
             "fill_id, client_order_id, order_id, name, symbol, account, side, type, price, size, result, fee_asset, fee, time) " +
             "values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
     private static final String SQL_QUERY_HISTORY_ORDER = "select * from history_order " +
             "where time >= ? and time <= ? ";
+    private static final String SQL_QUERY_HISTORY_ORDER_FILL_ID = "select account, fill_id from history_order " +
+            "where fill_id in (";
 
     public void storeHistoryOrder(TradeNotification order) throws StoreException {
         try (Connection conn = DatabaseStore.getConnection();
              PreparedStatement statement = conn.prepareStatement(SQL_INSERT_HISTORY_ORDER,
                      Statement.RETURN_GENERATED_KEYS)) {
-            statement.setString(1, order.getFillId());
-            statement.setString(2, order.getClientOrderId());
-            statement.setString(3, order.getOrderId());
-            statement.setString(4, order.getName());
-            statement.setString(5, order.getSymbol());
-            statement.setString(6, order.getAccount());
-            statement.setString(7, order.getSide().name());
-            statement.setString(8, order.getType().name());
-            statement.setDouble(9, order.getPrice());
-            statement.setDouble(10, order.getSize());
-            statement.setDouble(11, order.getResult());
-            statement.setString(12, order.getFeeAsset());
-            statement.setDouble(13, order.getFee());
-            statement.setTimestamp(14, new Timestamp(order.getTime()));
+            setHistoryOrder(statement, order);
             statement.execute();
             ResultSet resultSet = statement.getGeneratedKeys();
             while (resultSet.next()) {
@@ -200,6 +401,82 @@ public class ExOrderStore {
         }
     }
 
+    /**
+     * 批量写入成交记录，在同一个事务内完成
+     * 同一账户下 fill id 已经存在的成交记录不重复写入，批量写入时不回填数据库 id
+     * @param orders 成交记录
+     * @return 实际写入的数量
+     */
+    public int storeHistoryOrders(List<TradeNotification> orders) throws StoreException {
+        if (orders.isEmpty()) {
+            return 0;
+        }
+        try (Connection conn = DatabaseStore.getConnection()) {
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try (PreparedStatement statement = conn.prepareStatement(SQL_INSERT_HISTORY_ORDER)) {
+                Set<String> fillIds = queryHistoryFillIds(conn, orders);
+                int count = 0;
+                for (TradeNotification order : orders) {
+                    if (fillIds.add(order.getAccount() + ":" + order.getFillId())) {
+                        setHistoryOrder(statement, order);
+                        statement.addBatch();
+                        count++;
+                    }
+                }
+                if (count > 0) {
+                    statement.executeBatch();
+                }
+                conn.commit();
+                return count;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException e) {
+            throw new StoreException("failed to batch insert history orders, size: " + orders.size(), e);
+        }
+    }
+
+    // account:fill_id
+    private Set<String> queryHistoryFillIds(Connection conn, List<TradeNotification> orders) throws SQLException {
+        Set<String> fillIds = new HashSet<>();
+        StringBuilder sql = new StringBuilder(SQL_QUERY_HISTORY_ORDER_FILL_ID);
+        for (int i = 0; i < orders.size(); i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+        sql.append(")");
+        try (PreparedStatement statement = conn.prepareStatement(sql.toString())) {
+            for (int i = 0; i < orders.size(); i++) {
+                statement.setString(i + 1, orders.get(i).getFillId());
+            }
+            ResultSet resultSet = statement.executeQuery();
+            while (resultSet.next()) {
+                fillIds.add(resultSet.getString("account") + ":" + resultSet.getString("fill_id"));
+            }
+        }
+        return fillIds;
+    }
+
+    private void setHistoryOrder(PreparedStatement statement, TradeNotification order) throws SQLException {
+        statement.setString(1, order.getFillId());
+        statement.setString(2, order.getClientOrderId());
+        statement.setString(3, order.getOrderId());
+        statement.setString(4, order.getName());
+        statement.setString(5, order.getSymbol());
+        statement.setString(6, order.getAccount());
+        statement.setString(7, order.getSide().name());
+        statement.setString(8, order.getType().name());
+        statement.setDouble(9, order.getPrice());
+        statement.setDouble(10, order.getSize());
+        statement.setDouble(11, order.getResult());
+        statement.setString(12, order.getFeeAsset());
+        statement.setDouble(13, order.getFee());
+        statement.setTimestamp(14, new Timestamp(order.getTime()));
+    }
+
     public List<TradeNotification> queryHistoryOrders(String account, String name,
                                                       long start, long stop, int limit) throws StoreException {
         String querySql = SQL_QUERY_HISTORY_ORDER;
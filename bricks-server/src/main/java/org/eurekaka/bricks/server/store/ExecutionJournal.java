@@ -0,0 +1,263 @@
+package org.eurekaka.bricks.server.store;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * 内存映射的追加写日志文件
+ *
+ * 文件头: magic(int), version(int), 已同步到数据库的位置(long)
+ * 记录: 长度(int), crc32(int), 类型(byte), 内容
+ * 记录内容与 crc 先写入，长度最后写入，读取时遇到长度为 0 或 crc 不一致即为日志末尾
+ *
+ * 追加写只写入映射内存，由调用方定时 force 批量刷盘
+ */
+class ExecutionJournal implements Closeable {
+    private static final int MAGIC = 0x42524a31;
+    private static final int VERSION = 1;
+    static final int HEADER_SIZE = 16;
+    private static final int RECORD_HEADER_SIZE = 9;
+    private static final int MAX_RECORD_SIZE = 4096;
+
+    private final Path path;
+    private final int capacity;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    // 单条记录的编码缓存，在 append 锁内使用
+    private final ByteBuffer scratch;
+    private final CRC32 crc;
+
+    private volatile int position;
+    private volatile int syncedPosition;
+
+    ExecutionJournal(Path path, int capacity) throws IOException {
+        this.path = path;
+        this.capacity = capacity;
+        this.scratch = ByteBuffer.allocate(MAX_RECORD_SIZE);
+        this.crc = new CRC32();
+
+        boolean exists = Files.exists(path) && Files.size(path) >= HEADER_SIZE;
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        int size = (int) Math.max(capacity, channel.size());
+        this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+
+        if (!exists) {
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, VERSION);
+            buffer.putLong(8, HEADER_SIZE);
+            position = HEADER_SIZE;
+        } else {
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                channel.close();
+                throw new IOException("invalid execution journal file: " + path);
+            }
+            position = scan();
+        }
+        syncedPosition = position;
+    }
+
+    // 找到最后一条完整记录的结束位置
+    private int scan() {
+        int pos = HEADER_SIZE;
+        while (true) {
+            int next = next(pos);
+            if (next < 0) {
+                return pos;
+            }
+            pos = next;
+        }
+    }
+
+    /**
+     * @return pos 处完整记录的下一条记录位置，没有完整记录时返回 -1
+     */
+    private int next(int pos) {
+        if (pos + RECORD_HEADER_SIZE > buffer.limit()) {
+            return -1;
+        }
+        int length = buffer.getInt(pos);
+        if (length <= 0 || length > MAX_RECORD_SIZE || pos + RECORD_HEADER_SIZE + length > buffer.limit()) {
+            return -1;
+        }
+        // 读取与追加写可能在不同线程，不共用 crc
+        CRC32 checksum = new CRC32();
+        checksum.update(region(pos + 8, length + 1));
+        if ((int) checksum.getValue() != buffer.getInt(pos + 4)) {
+            return -1;
+        }
+        return pos + RECORD_HEADER_SIZE + length;
+    }
+
+    /**
+     * 追加一条记录
+     * @return false 代表剩余空间不足
+     */
+    synchronized boolean append(byte type, Encoder encoder) {
+        scratch.clear();
+        encoder.encode(scratch);
+        scratch.flip();
+        int length = scratch.remaining();
+        int pos = position;
+        if (pos + RECORD_HEADER_SIZE + length > capacity) {
+            return false;
+        }
+        buffer.put(pos + 8, type);
+        region(pos + RECORD_HEADER_SIZE, length).put(scratch);
+        crc.reset();
+        crc.update(region(pos + 8, length + 1));
+        buffer.putInt(pos + 4, (int) crc.getValue());
+        buffer.putInt(pos, length);
+        position = pos + RECORD_HEADER_SIZE + length;
+        return true;
+    }
+
+    /**
+     * 依次读取 [from, to) 内的记录
+     */
+    void replay(int from, int to, RecordHandler handler) throws Exception {
+        replay(from, to, Integer.MAX_VALUE, handler);
+    }
+
+    /**
+     * 依次读取 [from, to) 内最多 limit 条记录
+     * @return 最后读取的记录的下一条记录位置
+     */
+    int replay(int from, int to, int limit, RecordHandler handler) throws Exception {
+        int pos = from;
+        for (int count = 0; pos < to && count < limit; count++) {
+            int next = next(pos);
+            if (next < 0) {
+                throw new IOException("corrupted execution journal record at " + pos);
+            }
+            ByteBuffer payload = region(pos + RECORD_HEADER_SIZE, next - pos - RECORD_HEADER_SIZE);
+            handler.handle(buffer.get(pos + 8), payload, next);
+            pos = next;
+        }
+        return pos;
+    }
+
+    private ByteBuffer region(int pos, int length) {
+        ByteBuffer buf = buffer.duplicate();
+        buf.position(pos);
+        buf.limit(pos + length);
+        return buf.slice();
+    }
+
+    int getPosition() {
+        return position;
+    }
+
+    boolean isEmpty() {
+        return position == HEADER_SIZE;
+    }
+
+    int getReplicatedPosition() {
+        return (int) buffer.getLong(8);
+    }
+
+    synchronized void setReplicatedPosition(int replicatedPosition) {
+        buffer.putLong(8, replicatedPosition);
+    }
+
+    /**
+     * 将已经写入的记录刷盘，没有新的记录时直接返回
+     */
+    void force() {
+        int pos = position;
+        if (pos != syncedPosition) {
+            buffer.force();
+            syncedPosition = pos;
+        }
+    }
+
+    /**
+     * 使用快照记录替换当前日志，快照记录视为已经同步到数据库，
+     * 未同步的记录按原有顺序保留在快照之后，替换不需要等待数据库
+     * 先写入临时文件再替换，替换过程中退出不影响原有日志
+     * @return 替换后的日志
+     */
+    ExecutionJournal rewrite(List<Record> records) throws IOException {
+        Path tmp = Paths.get(path.toString() + ".tmp");
+        Files.deleteIfExists(tmp);
+        try (ExecutionJournal journal = new ExecutionJournal(tmp, capacity)) {
+            for (Record record : records) {
+                if (!journal.append(record.type, record.encoder)) {
+                    throw new IOException("execution journal snapshot exceeded capacity: " + capacity);
+                }
+            }
+            journal.setReplicatedPosition(journal.getPosition());
+            replay(getReplicatedPosition(), position, (type, payload, next) -> {
+                if (!journal.append(type, buf -> buf.put(payload))) {
+                    throw new IOException("execution journal snapshot exceeded capacity: " + capacity);
+                }
+            });
+            journal.buffer.force();
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("failed to copy unreplicated execution journal records", e);
+        }
+        close();
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return new ExecutionJournal(path, capacity);
+    }
+
+    @Override
+    public void close() throws IOException {
+        buffer.force();
+        channel.close();
+    }
+
+    static void putString(ByteBuffer buf, String value) {
+        if (value == null) {
+            buf.putShort((short) -1);
+        } else {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            buf.putShort((short) bytes.length);
+            buf.put(bytes);
+        }
+    }
+
+    static String getString(ByteBuffer buf) {
+        short length = buf.getShort();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buf.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    interface Encoder {
+        void encode(ByteBuffer buf);
+    }
+
+    interface RecordHandler {
+        /**
+         * @param next 下一条记录的位置
+         */
+        void handle(byte type, ByteBuffer payload, int next) throws Exception;
+    }
+
+    static class Record {
+        final byte type;
+        final Encoder encoder;
+
+        Record(byte type, Encoder encoder) {
+            this.type = type;
+            this.encoder = encoder;
+        }
+    }
+}
@@ -18,7 +18,7 @@ public class FutureStore {
             "(name, symbol, account, size, price, result, entry_price, unrealized_pnl, time) " +
             "values (?, ?, ?, ?, ?, ?, ?, ?, ?)";
     private static final String SQL_QUERY_POSITION_VALUE_BY_TIME = "select * from position_value " +
-            "where date_trunc('minute', time) = ?";
+            "where time >= ? and time < ?";
 
     public void storePositionValue(PositionValue value) throws StoreException {
         try (Connection conn = DatabaseStore.getConnection();
@@ -69,6 +69,7 @@ public class FutureStore {
         try (Connection conn = DatabaseStore.getConnection();
              PreparedStatement statement = conn.prepareStatement(SQL_QUERY_POSITION_VALUE_BY_TIME)) {
             statement.setTimestamp(1, new Timestamp(time));
+            statement.setTimestamp(2, new Timestamp(time + DatabaseStore.MINUTE));
             ResultSet resultSet = statement.executeQuery();
             List<PositionValue> valueList = new ArrayList<>();
             while (resultSet.next()) {
@@ -96,7 +97,7 @@ public class FutureStore {
     private static final String SQL_QUERY_LAST_FUNDING_VALUE = "select * from funding " +
             "where account = ? order by time desc limit 1";
     private static final String SQL_QUERY_FUNDING_BY_TIME = "select * from funding " +
-            "where date_trunc('minute', time) = ?";
+            "where time >= ? and time < ?";
     private static final String SQL_QUERY_FUNDING_FROM_TIME = "select name, symbol, account, " +
             "sum(value) as value, sum(rate) as rate from funding " +
             "where time >= ? group by name, symbol, account";
@@ -122,6 +123,7 @@ public class FutureStore {
         try (Connection conn = DatabaseStore.getConnection();
              PreparedStatement statement = conn.prepareStatement(SQL_QUERY_FUNDING_BY_TIME)) {
             statement.setTimestamp(1, new Timestamp(time));
+            statement.setTimestamp(2, new Timestamp(time + DatabaseStore.MINUTE));
             ResultSet resultSet = statement.executeQuery();
             List<FundingValue> values = new ArrayList<>();
             while (resultSet.next()) {
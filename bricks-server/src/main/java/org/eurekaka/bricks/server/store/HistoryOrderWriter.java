@@ -0,0 +1,381 @@
+package org.eurekaka.bricks.server.store;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.eurekaka.bricks.common.exception.StoreException;
+import org.eurekaka.bricks.common.model.*;
+import org.eurekaka.bricks.common.util.LatencyRecorder;
+import org.eurekaka.bricks.common.util.MonitorReporter;
+import org.eurekaka.bricks.common.util.Utils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 成交记录的异步批量写入
+ * 成交通知先进入有界队列，写入线程在达到批量大小或者等待时间后批量写入，
+ * 同一账户下 fill id 已经存在的成交记录不重复写入
+ *
+ * 队列满时记录写入本地文件，不阻塞写入方，写入线程空闲时重新写入数据库
+ * 停止时写入剩余记录，数据库不可用时写入本地文件，下次启动时重新写入
+ */
+public class HistoryOrderWriter {
+    private final static Logger logger = LoggerFactory.getLogger(HistoryOrderWriter.class);
+
+    public final static int DEFAULT_BATCH_SIZE = 500;
+    public final static long DEFAULT_FLUSH_INTERVAL = 200;
+    public final static int DEFAULT_QUEUE_SIZE = 65536;
+    public final static String DEFAULT_SPILL_FILE = "history_order.spill";
+    // 写入失败后的重试间隔
+    private final static long RETRY_INTERVAL = 1000;
+
+    private final ExOrderStore orderStore;
+    private final int batchSize;
+    private final long flushInterval;
+    private final Path spillFile;
+
+    private final BlockingQueue<Entry> queue;
+    // 写入线程已经取出但还未写入成功的记录
+    private final List<Entry> pending;
+    private volatile long pendingTime;
+    private volatile int pendingSize;
+
+    // 入队与停止互斥，停止后不会再有记录进入队列
+    private final Object lock;
+    // 本地文件的追加与读取互斥
+    private final Object spillLock;
+    // 运行期间队列满时写入本地文件的记录，等待写入线程空闲时重新写入
+    private volatile boolean overflowed;
+
+    private final AtomicBoolean running;
+    private final AtomicLong written;
+    private final AtomicLong duplicated;
+    private final AtomicLong spilled;
+    private Thread thread;
+
+    public HistoryOrderWriter(ExOrderStore orderStore) {
+        this(orderStore, DEFAULT_BATCH_SIZE, DEFAULT_FLUSH_INTERVAL, DEFAULT_QUEUE_SIZE, DEFAULT_SPILL_FILE);
+    }
+
+    public HistoryOrderWriter(ExOrderStore orderStore, int batchSize, long flushInterval,
+                              int queueSize, String spillFile) {
+        this.orderStore = orderStore;
+        this.batchSize = batchSize;
+        this.flushInterval = flushInterval;
+        this.spillFile = Paths.get(spillFile);
+
+        this.queue = new ArrayBlockingQueue<>(queueSize);
+        this.pending = new ArrayList<>(batchSize);
+        this.lock = new Object();
+        this.spillLock = new Object();
+        this.running = new AtomicBoolean(false);
+        this.written = new AtomicLong();
+        this.duplicated = new AtomicLong();
+        this.spilled = new AtomicLong();
+    }
+
+    public void start() {
+        if (running.compareAndSet(false, true)) {
+            recover(true);
+            thread = new Thread(this::run, "history-order-writer");
+            thread.setDaemon(true);
+            thread.start();
+            logger.info("history order writer started, batch size: {}, flush interval: {} ms",
+                    batchSize, flushInterval);
+        }
+    }
+
+    /**
+     * 写入剩余记录后退出，写入失败的记录保存到本地文件
+     */
+    public void stop() {
+        synchronized (lock) {
+            if (!running.compareAndSet(true, false)) {
+                return;
+            }
+        }
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            logger.warn("interrupted while waiting history order writer thread");
+        }
+        List<Entry> rest = new ArrayList<>(pending);
+        pending.clear();
+        queue.drainTo(rest);
+        int index = 0;
+        try {
+            for (; index < rest.size(); index += batchSize) {
+                store(rest.subList(index, Math.min(index + batchSize, rest.size())));
+            }
+        } catch (StoreException e) {
+            logger.error("failed to store history orders when stopping", e);
+            spill(rest.subList(index, rest.size()));
+        }
+        pendingSize = 0;
+        pendingTime = 0;
+        logger.info("history order writer stopped, written: {}, duplicated: {}, spilled: {}",
+                written.get(), duplicated.get(), spilled.get());
+    }
+
+    /**
+     * 队列满时写入本地文件，停止后同步写入
+     */
+    public void write(TradeNotification order) throws StoreException {
+        Entry entry = new Entry(order);
+        synchronized (lock) {
+            if (running.get() && queue.offer(entry)) {
+                return;
+            }
+        }
+        if (running.get()) {
+            if (!overflowed) {
+                logger.warn("history order queue is full, spill to {}", spillFile);
+            }
+            spill(List.of(entry));
+            overflowed = true;
+        } else {
+            store(List.of(entry));
+        }
+    }
+
+    // 未写入数据库的记录数量
+    public int getBacklog() {
+        return queue.size() + pendingSize;
+    }
+
+    // 最早未写入记录的等待时间，毫秒
+    public long getLag() {
+        long time = pendingTime;
+        if (time == 0) {
+            Entry head = queue.peek();
+            time = head == null ? 0 : head.time;
+        }
+        return time == 0 ? 0 : System.currentTimeMillis() - time;
+    }
+
+    public long getWritten() {
+        return written.get();
+    }
+
+    public long getDuplicated() {
+        return duplicated.get();
+    }
+
+    public long getSpilled() {
+        return spilled.get();
+    }
+
+    private void run() {
+        while (running.get()) {
+            try {
+                Entry first = queue.poll(flushInterval, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    if (overflowed) {
+                        overflowed = false;
+                        recover(false);
+                    }
+                    continue;
+                }
+                pending.add(first);
+                pendingTime = first.time;
+                // 达到批量大小或者最早记录等待超过 flush interval 时写入
+                long deadline = first.time + flushInterval;
+                while (pending.size() < batchSize) {
+                    queue.drainTo(pending, batchSize - pending.size());
+                    long wait = deadline - System.currentTimeMillis();
+                    if (pending.size() >= batchSize || wait <= 0) {
+                        break;
+                    }
+                    Entry entry = queue.poll(wait, TimeUnit.MILLISECONDS);
+                    if (entry == null) {
+                        break;
+                    }
+                    pending.add(entry);
+                }
+                pendingSize = pending.size();
+                if (flush()) {
+                    pending.clear();
+                    pendingSize = 0;
+                    pendingTime = 0;
+                }
+            } catch (InterruptedException e) {
+                logger.info("history order writer interrupted");
+                break;
+            } catch (Throwable t) {
+                logger.error("failed to run history order writer", t);
+            }
+        }
+    }
+
+    // 写入失败时重试，直到写入成功或者停止
+    private boolean flush() throws InterruptedException {
+        boolean reported = false;
+        while (true) {
+            try {
+                store(pending);
+                return true;
+            } catch (StoreException e) {
+                logger.error("failed to store history orders, size: {}", pending.size(), e);
+                if (!reported) {
+                    MonitorReporter.report(ReportEvent.EventType.STORE_HISTORY_ORDER_FAILED.name(),
+                            new ReportEvent(ReportEvent.EventType.STORE_HISTORY_ORDER_FAILED,
+                                    ReportEvent.EventLevel.SERIOUS,
+                                    "failed to store history orders: " + e.getMessage()));
+                    reported = true;
+                }
+                if (!running.get()) {
+                    return false;
+                }
+                Thread.sleep(RETRY_INTERVAL);
+            }
+        }
+    }
+
+    private void store(List<Entry> entries) throws StoreException {
+        List<TradeNotification> orders = new ArrayList<>(entries.size());
+        for (Entry entry : entries) {
+            orders.add(entry.order);
+        }
+        int count = orderStore.storeHistoryOrders(orders);
+        written.addAndGet(count);
+        duplicated.addAndGet(orders.size() - count);
+        for (Entry entry : entries) {
+            LatencyRecorder.recordSince(LatencyStage.HISTORY_PERSIST, entry.nanos);
+        }
+    }
+
+    private boolean spill(List<Entry> entries) {
+        synchronized (spillLock) {
+            return doSpill(entries);
+        }
+    }
+
+    private boolean doSpill(List<Entry> entries) {
+        try (BufferedWriter writer = Files.newBufferedWriter(spillFile, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            for (Entry entry : entries) {
+                writer.write(toJson(entry.order));
+                writer.newLine();
+            }
+            spilled.addAndGet(entries.size());
+            if (entries.size() > 1) {
+                logger.warn("spilled {} history orders to {}", entries.size(), spillFile);
+            }
+            return true;
+        } catch (IOException e) {
+            logger.error("failed to spill history orders, lost: {}", entries, e);
+            return false;
+        }
+    }
+
+    /**
+     * 写入本地文件内的记录，启动时写入上次停止时保存的记录，运行期间写入队列满时保存的记录
+     * 读取后删除文件，写入失败时重新追加到文件
+     * @param starting 启动时写入失败则保留到下次启动，运行期间写入失败则等待下次空闲
+     */
+    private void recover(boolean starting) {
+        List<Entry> entries = new ArrayList<>();
+        synchronized (spillLock) {
+            if (!Files.exists(spillFile)) {
+                return;
+            }
+            try {
+                for (String line : Files.readAllLines(spillFile, StandardCharsets.UTF_8)) {
+                    if (!line.isBlank()) {
+                        entries.add(new Entry(fromJson(line)));
+                    }
+                }
+                Files.delete(spillFile);
+            } catch (IOException e) {
+                // 保留文件，下次启动时继续写入
+                logger.error("failed to recover history orders from {}", spillFile, e);
+                return;
+            }
+        }
+        int index = 0;
+        try {
+            for (; index < entries.size(); index += batchSize) {
+                store(entries.subList(index, Math.min(index + batchSize, entries.size())));
+            }
+            logger.info("recovered {} history orders from {}", entries.size(), spillFile);
+        } catch (StoreException e) {
+            logger.error("failed to recover history orders from {}", spillFile, e);
+            if (spill(entries.subList(index, entries.size()))) {
+                // 已经计入 spilled，重新追加的记录不重复计数
+                spilled.addAndGet(index - entries.size());
+            }
+            overflowed = !starting;
+        }
+    }
+
+    static String toJson(TradeNotification order) throws IOException {
+        ObjectNode node = Utils.mapper.createObjectNode();
+        node.put("fill_id", order.getFillId());
+        node.put("client_order_id", order.getClientOrderId());
+        node.put("order_id", order.getOrderId());
+        node.put("account", order.getAccount());
+        node.put("name", order.getName());
+        node.put("symbol", order.getSymbol());
+        node.put("side", order.getSide().name());
+        node.put("type", order.getType().name());
+        node.put("price", order.getPrice());
+        node.put("size", order.getSize());
+        node.put("result", order.getResult());
+        node.put("fee_asset", order.getFeeAsset());
+        node.put("fee", order.getFee());
+        node.put("time", order.getTime());
+        return Utils.mapper.writeValueAsString(node);
+    }
+
+    static TradeNotification fromJson(String line) throws IOException {
+        JsonNode node = Utils.mapper.readTree(line);
+        return new TradeNotification(
+                text(node, "fill_id"),
+                text(node, "client_order_id"),
+                text(node, "order_id"),
+                text(node, "account"),
+                text(node, "name"),
+                text(node, "symbol"),
+                OrderSide.valueOf(node.get("side").asText()),
+                OrderType.valueOf(node.get("type").asText()),
+                node.get("price").asDouble(),
+                node.get("size").asDouble(),
+                node.get("result").asDouble(),
+                text(node, "fee_asset"),
+                node.get("fee").asDouble(),
+                node.get("time").asLong());
+    }
+
+    // toJson 写入的 null 读取后仍为 null，而不是字符串 "null"
+    private static String text(JsonNode node, String field) {
+        JsonNode value = node.get(field);
+        return value == null || value.isNull() ? null : value.asText();
+    }
+
+    private static class Entry {
+        final TradeNotification order;
+        // 进入队列的时间，用于统计写入延迟
+        final long nanos;
+        final long time;
+
+        Entry(TradeNotification order) {
+            this.order = order;
+            this.nanos = System.nanoTime();
+            this.time = System.currentTimeMillis();
+        }
+    }
+}
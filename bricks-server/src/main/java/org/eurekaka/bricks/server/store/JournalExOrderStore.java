@@ -0,0 +1,535 @@
+package org.eurekaka.bricks.server.store;
+
+import org.eurekaka.bricks.common.exception.StoreException;
+import org.eurekaka.bricks.common.model.OrderSide;
+import org.eurekaka.bricks.common.model.OrderType;
+import org.eurekaka.bricks.common.model.PlanOrder;
+import org.eurekaka.bricks.server.model.ExOrder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Paths;
+import java.util.*;
+import java.sql.SQLException;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 使用本地执行日志的订单存储
+ * plan order 与订单的状态变化先追加写入内存映射的日志文件，定时批量刷盘，
+ * 后台线程按日志顺序分批同步到数据库，下单路径不等待数据库
+ *
+ * 未完成的 plan order 与未提交的订单在内存中维护，启动时从日志重建，不需要查询数据库
+ * plan order 与订单的 id 在本地生成，首次使用时从数据库已有的最大 id 开始，同步后推进数据库的 id 序列
+ * 日志超过高水位时，后台线程以当前状态快照替换日志，未同步的记录保留在快照之后
+ */
+public class JournalExOrderStore extends ExOrderStore {
+    private final static Logger logger = LoggerFactory.getLogger(JournalExOrderStore.class);
+
+    public final static int DEFAULT_CAPACITY = 64 * 1024 * 1024;
+    public final static long DEFAULT_SYNC_INTERVAL = 10;
+    public final static long DEFAULT_REPLICATE_INTERVAL = 200;
+    // 每个同步批次的最大记录数
+    final static int REPLICATE_BATCH_SIZE = 500;
+
+    private final static byte PLAN_ORDER = 1;
+    private final static byte PLAN_LEFT_QUANTITY = 2;
+    private final static byte PLAN_START_TIME = 3;
+    private final static byte EX_ORDER = 4;
+    private final static byte EX_ORDER_COMMIT = 5;
+    // 当前已经分配的最大 id，快照内使用
+    private final static byte MAX_ID = 6;
+    private final static byte ORDER_RESULT = 7;
+
+    private final String file;
+    private final int capacity;
+    private final long syncInterval;
+    private final long replicateInterval;
+    // 超过高水位时后台滚动日志
+    private final int highWater;
+
+    private volatile ExecutionJournal journal;
+    // 同步与滚动互斥，加锁顺序为 replicateLock 之后 this
+    private final Object replicateLock;
+    private final AtomicBoolean rolling;
+    // 上次滚动后快照的结束位置
+    private volatile int snapshotPosition;
+    // 使用本地 id 插入了记录，数据库的 id 序列还未推进
+    private volatile boolean idSequenceDirty;
+
+    private final Map<Long, PlanOrder> planOrders;
+    private final Map<Long, ExOrder> uncommittedOrders;
+    private final AtomicLong planOrderId;
+    private final AtomicLong exOrderId;
+
+    private ScheduledExecutorService scheduler;
+
+    public JournalExOrderStore(String file) {
+        this(file, DEFAULT_CAPACITY, DEFAULT_SYNC_INTERVAL, DEFAULT_REPLICATE_INTERVAL);
+    }
+
+    public JournalExOrderStore(String file, int capacity, long syncInterval, long replicateInterval) {
+        this.file = file;
+        this.capacity = capacity;
+        this.syncInterval = syncInterval;
+        this.replicateInterval = replicateInterval;
+        this.highWater = capacity / 4 * 3;
+
+        this.replicateLock = new Object();
+        this.rolling = new AtomicBoolean(false);
+        this.planOrders = new ConcurrentHashMap<>();
+        this.uncommittedOrders = new ConcurrentHashMap<>();
+        this.planOrderId = new AtomicLong();
+        this.exOrderId = new AtomicLong();
+    }
+
+    public void start() throws StoreException {
+        try {
+            journal = new ExecutionJournal(Paths.get(file), capacity);
+            if (journal.isEmpty()) {
+                // 首次使用，从数据库加载未完成的执行状态
+                initFromDatabase();
+            } else {
+                journal.replay(ExecutionJournal.HEADER_SIZE, journal.getPosition(),
+                        (type, payload, next) -> apply(type, payload));
+            }
+        } catch (StoreException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new StoreException("failed to open execution journal: " + file, e);
+        }
+        snapshotPosition = journal.getReplicatedPosition();
+        logger.info("execution journal opened, plan orders: {}, uncommitted orders: {}, " +
+                        "replication backlog: {} bytes", planOrders.size(), uncommittedOrders.size(),
+                journal.getPosition() - journal.getReplicatedPosition());
+
+        scheduler = Executors.newScheduledThreadPool(2, r -> {
+            Thread thread = new Thread(r, "execution-journal");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::sync, syncInterval, syncInterval, TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                replicate();
+            } catch (StoreException e) {
+                logger.error("failed to replicate execution journal", e);
+            }
+        }, replicateInterval, replicateInterval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 刷盘并同步剩余记录、推进 id 序列后关闭日志，数据库不可用时剩余记录在下次启动后同步
+     */
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+            try {
+                scheduler.awaitTermination(1000, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                logger.warn("interrupted while stopping execution journal");
+            }
+        }
+        try {
+            replicate();
+        } catch (StoreException e) {
+            logger.error("failed to replicate execution journal before stopping", e);
+        }
+        try {
+            journal.close();
+        } catch (IOException e) {
+            logger.error("failed to close execution journal", e);
+        }
+    }
+
+    private void initFromDatabase() throws Exception {
+        planOrderId.set(queryMaxId("hedging_plan_order"));
+        exOrderId.set(queryMaxId("hedging_order"));
+        List<ExecutionJournal.Record> records = new ArrayList<>();
+        records.add(maxIdRecord());
+        for (PlanOrder planOrder : super.queryPlanOrderNotFinished()) {
+            planOrders.put(planOrder.getId(), planOrder);
+            records.add(planOrderRecord(planOrder));
+        }
+        for (ExOrder order : super.queryUncommittedOrders()) {
+            uncommittedOrders.put(order.getId(), order);
+            records.add(exOrderRecord(order));
+        }
+        // 数据库中已经存在的记录不需要再同步
+        journal = journal.rewrite(records);
+    }
+
+    @Override
+    public void storePlanOrder(PlanOrder order) throws StoreException {
+        order.setId(planOrderId.incrementAndGet());
+        PlanOrder copy = copy(order);
+        append(planOrderRecord(copy), () -> {
+            if (copy.getLeftQuantity() != 0) {
+                planOrders.put(copy.getId(), copy);
+            }
+        });
+    }
+
+    @Override
+    public void updatePlanOrderLeftQuantity(long leftQuantity, long updateTime, long id) throws StoreException {
+        append(new ExecutionJournal.Record(PLAN_LEFT_QUANTITY, buf -> {
+            buf.putLong(id);
+            buf.putLong(leftQuantity);
+            buf.putLong(updateTime);
+        }), () -> updateLeftQuantity(id, leftQuantity, updateTime));
+    }
+
+    @Override
+    public void updatePlanOrderStartTime(long startTime, long id) throws StoreException {
+        append(new ExecutionJournal.Record(PLAN_START_TIME, buf -> {
+            buf.putLong(id);
+            buf.putLong(startTime);
+        }), () -> updateStartTime(id, startTime));
+    }
+
+    @Override
+    public void storeExOrder(ExOrder order) throws StoreException {
+        order.setId(exOrderId.incrementAndGet());
+        ExOrder copy = copy(order);
+        append(exOrderRecord(copy), () -> uncommittedOrders.put(copy.getId(), copy));
+    }
+
+    @Override
+    public void commitExOrder(String orderId, long id) throws StoreException {
+        append(new ExecutionJournal.Record(EX_ORDER_COMMIT, buf -> {
+            buf.putLong(id);
+            ExecutionJournal.putString(buf, orderId);
+        }), () -> uncommittedOrders.remove(id));
+    }
+
+    // 撤单结果只写入日志，由同步线程写入数据库
+    @Override
+    public void storeOrderResult(String orderId, double leftSize, String status) throws StoreException {
+        append(new ExecutionJournal.Record(ORDER_RESULT, buf -> {
+            ExecutionJournal.putString(buf, orderId);
+            buf.putDouble(leftSize);
+            ExecutionJournal.putString(buf, status);
+        }), () -> {});
+    }
+
+    @Override
+    public List<PlanOrder> queryPlanOrderNotFinished() {
+        List<PlanOrder> orders = new ArrayList<>();
+        for (PlanOrder planOrder : planOrders.values()) {
+            orders.add(copy(planOrder));
+        }
+        orders.sort(Comparator.comparing(PlanOrder::getId));
+        return orders;
+    }
+
+    @Override
+    public List<ExOrder> queryUncommittedOrders() {
+        List<ExOrder> orders = new ArrayList<>();
+        for (ExOrder order : uncommittedOrders.values()) {
+            orders.add(copy(order));
+        }
+        orders.sort(Comparator.comparing(ExOrder::getId));
+        return orders;
+    }
+
+    // 尚未同步到数据库的字节数
+    public int getReplicationBacklog() {
+        ExecutionJournal current = journal;
+        return current.getPosition() - current.getReplicatedPosition();
+    }
+
+    void sync() {
+        try {
+            journal.force();
+        } catch (Exception e) {
+            logger.error("failed to sync execution journal", e);
+        }
+    }
+
+    /**
+     * 将未同步的记录按顺序分批写入数据库，每个批次在一个事务内提交，提交后更新同步位置
+     * 有新插入的记录时推进数据库的 id 序列
+     */
+    void replicate() throws StoreException {
+        synchronized (replicateLock) {
+            ExecutionJournal current = journal;
+            int position = current.getReplicatedPosition();
+            int end = current.getPosition();
+            while (position < end) {
+                try (ReplicationBatch batch = openReplicationBatch()) {
+                    position = current.replay(position, end, REPLICATE_BATCH_SIZE,
+                            (type, payload, next) -> replicate(batch, type, payload));
+                    batch.commit();
+                    if (batch.isInserted()) {
+                        idSequenceDirty = true;
+                    }
+                } catch (StoreException e) {
+                    throw e;
+                } catch (Exception e) {
+                    throw new StoreException("failed to replicate execution journal", e);
+                }
+                current.setReplicatedPosition(position);
+            }
+            if (idSequenceDirty) {
+                syncIdSequence("hedging_plan_order");
+                syncIdSequence("hedging_order");
+                idSequenceDirty = false;
+            }
+        }
+    }
+
+    private void replicate(ReplicationBatch batch, byte type, ByteBuffer payload) throws SQLException {
+        switch (type) {
+            case PLAN_ORDER:
+                batch.planOrder(readPlanOrder(payload));
+                break;
+            case PLAN_LEFT_QUANTITY: {
+                long id = payload.getLong();
+                long leftQuantity = payload.getLong();
+                batch.planOrderLeftQuantity(leftQuantity, payload.getLong(), id);
+                break;
+            }
+            case PLAN_START_TIME: {
+                long id = payload.getLong();
+                batch.planOrderStartTime(payload.getLong(), id);
+                break;
+            }
+            case EX_ORDER:
+                batch.exOrder(readExOrder(payload));
+                break;
+            case EX_ORDER_COMMIT: {
+                long id = payload.getLong();
+                batch.commitExOrder(ExecutionJournal.getString(payload), id);
+                break;
+            }
+            case ORDER_RESULT: {
+                String orderId = ExecutionJournal.getString(payload);
+                double leftSize = payload.getDouble();
+                batch.orderResult(orderId, leftSize, ExecutionJournal.getString(payload));
+                break;
+            }
+            default:
+                break;
+        }
+    }
+
+    // 启动时从日志重建状态
+    private void apply(byte type, ByteBuffer payload) {
+        switch (type) {
+            case PLAN_ORDER: {
+                PlanOrder planOrder = readPlanOrder(payload);
+                planOrderId.accumulateAndGet(planOrder.getId(), Math::max);
+                if (planOrder.getLeftQuantity() != 0) {
+                    planOrders.put(planOrder.getId(), planOrder);
+                }
+                break;
+            }
+            case PLAN_LEFT_QUANTITY: {
+                long id = payload.getLong();
+                long leftQuantity = payload.getLong();
+                updateLeftQuantity(id, leftQuantity, payload.getLong());
+                break;
+            }
+            case PLAN_START_TIME: {
+                long id = payload.getLong();
+                updateStartTime(id, payload.getLong());
+                break;
+            }
+            case EX_ORDER: {
+                ExOrder order = readExOrder(payload);
+                exOrderId.accumulateAndGet(order.getId(), Math::max);
+                uncommittedOrders.put(order.getId(), order);
+                break;
+            }
+            case EX_ORDER_COMMIT:
+                uncommittedOrders.remove(payload.getLong());
+                break;
+            case MAX_ID:
+                planOrderId.accumulateAndGet(payload.getLong(), Math::max);
+                exOrderId.accumulateAndGet(payload.getLong(), Math::max);
+                break;
+            case ORDER_RESULT:
+                break;
+            default:
+                logger.warn("unknown execution journal record type: {}", type);
+        }
+    }
+
+    private void updateLeftQuantity(long id, long leftQuantity, long updateTime) {
+        PlanOrder planOrder = planOrders.get(id);
+        if (planOrder != null) {
+            if (leftQuantity == 0) {
+                planOrders.remove(id);
+            } else {
+                planOrder.setLeftQuantity(leftQuantity);
+                planOrder.setUpdateTime(updateTime);
+            }
+        }
+    }
+
+    private void updateStartTime(long id, long startTime) {
+        PlanOrder planOrder = planOrders.get(id);
+        if (planOrder != null) {
+            planOrder.setStartTime(startTime);
+        }
+    }
+
+    /**
+     * 追加记录并在同一把锁内更新内存状态，保证滚动时的快照与日志位置一致
+     */
+    private void append(ExecutionJournal.Record record, Runnable update) throws StoreException {
+        synchronized (this) {
+            if (journal.append(record.type, record.encoder)) {
+                update.run();
+                if (journal.getPosition() >= highWater) {
+                    scheduleRoll();
+                }
+                return;
+            }
+        }
+        // 后台滚动未能及时完成，同步滚动，未同步的记录占满日志时只能先同步到数据库
+        if (!rollable()) {
+            replicate();
+        }
+        roll();
+        synchronized (this) {
+            if (!journal.append(record.type, record.encoder)) {
+                throw new StoreException("execution journal record exceeded capacity: " + capacity);
+            }
+            update.run();
+        }
+    }
+
+    // 上次滚动后已经同步的记录超过高水位的三分之一时才滚动，否则滚动后空间依然不足
+    private boolean rollable() {
+        return journal.getReplicatedPosition() - snapshotPosition >= highWater / 3;
+    }
+
+    private void scheduleRoll() {
+        if (!rollable() || !rolling.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            scheduler.execute(() -> {
+                try {
+                    roll();
+                } catch (StoreException e) {
+                    logger.error("failed to roll execution journal", e);
+                } finally {
+                    rolling.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rolling.set(false);
+        }
+    }
+
+    /**
+     * 使用当前状态的快照替换日志，未同步的记录保留在快照之后
+     * 等待正在执行的同步批次完成，期间不阻塞追加写
+     */
+    private void roll() throws StoreException {
+        synchronized (replicateLock) {
+            synchronized (this) {
+                List<ExecutionJournal.Record> records = new ArrayList<>();
+                records.add(maxIdRecord());
+                for (PlanOrder planOrder : queryPlanOrderNotFinished()) {
+                    records.add(planOrderRecord(planOrder));
+                }
+                for (ExOrder order : queryUncommittedOrders()) {
+                    records.add(exOrderRecord(order));
+                }
+                try {
+                    journal = journal.rewrite(records);
+                } catch (IOException e) {
+                    throw new StoreException("failed to roll execution journal: " + file, e);
+                }
+                snapshotPosition = journal.getReplicatedPosition();
+            }
+            logger.info("rolled execution journal, plan orders: {}, uncommitted orders: {}, " +
+                            "replication backlog: {} bytes", planOrders.size(), uncommittedOrders.size(),
+                    getReplicationBacklog());
+        }
+    }
+
+    private ExecutionJournal.Record maxIdRecord() {
+        long maxPlanOrderId = planOrderId.get();
+        long maxExOrderId = exOrderId.get();
+        return new ExecutionJournal.Record(MAX_ID, buf -> {
+            buf.putLong(maxPlanOrderId);
+            buf.putLong(maxExOrderId);
+        });
+    }
+
+    private static ExecutionJournal.Record planOrderRecord(PlanOrder order) {
+        return new ExecutionJournal.Record(PLAN_ORDER, buf -> {
+            buf.putLong(order.getId());
+            buf.putLong(order.getQuantity());
+            buf.putLong(order.getSymbolPrice());
+            buf.putLong(order.getLeftQuantity());
+            buf.putLong(order.getStartTime());
+            buf.putLong(order.getUpdateTime());
+            ExecutionJournal.putString(buf, order.getName());
+        });
+    }
+
+    private static PlanOrder readPlanOrder(ByteBuffer buf) {
+        long id = buf.getLong();
+        long quantity = buf.getLong();
+        long symbolPrice = buf.getLong();
+        long leftQuantity = buf.getLong();
+        long startTime = buf.getLong();
+        long updateTime = buf.getLong();
+        return new PlanOrder(id, ExecutionJournal.getString(buf), quantity, symbolPrice,
+                leftQuantity, startTime, updateTime);
+    }
+
+    private static ExecutionJournal.Record exOrderRecord(ExOrder order) {
+        return new ExecutionJournal.Record(EX_ORDER, buf -> {
+            buf.putLong(order.getId());
+            buf.putLong(order.getPlanId());
+            buf.putLong(order.getQuantity());
+            buf.putDouble(order.getSize());
+            buf.putDouble(order.getPrice());
+            buf.putDouble(order.getLastPrice());
+            buf.put((byte) order.getSide().ordinal());
+            buf.put((byte) order.getOrderType().ordinal());
+            ExecutionJournal.putString(buf, order.getAccount());
+            ExecutionJournal.putString(buf, order.getName());
+            ExecutionJournal.putString(buf, order.getSymbol());
+        });
+    }
+
+    private static ExOrder readExOrder(ByteBuffer buf) {
+        long id = buf.getLong();
+        long planId = buf.getLong();
+        long quantity = buf.getLong();
+        double size = buf.getDouble();
+        double price = buf.getDouble();
+        double lastPrice = buf.getDouble();
+        OrderSide side = OrderSide.values()[buf.get()];
+        OrderType type = OrderType.values()[buf.get()];
+        String account = ExecutionJournal.getString(buf);
+        String name = ExecutionJournal.getString(buf);
+        String symbol = ExecutionJournal.getString(buf);
+        ExOrder order = new ExOrder(account, name, symbol, side, type, size, price, quantity, lastPrice, planId);
+        order.setId(id);
+        return order;
+    }
+
+    private static PlanOrder copy(PlanOrder order) {
+        return new PlanOrder(order.getId(), order.getName(), order.getQuantity(), order.getSymbolPrice(),
+                order.getLeftQuantity(), order.getStartTime(), order.getUpdateTime());
+    }
+
+    private static ExOrder copy(ExOrder order) {
+        ExOrder copy = new ExOrder(order.getAccount(), order.getName(), order.getSymbol(),
+                order.getSide(), order.getOrderType(), order.getSize(), order.getPrice(),
+                order.getQuantity(), order.getLastPrice(), order.getPlanId());
+        copy.setId(order.getId());
+        return copy;
+    }
+}
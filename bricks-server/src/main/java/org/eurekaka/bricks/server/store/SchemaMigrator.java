@@ -0,0 +1,196 @@
+package org.eurekaka.bricks.server.store;
+
+import org.eurekaka.bricks.common.exception.StoreException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 数据库结构的版本迁移
+ * 迁移脚本位于 sql/migration/V{version}__{name}.sql，按版本顺序执行，执行过的版本记录在 schema_version 表
+ * 存在 V{version}__{name}.{dialect}.sql 时优先使用，dialect 为 postgresql 或 h2，
+ * 两者都不存在时该版本在当前数据库上不需要执行
+ */
+public class SchemaMigrator {
+    private final static Logger logger = LoggerFactory.getLogger(SchemaMigrator.class);
+
+    final static String POSTGRESQL = "postgresql";
+
+    private final static List<Migration> MIGRATIONS = List.of(
+            new Migration(1, "partition_time_tables"),
+            new Migration(2, "time_indexes"));
+
+    // 按 time 分区的表，仅 postgresql
+    public final static List<String> PARTITIONED_TABLES = List.of(
+            "position_value", "funding", "history_order", "checking_profit", "asset_history");
+    // 提前创建分区的月数
+    public final static int PARTITION_MONTHS_AHEAD = 3;
+
+    private static final String SQL_CREATE_SCHEMA_VERSION = "CREATE TABLE IF NOT EXISTS schema_version (" +
+            "version INTEGER PRIMARY KEY, description VARCHAR(128) NOT NULL, " +
+            "applied_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP)";
+    private static final String SQL_QUERY_SCHEMA_VERSION = "select version from schema_version";
+    private static final String SQL_INSERT_SCHEMA_VERSION = "insert into schema_version " +
+            "(version, description) values (?, ?)";
+    private static final String SQL_ENSURE_PARTITIONS = "select bricks_ensure_partitions(?, ?)";
+
+    /**
+     * 执行所有未执行的迁移，每个版本在单独的事务内执行
+     * @return 本次执行的版本数量
+     */
+    public int migrate() throws StoreException {
+        try (Connection conn = DatabaseStore.getConnection()) {
+            String dialect = getDialect(conn);
+            try (Statement statement = conn.createStatement()) {
+                statement.execute(SQL_CREATE_SCHEMA_VERSION);
+            }
+            Set<Integer> applied = new HashSet<>();
+            try (PreparedStatement statement = conn.prepareStatement(SQL_QUERY_SCHEMA_VERSION)) {
+                ResultSet resultSet = statement.executeQuery();
+                while (resultSet.next()) {
+                    applied.add(resultSet.getInt(1));
+                }
+            }
+
+            int count = 0;
+            for (Migration migration : MIGRATIONS) {
+                if (!applied.contains(migration.version)) {
+                    apply(conn, migration, dialect);
+                    count++;
+                }
+            }
+            if (count > 0) {
+                logger.info("applied {} schema migrations on {}", count, dialect);
+            }
+            return count;
+        } catch (SQLException | IOException e) {
+            throw new StoreException("failed to migrate database schema", e);
+        }
+    }
+
+    private void apply(Connection conn, Migration migration, String dialect) throws SQLException, IOException {
+        String script = migration.load(dialect);
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        try {
+            if (script != null) {
+                try (Statement statement = conn.createStatement()) {
+                    for (String sql : split(script)) {
+                        statement.execute(sql);
+                    }
+                }
+            }
+            try (PreparedStatement statement = conn.prepareStatement(SQL_INSERT_SCHEMA_VERSION)) {
+                statement.setInt(1, migration.version);
+                statement.setString(2, migration.name);
+                statement.execute();
+            }
+            conn.commit();
+            logger.info("applied schema migration {} {}", migration.version,
+                    script == null ? migration.name + " (not required on " + dialect + ")" : migration.name);
+        } catch (SQLException e) {
+            conn.rollback();
+            throw new SQLException("failed to apply schema migration " + migration.version, e);
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+    }
+
+    /**
+     * 创建当前月及之后 PARTITION_MONTHS_AHEAD 个月的分区，非 postgresql 数据库直接返回
+     */
+    public void ensurePartitions() throws StoreException {
+        try (Connection conn = DatabaseStore.getConnection()) {
+            if (!POSTGRESQL.equals(getDialect(conn))) {
+                return;
+            }
+            try (PreparedStatement statement = conn.prepareStatement(SQL_ENSURE_PARTITIONS)) {
+                for (String table : PARTITIONED_TABLES) {
+                    statement.setString(1, table);
+                    statement.setInt(2, PARTITION_MONTHS_AHEAD);
+                    statement.execute();
+                }
+            }
+        } catch (SQLException e) {
+            throw new StoreException("failed to create table partitions", e);
+        }
+    }
+
+    static String getDialect(Connection conn) throws SQLException {
+        return conn.getMetaData().getDatabaseProductName().toLowerCase();
+    }
+
+    /**
+     * 按分号拆分语句，忽略注释、字符串以及 $$ 内的分号
+     */
+    static List<String> split(String script) {
+        List<String> sqls = new ArrayList<>();
+        StringBuilder builder = new StringBuilder();
+        boolean quoted = false;
+        boolean dollarQuoted = false;
+        int i = 0;
+        while (i < script.length()) {
+            char c = script.charAt(i);
+            if (!quoted && !dollarQuoted && c == '-' && script.startsWith("--", i)) {
+                int end = script.indexOf('\n', i);
+                i = end < 0 ? script.length() : end;
+                continue;
+            }
+            if (!quoted && c == '$' && script.startsWith("$$", i)) {
+                dollarQuoted = !dollarQuoted;
+                builder.append("$$");
+                i += 2;
+                continue;
+            }
+            if (!dollarQuoted && c == '\'') {
+                quoted = !quoted;
+            }
+            if (!quoted && !dollarQuoted && c == ';') {
+                addStatement(sqls, builder);
+            } else {
+                builder.append(c);
+            }
+            i++;
+        }
+        addStatement(sqls, builder);
+        return sqls;
+    }
+
+    private static void addStatement(List<String> sqls, StringBuilder builder) {
+        String sql = builder.toString().trim();
+        if (!sql.isEmpty()) {
+            sqls.add(sql);
+        }
+        builder.setLength(0);
+    }
+
+    private static class Migration {
+        final int version;
+        final String name;
+
+        Migration(int version, String name) {
+            this.version = version;
+            this.name = name;
+        }
+
+        String load(String dialect) throws IOException {
+            String prefix = "sql/migration/V" + version + "__" + name;
+            String script = read(prefix + "." + dialect + ".sql");
+            return script != null ? script : read(prefix + ".sql");
+        }
+
+        private static String read(String resource) throws IOException {
+            try (InputStream in = SchemaMigrator.class.getClassLoader().getResourceAsStream(resource)) {
+                return in == null ? null : new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            }
+        }
+    }
+}
@@ -4,19 +4,72 @@ import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.csv.CSVParser;
 import org.apache.commons.csv.CSVPrinter;
 import org.apache.commons.csv.CSVRecord;
+import org.eurekaka.bricks.common.archive.ColumnarWriter;
+import org.eurekaka.bricks.common.archive.MarketArchive;
 import org.eurekaka.bricks.common.exception.StoreException;
+import org.eurekaka.bricks.common.model.OrderSide;
+import org.eurekaka.bricks.common.model.OrderType;
+import org.eurekaka.bricks.common.model.PositionValue;
+import org.eurekaka.bricks.common.model.TradeNotification;
 import org.eurekaka.bricks.server.model.WarehouseMetaValue;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.sql.*;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
 
+/**
+ * 数仓元数据以及表数据的 CSV 导入导出
+ * 导出使用游标分批读取，导入按 chunk size 分批提交，内存占用与表大小无关
+ * 多张表的导入导出可以由多个线程并行执行
+ */
 public class WarehouseMetaStore {
     private static Logger logger = LoggerFactory.getLogger(WarehouseMetaStore.class);
 
+    public static final String DEFAULT_OUTPUT_DIR = "/tmp";
+    public static final int DEFAULT_FETCH_SIZE = 1000;
+    public static final int DEFAULT_CHUNK_SIZE = 5000;
+    public static final int DEFAULT_WORKERS = 4;
+    public static final int DEFAULT_ARCHIVE_ROWS = 1 << 18;
+
+    private final String outputDir;
+    private final int fetchSize;
+    private final int chunkSize;
+    private final int workers;
+    private final int archiveRows;
+
+    public WarehouseMetaStore() {
+        this(DEFAULT_OUTPUT_DIR, DEFAULT_FETCH_SIZE, DEFAULT_CHUNK_SIZE, DEFAULT_WORKERS);
+    }
+
+    public WarehouseMetaStore(String outputDir, int fetchSize, int chunkSize, int workers) {
+        this(outputDir, fetchSize, chunkSize, workers, DEFAULT_ARCHIVE_ROWS);
+    }
+
+    /**
+     * @param outputDir 导出文件目录
+     * @param fetchSize 导出时每次从数据库读取的行数
+     * @param chunkSize 导入时每次提交的行数
+     * @param workers 多表导入导出的并行线程数
+     * @param archiveRows 列存档案每个文件的最大行数，列存档案写入前缓存在内存中
+     */
+    public WarehouseMetaStore(String outputDir, int fetchSize, int chunkSize, int workers, int archiveRows) {
+        this.outputDir = outputDir;
+        this.fetchSize = fetchSize;
+        this.chunkSize = chunkSize;
+        this.workers = workers;
+        this.archiveRows = archiveRows;
+    }
+
     private static final String SQL_INSERT_WAREHOUSE_META = "insert into warehouse_meta " +
             "(table_name, host, time, path) values (?, ?, ?, ?)";
 //    private static final String SQL_QUERY_UNCOMMITTED_META = "select * from warehouse_meta where committed = false";
@@ -68,140 +121,381 @@ public class WarehouseMetaStore {
     }
 
 
-    public void importCSV(BufferedReader reader, String table, long start, long stop) throws StoreException {
+    /**
+     * 删除时间范围内的旧数据后导入，每 chunk size 行提交一次
+     * 中途失败时已提交的数据保留，重新导入同一范围会先删除再写入
+     * @return 导入的行数
+     */
+    public long importCSV(BufferedReader reader, String table, long start, long stop) throws StoreException {
         String delete = "delete from " + table
                 + " where created_at >= ? and created_at < ?";
 
-        try (Connection conn = DatabaseStore.getConnection();
-             PreparedStatement delStatement = conn.prepareStatement(delete)) {
-            // delete old data
-            delStatement.setTimestamp(1, new Timestamp(start));
-            delStatement.setTimestamp(2, new Timestamp(stop));
-            int count = delStatement.executeUpdate();
-            logger.debug("{} rows deleted from table {}", count, table);
-
-            ResultSet rs = conn.getMetaData().getColumns(null, null, table, null);
+        try (Connection conn = DatabaseStore.getConnection()) {
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try (PreparedStatement delStatement = conn.prepareStatement(delete);
+                 CSVParser csvParser = new CSVParser(reader, CSVFormat.DEFAULT.withFirstRecordAsHeader())) {
+                // delete old data，与第一批数据一起提交
+                delStatement.setTimestamp(1, new Timestamp(start));
+                delStatement.setTimestamp(2, new Timestamp(stop));
+                int count = delStatement.executeUpdate();
+                logger.debug("{} rows deleted from table {}", count, table);
 
-            try (CSVParser csvParser = new CSVParser(reader, CSVFormat.DEFAULT.withFirstRecordAsHeader())) {
+                // 按表结构预先确定每一列的写入方式
                 Map<String, Integer> headerMap = csvParser.getHeaderMap();
-                LinkedHashMap<String, Integer> colNameToType = new LinkedHashMap<>();
-                while (rs.next()) {
-                    String colName = rs.getString("COLUMN_NAME").toUpperCase();
-                    Integer dataType = rs.getInt("DATA_TYPE");
-//                if ("id".equalsIgnoreCase(colName)) continue;
-                    if (headerMap.containsKey(colName)) {
-                        colNameToType.put(colName, dataType);
+                Map<String, Integer> colNameToType = queryColumnTypes(conn, table);
+                List<String> columns = new ArrayList<>();
+                List<Integer> indexes = new ArrayList<>();
+                List<ColumnBinder> binders = new ArrayList<>();
+                for (Map.Entry<String, Integer> entry : colNameToType.entrySet()) {
+                    Integer index = headerMap.get(entry.getKey());
+                    if (index != null) {
+                        columns.add(entry.getKey());
+                        indexes.add(index);
+                        binders.add(binder(entry.getKey(), entry.getValue()));
                     }
                 }
 
-                String columns = String.join(",", colNameToType.keySet());
-                String placeholders = String.join(",", Collections.nCopies(colNameToType.size(), "?"));
-                String insSql = "insert into " + table + " (" + columns + ") values (" + placeholders + ")";
+                String placeholders = String.join(",", Collections.nCopies(columns.size(), "?"));
+                String insSql = "insert into " + table + " (" + String.join(",", columns) +
+                        ") values (" + placeholders + ")";
 
+                long rows = 0;
                 try (PreparedStatement insStatement = conn.prepareStatement(insSql)) {
                     for (CSVRecord record : csvParser) {
-                        insertCSVRecord(record, colNameToType, insStatement);
+                        for (int i = 0; i < binders.size(); i++) {
+                            String value = record.get(indexes.get(i));
+                            if (value.isEmpty()) {
+                                insStatement.setNull(i + 1, colNameToType.get(columns.get(i)));
+                            } else {
+                                binders.get(i).bind(insStatement, i + 1, value);
+                            }
+                        }
+                        insStatement.addBatch();
+                        if (++rows % chunkSize == 0) {
+                            insStatement.executeBatch();
+                            conn.commit();
+                        }
                     }
                     insStatement.executeBatch();
+                    conn.commit();
                 }
+                logger.debug("{} rows imported to table {}", rows, table);
+                return rows;
+            } catch (SQLException | IOException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(autoCommit);
             }
-        } catch (SQLException | IOException e) {
+        } catch (SQLException | IOException | RuntimeException e) {
             throw new StoreException("fail to import from CSV to table " + table, e);
         }
     }
 
-    public void exportCSV(String table, long start, long stop) throws StoreException {
+    /**
+     * 从导出的 gzip 文件导入
+     */
+    public long importCSV(String filename, String table, long start, long stop) throws StoreException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(new FileInputStream(filename)), StandardCharsets.UTF_8))) {
+            return importCSV(reader, table, start, stop);
+        } catch (IOException e) {
+            throw new StoreException("failed to read CSV file " + filename, e);
+        }
+    }
+
+    /**
+     * 使用游标分批读取，导出到 output dir 下的 gzip 文件，写完后再重命名为正式文件名
+     * @return 导出文件路径
+     */
+    public String exportCSV(String table, long start, long stop) throws StoreException {
         String sql = "select * from " + table + " where created_at >= ? and created_at < ?";
 
-        String filename = "/tmp/" + table + stop + ".csv.gz";
-        try (Connection conn = DatabaseStore.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql);
-             GZIPOutputStream gzipOutputStream = new GZIPOutputStream(new FileOutputStream(filename));
-             BufferedWriter bw = new BufferedWriter(new OutputStreamWriter(gzipOutputStream));
-             CSVPrinter csvPrinter = new CSVPrinter(bw, CSVFormat.DEFAULT.withFirstRecordAsHeader())) {
-            stmt.setTimestamp(1, new Timestamp(start));
-            stmt.setTimestamp(2, new Timestamp(stop));
-            ResultSet rs = stmt.executeQuery();
-
-
-            appendCSVHeader(rs, csvPrinter);
-            while (rs.next()) {
-                appendCSVRecord(rs, csvPrinter);
+        Path file = Paths.get(outputDir, table + stop + ".csv.gz");
+        Path tmp = Paths.get(outputDir, table + stop + ".csv.gz.tmp");
+        try (Connection conn = DatabaseStore.getConnection()) {
+            // postgresql 只在事务内使用游标分批读取
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            long rows = 0;
+            try (PreparedStatement stmt = conn.prepareStatement(sql,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                 GZIPOutputStream gzipOutputStream = new GZIPOutputStream(Files.newOutputStream(tmp));
+                 BufferedWriter bw = new BufferedWriter(new OutputStreamWriter(
+                         gzipOutputStream, StandardCharsets.UTF_8));
+                 CSVPrinter csvPrinter = new CSVPrinter(bw, CSVFormat.DEFAULT.withFirstRecordAsHeader())) {
+                stmt.setFetchSize(fetchSize);
+                stmt.setTimestamp(1, new Timestamp(start));
+                stmt.setTimestamp(2, new Timestamp(stop));
+                ResultSet rs = stmt.executeQuery();
+
+                ColumnWriter[] writers = appendCSVHeader(rs, csvPrinter);
+                while (rs.next()) {
+                    for (int i = 0; i < writers.length; i++) {
+                        csvPrinter.print(writers[i].read(rs, i + 1));
+                    }
+                    csvPrinter.println();
+                    rows++;
+                }
+                csvPrinter.flush();
+                conn.commit();
+            } catch (SQLException | IOException | RuntimeException e) {
+                rollback(conn, e);
+                throw e;
+            } finally {
+                conn.setAutoCommit(autoCommit);
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            logger.debug("{} rows exported from table {} to {}", rows, table, file);
+            return file.toString();
+        } catch (SQLException | IOException | RuntimeException e) {
+            try {
+                Files.deleteIfExists(tmp);
+            } catch (IOException ex) {
+                logger.warn("failed to delete temporary file {}", tmp, ex);
             }
-            csvPrinter.flush();
-        } catch (SQLException | IOException e) {
             throw new StoreException("export table " + table + " to CSV failed", e);
         }
+    }
+
+    /**
+     * 导出 history_order 或 position_value 为列存档案，按 time 范围 [start, stop) 查询
+     * 每 archive rows 行写入一个文件，文件之间按时间顺序排列，内存占用与表大小无关
+     * @return 按时间顺序排列的导出文件路径
+     */
+    public List<String> exportArchive(String table, long start, long stop) throws StoreException {
+        if (!"history_order".equals(table) && !"position_value".equals(table)) {
+            throw new StoreException("table " + table + " is not supported by archive");
+        }
+        String sql = "select * from " + table + " where time >= ? and time < ? order by time";
+
+        List<String> files = new ArrayList<>();
+        long rows = 0;
+        try (Connection conn = DatabaseStore.getConnection()) {
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement(sql,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                stmt.setFetchSize(fetchSize);
+                stmt.setTimestamp(1, new Timestamp(start));
+                stmt.setTimestamp(2, new Timestamp(stop));
+                ResultSet rs = stmt.executeQuery();
+                ColumnarWriter writer = archiveWriter(table);
+                while (rs.next()) {
+                    addArchiveRow(writer, table, rs);
+                    if (writer.getRows() >= archiveRows) {
+                        rows += writer.getRows();
+                        writeArchive(writer, table, stop, files);
+                        writer = archiveWriter(table);
+                    }
+                }
+                if (writer.getRows() > 0 || files.isEmpty()) {
+                    rows += writer.getRows();
+                    writeArchive(writer, table, stop, files);
+                }
+                conn.commit();
+            } catch (SQLException | IOException | RuntimeException e) {
+                rollback(conn, e);
+                throw e;
+            } finally {
+                conn.setAutoCommit(autoCommit);
+            }
+            logger.debug("{} rows archived from table {} to {} files", rows, table, files.size());
+            return files;
+        } catch (SQLException | IOException | RuntimeException e) {
+            // 删除已经写入的文件，包括写入中途失败的文件
+            for (String file : files) {
+                try {
+                    Files.deleteIfExists(Paths.get(file));
+                } catch (IOException ex) {
+                    logger.warn("failed to delete archive file {}", file, ex);
+                }
+            }
+            throw new StoreException("archive table " + table + " failed", e);
+        }
+    }
+
+    private static ColumnarWriter archiveWriter(String table) {
+        return "history_order".equals(table) ? MarketArchive.tradeWriter() : MarketArchive.positionWriter();
+    }
+
+    private static void addArchiveRow(ColumnarWriter writer, String table, ResultSet rs) throws SQLException {
+        if ("history_order".equals(table)) {
+            MarketArchive.addTrade(writer, new TradeNotification(
+                    rs.getString("fill_id"),
+                    rs.getString("client_order_id"),
+                    rs.getString("order_id"),
+                    rs.getString("account"),
+                    rs.getString("name"),
+                    rs.getString("symbol"),
+                    OrderSide.valueOf(rs.getString("side")),
+                    OrderType.valueOf(rs.getString("type")),
+                    rs.getDouble("price"),
+                    rs.getDouble("size"),
+                    rs.getDouble("result"),
+                    rs.getString("fee_asset"),
+                    rs.getDouble("fee"),
+                    rs.getTimestamp("time").getTime()));
+        } else {
+            MarketArchive.addPosition(writer, new PositionValue(
+                    rs.getString("name"),
+                    rs.getString("symbol"),
+                    rs.getString("account"),
+                    rs.getDouble("size"),
+                    rs.getDouble("price"),
+                    rs.getLong("result"),
+                    rs.getDouble("entry_price"),
+                    rs.getDouble("unrealized_pnl"),
+                    rs.getTimestamp("time").getTime()));
+        }
+    }
+
+    // 写入前先记录文件路径，写入失败时由调用方删除
+    private void writeArchive(ColumnarWriter writer, String table, long stop, List<String> files) throws IOException {
+        Path file = Paths.get(outputDir, table + stop + "-" + files.size() + ".col");
+        files.add(file.toString());
+        writer.write(file);
+    }
+
+    // 回滚失败时保留原始异常，postgresql 事务出错后不能再提交
+    private static void rollback(Connection conn, Exception e) {
+        try {
+            conn.rollback();
+        } catch (SQLException ex) {
+            e.addSuppressed(ex);
+        }
+    }
+
+    /**
+     * 多张表并行导出
+     * @return 表名对应的导出文件路径
+     */
+    public Map<String, String> exportCSV(List<String> tables, long start, long stop) throws StoreException {
+        Map<String, Callable<String>> tasks = new LinkedHashMap<>();
+        for (String table : tables) {
+            tasks.put(table, () -> exportCSV(table, start, stop));
+        }
+        return runAll(tasks);
+    }
 
+    /**
+     * 多张表并行导入
+     * @param files 表名对应的导出文件路径
+     * @return 表名对应的导入行数
+     */
+    public Map<String, Long> importCSV(Map<String, String> files, long start, long stop) throws StoreException {
+        Map<String, Callable<Long>> tasks = new LinkedHashMap<>();
+        for (Map.Entry<String, String> entry : files.entrySet()) {
+            tasks.put(entry.getKey(), () -> importCSV(entry.getValue(), entry.getKey(), start, stop));
+        }
+        return runAll(tasks);
     }
 
-    private void insertCSVRecord(
-            CSVRecord record, LinkedHashMap<String, Integer> colNameToType, PreparedStatement statement)
-            throws SQLException, StoreException {
-        int i = 1;
-        for (Map.Entry<String, Integer> entry : colNameToType.entrySet()) {
-            String colName = entry.getKey();
-            int colType = entry.getValue();
-            if (record.isMapped(colName)) {
-                switch (colType) {
-                    case Types.TIMESTAMP:
-                    case Types.TIMESTAMP_WITH_TIMEZONE:
-                        statement.setTimestamp(i, new Timestamp(Long.parseLong(record.get(colName))));
-                        break;
-                    case Types.VARCHAR:
-                        statement.setString(i, record.get(colName));
-                        break;
-                    case Types.BIGINT:
-                        statement.setLong(i, Long.parseLong(record.get(colName)));
-                        break;
-                    case Types.INTEGER:
-                        statement.setInt(i, Integer.parseInt(record.get(colName)));
-                        break;
-                    case Types.DOUBLE:
-                    case Types.NUMERIC:
-                    case Types.DECIMAL:
-                        statement.setDouble(i, Double.parseDouble(record.get(colName)));
-                        break;
-                    case Types.BOOLEAN:
-                    case Types.BIT:
-                        statement.setBoolean(i, Boolean.parseBoolean(record.get(colName)));
-                        break;
-                    default:
-                        throw new StoreException("Data type is unsupported by CSV parser: " + colType
-                                + ", column name: " + colName);
+    // 所有表执行完成后返回，任意一张表失败时抛出第一个失败
+    private <T> Map<String, T> runAll(Map<String, Callable<T>> tasks) throws StoreException {
+        ExecutorService executorService = Executors.newFixedThreadPool(
+                Math.max(1, Math.min(workers, tasks.size())));
+        try {
+            Map<String, Future<T>> futures = new LinkedHashMap<>();
+            for (Map.Entry<String, Callable<T>> entry : tasks.entrySet()) {
+                futures.put(entry.getKey(), executorService.submit(entry.getValue()));
+            }
+            Map<String, T> results = new LinkedHashMap<>();
+            StoreException failure = null;
+            for (Map.Entry<String, Future<T>> entry : futures.entrySet()) {
+                try {
+                    results.put(entry.getKey(), entry.getValue().get());
+                } catch (ExecutionException e) {
+                    logger.error("warehouse task of table {} failed", entry.getKey(), e.getCause());
+                    if (failure == null) {
+                        failure = e.getCause() instanceof StoreException ? (StoreException) e.getCause() :
+                                new StoreException("warehouse task of table " + entry.getKey() + " failed", e.getCause());
+                    }
                 }
-                i++;
             }
+            if (failure != null) {
+                throw failure;
+            }
+            return results;
+        } catch (InterruptedException e) {
+            throw new StoreException("interrupted while running warehouse tasks", e);
+        } finally {
+            executorService.shutdownNow();
         }
-        statement.addBatch();
     }
 
-    private void appendCSVHeader(ResultSet rs, CSVPrinter csvPrinter) throws SQLException, IOException {
+    // 表名大小写与数据库存储不一致时依次尝试原名、小写、大写
+    private Map<String, Integer> queryColumnTypes(Connection conn, String table) throws SQLException {
+        Map<String, Integer> colNameToType = new LinkedHashMap<>();
+        for (String name : new LinkedHashSet<>(List.of(table, table.toLowerCase(), table.toUpperCase()))) {
+            try (ResultSet rs = conn.getMetaData().getColumns(null, null, name, null)) {
+                while (rs.next()) {
+                    colNameToType.put(rs.getString("COLUMN_NAME").toUpperCase(), rs.getInt("DATA_TYPE"));
+                }
+            }
+            if (!colNameToType.isEmpty()) {
+                break;
+            }
+        }
+        return colNameToType;
+    }
+
+    private ColumnBinder binder(String colName, int colType) throws StoreException {
+        switch (colType) {
+            case Types.TIMESTAMP:
+            case Types.TIMESTAMP_WITH_TIMEZONE:
+                return (statement, i, value) -> statement.setTimestamp(i, new Timestamp(Long.parseLong(value)));
+            case Types.VARCHAR:
+            case Types.CHAR:
+                return PreparedStatement::setString;
+            case Types.BIGINT:
+                return (statement, i, value) -> statement.setLong(i, Long.parseLong(value));
+            case Types.INTEGER:
+            case Types.SMALLINT:
+                return (statement, i, value) -> statement.setInt(i, Integer.parseInt(value));
+            case Types.DOUBLE:
+            case Types.NUMERIC:
+            case Types.DECIMAL:
+                return (statement, i, value) -> statement.setDouble(i, Double.parseDouble(value));
+            case Types.BOOLEAN:
+            case Types.BIT:
+                return (statement, i, value) -> statement.setBoolean(i, Boolean.parseBoolean(value));
+            default:
+                throw new StoreException("Data type is unsupported by CSV parser: " + colType
+                        + ", column name: " + colName);
+        }
+    }
+
+    private ColumnWriter[] appendCSVHeader(ResultSet rs, CSVPrinter csvPrinter) throws SQLException, IOException {
         ResultSetMetaData rsmd = rs.getMetaData();
         int columnCount = rsmd.getColumnCount();
         List<String> colNames = new ArrayList<>();
+        ColumnWriter[] writers = new ColumnWriter[columnCount];
         for (int i = 1; i <= columnCount; i++) {
             colNames.add(rsmd.getColumnName(i).toUpperCase());
-        }
-        csvPrinter.printRecord(colNames);
-    }
-
-    private void appendCSVRecord(ResultSet rs, CSVPrinter csvPrinter) throws SQLException, IOException {
-        ResultSetMetaData rsmd = rs.getMetaData();
-        int colCount = rsmd.getColumnCount();
-        List<Object> record = new ArrayList<>();
-        for (int i = 1; i <= colCount; i++) {
-            int colType = rsmd.getColumnType(i);
-            switch (colType) {
+            switch (rsmd.getColumnType(i)) {
                 case Types.TIMESTAMP:
                 case Types.TIMESTAMP_WITH_TIMEZONE:
-                    record.add(rs.getTimestamp(i).getTime());
+                    writers[i - 1] = (resultSet, index) -> {
+                        Timestamp timestamp = resultSet.getTimestamp(index);
+                        return timestamp == null ? null : timestamp.getTime();
+                    };
                     break;
                 default:
-                    record.add(rs.getObject(i));
+                    writers[i - 1] = ResultSet::getObject;
             }
         }
-        csvPrinter.printRecord(record);
+        csvPrinter.printRecord(colNames);
+        return writers;
+    }
+
+    private interface ColumnWriter {
+        Object read(ResultSet rs, int index) throws SQLException;
+    }
+
+    private interface ColumnBinder {
+        void bind(PreparedStatement statement, int index, String value) throws SQLException;
     }
 
 }
@@ -15,6 +15,7 @@ import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public class FundingStrategy implements Strategy {
     private final Logger logger = LoggerFactory.getLogger(FundingStrategy.class);
@@ -44,10 +45,16 @@ public class FundingStrategy implements Strategy {
 
     @Override
     public void run() throws StrategyException {
-        List<FundingValue> fundingValues = new ArrayList<>();
+        // 所有账户并发查询
+        List<CompletableFuture<ExMessage<?>>> futures = new ArrayList<>();
         for (Exchange ex : brickContext.getAccountManager().getAccounts(type)) {
-            ExMessage<?> msg = ex.process(new ExAction<>(ExAction.ActionType.GET_FUNDING_FEES,
-                    System.currentTimeMillis() - HOUR_MILLISECONDS));
+            futures.add(ex.processAsync(new ExAction<>(ExAction.ActionType.GET_FUNDING_FEES,
+                    System.currentTimeMillis() - HOUR_MILLISECONDS)));
+        }
+
+        List<FundingValue> fundingValues = new ArrayList<>();
+        for (CompletableFuture<ExMessage<?>> future : futures) {
+            ExMessage<?> msg = future.join();
             if (msg.getType().equals(ExMessage.ExMsgType.ERROR)) {
                 throw new StrategyException("failed to get funding values", (Throwable) msg.getData());
             }
@@ -1,3 +1,5 @@
+-- 初始建表，索引与分区由 sql/migration 下的迁移脚本创建，见 SchemaMigrator
+
 -- 账户配置表，用户根据账户名称自行选择，通过ExchangeManager创建注册，完成初始化
 CREATE TABLE IF NOT EXISTS account_config (
     id SERIAL PRIMARY KEY,
@@ -48,9 +50,6 @@ CREATE TABLE IF NOT EXISTS asset_history (
    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
 );
 
--- CREATE INDEX IF NOT EXISTS idx_asset_history_time_desc ON asset_history
---     (asset, account, time DESC);
-
 
 -- CREATE TABLE IF NOT EXISTS future_symbol (
 --     id SERIAL PRIMARY KEY,
@@ -82,9 +81,6 @@ CREATE TABLE IF NOT EXISTS checking_profit (
    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
 );
 
--- CREATE INDEX IF NOT EXISTS idx_checking_profit_time_desc ON checking_profit
---     (asset, time DESC);
-
 
 -- 期货仓位数据表
 
@@ -102,9 +98,6 @@ CREATE TABLE IF NOT EXISTS position_value (
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
 );
 
--- CREATE INDEX IF NOT EXISTS idx_position_value_time_desc ON position_value
---     (name, account, time DESC);
-
 -- 资金费用表
 CREATE TABLE IF NOT EXISTS funding (
     id SERIAL PRIMARY KEY,
@@ -117,9 +110,6 @@ CREATE TABLE IF NOT EXISTS funding (
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
 );
 
--- CREATE INDEX IF NOT EXISTS idx_funding_time_desc ON funding
---     (name, account, time DESC);
-
 -- 成交记录表
 
 CREATE TABLE IF NOT EXISTS history_order (
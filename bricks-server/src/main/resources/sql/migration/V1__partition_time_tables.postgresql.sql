@@ -0,0 +1,67 @@
+-- 按 time 字段按月分区
+-- 已有数据整体作为 <table>_legacy 分区，范围到已有数据的最后一个月
+-- 超出已创建分区范围的数据写入 <table>_default 分区
+
+-- 创建当前月及之后 months 个月的分区，已经存在或与 legacy 分区重叠时跳过
+-- default 分区内已有该月的数据时，将这些数据移动到新建的分区
+CREATE OR REPLACE FUNCTION bricks_ensure_partitions(tbl TEXT, months INTEGER) RETURNS VOID AS $$
+DECLARE
+    start_time TIMESTAMP;
+    part TEXT;
+    moved BIGINT;
+BEGIN
+    FOR i IN 0..months LOOP
+        start_time := date_trunc('month', now()::timestamp) + make_interval(months => i);
+        part := tbl || '_' || to_char(start_time, 'YYYYMM');
+        BEGIN
+            EXECUTE format('CREATE TABLE IF NOT EXISTS %I PARTITION OF %I FOR VALUES FROM (%L) TO (%L)',
+                    part, tbl, start_time, start_time + interval '1 month');
+        EXCEPTION
+            WHEN invalid_object_definition THEN
+                RAISE NOTICE 'partition % overlaps an existing partition of %, skipped', part, tbl;
+            WHEN check_violation THEN
+                EXECUTE format('CREATE TABLE %I (LIKE %I INCLUDING DEFAULTS)', part, tbl);
+                EXECUTE format('WITH moved_rows AS (DELETE FROM %I WHERE time >= %L AND time < %L RETURNING *) ' ||
+                        'INSERT INTO %I SELECT * FROM moved_rows', tbl || '_default',
+                        start_time, start_time + interval '1 month', part);
+                GET DIAGNOSTICS moved = ROW_COUNT;
+                EXECUTE format('ALTER TABLE %I ATTACH PARTITION %I FOR VALUES FROM (%L) TO (%L)',
+                        tbl, part, start_time, start_time + interval '1 month');
+                RAISE WARNING 'moved % rows of % from the default partition to %', moved, tbl, part;
+        END;
+    END LOOP;
+END;
+$$ LANGUAGE plpgsql;
+
+-- 将已有的表转为分区表，已有数据不需要复制
+CREATE OR REPLACE FUNCTION bricks_partition_table(tbl TEXT) RETURNS VOID AS $$
+DECLARE
+    legacy TEXT := tbl || '_legacy';
+    seq TEXT;
+    bound TIMESTAMP;
+BEGIN
+    IF EXISTS (SELECT 1 FROM pg_partitioned_table WHERE partrelid = tbl::regclass) THEN
+        RETURN;
+    END IF;
+    EXECUTE format('SELECT greatest(date_trunc(''month'', max(time)), date_trunc(''month'', now()::timestamp)) ' ||
+            '+ interval ''1 month'' FROM %I', tbl) INTO bound;
+    seq := pg_get_serial_sequence(tbl, 'id');
+
+    EXECUTE format('ALTER TABLE %I RENAME TO %I', tbl, legacy);
+    -- 分区的主键需要与分区表一致，包含分区字段
+    EXECUTE format('ALTER TABLE %I DROP CONSTRAINT %I', legacy, tbl || '_pkey');
+    EXECUTE format('ALTER TABLE %I ADD CONSTRAINT %I PRIMARY KEY (id, time)', legacy, legacy || '_pkey');
+    EXECUTE format('CREATE TABLE %I (LIKE %I INCLUDING DEFAULTS) PARTITION BY RANGE (time)', tbl, legacy);
+    EXECUTE format('ALTER TABLE %I ADD PRIMARY KEY (id, time)', tbl);
+    EXECUTE format('ALTER SEQUENCE %s OWNED BY %I.id', seq, tbl);
+    EXECUTE format('ALTER TABLE %I ATTACH PARTITION %I FOR VALUES FROM (MINVALUE) TO (%L)', tbl, legacy, bound);
+    EXECUTE format('CREATE TABLE %I PARTITION OF %I DEFAULT', tbl || '_default', tbl);
+    PERFORM bricks_ensure_partitions(tbl, 3);
+END;
+$$ LANGUAGE plpgsql;
+
+SELECT bricks_partition_table('position_value');
+SELECT bricks_partition_table('funding');
+SELECT bricks_partition_table('history_order');
+SELECT bricks_partition_table('checking_profit');
+SELECT bricks_partition_table('asset_history');
@@ -0,0 +1,20 @@
+-- 历史数据查询按 time 范围过滤，btree 索引可以反向扫描，不需要单独的 desc 索引
+-- 分区表上创建的索引会同时创建到每个分区
+
+CREATE INDEX IF NOT EXISTS idx_position_value_name_time ON position_value (name, time);
+CREATE INDEX IF NOT EXISTS idx_position_value_time ON position_value (time);
+
+CREATE INDEX IF NOT EXISTS idx_funding_account_time ON funding (account, time);
+-- 覆盖按时间汇总资金费用的查询
+CREATE INDEX IF NOT EXISTS idx_funding_time ON funding (time) INCLUDE (name, symbol, account, value, rate);
+
+CREATE INDEX IF NOT EXISTS idx_history_order_time ON history_order (time);
+CREATE INDEX IF NOT EXISTS idx_history_order_account_time ON history_order (account, time);
+CREATE INDEX IF NOT EXISTS idx_history_order_name_time ON history_order (name, time);
+-- 覆盖批量写入时按 fill_id 去重的查询
+DROP INDEX IF EXISTS idx_history_order_fill_id;
+CREATE INDEX idx_history_order_fill_id ON history_order (fill_id) INCLUDE (account);
+
+CREATE INDEX IF NOT EXISTS idx_checking_profit_time ON checking_profit (time);
+
+CREATE INDEX IF NOT EXISTS idx_asset_history_time ON asset_history (time);
@@ -0,0 +1,46 @@
+package org.eurekaka.bricks.server.executor;
+
+import org.eurekaka.bricks.common.exception.StoreException;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ExOrderWriterTest {
+
+    @Test
+    public void testRetry() {
+        ExOrderWriter writer = new ExOrderWriter("test-order-writer");
+        List<String> steps = new CopyOnWriteArrayList<>();
+        AtomicInteger failures = new AtomicInteger(2);
+
+        // 第二步失败两次后成功，第一步不重复执行，之后提交的记录保持顺序
+        writer.submit(() -> steps.add("store"), () -> {
+            if (failures.getAndDecrement() > 0) {
+                throw new StoreException("db down");
+            }
+            steps.add("commit");
+        });
+        writer.submit(() -> steps.add("next"));
+        writer.stop(2000);
+
+        Assert.assertEquals(List.of("store", "commit", "next"), steps);
+    }
+
+    @Test
+    public void testGiveUpWhenStopping() {
+        ExOrderWriter writer = new ExOrderWriter("test-order-writer");
+        List<String> steps = new CopyOnWriteArrayList<>();
+
+        writer.submit(() -> {
+            throw new StoreException("db down");
+        }, () -> steps.add("commit"));
+        long start = System.currentTimeMillis();
+        writer.stop(300);
+
+        Assert.assertTrue(System.currentTimeMillis() - start < 1000);
+        Assert.assertTrue(steps.isEmpty());
+    }
+}
@@ -281,4 +281,24 @@ public class FutureLimitOrderExecutorTest {
 
         Mockito.verify(store).updatePlanOrderLeftQuantity(Mockito.eq(0L), Mockito.anyLong(), Mockito.eq(1L));
     }
+
+    @Test
+    public void testExecutionStore() throws Exception {
+        AccountManager accountManager = Mockito.mock(AccountManager.class);
+        InfoState<Info0, ?> infoState = Mockito.mock(InfoState.class);
+        ExOrderStore store = Mockito.mock(ExOrderStore.class);
+        ExOrderStore.setExecutionStore(store);
+        try {
+            // 未指定存储时使用执行器存储，配置执行日志时从日志恢复未完成的 plan order
+            OrderExecutor marketOrderExecutor = new FutureMarketOrderExecutor(accountManager, infoState);
+            OrderExecutor orderExecutor = new FutureLimitOrderExecutor(Map.of(),
+                    accountManager, infoState, marketOrderExecutor);
+            orderExecutor.start();
+            Mockito.verify(store).queryPlanOrderNotFinished();
+            orderExecutor.stop();
+            marketOrderExecutor.stop();
+        } finally {
+            ExOrderStore.setExecutionStore(null);
+        }
+    }
 }
@@ -34,7 +34,7 @@ public class FutureMarketOrderExecutorTest {
 
         orderExecutor.start();
 
-        Thread.sleep(600);
+        Thread.sleep(200);
 
         // 此时应当完成一次shrink，以及存储订单
         ExOrder order1 = new ExOrder(null, "n1", null,
@@ -139,60 +139,47 @@ public class FutureMarketOrderExecutorTest {
         OrderExecutor orderExecutor = new FutureMarketOrderExecutor(accountManager, infoState, orderStore);
         orderExecutor.start();
 
-        PlanOrder planOrder1 = new PlanOrder(1, name, 870, symbolPrice,
-                870, System.currentTimeMillis(), System.currentTimeMillis());
-        orderExecutor.makeOrder(planOrder1);
-
+        // plan order 到达时立即下单，剩余部分间隔 500ms 后继续下单
         // 在hedger1 下单 555 ，因为hedger3只接受sell
         ExOrder order1 = new ExOrder("e1", name, symbol, OrderSide.BUY, OrderType.MARKET,
                 65.28, 8.195, 535, 8.206, 1);
         Mockito.when(ex1.process(new ExAction<>(ExAction.ActionType.MAKE_ORDER, order1)))
                 .thenReturn(new ExMessage(ExMessage.ExMsgType.RIGHT, "id1"));
-
-        Thread.sleep(550);
-
-        Mockito.verify(orderStore).commitExOrder(Mockito.eq("id1"), Mockito.eq(0L));
-        Mockito.verify(orderStore).updatePlanOrderLeftQuantity(
-                Mockito.eq(335L), Mockito.anyLong(), Mockito.eq(1L));
-        System.out.println(planOrder1);
-
-
         ExOrder order2 = new ExOrder("e1", name, symbol, OrderSide.BUY, OrderType.MARKET,
                 40.88, 8.195, 335, 8.206, 1);
         Mockito.when(ex1.process(new ExAction<>(ExAction.ActionType.MAKE_ORDER, order2)))
                 .thenReturn(new ExMessage(ExMessage.ExMsgType.RIGHT, "id2"));
-        Thread.sleep(500);
-        Mockito.verify(orderStore).commitExOrder(Mockito.eq("id2"), Mockito.eq(0L));
-        Mockito.verify(orderStore).updatePlanOrderLeftQuantity(
-                Mockito.eq(0L), Mockito.anyLong(), Mockito.eq(1L));
-        System.out.println(planOrder1);
 
+        PlanOrder planOrder1 = new PlanOrder(1, name, 870, symbolPrice,
+                870, System.currentTimeMillis(), System.currentTimeMillis());
+        orderExecutor.makeOrder(planOrder1);
 
-        PlanOrder planOrder2 = new PlanOrder(2, name, -670, symbolPrice,
-                670, System.currentTimeMillis(), System.currentTimeMillis());
-        orderExecutor.makeOrder(planOrder2);
+        Mockito.verify(orderStore, Mockito.timeout(200)).commitExOrder(Mockito.eq("id1"), Mockito.eq(0L));
+        Mockito.verify(orderStore, Mockito.timeout(200)).updatePlanOrderLeftQuantity(
+                Mockito.eq(335L), Mockito.anyLong(), Mockito.eq(1L));
+        Mockito.verify(orderStore, Mockito.timeout(1000)).commitExOrder(Mockito.eq("id2"), Mockito.eq(0L));
+        Mockito.verify(orderStore, Mockito.timeout(200)).updatePlanOrderLeftQuantity(
+                Mockito.eq(0L), Mockito.anyLong(), Mockito.eq(1L));
+        System.out.println(planOrder1);
 
         ExOrder order3 = new ExOrder("e1", name, symbol, OrderSide.SELL, OrderType.MARKET,
                 49.42, 8.125, 405, 8.118, 2);
         Mockito.when(ex1.process(new ExAction<>(ExAction.ActionType.MAKE_ORDER, order3)))
                 .thenReturn(new ExMessage(ExMessage.ExMsgType.RIGHT, "id3"));
-
-        Thread.sleep(550);
-
-        Mockito.verify(orderStore).commitExOrder(Mockito.eq("id3"), Mockito.eq(0L));
-        Mockito.verify(orderStore).updatePlanOrderLeftQuantity(
-                Mockito.eq(265L), Mockito.anyLong(), Mockito.eq(2L));
-        System.out.println(planOrder2);
-
         ExOrder order4 = new ExOrder("e1", name, symbol, OrderSide.SELL, OrderType.MARKET,
                 32.34, 8.125, 265, 8.118, 2);
         Mockito.when(ex1.process(new ExAction<>(ExAction.ActionType.MAKE_ORDER, order4)))
                 .thenReturn(new ExMessage(ExMessage.ExMsgType.RIGHT, "id4"));
 
-        Thread.sleep(500);
+        PlanOrder planOrder2 = new PlanOrder(2, name, -670, symbolPrice,
+                670, System.currentTimeMillis(), System.currentTimeMillis());
+        orderExecutor.makeOrder(planOrder2);
 
-        Mockito.verify(orderStore).commitExOrder(Mockito.eq("id4"), Mockito.eq(0L));
-        Mockito.verify(orderStore).updatePlanOrderLeftQuantity(
+        Mockito.verify(orderStore, Mockito.timeout(200)).commitExOrder(Mockito.eq("id3"), Mockito.eq(0L));
+        Mockito.verify(orderStore, Mockito.timeout(200)).updatePlanOrderLeftQuantity(
+                Mockito.eq(265L), Mockito.anyLong(), Mockito.eq(2L));
+        Mockito.verify(orderStore, Mockito.timeout(1000)).commitExOrder(Mockito.eq("id4"), Mockito.eq(0L));
+        Mockito.verify(orderStore, Mockito.timeout(200)).updatePlanOrderLeftQuantity(
                 Mockito.eq(0L), Mockito.anyLong(), Mockito.eq(2L));
         System.out.println(planOrder2);
 
@@ -205,18 +192,17 @@ public class FutureMarketOrderExecutorTest {
                 new DepthPricePair(name, symbol, 800))))
                 .thenReturn(new ExMessage(ExMessage.ExMsgType.RIGHT,
                         new DepthPrice(name, symbol, 8.1, 1055, 130.25)));
-        PlanOrder planOrder3 = new PlanOrder(3, name, 660, symbolPrice,
-                660, System.currentTimeMillis(), System.currentTimeMillis());
-        orderExecutor.makeOrder(planOrder3);
-
         ExOrder order5 = new ExOrder("e2", name, symbol, OrderSide.BUY, OrderType.MARKET,
                 80.54, 8.1, 660, 8.106, 3);
         Mockito.when(ex2.process(new ExAction<>(ExAction.ActionType.MAKE_ORDER, order5)))
                 .thenReturn(new ExMessage(ExMessage.ExMsgType.RIGHT, "id5"));
 
-        Thread.sleep(500);
-        Mockito.verify(orderStore).commitExOrder(Mockito.eq("id5"), Mockito.eq(0L));
-        Mockito.verify(orderStore).updatePlanOrderLeftQuantity(
+        PlanOrder planOrder3 = new PlanOrder(3, name, 660, symbolPrice,
+                660, System.currentTimeMillis(), System.currentTimeMillis());
+        orderExecutor.makeOrder(planOrder3);
+
+        Mockito.verify(orderStore, Mockito.timeout(200)).commitExOrder(Mockito.eq("id5"), Mockito.eq(0L));
+        Mockito.verify(orderStore, Mockito.timeout(200)).updatePlanOrderLeftQuantity(
                 Mockito.eq(0L), Mockito.anyLong(), Mockito.eq(3L));
         System.out.println(planOrder3);
 
@@ -229,18 +215,17 @@ public class FutureMarketOrderExecutorTest {
                 new DepthPricePair(name, symbol, 600))))
                 .thenReturn(new ExMessage(ExMessage.ExMsgType.RIGHT,
                         new DepthPrice(name, symbol, 8.3, 1055, 127.11)));
-        PlanOrder planOrder4 = new PlanOrder(4, name, -230, symbolPrice,
-                230, System.currentTimeMillis(), System.currentTimeMillis());
-        orderExecutor.makeOrder(planOrder4);
-
         ExOrder order6 = new ExOrder("e3", name, symbol, OrderSide.SELL, OrderType.MARKET,
                 28.07, 8.275, 230, 8.269, 4);
         Mockito.when(ex3.process(new ExAction<>(ExAction.ActionType.MAKE_ORDER, order6)))
                 .thenReturn(new ExMessage(ExMessage.ExMsgType.RIGHT, "id6"));
 
-        Thread.sleep(500);
-        Mockito.verify(orderStore).commitExOrder(Mockito.eq("id6"), Mockito.eq(0L));
-        Mockito.verify(orderStore).updatePlanOrderLeftQuantity(
+        PlanOrder planOrder4 = new PlanOrder(4, name, -230, symbolPrice,
+                230, System.currentTimeMillis(), System.currentTimeMillis());
+        orderExecutor.makeOrder(planOrder4);
+
+        Mockito.verify(orderStore, Mockito.timeout(200)).commitExOrder(Mockito.eq("id6"), Mockito.eq(0L));
+        Mockito.verify(orderStore, Mockito.timeout(200)).updatePlanOrderLeftQuantity(
                 Mockito.eq(0L), Mockito.anyLong(), Mockito.eq(4L));
         System.out.println(planOrder4);
 
@@ -0,0 +1,46 @@
+package org.eurekaka.bricks.server.executor;
+
+import org.eurekaka.bricks.common.model.OrderSide;
+import org.eurekaka.bricks.common.model.OrderType;
+import org.eurekaka.bricks.common.model.PlanOrder;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+
+public class PlanOrderNettingTest {
+
+    private static PlanOrder planOrder(long id, String name, long quantity) {
+        return new PlanOrder(id, name, quantity, 10, Math.abs(quantity), 1000, 1000);
+    }
+
+    @Test
+    public void testNet() {
+        PlanOrder p1 = planOrder(1, "n1", 500);
+        PlanOrder p2 = planOrder(2, "n2", -300);
+        PlanOrder p3 = planOrder(3, "n1", 200);
+        PlanOrder p4 = planOrder(4, "n1", -600);
+        PlanOrder p5 = planOrder(5, "n2", -100);
+
+        List<PlanOrderNetting.Shrink> shrinks = PlanOrderNetting.net(
+                List.of(p1, p2, p3, p4, p5), OrderType.MARKET);
+        // 只有 n1 存在反方向订单，p4 依次与 p1, p3 抵消
+        Assert.assertEquals(4, shrinks.size());
+        Assert.assertSame(p1, shrinks.get(0).planOrder);
+        Assert.assertEquals(OrderSide.BUY, shrinks.get(0).order.getSide());
+        Assert.assertEquals(500, shrinks.get(0).order.getQuantity());
+        Assert.assertSame(p4, shrinks.get(1).planOrder);
+        Assert.assertEquals(OrderSide.SELL, shrinks.get(1).order.getSide());
+        Assert.assertSame(p3, shrinks.get(2).planOrder);
+        Assert.assertEquals(100, shrinks.get(3).order.getQuantity());
+
+        Assert.assertEquals(0, p1.getLeftQuantity());
+        Assert.assertEquals(100, p3.getLeftQuantity());
+        Assert.assertEquals(0, p4.getLeftQuantity());
+        Assert.assertEquals(300, p2.getLeftQuantity());
+        Assert.assertEquals(100, p5.getLeftQuantity());
+
+        // 已经抵消完成后不再产生记录
+        Assert.assertTrue(PlanOrderNetting.net(List.of(p1, p2, p3, p4, p5), OrderType.MARKET).isEmpty());
+    }
+}
@@ -0,0 +1,103 @@
+package org.eurekaka.bricks.server.manager;
+
+import org.eurekaka.bricks.common.model.Notification;
+import org.eurekaka.bricks.common.model.TopDepthNotification;
+import org.eurekaka.bricks.server.model.TextNotification;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.eurekaka.bricks.common.model.TopDepthNotification.DepthSide.ASK;
+import static org.eurekaka.bricks.common.model.TopDepthNotification.DepthSide.BID;
+
+public class ConflatingNotificationQueueTest {
+
+    @Test
+    public void testConflation() throws Exception {
+        ConflatingNotificationQueue queue = new ConflatingNotificationQueue();
+        TextNotification order1 = new TextNotification("n1", "a1", "order1");
+        TextNotification order2 = new TextNotification("n1", "a1", "order2");
+        queue.add(new TopDepthNotification("n1", "BTCUSDT", "a1", BID, 100));
+        queue.add(order1);
+        queue.add(new TopDepthNotification("n1", "BTCUSDT", "a1", ASK, 101));
+        queue.add(new TopDepthNotification("n1", "BTCUSDT", "a1", BID, 99));
+        queue.add(new TopDepthNotification("n1", "BTCUSDT", "a2", BID, 98));
+        queue.add(order2);
+        queue.add(new TopDepthNotification("n1", "BTCUSDT", "a1", BID, 97));
+
+        Assert.assertEquals(5, queue.size());
+        Assert.assertEquals(2, queue.getConflatedCount());
+
+        // 合并通知位于第一次出现的位置，值为最新价格
+        Assert.assertEquals(new TopDepthNotification("n1", "BTCUSDT", "a1", BID, 97), queue.take());
+        Assert.assertSame(order1, queue.take());
+        Assert.assertEquals(new TopDepthNotification("n1", "BTCUSDT", "a1", ASK, 101), queue.take());
+        Assert.assertEquals(new TopDepthNotification("n1", "BTCUSDT", "a2", BID, 98), queue.take());
+        Assert.assertSame(order2, queue.take());
+        Assert.assertNull(queue.poll());
+
+        // 消费后再次出现的通知重新入队
+        queue.add(new TopDepthNotification("n1", "BTCUSDT", "a1", BID, 96));
+        Assert.assertEquals(new TopDepthNotification("n1", "BTCUSDT", "a1", BID, 96),
+                queue.poll(10, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testBlockingTake() throws Exception {
+        ConflatingNotificationQueue queue = new ConflatingNotificationQueue();
+        List<Notification> received = new ArrayList<>();
+        Thread consumer = new Thread(() -> {
+            try {
+                for (int i = 0; i < 2; i++) {
+                    received.add(queue.take());
+                }
+            } catch (InterruptedException ignored) {
+            }
+        });
+        consumer.start();
+        TextNotification order1 = new TextNotification("n1", "a1", "order1");
+        queue.add(order1);
+        queue.add(new TextNotification("n1", "a1", "order2"));
+        consumer.join(1000);
+
+        Assert.assertEquals(2, received.size());
+        Assert.assertSame(order1, received.get(0));
+        Assert.assertNull(queue.poll(10, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testConflationKey() {
+        // 相同 account, symbol, side 的通知返回同一个 key 实例，发布时不创建对象
+        Assert.assertSame(new TopDepthNotification("n1", "ETHUSDT", "a1", BID, 1).getConflationKey(),
+                new TopDepthNotification("n2", "ETHUSDT", "a1", BID, 2).getConflationKey());
+        Assert.assertNotSame(new TopDepthNotification("n1", "ETHUSDT", "a1", BID, 1).getConflationKey(),
+                new TopDepthNotification("n1", "ETHUSDT", "a1", ASK, 1).getConflationKey());
+    }
+
+    @Test
+    public void testRemove() {
+        ConflatingNotificationQueue queue = new ConflatingNotificationQueue();
+        TextNotification order1 = new TextNotification("n1", "a1", "order1");
+        TextNotification order2 = new TextNotification("n1", "a1", "order2");
+        queue.add(new TopDepthNotification("n1", "BTCUSDT", "a1", BID, 100));
+        queue.add(order1);
+        queue.add(new TopDepthNotification("n1", "BTCUSDT", "a1", BID, 99));
+        queue.add(order2);
+
+        // 合并的通知按最新值删除
+        Assert.assertFalse(queue.remove(new TopDepthNotification("n1", "BTCUSDT", "a1", BID, 100)));
+        Assert.assertTrue(queue.remove(new TopDepthNotification("n1", "BTCUSDT", "a1", BID, 99)));
+        Assert.assertTrue(queue.remove(order1));
+        Assert.assertEquals(1, queue.size());
+
+        // 删除后再次出现的通知重新占位
+        queue.add(new TopDepthNotification("n1", "BTCUSDT", "a1", BID, 98));
+        Assert.assertTrue(queue.removeAll(Collections.singletonList(order2)));
+        Assert.assertEquals(new TopDepthNotification("n1", "BTCUSDT", "a1", BID, 98), queue.poll());
+        Assert.assertNull(queue.poll());
+    }
+}
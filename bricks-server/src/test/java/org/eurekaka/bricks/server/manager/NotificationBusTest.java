@@ -0,0 +1,153 @@
+package org.eurekaka.bricks.server.manager;
+
+import org.eurekaka.bricks.common.model.Notification;
+import org.eurekaka.bricks.server.model.TextNotification;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+
+public class NotificationBusTest {
+
+    @Test
+    public void testRingBuffer() throws Exception {
+        MpscRingBuffer<Integer> ringBuffer = new MpscRingBuffer<>(3);
+        Assert.assertEquals(4, ringBuffer.capacity());
+        for (int i = 0; i < 4; i++) {
+            Assert.assertTrue(ringBuffer.offer(i));
+        }
+        Assert.assertFalse(ringBuffer.offer(4));
+        Assert.assertEquals(4, ringBuffer.size());
+
+        Assert.assertEquals(Integer.valueOf(0), ringBuffer.poll());
+        Assert.assertTrue(ringBuffer.offer(4));
+        for (int i = 1; i < 5; i++) {
+            Assert.assertEquals(Integer.valueOf(i), ringBuffer.poll());
+        }
+        Assert.assertNull(ringBuffer.poll());
+        Assert.assertTrue(ringBuffer.isEmpty());
+    }
+
+    @Test
+    public void testMultiProducers() throws Exception {
+        MpscRingBuffer<Long> ringBuffer = new MpscRingBuffer<>(1024);
+        int producers = 4;
+        int count = 10000;
+        CountDownLatch latch = new CountDownLatch(producers);
+        for (int p = 0; p < producers; p++) {
+            long base = (long) p * count;
+            new Thread(() -> {
+                for (int i = 0; i < count; i++) {
+                    while (!ringBuffer.offer(base + i)) {
+                        Thread.yield();
+                    }
+                }
+                latch.countDown();
+            }).start();
+        }
+
+        // 每个生产者的元素保持各自的写入顺序
+        long[] last = new long[producers];
+        for (int p = 0; p < producers; p++) {
+            last[p] = (long) p * count - 1;
+        }
+        int received = 0;
+        while (received < producers * count) {
+            Long value = ringBuffer.poll();
+            if (value == null) {
+                Thread.yield();
+                continue;
+            }
+            int p = (int) (value / count);
+            Assert.assertEquals(last[p] + 1, value.longValue());
+            last[p] = value;
+            received++;
+        }
+        latch.await();
+        Assert.assertNull(ringBuffer.poll());
+    }
+
+    @Test
+    public void testBusFanOut() throws Exception {
+        NotificationBus bus = new NotificationBus();
+        List<Notification> all = new CopyOnWriteArrayList<>();
+        List<Notification> n1 = new CopyOnWriteArrayList<>();
+        NotificationConsumer listenerConsumer = new NotificationConsumer(null, 4, WaitStrategy.PARK, all::add);
+        NotificationConsumer strategyConsumer = new NotificationConsumer("n1", 4, WaitStrategy.BUSY_SPIN, n1::add);
+        bus.subscribe(listenerConsumer);
+        bus.subscribe(strategyConsumer);
+        Thread t1 = new Thread(listenerConsumer);
+        Thread t2 = new Thread(strategyConsumer);
+        t1.start();
+        t2.start();
+
+        List<Notification> sent = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            Notification notification = new TextNotification(i % 2 == 0 ? "n1" : "n2", "a1", "text" + i);
+            sent.add(notification);
+            Assert.assertTrue(bus.add(notification));
+        }
+
+        bus.unsubscribe(listenerConsumer);
+        bus.unsubscribe(strategyConsumer);
+        listenerConsumer.stop();
+        strategyConsumer.stop();
+        t1.join(1000);
+        t2.join(1000);
+
+        // 环形队列容量小于通知数量，多出的通知写入溢出队列，不会丢失
+        Assert.assertEquals(sent, all);
+        Assert.assertEquals(50, n1.size());
+        for (int i = 0; i < 50; i++) {
+            Assert.assertSame(sent.get(i * 2), n1.get(i));
+        }
+        Assert.assertEquals(100, listenerConsumer.getPublished());
+        Assert.assertEquals(0, strategyConsumer.getDropped());
+
+        // 取消订阅后不再接收通知
+        bus.add(new TextNotification("n1", "a1", "text"));
+        Assert.assertEquals(50, n1.size());
+        Assert.assertEquals(0, bus.size());
+        Assert.assertNull(bus.poll());
+    }
+
+    @Test
+    public void testListenerOverflow() throws Exception {
+        NotificationBus bus = new NotificationBus();
+        List<Notification> all = new CopyOnWriteArrayList<>();
+        CountDownLatch blocked = new CountDownLatch(1);
+        // 监听器阻塞时生产者不等待，通知先写入溢出队列，溢出队列也满时丢弃
+        NotificationConsumer listenerConsumer = new NotificationConsumer(null, 4, 8, WaitStrategy.PARK, n -> {
+            try {
+                blocked.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            all.add(n);
+        });
+        bus.subscribe(listenerConsumer);
+        Thread t = new Thread(listenerConsumer);
+        t.start();
+
+        List<Notification> sent = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            Notification notification = new TextNotification("n1", "a1", "text" + i);
+            sent.add(notification);
+            Assert.assertTrue(bus.add(notification));
+        }
+        long dropped = listenerConsumer.getDropped();
+        // 消费线程可能已经取出第一条通知
+        Assert.assertTrue(dropped == 7 || dropped == 8);
+        Assert.assertEquals(20 - dropped, listenerConsumer.getPublished());
+
+        blocked.countDown();
+        bus.unsubscribe(listenerConsumer);
+        listenerConsumer.stop();
+        t.join(1000);
+        Assert.assertEquals(sent.subList(0, (int) (20 - dropped)), all);
+        Assert.assertEquals(0, listenerConsumer.getPending());
+    }
+}
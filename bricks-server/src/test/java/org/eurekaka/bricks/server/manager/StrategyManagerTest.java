@@ -7,11 +7,18 @@ import org.eurekaka.bricks.common.model.Info0;
 import org.eurekaka.bricks.common.model.Notification;
 import org.eurekaka.bricks.common.model.StrategyConfig;
 import org.eurekaka.bricks.server.model.TextNotification;
+import org.junit.Assert;
 import org.junit.Test;
 import org.mockito.Mockito;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
 
 public class StrategyManagerTest {
 
@@ -121,4 +128,89 @@ public class StrategyManagerTest {
 
         strategyManager.stop();
     }
+
+    @Test
+    public void testBusMultiStrategyManager() throws Exception {
+        List<Notification> all = new CopyOnWriteArrayList<>();
+        List<String> received = new CopyOnWriteArrayList<>();
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch blocked = new CountDownLatch(1);
+        Strategy strategy = new Strategy() {
+            @Override
+            public void run() {
+            }
+
+            @Override
+            public void notify(Notification notification) {
+                String text = ((TextNotification) notification).getText();
+                if ("block".equals(text)) {
+                    // 模拟处理缓慢的策略
+                    entered.countDown();
+                    try {
+                        blocked.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                received.add(text);
+            }
+        };
+
+        NotificationBus bus = new NotificationBus();
+        StrategyConfig strategyConfig = new StrategyConfig(1, "sn1", "c1", "n1", true,
+                Map.of("wait_strategy", "yield", "notification_buffer", "4", "notification_overflow", "8"));
+        BusMultiStrategyManager strategyManager = new BusMultiStrategyManager(c -> strategy, bus, all::add);
+        strategyManager.start();
+        strategyManager.startStrategy(strategyConfig);
+
+        bus.add(new TextNotification("n1", "e1", "text1"));
+        bus.add(new TextNotification("n1", "e1", "text2"));
+        bus.add(new TextNotification("n2", "e1", "text3"));
+        waitUntil(() -> received.size() == 2 && all.size() == 3);
+        Assert.assertEquals(List.of("text1", "text2"), received);
+
+        bus.add(new TextNotification("n1", "e1", "block"));
+        Assert.assertTrue(entered.await(2000, TimeUnit.MILLISECONDS));
+
+        // 策略阻塞时环形队列与溢出队列写满，生产者不等待，多出的通知丢弃
+        Thread publisher = new Thread(() -> {
+            for (int i = 0; i < 100; i++) {
+                bus.add(new TextNotification("n1", "e1", "text" + (i + 10)));
+            }
+        });
+        publisher.start();
+        publisher.join(2000);
+        Assert.assertFalse(publisher.isAlive());
+
+        NotificationConsumer consumer = null;
+        for (NotificationConsumer c : bus.getConsumers()) {
+            if ("n1".equals(c.getName())) {
+                consumer = c;
+            }
+        }
+        Assert.assertNotNull(consumer);
+        Assert.assertEquals(88, consumer.getDropped());
+        Assert.assertEquals(12, consumer.getPending());
+
+        blocked.countDown();
+        waitUntil(() -> received.size() == 15);
+        List<String> expected = new ArrayList<>(List.of("text1", "text2", "block"));
+        for (int i = 0; i < 12; i++) {
+            expected.add("text" + (i + 10));
+        }
+        Assert.assertEquals(expected, received);
+        // 统一监听器的溢出队列足够大，没有丢弃
+        waitUntil(() -> all.size() == 104);
+
+        strategyManager.stopStrategy(strategyConfig);
+        strategyManager.stop();
+    }
+
+    private static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 2000;
+        while (!condition.getAsBoolean()) {
+            Assert.assertTrue("condition not met in time", System.currentTimeMillis() < deadline);
+            Thread.sleep(5);
+        }
+    }
 }
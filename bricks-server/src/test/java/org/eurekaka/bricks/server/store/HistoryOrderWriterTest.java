@@ -0,0 +1,158 @@
+package org.eurekaka.bricks.server.store;
+
+import org.eurekaka.bricks.common.exception.StoreException;
+import org.eurekaka.bricks.common.model.OrderSide;
+import org.eurekaka.bricks.common.model.OrderType;
+import org.eurekaka.bricks.common.model.TradeNotification;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class HistoryOrderWriterTest extends StoreTestBase {
+
+    private static TradeNotification trade(String fillId, String account) {
+        return new TradeNotification(fillId, "id1", account, "n1", "s1",
+                OrderSide.BUY, OrderType.LIMIT, 1, 2, 2, "USDT", 1, 1);
+    }
+
+    @Test
+    public void testStoreHistoryOrders() throws StoreException {
+        ExOrderStore store = new ExOrderStore();
+        // 同一批次内以及已经存在的 fill id 不重复写入，不同账户的 fill id 可以相同
+        Assert.assertEquals(2, store.storeHistoryOrders(List.of(
+                trade("f1", "a1"), trade("f1", "a1"), trade("f2", "a1"))));
+        Assert.assertEquals(1, store.storeHistoryOrders(List.of(
+                trade("f1", "a1"), trade("f1", "a2"))));
+        Assert.assertEquals(3, store.queryHistoryOrders(null, "n1", 0, 3, 10).size());
+    }
+
+    @Test
+    public void testJsonNullFields() throws Exception {
+        TradeNotification order = new TradeNotification(null, null, null, "a1", "n1", "s1",
+                OrderSide.SELL, OrderType.MARKET, 1, 2, 2, null, 0.5, 1);
+        TradeNotification result = HistoryOrderWriter.fromJson(HistoryOrderWriter.toJson(order));
+        // 可能为空的字段读取后依然为 null
+        Assert.assertNull(result.getFillId());
+        Assert.assertNull(result.getClientOrderId());
+        Assert.assertNull(result.getOrderId());
+        Assert.assertNull(result.getFeeAsset());
+        Assert.assertEquals("a1", result.getAccount());
+        Assert.assertEquals(OrderSide.SELL, result.getSide());
+        Assert.assertEquals(OrderType.MARKET, result.getType());
+        Assert.assertEquals(0.5, result.getFee(), 1e-9);
+        Assert.assertEquals(1, result.getTime());
+    }
+
+    @Test
+    public void testWriter() throws Exception {
+        Path spillFile = Files.createTempFile("history", ".spill");
+        Files.delete(spillFile);
+        ExOrderStore store = new ExOrderStore();
+        HistoryOrderWriter writer = new HistoryOrderWriter(store, 2, 50, 16, spillFile.toString());
+        writer.start();
+
+        writer.write(trade("f1", "a1"));
+        writer.write(trade("f2", "a1"));
+        writer.write(trade("f2", "a1"));
+        writer.write(trade("f3", "a1"));
+
+        long start = System.currentTimeMillis();
+        while (writer.getBacklog() > 0 && System.currentTimeMillis() - start < 2000) {
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(0, writer.getBacklog());
+        Assert.assertEquals(0, writer.getLag());
+        Assert.assertEquals(3, writer.getWritten());
+        Assert.assertEquals(1, writer.getDuplicated());
+        writer.stop();
+
+        Assert.assertEquals(3, store.queryHistoryOrders(null, "n1", 0, 3, 10).size());
+        Assert.assertFalse(Files.exists(spillFile));
+    }
+
+    @Test
+    public void testSpillAndRecover() throws Exception {
+        Path spillFile = Files.createTempFile("history", ".spill");
+        Files.delete(spillFile);
+        ExOrderStore failedStore = Mockito.mock(ExOrderStore.class);
+        Mockito.when(failedStore.storeHistoryOrders(Mockito.anyList()))
+                .thenThrow(new StoreException("database unavailable"));
+
+        HistoryOrderWriter writer = new HistoryOrderWriter(failedStore, 10, 20, 16, spillFile.toString());
+        writer.start();
+        TradeNotification trade = trade("f1", "a1");
+        writer.write(trade);
+        writer.write(trade("f2", "a1"));
+        Thread.sleep(100);
+        Assert.assertEquals(2, writer.getBacklog());
+        Assert.assertTrue(writer.getLag() > 0);
+
+        // 停止时数据库依然不可用，保存到本地文件
+        writer.stop();
+        Assert.assertEquals(2, writer.getSpilled());
+        Assert.assertEquals(2, Files.readAllLines(spillFile).size());
+
+        // 重新启动时写入本地文件内的记录
+        ExOrderStore store = new ExOrderStore();
+        writer = new HistoryOrderWriter(store, 10, 20, 16, spillFile.toString());
+        writer.start();
+        Assert.assertFalse(Files.exists(spillFile));
+        Assert.assertEquals(2, writer.getWritten());
+        writer.stop();
+
+        List<TradeNotification> trades = store.queryHistoryOrders(null, "n1", 0, 3, 10);
+        Assert.assertEquals(2, trades.size());
+        trades.get(1).setId(0);
+        Assert.assertEquals(trade, trades.get(1));
+    }
+
+    @Test
+    public void testQueueFullAndStoreFailed() throws Exception {
+        Path spillFile = Files.createTempFile("history", ".spill");
+        Files.delete(spillFile);
+        ExOrderStore store = new ExOrderStore();
+        ExOrderStore failedStore = Mockito.mock(ExOrderStore.class);
+        CountDownLatch latch = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+        // 第一次写入等待后失败，之后恢复正常
+        Mockito.when(failedStore.storeHistoryOrders(Mockito.anyList())).thenAnswer(invocation -> {
+            if (calls.getAndIncrement() == 0) {
+                latch.await();
+                throw new StoreException("database unavailable");
+            }
+            return store.storeHistoryOrders(invocation.getArgument(0));
+        });
+
+        HistoryOrderWriter writer = new HistoryOrderWriter(failedStore, 10, 20, 2, spillFile.toString());
+        writer.start();
+        writer.write(trade("f1", "a1"));
+        Thread.sleep(100);
+
+        // 写入线程阻塞在 f1，队列满后写入本地文件，写入方不阻塞
+        long start = System.currentTimeMillis();
+        for (int i = 2; i <= 5; i++) {
+            writer.write(trade("f" + i, "a1"));
+        }
+        Assert.assertTrue(System.currentTimeMillis() - start < 1000);
+        Assert.assertEquals(2, writer.getSpilled());
+        Assert.assertEquals(2, Files.readAllLines(spillFile).size());
+
+        // 数据库恢复后写入队列内的记录，空闲时写入本地文件内的记录
+        latch.countDown();
+        start = System.currentTimeMillis();
+        while (writer.getWritten() < 5 && System.currentTimeMillis() - start < 5000) {
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(5, writer.getWritten());
+        Assert.assertFalse(Files.exists(spillFile));
+        writer.stop();
+
+        Assert.assertEquals(5, store.queryHistoryOrders(null, "n1", 0, 3, 10).size());
+    }
+}
@@ -0,0 +1,166 @@
+package org.eurekaka.bricks.server.store;
+
+import org.eurekaka.bricks.common.model.OrderSide;
+import org.eurekaka.bricks.common.model.OrderType;
+import org.eurekaka.bricks.common.model.PlanOrder;
+import org.eurekaka.bricks.server.model.ExOrder;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.RandomAccessFile;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.util.Collections;
+
+public class JournalExOrderStoreTest extends StoreTestBase {
+
+    private String journalFile() {
+        return "./target/journal" + System.nanoTime();
+    }
+
+    @Test
+    public void testJournalStoreReplicate() throws Exception {
+        String file = journalFile();
+        JournalExOrderStore store = new JournalExOrderStore(file, 1024 * 1024, 10, 100000);
+        store.start();
+
+        PlanOrder planOrder = new PlanOrder(0, "n1", 2, 4, 2, 1, 1);
+        store.storePlanOrder(planOrder);
+        Assert.assertEquals(1, planOrder.getId());
+        ExOrder order = new ExOrder("a1", "n1", "s1",
+                OrderSide.BUY, OrderType.LIMIT, 1, 2, 2, 2.2, 1);
+        store.storeExOrder(order);
+        Assert.assertEquals(1, order.getId());
+
+        // 未同步前数据库中没有记录，查询由内存状态返回
+        Assert.assertTrue(store.getReplicationBacklog() > 0);
+        Assert.assertEquals(0, new ExOrderStore().queryPlanOrderNotFinished().size());
+        Assert.assertEquals(Collections.singletonList(planOrder), store.queryPlanOrderNotFinished());
+        Assert.assertEquals(Collections.singletonList(order), store.queryUncommittedOrders());
+
+        store.updatePlanOrderStartTime(4, 1);
+        store.updatePlanOrderLeftQuantity(1, 2, 1);
+        store.commitExOrder("id1", 1);
+        planOrder.setLeftQuantity(1);
+        planOrder.setStartTime(4);
+        planOrder.setUpdateTime(2);
+        Assert.assertEquals(Collections.singletonList(planOrder), store.queryPlanOrderNotFinished());
+        Assert.assertEquals(0, store.queryUncommittedOrders().size());
+        store.stop();
+
+        Assert.assertEquals(Collections.singletonList(planOrder), new ExOrderStore().queryPlanOrderNotFinished());
+        Assert.assertEquals(0, new ExOrderStore().queryUncommittedOrders().size());
+    }
+
+    @Test
+    public void testJournalStoreRecover() throws Exception {
+        String file = journalFile();
+        JournalExOrderStore store = new JournalExOrderStore(file, 1024 * 1024, 10, 100000);
+        store.start();
+        PlanOrder planOrder = new PlanOrder(0, "n1", 2, 4, 2, 1, 1);
+        store.storePlanOrder(planOrder);
+        ExOrder order = new ExOrder("a1", "n1", "s1",
+                OrderSide.BUY, OrderType.LIMIT, 1, 2, 2, 2.2, 1);
+        store.storeExOrder(order);
+        store.sync();
+
+        // 不经过 stop 直接重新打开，模拟进程退出
+        JournalExOrderStore recovered = new JournalExOrderStore(file, 1024 * 1024, 10, 100000);
+        recovered.start();
+        Assert.assertEquals(Collections.singletonList(planOrder), recovered.queryPlanOrderNotFinished());
+        Assert.assertEquals(Collections.singletonList(order), recovered.queryUncommittedOrders());
+
+        PlanOrder next = new PlanOrder(0, "n1", 3, 4, 3, 1, 1);
+        recovered.storePlanOrder(next);
+        Assert.assertEquals(2, next.getId());
+        recovered.stop();
+        Assert.assertEquals(2, new ExOrderStore().queryPlanOrderNotFinished().size());
+        Assert.assertEquals(1, new ExOrderStore().queryUncommittedOrders().size());
+    }
+
+    @Test
+    public void testJournalStoreInitFromDatabase() throws Exception {
+        ExOrderStore database = new ExOrderStore();
+        PlanOrder planOrder = new PlanOrder(0, "n1", 2, 4, 2, 1, 1);
+        database.storePlanOrder(planOrder);
+        database.storePlanOrder(new PlanOrder(0, "n1", 2, 4, 0, 1, 1));
+
+        JournalExOrderStore store = new JournalExOrderStore(journalFile(), 1024 * 1024, 10, 100000);
+        store.start();
+        Assert.assertEquals(0, store.getReplicationBacklog());
+        Assert.assertEquals(Collections.singletonList(planOrder), store.queryPlanOrderNotFinished());
+
+        PlanOrder next = new PlanOrder(0, "n1", 3, 4, 3, 1, 1);
+        store.storePlanOrder(next);
+        Assert.assertEquals(3, next.getId());
+        store.stop();
+    }
+
+    @Test
+    public void testJournalStoreRoll() throws Exception {
+        JournalExOrderStore store = new JournalExOrderStore(journalFile(), 1024, 10, 100000);
+        store.start();
+        for (int i = 0; i < 100; i++) {
+            PlanOrder planOrder = new PlanOrder(0, "n1", 2, 4, 2, 1, 1);
+            store.storePlanOrder(planOrder);
+            store.updatePlanOrderLeftQuantity(0, 2, planOrder.getId());
+        }
+        Assert.assertEquals(0, store.queryPlanOrderNotFinished().size());
+        store.stop();
+        Assert.assertEquals(100, new ExOrderStore().queryMaxId("hedging_plan_order"));
+        Assert.assertEquals(0, new ExOrderStore().queryPlanOrderNotFinished().size());
+    }
+
+    @Test
+    public void testJournalStoreBackgroundRoll() throws Exception {
+        JournalExOrderStore store = new JournalExOrderStore(journalFile(), 4096, 10, 5);
+        store.start();
+        for (int i = 0; i < 200; i++) {
+            PlanOrder planOrder = new PlanOrder(0, "n1", 2, 4, 2, 1, 1);
+            store.storePlanOrder(planOrder);
+            store.updatePlanOrderLeftQuantity(0, 2, planOrder.getId());
+            store.storeOrderResult("id" + i, 0, "CANCELLED");
+            // 等待同步，超过高水位时由后台线程滚动
+            Thread.sleep(2);
+        }
+        store.stop();
+
+        Assert.assertEquals(200, new ExOrderStore().queryMaxId("hedging_plan_order"));
+        Assert.assertEquals(0, new ExOrderStore().queryPlanOrderNotFinished().size());
+        try (Connection conn = DatabaseStore.getConnection()) {
+            ResultSet resultSet = conn.createStatement().executeQuery("select count(*) from hedging_order_result");
+            Assert.assertTrue(resultSet.next());
+            Assert.assertEquals(200, resultSet.getLong(1));
+        }
+
+        // 数据库的 id 序列已经推进，不使用日志时生成的 id 不冲突
+        PlanOrder next = new PlanOrder(0, "n1", 2, 4, 2, 1, 1);
+        new ExOrderStore().storePlanOrder(next);
+        Assert.assertEquals(201, next.getId());
+    }
+
+    @Test
+    public void testJournalStoreCorruptedTail() throws Exception {
+        String file = journalFile();
+        JournalExOrderStore store = new JournalExOrderStore(file, 1024 * 1024, 10, 100000);
+        store.start();
+        PlanOrder planOrder = new PlanOrder(0, "n1", 2, 4, 2, 1, 1);
+        store.storePlanOrder(planOrder);
+        int length = store.getReplicationBacklog();
+        store.storePlanOrder(new PlanOrder(0, "n2", 2, 4, 2, 1, 1));
+        store.sync();
+
+        // 最后一条记录写入不完整
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(8);
+            long position = raf.readLong() + length;
+            raf.seek(position + 12);
+            raf.writeLong(-1);
+        }
+
+        JournalExOrderStore recovered = new JournalExOrderStore(file, 1024 * 1024, 10, 100000);
+        recovered.start();
+        Assert.assertEquals(Collections.singletonList(planOrder), recovered.queryPlanOrderNotFinished());
+        recovered.stop();
+    }
+}
@@ -0,0 +1,46 @@
+package org.eurekaka.bricks.server.store;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.util.List;
+
+public class SchemaMigratorTest extends StoreTestBase {
+
+    @Test
+    public void testSchemaMigratorMigrate() throws Exception {
+        // StoreTestBase 已经执行过迁移，再次执行不重复执行
+        SchemaMigrator migrator = new SchemaMigrator();
+        Assert.assertEquals(0, migrator.migrate());
+        migrator.ensurePartitions();
+
+        try (Connection conn = DatabaseStore.getConnection()) {
+            ResultSet resultSet = conn.getMetaData().getIndexInfo(null, null,
+                    "HISTORY_ORDER", false, false);
+            boolean found = false;
+            while (resultSet.next()) {
+                if ("IDX_HISTORY_ORDER_TIME".equalsIgnoreCase(resultSet.getString("INDEX_NAME"))) {
+                    found = true;
+                }
+            }
+            Assert.assertTrue(found);
+
+            resultSet = conn.createStatement().executeQuery("select count(*) from schema_version");
+            Assert.assertTrue(resultSet.next());
+            Assert.assertEquals(2, resultSet.getInt(1));
+        }
+    }
+
+    @Test
+    public void testSchemaMigratorSplit() {
+        List<String> sqls = SchemaMigrator.split("-- comment; ignored\n" +
+                "CREATE INDEX a ON t (time);\n" +
+                "INSERT INTO t VALUES ('a;b');\n" +
+                "CREATE FUNCTION f() RETURNS VOID AS $$ BEGIN NULL; END; $$ LANGUAGE plpgsql;\n");
+        Assert.assertEquals(List.of("CREATE INDEX a ON t (time)",
+                "INSERT INTO t VALUES ('a;b')",
+                "CREATE FUNCTION f() RETURNS VOID AS $$ BEGIN NULL; END; $$ LANGUAGE plpgsql"), sqls);
+    }
+}
@@ -20,6 +20,7 @@ public class StoreTestBase {
         DatabaseStore.setDataSource(DatabaseStore.getDatabaseSource(config));
 
         DatabaseStore.initSql("sql/init.sql");
+        new SchemaMigrator().migrate();
     }
 
     @After
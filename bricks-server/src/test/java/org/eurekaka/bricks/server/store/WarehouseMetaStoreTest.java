@@ -0,0 +1,101 @@
+package org.eurekaka.bricks.server.store;
+
+import org.eurekaka.bricks.common.archive.ColumnarReader;
+import org.eurekaka.bricks.common.archive.MarketArchive;
+import org.eurekaka.bricks.common.exception.StoreException;
+import org.eurekaka.bricks.common.model.FundingValue;
+import org.eurekaka.bricks.common.model.PositionValue;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+public class WarehouseMetaStoreTest extends StoreTestBase {
+
+    @Test
+    public void testWarehouseMetaStoreExportImport() throws Exception {
+        FutureStore futureStore = new FutureStore();
+        for (int i = 0; i < 7; i++) {
+            futureStore.storeFundingValue(new FundingValue("n" + i, "s1", "a1", i, 0.01, 60000));
+        }
+        futureStore.storePositionValue(new PositionValue(
+                "n1", "s1", "a1", 1, 2, 2, 1, 1, 60000));
+
+        long start = 0;
+        long stop = System.currentTimeMillis() + 60000;
+        // chunk size 小于行数，分多批提交
+        WarehouseMetaStore store = new WarehouseMetaStore("./target", 2, 3, 2);
+        Map<String, String> files = store.exportCSV(List.of("funding", "position_value"), start, stop);
+        Assert.assertEquals(2, files.size());
+
+        List<FundingValue> values = futureStore.queryFundingValueByTime(60000);
+        Map<String, Long> rows = store.importCSV(files, start, stop);
+        Assert.assertEquals(7L, (long) rows.get("funding"));
+        Assert.assertEquals(1L, (long) rows.get("position_value"));
+        Assert.assertEquals(values, futureStore.queryFundingValueByTime(60000));
+        Assert.assertEquals(1, futureStore.queryPositionValue("n1", 0, 120000).size());
+    }
+
+    @Test
+    public void testWarehouseMetaStoreExportArchive() throws Exception {
+        FutureStore futureStore = new FutureStore();
+        PositionValue first = new PositionValue("n1", "s1", "a1", 1, 2.5, 2, 1.5, 1, 60000);
+        PositionValue second = new PositionValue("n2", "s1", "a1", -1, 2.25, -2, 2, -1, 120000);
+        futureStore.storePositionValue(second);
+        futureStore.storePositionValue(first);
+
+        WarehouseMetaStore store = new WarehouseMetaStore("./target", 2, 3, 2);
+        List<String> files = store.exportArchive("position_value", 0, 180000);
+        Assert.assertEquals(1, files.size());
+        try (ColumnarReader reader = new ColumnarReader(Paths.get(files.get(0)))) {
+            Assert.assertEquals(List.of(first, second),
+                    MarketArchive.readPositions(reader, 0, Long.MAX_VALUE));
+        }
+
+        // 超过每个文件的最大行数时拆分为多个文件
+        PositionValue third = new PositionValue("n3", "s1", "a1", 2, 2.125, 4, 2, 1, 150000);
+        futureStore.storePositionValue(third);
+        store = new WarehouseMetaStore("./target", 2, 3, 2, 2);
+        files = store.exportArchive("position_value", 0, 180000);
+        Assert.assertEquals(2, files.size());
+        try (ColumnarReader reader = new ColumnarReader(Paths.get(files.get(0)))) {
+            Assert.assertEquals(List.of(first, second),
+                    MarketArchive.readPositions(reader, 0, Long.MAX_VALUE));
+        }
+        try (ColumnarReader reader = new ColumnarReader(Paths.get(files.get(1)))) {
+            Assert.assertEquals(List.of(third), MarketArchive.readPositions(reader, 0, Long.MAX_VALUE));
+        }
+    }
+
+    @Test
+    public void testWarehouseMetaStoreExportArchiveFailed() throws Exception {
+        try (Connection conn = DatabaseStore.getConnection();
+             Statement statement = conn.createStatement()) {
+            statement.executeUpdate("insert into history_order (fill_id, order_id, name, symbol, account, " +
+                    "side, type, price, size, result, fee_asset, fee, time) values " +
+                    "('f1', 'o1', 'n1', 's1', 'a1', 'BUY', 'LIMIT', 1, 1, 1, 'usdt', 0, '2021-01-01 00:00:01'), " +
+                    "('f2', 'o2', 'n1', 's1', 'a1', 'SELL', 'LIMIT', 1, 1, 1, 'usdt', 0, '2021-01-01 00:00:02'), " +
+                    "('f3', 'o3', 'n1', 's1', 'a1', 'XX', 'LIMIT', 1, 1, 1, 'usdt', 0, '2021-01-01 00:00:03')");
+        }
+
+        // 第一个文件写入后，第三行的 side 无法解析，已写入的文件全部删除
+        Path dir = Files.createDirectories(Paths.get("./target/archive" + System.currentTimeMillis()));
+        WarehouseMetaStore store = new WarehouseMetaStore(dir.toString(), 2, 3, 2, 2);
+        try {
+            store.exportArchive("history_order", 0, System.currentTimeMillis());
+            Assert.fail("invalid order side expected");
+        } catch (StoreException e) {
+            Assert.assertTrue(e.getCause() instanceof IllegalArgumentException);
+        }
+        try (Stream<Path> paths = Files.list(dir)) {
+            Assert.assertEquals(0, paths.count());
+        }
+    }
+}